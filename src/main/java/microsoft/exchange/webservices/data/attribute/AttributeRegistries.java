@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.attribute;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Holds the attribute registry. The registry generated at build time by
+ * AttributeRegistryProcessor is used when present, reflection otherwise.
+ */
+public final class AttributeRegistries {
+
+  private static final Log LOG = LogFactory.getLog(AttributeRegistries.class);
+
+  /**
+   * The name of the generated registry.
+   */
+  static final String GENERATED_REGISTRY =
+      "microsoft.exchange.webservices.data.attribute.GeneratedAttributeRegistry";
+
+  private static final IAttributeRegistry REGISTRY = load();
+
+  private static final IAttributeRegistry REFLECTION = new ReflectionAttributeRegistry();
+
+  private AttributeRegistries() {
+  }
+
+  private static IAttributeRegistry load() {
+    try {
+      return (IAttributeRegistry) Class.forName(GENERATED_REGISTRY).newInstance();
+    } catch (ClassNotFoundException e) {
+      LOG.debug("No generated attribute registry, falling back to reflection.");
+    } catch (Exception e) {
+      LOG.warn("Could not load the generated attribute registry, falling back to reflection.", e);
+    }
+    return new ReflectionAttributeRegistry();
+  }
+
+  /**
+   * Gets the attribute registry.
+   *
+   * @return the generated registry if present, the reflection one otherwise
+   */
+  public static IAttributeRegistry get() {
+    return REGISTRY;
+  }
+
+  /**
+   * Gets the registry reading the annotations by reflection. Used for types
+   * outside this library, which the generated registry does not know about.
+   *
+   * @return the reflection registry
+   */
+  public static IAttributeRegistry getReflection() {
+    return REFLECTION;
+  }
+
+}
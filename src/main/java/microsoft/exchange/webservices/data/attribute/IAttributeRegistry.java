@@ -0,0 +1,71 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.attribute;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.property.definition.PropertyDefinition;
+
+import java.util.Map;
+
+/**
+ * Gives access to the information carried by the EwsEnum,
+ * RequiredServerVersion, ServiceObjectDefinition and Schema annotations.
+ */
+public interface IAttributeRegistry {
+
+  /**
+   * Gets the schema names of the constants of an enum, keyed by constant name.
+   *
+   * @param enumType the enum type
+   * @return the schema names, empty if there are none
+   */
+  Map<String, String> getEnumSchemaNames(Class<?> enumType);
+
+  /**
+   * Gets the required server versions of the constants of an enum, keyed by
+   * constant name.
+   *
+   * @param enumType the enum type
+   * @return the required server versions, empty if there are none
+   */
+  Map<String, ExchangeVersion> getEnumVersions(Class<?> enumType);
+
+  /**
+   * Gets the XML element name of a service object type.
+   *
+   * @param serviceObjectType the service object type
+   * @return the XML element name, or null if the type is not known
+   */
+  String getXmlElementName(Class<?> serviceObjectType);
+
+  /**
+   * Gets the public static property definitions of a schema type, keyed by
+   * field name.
+   *
+   * @param schemaType the schema type
+   * @return the property definitions, in declaration order
+   */
+  Map<String, PropertyDefinition> getSchemaProperties(Class<?> schemaType);
+
+}
@@ -0,0 +1,97 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.attribute;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.property.definition.PropertyDefinition;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Reads the annotations by reflection. Used when the library was built
+ * without the generated registry.
+ */
+final class ReflectionAttributeRegistry implements IAttributeRegistry {
+
+  private static final Log LOG = LogFactory.getLog(ReflectionAttributeRegistry.class);
+
+  @Override
+  public Map<String, String> getEnumSchemaNames(Class<?> enumType) {
+    Map<String, String> dict = new HashMap<String, String>();
+    for (Field f : enumType.getDeclaredFields()) {
+      if (f.isEnumConstant() && f.isAnnotationPresent(EwsEnum.class)) {
+        String schemaName = f.getAnnotation(EwsEnum.class).schemaName();
+        if (!schemaName.isEmpty()) {
+          dict.put(f.getName(), schemaName);
+        }
+      }
+    }
+    return dict;
+  }
+
+  @Override
+  public Map<String, ExchangeVersion> getEnumVersions(Class<?> enumType) {
+    Map<String, ExchangeVersion> dict = new HashMap<String, ExchangeVersion>();
+    for (Field f : enumType.getDeclaredFields()) {
+      if (f.isEnumConstant() && f.isAnnotationPresent(RequiredServerVersion.class)) {
+        dict.put(f.getName(), f.getAnnotation(RequiredServerVersion.class).version());
+      }
+    }
+    return dict;
+  }
+
+  @Override
+  public String getXmlElementName(Class<?> serviceObjectType) {
+    ServiceObjectDefinition annotation = serviceObjectType.getAnnotation(ServiceObjectDefinition.class);
+    return annotation != null ? annotation.xmlElementName() : null;
+  }
+
+  @Override
+  public Map<String, PropertyDefinition> getSchemaProperties(Class<?> schemaType) {
+    Map<String, PropertyDefinition> map = new LinkedHashMap<String, PropertyDefinition>();
+    for (Field field : schemaType.getDeclaredFields()) {
+      int modifier = field.getModifiers();
+      if (Modifier.isPublic(modifier) && Modifier.isStatic(modifier)) {
+        try {
+          Object o = field.get(null);
+          if (o instanceof PropertyDefinition) {
+            map.put(field.getName(), (PropertyDefinition) o);
+          }
+        } catch (IllegalAccessException e) {
+          LOG.error(e);
+
+          // Skip the field
+        }
+      }
+    }
+    return map;
+  }
+
+}
@@ -54,6 +54,7 @@ import microsoft.exchange.webservices.data.autodiscover.exception.MaximumRedirec
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceValidationException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceVersionException;
+import microsoft.exchange.webservices.data.misc.Deadline;
 import microsoft.exchange.webservices.data.misc.OutParam;
 import microsoft.exchange.webservices.data.security.XmlNodeType;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -391,7 +392,7 @@ public class AutodiscoverService extends ExchangeServiceBase
     HttpWebRequest request = null;
 
     try {
-      request = new HttpClientWebRequest(httpClient, httpContext);
+      request = new HttpClientWebRequest(httpClient, newHttpContext());
       request.setProxy(getWebProxy());
 
       try {
@@ -403,7 +404,7 @@ public class AutodiscoverService extends ExchangeServiceBase
 
       request.setRequestMethod("GET");
       request.setAllowAutoRedirect(false);
-      request.setTimeout(getTimeout());
+      applyTimeout(request, null);
 
       // Do NOT allow authentication as this single request will be made over plain HTTP.
       request.setAllowAuthentication(false);
@@ -571,6 +572,7 @@ public class AutodiscoverService extends ExchangeServiceBase
     TSettings settings;
 
     do {
+      Deadline.checkCurrent();
       URI autodiscoverUrl = urls.get(currentUrlIndex);
       boolean isScpUrl = currentUrlIndex < scpUrlCount;
 
@@ -811,6 +813,7 @@ public class AutodiscoverService extends ExchangeServiceBase
     if (this
         .callRedirectionUrlValidationCallback(redirectionUrl.toString())) {
       for (int currentHop = 0; currentHop < AutodiscoverService.AutodiscoverMaxRedirections; currentHop++) {
+        Deadline.checkCurrent();
         try {
           settings.setParam(this.getLegacyUserSettingsAtUrl(cls,
               emailAddress, redirectionUrl));
@@ -987,6 +990,7 @@ public class AutodiscoverService extends ExchangeServiceBase
     redirectionEmailAddresses.add(smtpAddress.toLowerCase());
 
     for (int currentHop = 0; currentHop < AutodiscoverService.AutodiscoverMaxRedirections; currentHop++) {
+      Deadline.checkCurrent();
       GetUserSettingsResponse response = this.getUserSettings(smtpAddresses,
           requestedSettings).getTResponseAtIndex(0);
 
@@ -1220,6 +1224,7 @@ public class AutodiscoverService extends ExchangeServiceBase
     // GetUserSettings until we get back
     // a valid response or we've followed too many redirections.
     for (int currentHop = 0; currentHop < AutodiscoverService.AutodiscoverMaxRedirections; currentHop++) {
+      Deadline.checkCurrent();
       GetUserSettingsRequest request = new GetUserSettingsRequest(this,
           autodiscoverUrl);
       request.setSmtpAddresses(smtpAddresses);
@@ -1293,6 +1298,7 @@ public class AutodiscoverService extends ExchangeServiceBase
     // GetDomainSettings until we get back
     // a valid response or we've followed too many redirections.
     for (int currentHop = 0; currentHop < AutodiscoverService.AutodiscoverMaxRedirections; currentHop++) {
+      Deadline.checkCurrent();
       GetDomainSettingsRequest request = new GetDomainSettingsRequest(
           this, autodiscoverUrl);
       request.setDomains(domains);
@@ -1506,13 +1512,14 @@ public class AutodiscoverService extends ExchangeServiceBase
     // We may get redirected to another host. And therefore need to limit the number of redirections we'll
     // tolerate.
     for (int currentHop = 0; currentHop < AutodiscoverMaxRedirections; currentHop++) {
+      Deadline.checkCurrent();
       URI autoDiscoverUrl = new URI(String.format(AutodiscoverLegacyHttpsUrl, host));
 
       endpoints.setParam(EnumSet.of(AutodiscoverEndpoints.None));
 
       HttpWebRequest request = null;
       try {
-        request = new HttpClientWebRequest(httpClient, httpContext);
+        request = new HttpClientWebRequest(httpClient, newHttpContext());
         request.setProxy(getWebProxy());
 
         try {
@@ -1526,7 +1533,7 @@ public class AutodiscoverService extends ExchangeServiceBase
         request.setAllowAutoRedirect(false);
         request.setPreAuthenticate(false);
         request.setUseDefaultCredentials(this.getUseDefaultCredentials());
-        request.setTimeout(getTimeout());
+        applyTimeout(request, null);
 
         prepareCredentials(request);
 
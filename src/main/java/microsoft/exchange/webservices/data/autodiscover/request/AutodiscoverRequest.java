@@ -43,6 +43,7 @@ import microsoft.exchange.webservices.data.core.exception.service.remote.Service
 import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceResponseException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceXmlDeserializationException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceXmlSerializationException;
+import microsoft.exchange.webservices.data.misc.Deadline;
 import microsoft.exchange.webservices.data.misc.SoapFaultDetails;
 import microsoft.exchange.webservices.data.security.XmlNodeType;
 import org.apache.commons.logging.Log;
@@ -120,6 +121,7 @@ public abstract class AutodiscoverRequest {
    */
   protected AutodiscoverResponse internalExecute() throws Exception {
     this.validate();
+    Deadline.checkCurrent();
     HttpWebRequest request = null;
     try {
       request = this.service.prepareHttpWebRequestForUrl(this.url);
@@ -0,0 +1,308 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core;
+
+import microsoft.exchange.webservices.data.core.service.schema.ServiceObjectSchema;
+import microsoft.exchange.webservices.data.property.definition.PropertyDefinition;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A map keyed on PropertyDefinition that stores the values of the property
+ * registered with a schema in a flat array indexed by their ordinal. The
+ * array is allocated on first insertion; property not registered with the
+ * schema are kept in a small side table. Entries are iterated in ordinal
+ * order.
+ *
+ * @param <V> the type of the values
+ */
+final class CompactPropertyMap<V> extends AbstractMap<PropertyDefinition, V> {
+
+  /**
+   * Stands for a null value.
+   */
+  private static final Object NULL = new Object();
+
+  private final ServiceObjectSchema schema;
+
+  private Object[] values;
+
+  private PropertyDefinition[] extraKeys;
+
+  private Object[] extraValues;
+
+  private int extraCount;
+
+  private int size;
+
+  private int modCount;
+
+  private EntrySet entrySet;
+
+  /**
+   * Initializes a new instance of CompactPropertyMap.
+   *
+   * @param schema the schema assigning the ordinals, or null
+   */
+  CompactPropertyMap(ServiceObjectSchema schema) {
+    this.schema = schema;
+  }
+
+  private int ordinalOf(Object key) {
+    if (this.schema == null || !(key instanceof PropertyDefinition)) {
+      return -1;
+    }
+    return this.schema.getPropertyOrdinal((PropertyDefinition) key);
+  }
+
+  private int extraIndexOf(Object key) {
+    for (int i = 0; i < this.extraCount; i++) {
+      if (this.extraKeys[i].equals(key)) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <V> V unmask(Object value) {
+    return value == NULL ? null : (V) value;
+  }
+
+  @Override
+  public int size() {
+    return this.size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    int ordinal = this.ordinalOf(key);
+    if (ordinal >= 0) {
+      return this.values != null && this.values[ordinal] != null;
+    }
+    return this.extraIndexOf(key) >= 0;
+  }
+
+  @Override
+  public V get(Object key) {
+    int ordinal = this.ordinalOf(key);
+    if (ordinal >= 0) {
+      return this.values != null ? CompactPropertyMap.<V>unmask(this.values[ordinal]) : null;
+    }
+    int index = this.extraIndexOf(key);
+    return index >= 0 ? CompactPropertyMap.<V>unmask(this.extraValues[index]) : null;
+  }
+
+  @Override
+  public V put(PropertyDefinition key, V value) {
+    Object masked = value == null ? NULL : value;
+    int ordinal = this.ordinalOf(key);
+    if (ordinal >= 0) {
+      if (this.values == null) {
+        this.values = new Object[this.schema.getPropertyCount()];
+      }
+      Object previous = this.values[ordinal];
+      this.values[ordinal] = masked;
+      if (previous == null) {
+        this.size++;
+        this.modCount++;
+      }
+      return unmask(previous);
+    }
+
+    int index = this.extraIndexOf(key);
+    if (index >= 0) {
+      Object previous = this.extraValues[index];
+      this.extraValues[index] = masked;
+      return unmask(previous);
+    }
+    if (this.extraKeys == null) {
+      this.extraKeys = new PropertyDefinition[2];
+      this.extraValues = new Object[2];
+    } else if (this.extraCount == this.extraKeys.length) {
+      this.extraKeys = Arrays.copyOf(this.extraKeys, this.extraCount * 2);
+      this.extraValues = Arrays.copyOf(this.extraValues, this.extraCount * 2);
+    }
+    this.extraKeys[this.extraCount] = key;
+    this.extraValues[this.extraCount] = masked;
+    this.extraCount++;
+    this.size++;
+    this.modCount++;
+    return null;
+  }
+
+  @Override
+  public V remove(Object key) {
+    int ordinal = this.ordinalOf(key);
+    if (ordinal >= 0) {
+      if (this.values == null || this.values[ordinal] == null) {
+        return null;
+      }
+      Object previous = this.values[ordinal];
+      this.values[ordinal] = null;
+      this.size--;
+      this.modCount++;
+      return unmask(previous);
+    }
+    int index = this.extraIndexOf(key);
+    return index >= 0 ? this.removeExtra(index) : null;
+  }
+
+  private V removeExtra(int index) {
+    Object previous = this.extraValues[index];
+    int moved = this.extraCount - index - 1;
+    System.arraycopy(this.extraKeys, index + 1, this.extraKeys, index, moved);
+    System.arraycopy(this.extraValues, index + 1, this.extraValues, index, moved);
+    this.extraCount--;
+    this.extraKeys[this.extraCount] = null;
+    this.extraValues[this.extraCount] = null;
+    this.size--;
+    this.modCount++;
+    return unmask(previous);
+  }
+
+  @Override
+  public void clear() {
+    if (this.size > 0) {
+      if (this.values != null) {
+        Arrays.fill(this.values, null);
+      }
+      for (int i = 0; i < this.extraCount; i++) {
+        this.extraKeys[i] = null;
+        this.extraValues[i] = null;
+      }
+      this.extraCount = 0;
+      this.size = 0;
+      this.modCount++;
+    }
+  }
+
+  @Override
+  public Set<Entry<PropertyDefinition, V>> entrySet() {
+    if (this.entrySet == null) {
+      this.entrySet = new EntrySet();
+    }
+    return this.entrySet;
+  }
+
+  private final class EntrySet extends AbstractSet<Entry<PropertyDefinition, V>> {
+
+    @Override
+    public Iterator<Entry<PropertyDefinition, V>> iterator() {
+      return new EntryIterator();
+    }
+
+    @Override
+    public int size() {
+      return CompactPropertyMap.this.size;
+    }
+
+    @Override
+    public void clear() {
+      CompactPropertyMap.this.clear();
+    }
+  }
+
+  /**
+   * Iterates the array slots, then the side table.
+   */
+  private final class EntryIterator implements Iterator<Entry<PropertyDefinition, V>> {
+
+    private final int slotCount = values != null ? values.length : 0;
+
+    private int next;
+
+    private int current = -1;
+
+    private int expectedModCount = modCount;
+
+    private void skipEmptySlots() {
+      while (this.next < this.slotCount && values[this.next] == null) {
+        this.next++;
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      this.skipEmptySlots();
+      return this.next < this.slotCount + extraCount;
+    }
+
+    @Override
+    public Entry<PropertyDefinition, V> next() {
+      if (modCount != this.expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (!this.hasNext()) {
+        throw new NoSuchElementException();
+      }
+      this.current = this.next++;
+      if (this.current < this.slotCount) {
+        return new SimpleEntry<PropertyDefinition, V>(schema.getPropertyAtOrdinal(this.current),
+            CompactPropertyMap.<V>unmask(values[this.current])) {
+          @Override
+          public V setValue(V value) {
+            super.setValue(value);
+            return put(getKey(), value);
+          }
+        };
+      }
+      int index = this.current - this.slotCount;
+      return new SimpleEntry<PropertyDefinition, V>(extraKeys[index],
+          CompactPropertyMap.<V>unmask(extraValues[index])) {
+        @Override
+        public V setValue(V value) {
+          super.setValue(value);
+          return put(getKey(), value);
+        }
+      };
+    }
+
+    @Override
+    public void remove() {
+      if (this.current < 0) {
+        throw new IllegalStateException();
+      }
+      if (modCount != this.expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+      if (this.current < this.slotCount) {
+        CompactPropertyMap.this.remove(schema.getPropertyAtOrdinal(this.current));
+      } else {
+        removeExtra(this.current - this.slotCount);
+        // The following entries of the side table moved down by one.
+        this.next = this.current;
+      }
+      this.current = -1;
+      this.expectedModCount = modCount;
+    }
+  }
+
+}
@@ -0,0 +1,155 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core;
+
+import microsoft.exchange.webservices.data.core.service.schema.ServiceObjectSchema;
+import microsoft.exchange.webservices.data.property.definition.PropertyDefinition;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A set of PropertyDefinition that tracks the membership of the property
+ * registered with a schema in a bit set indexed by their ordinal. Elements
+ * are iterated in insertion order, like the change lists this set replaces,
+ * so that updates are serialized in the order they were made. Storage is
+ * allocated on first insertion.
+ */
+final class CompactPropertySet extends AbstractSet<PropertyDefinition> {
+
+  private final ServiceObjectSchema schema;
+
+  private BitSet ordinals;
+
+  private List<PropertyDefinition> elements;
+
+  /**
+   * Initializes a new instance of CompactPropertySet.
+   *
+   * @param schema the schema assigning the ordinals, or null
+   */
+  CompactPropertySet(ServiceObjectSchema schema) {
+    this.schema = schema;
+  }
+
+  private int ordinalOf(Object element) {
+    if (this.schema == null || !(element instanceof PropertyDefinition)) {
+      return -1;
+    }
+    return this.schema.getPropertyOrdinal((PropertyDefinition) element);
+  }
+
+  @Override
+  public int size() {
+    return this.elements != null ? this.elements.size() : 0;
+  }
+
+  @Override
+  public boolean contains(Object element) {
+    int ordinal = this.ordinalOf(element);
+    if (ordinal >= 0) {
+      return this.ordinals != null && this.ordinals.get(ordinal);
+    }
+    return this.elements != null && this.elements.contains(element);
+  }
+
+  @Override
+  public boolean add(PropertyDefinition element) {
+    if (this.contains(element)) {
+      return false;
+    }
+    int ordinal = this.ordinalOf(element);
+    if (ordinal >= 0) {
+      if (this.ordinals == null) {
+        this.ordinals = new BitSet(this.schema.getPropertyCount());
+      }
+      this.ordinals.set(ordinal);
+    }
+    if (this.elements == null) {
+      this.elements = new ArrayList<PropertyDefinition>(4);
+    }
+    this.elements.add(element);
+    return true;
+  }
+
+  @Override
+  public boolean remove(Object element) {
+    if (!this.contains(element)) {
+      return false;
+    }
+    this.clearOrdinal(element);
+    this.elements.remove(element);
+    return true;
+  }
+
+  private void clearOrdinal(Object element) {
+    int ordinal = this.ordinalOf(element);
+    if (ordinal >= 0) {
+      this.ordinals.clear(ordinal);
+    }
+  }
+
+  @Override
+  public void clear() {
+    if (this.ordinals != null) {
+      this.ordinals.clear();
+    }
+    if (this.elements != null) {
+      this.elements.clear();
+    }
+  }
+
+  @Override
+  public Iterator<PropertyDefinition> iterator() {
+    if (this.elements == null) {
+      return Collections.<PropertyDefinition>emptyList().iterator();
+    }
+    final Iterator<PropertyDefinition> iterator = this.elements.iterator();
+    return new Iterator<PropertyDefinition>() {
+      private PropertyDefinition current;
+
+      @Override
+      public boolean hasNext() {
+        return iterator.hasNext();
+      }
+
+      @Override
+      public PropertyDefinition next() {
+        this.current = iterator.next();
+        return this.current;
+      }
+
+      @Override
+      public void remove() {
+        iterator.remove();
+        clearOrdinal(this.current);
+      }
+    };
+  }
+
+}
@@ -0,0 +1,218 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core;
+
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import microsoft.exchange.webservices.data.misc.ContextExecutors;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caches the results of directory lookups of an ExchangeService: ResolveNames,
+ * ExpandGroup, GetRoomLists and GetRooms.
+ * <p>
+ * Results are kept for a fixed time after they were retrieved, up to a
+ * maximum number of entries. Concurrent identical lookups wait for a single
+ * request. If a refresh interval is set, an entry that is used after that
+ * interval is refreshed in the background while the cached result is still
+ * returned, so that frequently used entries do not expire.
+ * </p>
+ * <p>
+ * Lookups are cached per endpoint and credentials, and each caller gets its
+ * own copy of a cached result. A cache can be shared by several services
+ * and is attached to a service with
+ * {@link ExchangeService#setDirectoryCache(DirectoryCache)}; refreshes are
+ * executed on a daemon thread owned by the cache, which is released by
+ * {@link #close()}.
+ * </p>
+ */
+public final class DirectoryCache implements Closeable {
+
+  private final LoadingCache<Key, Object> entries;
+
+  private final ExecutorService refresher;
+
+  /**
+   * Initializes a new instance of the DirectoryCache class without background
+   * refresh.
+   *
+   * @param maxEntries the maximum number of cached lookups
+   * @param ttl        the time a result is cached
+   * @param timeUnit   the unit of the time
+   */
+  public DirectoryCache(int maxEntries, long ttl, TimeUnit timeUnit) {
+    this(maxEntries, ttl, 0, timeUnit);
+  }
+
+  /**
+   * Initializes a new instance of the DirectoryCache class.
+   *
+   * @param maxEntries   the maximum number of cached lookups
+   * @param ttl          the time a result is cached
+   * @param refreshAfter the time after which a used result is refreshed in the
+   *                     background, or 0 to never refresh
+   * @param timeUnit     the unit of the times
+   */
+  public DirectoryCache(int maxEntries, long ttl, long refreshAfter, TimeUnit timeUnit) {
+    if (refreshAfter < 0 || (refreshAfter > 0 && refreshAfter >= ttl)) {
+      throw new IllegalArgumentException("The refresh interval must be shorter than the time to live.");
+    }
+    CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder()
+        .maximumSize(maxEntries)
+        .expireAfterWrite(ttl, timeUnit)
+        .recordStats();
+    CacheLoader<Key, Object> loader = new CacheLoader<Key, Object>() {
+      @Override
+      public Object load(Key key) throws Exception {
+        return key.lookup();
+      }
+    };
+    if (refreshAfter > 0) {
+      this.refresher = Executors.newSingleThreadExecutor(
+          ContextExecutors.newPoolThreadFactory("ews-directory-refresh"));
+      builder.refreshAfterWrite(refreshAfter, timeUnit);
+      loader = CacheLoader.asyncReloading(loader, this.refresher);
+    } else {
+      this.refresher = null;
+    }
+    this.entries = builder.build(loader);
+  }
+
+  /**
+   * Gets the result of a lookup from the cache, or performs the lookup. The
+   * result is shared and must be copied before it is returned to the caller.
+   *
+   * @param service the service the lookup is made with
+   * @param lookup  the lookup
+   * @param key     the parts identifying the lookup for the service
+   * @param <T>     the type of the result
+   * @return the result
+   * @throws Exception if the lookup failed
+   */
+  @SuppressWarnings("unchecked")
+  <T> T get(ExchangeService service, Callable<T> lookup, Object... key) throws Exception {
+    Object[] parts = new Object[key.length + 2];
+    parts[0] = service.getUrl();
+    parts[1] = service.getCredentials();
+    System.arraycopy(key, 0, parts, 2, key.length);
+    try {
+      return (T) entries.get(new Key(parts, lookup, RequestContext.current()));
+    } catch (ExecutionException e) {
+      throw unwrap(e);
+    } catch (UncheckedExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  private static Exception unwrap(Exception e) {
+    Throwable cause = e.getCause();
+    if (cause instanceof Error) {
+      throw (Error) cause;
+    }
+    return cause instanceof Exception ? (Exception) cause : e;
+  }
+
+  /**
+   * Forgets all cached results, e.g. after the directory was changed.
+   */
+  public void invalidateAll() {
+    entries.invalidateAll();
+  }
+
+  /**
+   * Gets the number of cached results.
+   *
+   * @return the number of results
+   */
+  public long size() {
+    return entries.size();
+  }
+
+  /**
+   * Gets statistics of the cache, such as hits, misses and load times.
+   *
+   * @return the statistics
+   */
+  public CacheStats getStats() {
+    return entries.stats();
+  }
+
+  /**
+   * Releases the refresh thread of this cache.
+   */
+  @Override
+  public void close() {
+    if (refresher != null) {
+      refresher.shutdownNow();
+    }
+  }
+
+  /**
+   * Identifies a lookup. The lookup itself and the request context it was
+   * made in are kept to refresh the result, but are not part of the key.
+   */
+  private static final class Key {
+
+    private final Object[] parts;
+
+    private final Callable<?> lookup;
+
+    private final RequestContext context;
+
+    Key(Object[] parts, Callable<?> lookup, RequestContext context) {
+      this.parts = parts;
+      this.lookup = lookup;
+      this.context = context;
+    }
+
+    Object lookup() throws Exception {
+      if (context == null || context == RequestContext.current()) {
+        return lookup.call();
+      }
+      try (RequestContext.Scope scope = context.attach()) {
+        return lookup.call();
+      }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return this == o || (o instanceof Key && Arrays.equals(parts, ((Key) o).parts));
+    }
+
+    @Override
+    public int hashCode() {
+      return Arrays.hashCode(parts);
+    }
+  }
+}
@@ -78,6 +78,11 @@ public class EwsServiceXmlWriter implements IDisposable {
    */
   private XMLStreamWriter xmlWriter;
 
+  /**
+   * The stream the xml writer writes to.
+   */
+  private final OutputStream stream;
+
   /**
    * The is time zone header emitted.
    */
@@ -103,6 +108,7 @@ public class EwsServiceXmlWriter implements IDisposable {
    */
   public EwsServiceXmlWriter(ExchangeServiceBase service, OutputStream stream) throws XMLStreamException {
     this.service = service;
+    this.stream = stream;
     XMLOutputFactory xmlof = XMLOutputFactory.newInstance();
     xmlWriter = xmlof.createXMLStreamWriter(stream, "utf-8");
 
@@ -526,6 +532,35 @@ public class EwsServiceXmlWriter implements IDisposable {
     source.copyTo(sink);
   }
 
+  /**
+   * Writes pre-serialized XML as is. Must not be called while a start tag is
+   * still open.
+   *
+   * @param xml the UTF-8 encoded XML
+   * @throws XMLStreamException the XML stream exception
+   * @throws IOException signals that an I/O exception has occurred
+   */
+  public void writeRaw(byte[] xml) throws XMLStreamException, IOException {
+    this.xmlWriter.flush();
+    this.stream.write(xml);
+  }
+
+  /**
+   * Writes a pre-serialized XML element as is, within the current element.
+   *
+   * @param xml the UTF-8 encoded XML
+   * @throws XMLStreamException the XML stream exception
+   */
+  public void writeRawElement(byte[] xml) throws XMLStreamException {
+    // Closes the start tag of the current element if still open.
+    this.xmlWriter.writeCharacters("");
+    try {
+      this.writeRaw(xml);
+    } catch (IOException e) {
+      throw new XMLStreamException(e);
+    }
+  }
+
   /**
    * Gets the internal XML writer.
    *
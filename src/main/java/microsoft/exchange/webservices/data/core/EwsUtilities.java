@@ -26,8 +26,7 @@ package microsoft.exchange.webservices.data.core;
 import static microsoft.exchange.webservices.data.security.SafeXmlFactory.factory;
 
 import microsoft.exchange.webservices.data.ISelfValidate;
-import microsoft.exchange.webservices.data.attribute.EwsEnum;
-import microsoft.exchange.webservices.data.attribute.RequiredServerVersion;
+import microsoft.exchange.webservices.data.attribute.AttributeRegistries;
 import microsoft.exchange.webservices.data.core.request.HttpWebRequest;
 import microsoft.exchange.webservices.data.core.service.ICreateServiceObjectWithAttachmentParam;
 import microsoft.exchange.webservices.data.core.service.ICreateServiceObjectWithServiceParam;
@@ -75,7 +74,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.lang.reflect.Field;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.net.URISyntaxException;
@@ -538,13 +536,31 @@ public final class EwsUtilities {
       XMLStreamWriter writer,
       String traceTag,
       boolean includeVersion) throws XMLStreamException {
+    writeTraceStartElement(writer, traceTag, includeVersion, Thread.currentThread().getId(), new Date());
+  }
+
+  /**
+   * Write trace start element.
+   *
+   * @param writer         the writer to write the start element to
+   * @param traceTag       the trace tag
+   * @param includeVersion if true, include build version attribute
+   * @param threadId       the id of the thread that produced the trace entry
+   * @param time           the time at which the trace entry was produced
+   * @throws XMLStreamException the XML stream exception
+   */
+  private static void writeTraceStartElement(
+      XMLStreamWriter writer,
+      String traceTag,
+      boolean includeVersion,
+      long threadId,
+      Date time) throws XMLStreamException {
     writer.writeStartElement("Trace");
     writer.writeAttribute("Tag", traceTag);
-    writer.writeAttribute("Tid", Thread.currentThread().getId() + "");
-    Date d = new Date();
+    writer.writeAttribute("Tid", threadId + "");
     DateFormat df = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss'Z'");
     df.setTimeZone(TimeZone.getTimeZone("UTC"));
-    String formattedString = df.format(d);
+    String formattedString = df.format(time);
     writer.writeAttribute("Time", formattedString);
 
     if (includeVersion) {
@@ -563,12 +579,27 @@ public final class EwsUtilities {
    */
   public static String formatLogMessage(String entryKind, String logEntry)
       throws XMLStreamException, IOException {
+    return formatLogMessage(entryKind, logEntry, Thread.currentThread().getId(), new Date());
+  }
+
+  /**
+   * Formats a log message on behalf of another thread, e.g. when tracing asynchronously.
+   *
+   * @param entryKind the entry kind
+   * @param logEntry  the log entry
+   * @param threadId  the id of the thread that produced the entry
+   * @param time      the time at which the entry was produced
+   * @return the string
+   * @throws XMLStreamException the XML stream exception
+   * @throws IOException signals that an I/O exception has occurred.
+   */
+  public static String formatLogMessage(String entryKind, String logEntry, long threadId, Date time)
+      throws XMLStreamException, IOException {
     String lineSeparator = System.getProperty("line.separator");
     ByteArrayOutputStream outStream = new ByteArrayOutputStream();
-    XMLOutputFactory factory = XMLOutputFactory.newInstance();
-    XMLStreamWriter writer = factory.createXMLStreamWriter(outStream);
+    XMLStreamWriter writer = traceOutputFactory.createXMLStreamWriter(outStream);
 
-    EwsUtilities.writeTraceStartElement(writer, entryKind, false);
+    EwsUtilities.writeTraceStartElement(writer, entryKind, false, threadId, time);
     writer.writeCharacters(lineSeparator);
     writer.writeCharacters(logEntry);
     if (!logEntry.endsWith("\n")) {
@@ -579,16 +610,55 @@ public final class EwsUtilities {
     writer.flush();
     writer.close();
     outStream.flush();
-    String formattedLogMessage = outStream.toString();
-    formattedLogMessage = formattedLogMessage.replaceAll("&apos;", "'");
-    formattedLogMessage = formattedLogMessage.replaceAll("&quot;", "\"");
-    formattedLogMessage = formattedLogMessage.replaceAll("&gt;", ">");
-    formattedLogMessage = formattedLogMessage.replaceAll("&lt;", "<");
-    formattedLogMessage = formattedLogMessage.replaceAll("&amp;", "&");
+    String formattedLogMessage = unescapeXmlEntities(outStream.toString());
     outStream.close();
     return formattedLogMessage;
   }
 
+  private static final XMLOutputFactory traceOutputFactory = XMLOutputFactory.newInstance();
+
+  /**
+   * Replaces the predefined XML entities by the characters they stand for, in a single pass.
+   *
+   * @param text the escaped text
+   * @return the unescaped text
+   */
+  static String unescapeXmlEntities(String text) {
+    int ampersand = text.indexOf('&');
+    if (ampersand < 0) {
+      return text;
+    }
+
+    StringBuilder sb = new StringBuilder(text.length());
+    int start = 0;
+    while (ampersand >= 0) {
+      sb.append(text, start, ampersand);
+      start = ampersand;
+      if (text.startsWith("&apos;", ampersand)) {
+        sb.append('\'');
+        start += 6;
+      } else if (text.startsWith("&quot;", ampersand)) {
+        sb.append('"');
+        start += 6;
+      } else if (text.startsWith("&gt;", ampersand)) {
+        sb.append('>');
+        start += 4;
+      } else if (text.startsWith("&lt;", ampersand)) {
+        sb.append('<');
+        start += 4;
+      } else if (text.startsWith("&amp;", ampersand)) {
+        sb.append('&');
+        start += 5;
+      } else {
+        sb.append('&');
+        start += 1;
+      }
+      ampersand = text.indexOf('&', start);
+    }
+    sb.append(text, start, text.length());
+    return sb.toString();
+  }
+
   private static final DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
   static {
     try {
@@ -829,17 +899,8 @@ public final class EwsUtilities {
   private static <E extends Enum<E>> Map<String, String>
   buildSchemaToEnumDict(Class<E> c) {
     Map<String, String> dict = new HashMap<String, String>();
-
-    Field[] fields = c.getDeclaredFields();
-    for (Field f : fields) {
-      if (f.isEnumConstant() && f.isAnnotationPresent(EwsEnum.class)) {
-        EwsEnum ewsEnum = f.getAnnotation(EwsEnum.class);
-        String fieldName = f.getName();
-        String schemaName = ewsEnum.schemaName();
-        if (!schemaName.isEmpty()) {
-          dict.put(schemaName, fieldName);
-        }
-      }
+    for (Map.Entry<String, String> entry : AttributeRegistries.get().getEnumSchemaNames(c).entrySet()) {
+      dict.put(entry.getValue(), entry.getKey());
     }
     return dict;
   }
@@ -1263,20 +1324,7 @@ public final class EwsUtilities {
    */
   private static <E extends Enum<E>> Map<String, ExchangeVersion>
   buildEnumDict(Class<E> c) {
-    Map<String, ExchangeVersion> dict =
-        new HashMap<String, ExchangeVersion>();
-    Field[] fields = c.getDeclaredFields();
-    for (Field f : fields) {
-      if (f.isEnumConstant()
-          && f.isAnnotationPresent(RequiredServerVersion.class)) {
-        RequiredServerVersion ewsEnum = f
-            .getAnnotation(RequiredServerVersion.class);
-        String fieldName = f.getName();
-        ExchangeVersion exchangeVersion = ewsEnum.version();
-        dict.put(fieldName, exchangeVersion);
-      }
-    }
-    return dict;
+    return new HashMap<String, ExchangeVersion>(AttributeRegistries.get().getEnumVersions(c));
   }
 
   /**
@@ -1286,19 +1334,7 @@ public final class EwsUtilities {
    * @return The mapping from enum to schema name
    */
   private static Map<String, String> buildEnumToSchemaDict(Class<?> c) {
-    Map<String, String> dict = new HashMap<String, String>();
-    Field[] fields = c.getFields();
-    for (Field f : fields) {
-      if (f.isEnumConstant() && f.isAnnotationPresent(EwsEnum.class)) {
-        EwsEnum ewsEnum = f.getAnnotation(EwsEnum.class);
-        String fieldName = f.getName();
-        String schemaName = ewsEnum.schemaName();
-        if (!schemaName.isEmpty()) {
-          dict.put(fieldName, schemaName);
-        }
-      }
-    }
-    return dict;
+    return new HashMap<String, String>(AttributeRegistries.get().getEnumSchemaNames(c));
   }
 
   /**
@@ -2,7 +2,10 @@ package microsoft.exchange.webservices.data.core;
 
 import microsoft.exchange.webservices.data.autodiscover.AutodiscoverService;
 import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.request.HedgingPolicy;
+import microsoft.exchange.webservices.data.misc.metrics.IRequestMetricsListener;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
 import java.net.URI;
 import java.util.concurrent.TimeUnit;
@@ -11,6 +14,8 @@ public class ExchangeFactory {
   protected final CloseableHttpClient httpClient;
   protected ExchangeVersion version = DEFAULT_VERSION;
   protected Integer timeout;
+  protected IRequestMetricsListener requestMetricsListener;
+  protected HedgingPolicy hedgingPolicy;
 
   public static final ExchangeVersion DEFAULT_VERSION = ExchangeVersion.Exchange2010_SP2;
 
@@ -18,9 +23,19 @@ public class ExchangeFactory {
     return DefaultFactory.INSTANCE;
   }
 
+  /**
+   * Gets the connection manager of the default factory, e.g. to register it
+   * with a {@link microsoft.exchange.webservices.data.misc.management.ManagementRegistry}.
+   */
+  public static PoolingHttpClientConnectionManager defaultConnectionManager() {
+    return DefaultFactory.CONNECTION_MANAGER;
+  }
+
   private static class DefaultFactory {
+    private static final PoolingHttpClientConnectionManager CONNECTION_MANAGER =
+        (PoolingHttpClientConnectionManager) HttpUtil.newPoolingConnectionManager(50);
     private static final ExchangeFactory INSTANCE = new ExchangeFactory(
-        HttpUtil.newHttpClientBuilder(HttpUtil.newPoolingConnectionManager(50)).build());
+        HttpUtil.newHttpClientBuilder(CONNECTION_MANAGER).build());
   }
 
   public ExchangeFactory(CloseableHttpClient httpClient) {
@@ -44,6 +59,14 @@ public class ExchangeFactory {
     this.timeout = (int) timeUnit.toMillis(timeout);
   }
 
+  public void setRequestMetricsListener(IRequestMetricsListener requestMetricsListener) {
+    this.requestMetricsListener = requestMetricsListener;
+  }
+
+  public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+    this.hedgingPolicy = hedgingPolicy;
+  }
+
   public ExchangeService newExchangeService() {
     return newExchangeService(version);
   }
@@ -53,6 +76,8 @@ public class ExchangeFactory {
     if (timeout != null) {
       es.setTimeout(timeout);
     }
+    es.setRequestMetricsListener(requestMetricsListener);
+    es.setHedgingPolicy(hedgingPolicy);
     return es;
   }
 
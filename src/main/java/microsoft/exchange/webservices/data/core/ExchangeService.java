@@ -23,6 +23,8 @@
 
 package microsoft.exchange.webservices.data.core;
 
+import com.google.common.collect.Lists;
+import com.google.common.io.ByteSink;
 import microsoft.exchange.webservices.data.autodiscover.AutodiscoverService;
 import microsoft.exchange.webservices.data.autodiscover.IAutodiscoverRedirectionUrl;
 import microsoft.exchange.webservices.data.autodiscover.enumeration.UserSettingName;
@@ -39,6 +41,7 @@ import microsoft.exchange.webservices.data.core.enumeration.misc.UserConfigurati
 import microsoft.exchange.webservices.data.core.enumeration.notification.EventType;
 import microsoft.exchange.webservices.data.core.enumeration.property.BodyType;
 import microsoft.exchange.webservices.data.core.enumeration.property.WellKnownFolderName;
+import microsoft.exchange.webservices.data.core.enumeration.search.ConversationSortOrder;
 import microsoft.exchange.webservices.data.core.enumeration.search.ResolveNameSearchLocation;
 import microsoft.exchange.webservices.data.core.enumeration.service.ConflictResolutionMode;
 import microsoft.exchange.webservices.data.core.enumeration.service.DeleteMode;
@@ -54,10 +57,12 @@ import microsoft.exchange.webservices.data.core.exception.misc.ArgumentOutOfRang
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceValidationException;
 import microsoft.exchange.webservices.data.core.exception.service.remote.AccountIsLockedException;
+import microsoft.exchange.webservices.data.core.exception.service.remote.BatchExecutionException;
 import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceRemoteException;
 import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceResponseException;
 import microsoft.exchange.webservices.data.core.request.AddDelegateRequest;
 import microsoft.exchange.webservices.data.core.request.ConvertIdRequest;
+import microsoft.exchange.webservices.data.core.request.ExportItemsRequest;
 import microsoft.exchange.webservices.data.core.request.CopyFolderRequest;
 import microsoft.exchange.webservices.data.core.request.CopyItemRequest;
 import microsoft.exchange.webservices.data.core.request.CreateAttachmentRequest;
@@ -76,6 +81,7 @@ import microsoft.exchange.webservices.data.core.request.FindConversationRequest;
 import microsoft.exchange.webservices.data.core.request.FindFolderRequest;
 import microsoft.exchange.webservices.data.core.request.FindItemRequest;
 import microsoft.exchange.webservices.data.core.request.GetAttachmentRequest;
+import microsoft.exchange.webservices.data.core.request.GetConversationItemsRequest;
 import microsoft.exchange.webservices.data.core.request.GetDelegateRequest;
 import microsoft.exchange.webservices.data.core.request.GetEventsRequest;
 import microsoft.exchange.webservices.data.core.request.GetFolderRequest;
@@ -108,7 +114,9 @@ import microsoft.exchange.webservices.data.core.request.UpdateFolderRequest;
 import microsoft.exchange.webservices.data.core.request.UpdateInboxRulesRequest;
 import microsoft.exchange.webservices.data.core.request.UpdateItemRequest;
 import microsoft.exchange.webservices.data.core.request.UpdateUserConfigurationRequest;
+import microsoft.exchange.webservices.data.core.request.UploadItemsRequest;
 import microsoft.exchange.webservices.data.core.response.ConvertIdResponse;
+import microsoft.exchange.webservices.data.core.response.ExportItemsResponse;
 import microsoft.exchange.webservices.data.core.response.CreateAttachmentResponse;
 import microsoft.exchange.webservices.data.core.response.CreateResponseObjectResponse;
 import microsoft.exchange.webservices.data.core.response.DelegateManagementResponse;
@@ -117,6 +125,7 @@ import microsoft.exchange.webservices.data.core.response.DeleteAttachmentRespons
 import microsoft.exchange.webservices.data.core.response.FindFolderResponse;
 import microsoft.exchange.webservices.data.core.response.FindItemResponse;
 import microsoft.exchange.webservices.data.core.response.GetAttachmentResponse;
+import microsoft.exchange.webservices.data.core.response.GetConversationItemsResponse;
 import microsoft.exchange.webservices.data.core.response.GetDelegateResponse;
 import microsoft.exchange.webservices.data.core.response.GetFolderResponse;
 import microsoft.exchange.webservices.data.core.response.GetItemResponse;
@@ -124,6 +133,7 @@ import microsoft.exchange.webservices.data.core.response.GetServerTimeZonesRespo
 import microsoft.exchange.webservices.data.core.response.MoveCopyFolderResponse;
 import microsoft.exchange.webservices.data.core.response.MoveCopyItemResponse;
 import microsoft.exchange.webservices.data.core.response.ServiceResponse;
+import microsoft.exchange.webservices.data.core.response.UploadItemsResponse;
 import microsoft.exchange.webservices.data.core.response.ServiceResponseCollection;
 import microsoft.exchange.webservices.data.core.response.UpdateItemResponse;
 import microsoft.exchange.webservices.data.core.service.ServiceObject;
@@ -134,26 +144,32 @@ import microsoft.exchange.webservices.data.core.service.item.Item;
 import microsoft.exchange.webservices.data.messaging.UnifiedMessaging;
 import microsoft.exchange.webservices.data.misc.AsyncCallback;
 import microsoft.exchange.webservices.data.misc.AsyncRequestResult;
+import microsoft.exchange.webservices.data.misc.ContextExecutors;
 import microsoft.exchange.webservices.data.misc.ConversationAction;
 import microsoft.exchange.webservices.data.misc.DelegateInformation;
 import microsoft.exchange.webservices.data.misc.ExpandGroupResults;
+import microsoft.exchange.webservices.data.misc.IFunction;
 import microsoft.exchange.webservices.data.misc.FolderIdWrapper;
 import microsoft.exchange.webservices.data.misc.IAsyncResult;
 import microsoft.exchange.webservices.data.misc.ImpersonatedUserId;
 import microsoft.exchange.webservices.data.misc.NameResolutionCollection;
 import microsoft.exchange.webservices.data.misc.OutParam;
 import microsoft.exchange.webservices.data.misc.UserConfiguration;
+import microsoft.exchange.webservices.data.misc.UploadItem;
 import microsoft.exchange.webservices.data.misc.availability.AttendeeInfo;
 import microsoft.exchange.webservices.data.misc.availability.AvailabilityOptions;
 import microsoft.exchange.webservices.data.misc.availability.GetUserAvailabilityResults;
 import microsoft.exchange.webservices.data.misc.availability.TimeWindow;
 import microsoft.exchange.webservices.data.misc.id.AlternateIdBase;
+import microsoft.exchange.webservices.data.misc.id.CompactServiceId;
+import microsoft.exchange.webservices.data.misc.id.LocalIdConverter;
 import microsoft.exchange.webservices.data.notification.GetEventsResults;
 import microsoft.exchange.webservices.data.notification.PullSubscription;
 import microsoft.exchange.webservices.data.notification.PushSubscription;
 import microsoft.exchange.webservices.data.notification.StreamingSubscription;
 import microsoft.exchange.webservices.data.property.complex.Attachment;
 import microsoft.exchange.webservices.data.property.complex.ConversationId;
+import microsoft.exchange.webservices.data.property.complex.ConversationRequest;
 import microsoft.exchange.webservices.data.property.complex.DelegateUser;
 import microsoft.exchange.webservices.data.property.complex.EmailAddress;
 import microsoft.exchange.webservices.data.property.complex.EmailAddressCollection;
@@ -198,6 +214,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * Represents a binding to the Exchange Web Services.
@@ -225,6 +245,16 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
    * The impersonated user id.
    */
   private ImpersonatedUserId impersonatedUserId;
+
+  /**
+   * The cache of directory lookups, if any.
+   */
+  private volatile DirectoryCache directoryCache;
+
+  /**
+   * The converter of ids that don't need the server, if any.
+   */
+  private volatile LocalIdConverter localIdConverter;
   // private Iterator<ItemId> Iterator;
   /**
    * The file attachment content handler.
@@ -1358,6 +1388,28 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
     return this.internalBindToItems(itemIds, propertySet, ServiceErrorHandling.ReturnErrors);
   }
 
+  /**
+   * Binds to multiple item in a single call to EWS, by their compact ids.
+   * The ids are only encoded as the request is written, so that ids held in
+   * a CompactIdSet or CompactIdMap need not be converted to ItemIds first.
+   *
+   * @param itemIds     the compact item ids
+   * @param propertySet the property set
+   * @return A ServiceResponseCollection providing results for each of the
+   * specified item Ids.
+   * @throws Exception the exception
+   */
+  public ServiceResponseCollection<GetItemResponse> bindToItemsByCompactId(
+      Iterable<CompactServiceId> itemIds, PropertySet propertySet) throws Exception {
+    EwsUtilities.validateParamCollection(itemIds.iterator(), "itemIds");
+    EwsUtilities.validateParam(propertySet, "propertySet");
+
+    GetItemRequest request = new GetItemRequest(this, ServiceErrorHandling.ReturnErrors);
+    request.getItemIds().addRangeCompactId(itemIds);
+    request.setPropertySet(propertySet);
+    return request.execute();
+  }
+
   /**
    * Binds to multiple item in a single call to EWS.
    *
@@ -1635,10 +1687,10 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
    * @return a collection of name resolutions whose names match the one passed as a parameter
    * @throws Exception on error
    */
-  public NameResolutionCollection resolveName(String nameToResolve,
-      Iterable<FolderId> parentFolderIds,
-      ResolveNameSearchLocation searchScope,
-      boolean returnContactDetails, PropertySet contactDataPropertySet)
+  public NameResolutionCollection resolveName(final String nameToResolve,
+      final Iterable<FolderId> parentFolderIds,
+      final ResolveNameSearchLocation searchScope,
+      final boolean returnContactDetails, PropertySet contactDataPropertySet)
       throws Exception {
     if (contactDataPropertySet != null) {
       EwsUtilities.validateMethodVersion(this,
@@ -1647,10 +1699,38 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
 
     EwsUtilities.validateParam(nameToResolve, "nameToResolve");
 
+    List<FolderId> folderIds = new ArrayList<FolderId>();
     if (parentFolderIds != null) {
       EwsUtilities.validateParamCollection(parentFolderIds.iterator(),
           "parentFolderIds");
+      for (FolderId folderId : parentFolderIds) {
+        folderIds.add(folderId);
+      }
+    }
+
+    // Contacts are not cached, as they cannot be copied for each caller.
+    DirectoryCache cache = this.directoryCache;
+    if (cache != null && !returnContactDetails && contactDataPropertySet == null) {
+      return new NameResolutionCollection(this, cache.get(this, new Callable<NameResolutionCollection>() {
+        @Override
+        public NameResolutionCollection call() throws Exception {
+          return internalResolveName(nameToResolve, parentFolderIds, searchScope, false, null);
+        }
+      }, "ResolveNames", this.getTraceMailbox(), nameToResolve, folderIds, searchScope));
     }
+    return this.internalResolveName(nameToResolve, parentFolderIds, searchScope, returnContactDetails,
+        contactDataPropertySet);
+  }
+
+  /**
+   * Finds contacts in the user's Contacts folder and the Global Address
+   * List that have names that match the one passed as a parameter.
+   */
+  private NameResolutionCollection internalResolveName(String nameToResolve,
+      Iterable<FolderId> parentFolderIds,
+      ResolveNameSearchLocation searchScope,
+      boolean returnContactDetails, PropertySet contactDataPropertySet)
+      throws Exception {
     ResolveNamesRequest request = new ResolveNamesRequest(this);
 
     request.setNameToResolve(nameToResolve);
@@ -1709,12 +1789,24 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
    * @return URL of the Exchange Web Services.
    * @throws Exception the exception
    */
-  public ExpandGroupResults expandGroup(EmailAddress emailAddress)
+  public ExpandGroupResults expandGroup(final EmailAddress emailAddress)
       throws Exception {
     EwsUtilities.validateParam(emailAddress, "emailAddress");
-    ExpandGroupRequest request = new ExpandGroupRequest(this);
-    request.setEmailAddress(emailAddress);
-    return request.execute().getResponseAtIndex(0).getMembers();
+    Callable<ExpandGroupResults> lookup = new Callable<ExpandGroupResults>() {
+      @Override
+      public ExpandGroupResults call() throws Exception {
+        ExpandGroupRequest request = new ExpandGroupRequest(ExchangeService.this);
+        request.setEmailAddress(emailAddress);
+        return request.execute().getResponseAtIndex(0).getMembers();
+      }
+    };
+
+    DirectoryCache cache = this.directoryCache;
+    if (cache != null) {
+      return new ExpandGroupResults(cache.get(this, lookup, "ExpandGroup", this.getTraceMailbox(),
+          emailAddress.getAddress(), emailAddress.getRoutingType(), emailAddress.getId()));
+    }
+    return lookup.call();
   }
 
   /**
@@ -2675,8 +2767,23 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
    * @throws Exception the exception
    */
   public EmailAddressCollection getRoomLists() throws Exception {
-    GetRoomListsRequest request = new GetRoomListsRequest(this);
-    return request.execute().getRoomLists();
+    Callable<EmailAddressCollection> lookup = new Callable<EmailAddressCollection>() {
+      @Override
+      public EmailAddressCollection call() throws Exception {
+        GetRoomListsRequest request = new GetRoomListsRequest(ExchangeService.this);
+        return request.execute().getRoomLists();
+      }
+    };
+
+    DirectoryCache cache = this.directoryCache;
+    if (cache != null) {
+      EmailAddressCollection roomLists = new EmailAddressCollection();
+      for (EmailAddress roomList : cache.get(this, lookup, "GetRoomLists", this.getTraceMailbox())) {
+        roomLists.add(new EmailAddress(roomList));
+      }
+      return roomLists;
+    }
+    return lookup.call();
   }
 
   /**
@@ -2688,13 +2795,28 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
    * within the specifed room list.
    * @throws Exception the exception
    */
-  public Collection<EmailAddress> getRooms(EmailAddress emailAddress)
+  public Collection<EmailAddress> getRooms(final EmailAddress emailAddress)
       throws Exception {
     EwsUtilities.validateParam(emailAddress, "emailAddress");
-    GetRoomsRequest request = new GetRoomsRequest(this);
-    request.setRoomList(emailAddress);
-
-    return request.execute().getRooms();
+    Callable<Collection<EmailAddress>> lookup = new Callable<Collection<EmailAddress>>() {
+      @Override
+      public Collection<EmailAddress> call() throws Exception {
+        GetRoomsRequest request = new GetRoomsRequest(ExchangeService.this);
+        request.setRoomList(emailAddress);
+        return request.execute().getRooms();
+      }
+    };
+
+    DirectoryCache cache = this.directoryCache;
+    if (cache != null) {
+      Collection<EmailAddress> rooms = new ArrayList<EmailAddress>();
+      for (EmailAddress room : cache.get(this, lookup, "GetRooms", this.getTraceMailbox(),
+          emailAddress.getAddress(), emailAddress.getRoutingType())) {
+        rooms.add(new EmailAddress(room));
+      }
+      return rooms;
+    }
+    return lookup.call();
   }
 
   // region Conversation
@@ -2738,6 +2860,71 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
     return this.findConversation(view, null, folderId);
   }
 
+  /**
+   * Retrieves the items of conversations in a single call to EWS.
+   *
+   * @param conversations   the conversations, with an optional sync state
+   *                        each
+   * @param propertySet     the properties to load for each item
+   * @param foldersToIgnore the folders whose items are left out, or null
+   * @param sortOrder       the order of the conversation nodes, or null for
+   *                        the server default
+   * @return the responses, in the order of the conversations
+   * @throws Exception the exception
+   */
+  public ServiceResponseCollection<GetConversationItemsResponse> getConversationItems(
+      Iterable<ConversationRequest> conversations, PropertySet propertySet,
+      Iterable<FolderId> foldersToIgnore, ConversationSortOrder sortOrder) throws Exception {
+    EwsUtilities.validateParamCollection(conversations.iterator(), "conversations");
+    EwsUtilities.validateParam(propertySet, "propertySet");
+    EwsUtilities.validateMethodVersion(this,
+        ExchangeVersion.Exchange2013, "GetConversationItems");
+
+    GetConversationItemsRequest request =
+        new GetConversationItemsRequest(this, ServiceErrorHandling.ReturnErrors);
+    for (ConversationRequest conversation : conversations) {
+      request.getConversations().add(conversation);
+    }
+    request.setItemProperties(propertySet);
+    if (foldersToIgnore != null) {
+      request.getFoldersToIgnore().addRangeFolderId(foldersToIgnore);
+    }
+    request.setSortOrder(sortOrder);
+    return request.execute();
+  }
+
+  /**
+   * Retrieves the items of many conversations in batches, running up to
+   * maxConcurrency calls to EWS at the same time.
+   *
+   * @param conversations   the conversations, with an optional sync state
+   *                        each
+   * @param propertySet     the properties to load for each item
+   * @param foldersToIgnore the folders whose items are left out, or null
+   * @param sortOrder       the order of the conversation nodes, or null for
+   *                        the server default
+   * @param batchSize       the maximum number of conversations per call
+   * @param maxConcurrency  the maximum number of concurrent calls
+   * @return the responses, in the order of the conversations
+   * @throws Exception the exception
+   */
+  public ServiceResponseCollection<GetConversationItemsResponse> getConversationItems(
+      Iterable<ConversationRequest> conversations, final PropertySet propertySet,
+      final Iterable<FolderId> foldersToIgnore, final ConversationSortOrder sortOrder,
+      int batchSize, int maxConcurrency) throws Exception {
+    EwsUtilities.validateParamCollection(conversations.iterator(), "conversations");
+
+    return this.executeInBatches(conversations, batchSize, maxConcurrency,
+        "ews-get-conversation-items",
+        new BatchCall<ConversationRequest, GetConversationItemsResponse>() {
+          @Override
+          public ServiceResponseCollection<GetConversationItemsResponse> call(
+              List<ConversationRequest> batch) throws Exception {
+            return getConversationItems(batch, propertySet, foldersToIgnore, sortOrder);
+          }
+        });
+  }
+
   /**
    * Applies ConversationAction on the specified conversation.
    *
@@ -3107,7 +3294,7 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
       throws Exception {
     EwsUtilities.validateParamCollection(ids.iterator(), "ids");
 
-    return this.internalConvertIds(ids, destinationFormat,
+    return this.convertIds(ids, destinationFormat,
         ServiceErrorHandling.ReturnErrors);
   }
 
@@ -3127,12 +3314,269 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
     alternateIdBaseArray.add(id);
 
     ServiceResponseCollection<ConvertIdResponse> responses = this
-        .internalConvertIds(alternateIdBaseArray, destinationFormat,
+        .convertIds(alternateIdBaseArray, destinationFormat,
             ServiceErrorHandling.ThrowOnError);
 
     return responses.getResponseAtIndex(0).getConvertedId();
   }
 
+  /**
+   * Converts ids with the local id converter, if any, and the remaining ids
+   * with a single call to EWS. The responses are in the order of the ids.
+   *
+   * @param ids               the ids
+   * @param destinationFormat the destination format
+   * @param errorHandling     the error handling
+   * @return the responses
+   * @throws Exception the exception
+   */
+  private ServiceResponseCollection<ConvertIdResponse> convertIds(
+      Iterable<AlternateIdBase> ids, IdFormat destinationFormat,
+      ServiceErrorHandling errorHandling) throws Exception {
+    LocalIdConverter converter = this.localIdConverter;
+    if (converter == null) {
+      return this.internalConvertIds(ids, destinationFormat, errorHandling);
+    }
+
+    List<ConvertIdResponse> converted = new ArrayList<ConvertIdResponse>();
+    List<AlternateIdBase> remaining = new ArrayList<AlternateIdBase>();
+    for (AlternateIdBase id : ids) {
+      AlternateIdBase convertedId = converter.convert(id, destinationFormat);
+      if (convertedId != null) {
+        converted.add(new ConvertIdResponse(convertedId));
+      } else {
+        converted.add(null);
+        remaining.add(id);
+      }
+    }
+    if (remaining.size() == converted.size()) {
+      ServiceResponseCollection<ConvertIdResponse> responses =
+          this.internalConvertIds(remaining, destinationFormat, errorHandling);
+      this.learnIds(converter, responses);
+      return responses;
+    }
+
+    Iterator<ConvertIdResponse> serverResponses = null;
+    if (!remaining.isEmpty()) {
+      ServiceResponseCollection<ConvertIdResponse> responses =
+          this.internalConvertIds(remaining, destinationFormat, errorHandling);
+      this.learnIds(converter, responses);
+      serverResponses = responses.iterator();
+    }
+    ServiceResponseCollection<ConvertIdResponse> responses =
+        new ServiceResponseCollection<ConvertIdResponse>();
+    for (ConvertIdResponse response : converted) {
+      responses.add(response != null ? response : serverResponses.next());
+    }
+    return responses;
+  }
+
+  private void learnIds(LocalIdConverter converter,
+      ServiceResponseCollection<ConvertIdResponse> responses) {
+    for (ConvertIdResponse response : responses) {
+      if (response.getConvertedId() != null) {
+        converter.learn(response.getConvertedId());
+      }
+    }
+  }
+
+  // Export and upload operations
+
+  /**
+   * Exports the full-fidelity data of items in a single call to EWS. The data
+   * of each item is decoded into the sink given for its id as the response is
+   * read, so that it is never held in memory as a whole.
+   *
+   * @param itemIds the ids of the items to export
+   * @param sinks   gives the sink for the data of an item, or null to keep
+   *                the data in the responses
+   * @return the responses, in the order of the item ids
+   * @throws Exception the exception
+   */
+  public ServiceResponseCollection<ExportItemsResponse> exportItems(
+      Iterable<ItemId> itemIds, IFunction<ItemId, ByteSink> sinks) throws Exception {
+    EwsUtilities.validateParamCollection(itemIds.iterator(), "itemIds");
+
+    ExportItemsRequest request = new ExportItemsRequest(this, ServiceErrorHandling.ReturnErrors);
+    request.getItemIds().addRange(itemIds);
+    request.setSinks(sinks);
+    return request.execute();
+  }
+
+  /**
+   * Exports the full-fidelity data of items in batches, running up to
+   * maxConcurrency calls to EWS at the same time. The sinks can therefore be
+   * asked for and written to from several threads.
+   *
+   * @param itemIds        the ids of the items to export
+   * @param sinks          gives the sink for the data of an item, or null to
+   *                       keep the data in the responses
+   * @param batchSize      the maximum number of items per call
+   * @param maxConcurrency the maximum number of concurrent calls
+   * @return the responses, in the order of the item ids
+   * @throws Exception the exception
+   */
+  public ServiceResponseCollection<ExportItemsResponse> exportItems(
+      Iterable<ItemId> itemIds, final IFunction<ItemId, ByteSink> sinks,
+      int batchSize, int maxConcurrency) throws Exception {
+    EwsUtilities.validateParamCollection(itemIds.iterator(), "itemIds");
+
+    return this.executeInBatches(itemIds, batchSize, maxConcurrency, "ews-export-items",
+        new BatchCall<ItemId, ExportItemsResponse>() {
+          @Override
+          public ServiceResponseCollection<ExportItemsResponse> call(List<ItemId> batch)
+              throws Exception {
+            return exportItems(batch, sinks);
+          }
+        });
+  }
+
+  /**
+   * Creates or updates items from their exported data in a single call to
+   * EWS. The data of each item is read when the request is written.
+   *
+   * @param items the items to upload
+   * @return the responses, in the order of the items
+   * @throws Exception the exception
+   */
+  public ServiceResponseCollection<UploadItemsResponse> uploadItems(
+      Iterable<UploadItem> items) throws Exception {
+    EwsUtilities.validateParamCollection(items.iterator(), "items");
+
+    UploadItemsRequest request = new UploadItemsRequest(this, ServiceErrorHandling.ReturnErrors);
+    for (UploadItem item : items) {
+      request.getItems().add(item);
+    }
+    return request.execute();
+  }
+
+  /**
+   * Creates or updates items from their exported data in batches, running up
+   * to maxConcurrency calls to EWS at the same time. Each request is
+   * buffered before it is sent, so the batch size bounds the data held in
+   * memory per call.
+   *
+   * @param items          the items to upload
+   * @param batchSize      the maximum number of items per call
+   * @param maxConcurrency the maximum number of concurrent calls
+   * @return the responses, in the order of the items
+   * @throws BatchExecutionException if some of the calls failed, with the
+   *                                 responses of the other calls
+   * @throws Exception               the exception
+   */
+  public ServiceResponseCollection<UploadItemsResponse> uploadItems(
+      Iterable<UploadItem> items, int batchSize, int maxConcurrency) throws Exception {
+    EwsUtilities.validateParamCollection(items.iterator(), "items");
+
+    return this.executeInBatches(items, batchSize, maxConcurrency, "ews-upload-items",
+        new BatchCall<UploadItem, UploadItemsResponse>() {
+          @Override
+          public ServiceResponseCollection<UploadItemsResponse> call(List<UploadItem> batch)
+              throws Exception {
+            return uploadItems(batch);
+          }
+        });
+  }
+
+  /**
+   * A call to EWS for one batch of a bulk operation.
+   */
+  private interface BatchCall<T, TResponse extends ServiceResponse> {
+
+    ServiceResponseCollection<TResponse> call(List<T> batch) throws Exception;
+  }
+
+  /**
+   * Splits items into batches and makes a call for each of them on a
+   * temporary pool of threads, in the request context and before the
+   * deadline of the calling thread. All calls are made even if some of them
+   * fail, as the items of the others may have been changed on the server.
+   *
+   * @param items          the items
+   * @param batchSize      the maximum number of items per call
+   * @param maxConcurrency the maximum number of concurrent calls
+   * @param poolName       the name of the pool of threads
+   * @param call           the call for a batch
+   * @return the responses of all calls, in the order of the items
+   * @throws BatchExecutionException if some of the calls failed, with the
+   *                                 responses of the other calls
+   * @throws Exception               the exception thrown by the call, if
+   *                                 there is a single batch
+   */
+  private <T, TResponse extends ServiceResponse> ServiceResponseCollection<TResponse> executeInBatches(
+      Iterable<T> items, int batchSize, int maxConcurrency, String poolName,
+      final BatchCall<T, TResponse> call) throws Exception {
+    if (batchSize <= 0) {
+      throw new IllegalArgumentException("batchSize must be positive");
+    }
+    if (maxConcurrency <= 0) {
+      throw new IllegalArgumentException("maxConcurrency must be positive");
+    }
+    List<T> itemList = Lists.newArrayList(items);
+    List<List<T>> batches = Lists.partition(itemList, batchSize);
+    if (batches.size() == 1) {
+      return call.call(batches.get(0));
+    }
+
+    ExecutorService executor = ContextExecutors.newFixedThreadPool(poolName,
+        Math.min(maxConcurrency, batches.size()));
+    try {
+      List<Future<ServiceResponseCollection<TResponse>>> futures =
+          new ArrayList<Future<ServiceResponseCollection<TResponse>>>(batches.size());
+      for (final List<T> batch : batches) {
+        futures.add(executor.submit(ContextExecutors.withCurrentContext(
+            new Callable<ServiceResponseCollection<TResponse>>() {
+              @Override
+              public ServiceResponseCollection<TResponse> call() throws Exception {
+                return call.call(batch);
+              }
+            })));
+      }
+      List<TResponse> responses = new ArrayList<TResponse>(itemList.size());
+      List<Exception> errors = new ArrayList<Exception>(itemList.size());
+      Exception firstError = null;
+      int failedBatches = 0;
+      for (int i = 0; i < batches.size(); i++) {
+        int count = batches.get(i).size();
+        try {
+          ServiceResponseCollection<TResponse> batchResponses =
+              ContextExecutors.getResult(futures.get(i));
+          if (batchResponses.getCount() != count) {
+            throw new ServiceLocalException(String.format(
+                "Expected %d responses for the batch, got %d.", count, batchResponses.getCount()));
+          }
+          for (TResponse response : batchResponses) {
+            responses.add(response);
+            errors.add(null);
+          }
+        } catch (InterruptedException e) {
+          throw e;
+        } catch (Exception e) {
+          for (int j = 0; j < count; j++) {
+            responses.add(null);
+            errors.add(e);
+          }
+          if (firstError == null) {
+            firstError = e;
+          }
+          failedBatches++;
+        }
+      }
+      if (firstError != null) {
+        throw new BatchExecutionException(String.format("%d of %d batches failed.", failedBatches,
+            batches.size()), responses, errors, firstError);
+      }
+
+      ServiceResponseCollection<TResponse> result = new ServiceResponseCollection<TResponse>();
+      for (TResponse response : responses) {
+        result.add(response);
+      }
+      return result;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * Adds delegates to a specific mailbox. Calling this method results in a
    * call to EWS.
@@ -3747,6 +4191,74 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
         .getAcceptGzipEncoding(), true, timeout);
   }
 
+  /**
+   * Opens and authenticates connections to the EWS endpoint ahead of use, so
+   * that the first requests served by them do not pay for the NTLM handshake.
+   * The connections are returned to the pool of the HTTP client, shared by
+   * all services of the same ExchangeFactory, and are kept for the
+   * credentials of this service. The requests are made in the request
+   * context of the calling thread, if any; they are empty POST requests,
+   * which are authenticated like the requests of EWS operations.
+   *
+   * @param connections the number of connections to open, at most the
+   *                    per-route limit of the connection pool
+   * @return the number of connections that were opened and authenticated
+   * @throws Exception if none of the connections could be opened
+   */
+  public int warmUpConnections(int connections) throws Exception {
+    if (connections <= 0) {
+      throw new IllegalArgumentException("connections must be positive");
+    }
+    ExecutorService executor = ContextExecutors.newFixedThreadPool("ews-connection-warm-up", connections);
+    List<Future<HttpWebRequest>> futures = new ArrayList<Future<HttpWebRequest>>(connections);
+    List<HttpWebRequest> requests = new ArrayList<HttpWebRequest>(connections);
+    Exception lastException = null;
+    try {
+      for (int i = 0; i < connections; i++) {
+        futures.add(executor.submit(ContextExecutors.withCurrentContext(new Callable<HttpWebRequest>() {
+          @Override
+          public HttpWebRequest call() throws Exception {
+            HttpWebRequest request = prepareHttpWebRequest(null);
+            try {
+              request.executeRequest();
+            } catch (Exception e) {
+              request.close();
+              throw e;
+            }
+            return request;
+          }
+        })));
+      }
+      // The requests keep their connection until all of them have been
+      // executed, so that each one opens a connection of its own.
+      int authenticated = 0;
+      for (Future<HttpWebRequest> future : futures) {
+        try {
+          HttpWebRequest request = future.get();
+          requests.add(request);
+          if (request.getResponseCode() != 401) {
+            authenticated++;
+          }
+        } catch (ExecutionException e) {
+          lastException = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+        }
+      }
+      if (authenticated == 0 && lastException != null) {
+        throw lastException;
+      }
+      return authenticated;
+    } finally {
+      for (HttpWebRequest request : requests) {
+        try {
+          request.close();
+        } catch (Exception e) {
+          LOG.debug("Could not release a warmed-up connection", e);
+        }
+      }
+      executor.shutdown();
+    }
+  }
+
   /**
    * Prepares a http web request from a pooling connection manager, used for subscriptions.
    * @param timeout If specified then overrides service level timeout value
@@ -3779,6 +4291,31 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
 
   // Properties
 
+  /**
+   * Gets the mailbox that requests of this service target: the anchor mailbox
+   * or impersonated user of the request context, or else the impersonated
+   * user or X-AnchorMailbox header of the service.
+   *
+   * @return the mailbox, or null if unknown
+   */
+  @Override
+  protected String getTraceMailbox() {
+    RequestContext requestContext = RequestContext.current();
+    if (requestContext != null) {
+      if (requestContext.getAnchorMailbox() != null) {
+        return requestContext.getAnchorMailbox();
+      }
+      ImpersonatedUserId contextUserId = requestContext.getImpersonatedUserId();
+      if (contextUserId != null) {
+        return contextUserId.getId();
+      }
+    }
+    if (this.impersonatedUserId != null) {
+      return this.impersonatedUserId.getId();
+    }
+    return this.getHttpHeaders().get("X-AnchorMailbox");
+  }
+
   /**
    * Gets the URL of the Exchange Web Services.
    *
@@ -3806,6 +4343,48 @@ public class ExchangeService extends ExchangeServiceBase implements IAutodiscove
     return impersonatedUserId;
   }
 
+  /**
+   * Gets the cache of directory lookups.
+   *
+   * @return the cache, or null if lookups are not cached
+   */
+  public DirectoryCache getDirectoryCache() {
+    return directoryCache;
+  }
+
+  /**
+   * Sets the cache of ResolveNames, ExpandGroup, GetRoomLists and GetRooms
+   * lookups. Results are cached per impersonated user or anchor mailbox;
+   * name resolutions that request a contact data property set are not
+   * cached. A cache may be shared by services with the same URL and
+   * credentials.
+   *
+   * @param directoryCache the cache, or null to not cache lookups
+   */
+  public void setDirectoryCache(DirectoryCache directoryCache) {
+    this.directoryCache = directoryCache;
+  }
+
+  /**
+   * Gets the converter of ids that don't need the server.
+   *
+   * @return the converter, or null if all ids are converted by EWS
+   */
+  public LocalIdConverter getLocalIdConverter() {
+    return localIdConverter;
+  }
+
+  /**
+   * Sets the converter used by convertId and convertIds for ids that can be
+   * converted without calling EWS. The ids it can't convert are sent to EWS
+   * in a single request.
+   *
+   * @param localIdConverter the converter, or null to convert all ids with EWS
+   */
+  public void setLocalIdConverter(LocalIdConverter localIdConverter) {
+    this.localIdConverter = localIdConverter;
+  }
+
   /**
    * Sets the impersonated user id.
    *
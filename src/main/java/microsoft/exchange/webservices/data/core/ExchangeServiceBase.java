@@ -30,6 +30,7 @@ import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -49,16 +50,22 @@ import microsoft.exchange.webservices.data.core.enumeration.misc.TraceFlags;
 import microsoft.exchange.webservices.data.core.exception.http.EWSHttpException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
 import microsoft.exchange.webservices.data.core.exception.service.remote.AccountIsLockedException;
+import microsoft.exchange.webservices.data.core.request.HedgingPolicy;
 import microsoft.exchange.webservices.data.core.request.HttpClientWebRequest;
 import microsoft.exchange.webservices.data.core.request.HttpWebRequest;
 import microsoft.exchange.webservices.data.credential.ExchangeCredentials;
+import microsoft.exchange.webservices.data.misc.Deadline;
 import microsoft.exchange.webservices.data.misc.EwsTraceListener;
 import microsoft.exchange.webservices.data.misc.ITraceListener;
+import microsoft.exchange.webservices.data.misc.metrics.IRequestMetricsListener;
+import microsoft.exchange.webservices.data.misc.trace.AsyncTracePipeline;
 
 import org.apache.http.client.CookieStore;
 import org.apache.http.client.protocol.HttpClientContext;
 import org.apache.http.impl.client.BasicCookieStore;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.protocol.BasicHttpContext;
+import org.apache.http.protocol.HttpContext;
 
 /**
  * Represents an abstract binding to an Exchange Service.
@@ -101,6 +108,21 @@ public abstract class ExchangeServiceBase implements Closeable {
    */
   private ITraceListener traceListener = new EwsTraceListener();
 
+  /**
+   * The asynchronous trace pipeline, if trace entries are formatted in the background.
+   */
+  private AsyncTracePipeline tracePipeline;
+
+  /**
+   * The request metrics listener.
+   */
+  private IRequestMetricsListener requestMetricsListener;
+
+  /**
+   * The hedging policy for requests that are safe to repeat.
+   */
+  private HedgingPolicy hedgingPolicy;
+
   /**
    * The pre authenticate.
    */
@@ -124,14 +146,19 @@ public abstract class ExchangeServiceBase implements Closeable {
   /**
    * The server info.
    */
-  private ExchangeServerInfo serverInfo;
+  private volatile ExchangeServerInfo serverInfo;
 
   private Map<String, String> httpHeaders = new HashMap<String, String>();
 
-  private Map<String, String> httpResponseHeaders = new HashMap<String, String>();
+  private volatile Map<String, String> httpResponseHeaders = new HashMap<String, String>();
 
   private WebProxy webProxy;
 
+  /**
+   * Holds the state shared by the requests of this service: the cookie store
+   * and the user token of authenticated connections. Each request executes
+   * in its own context derived from this one, see {@link #newHttpContext()}.
+   */
   protected HttpClientContext httpContext;
 
   /**
@@ -160,6 +187,9 @@ public abstract class ExchangeServiceBase implements Closeable {
     this.traceEnabled = service.isTraceEnabled();
     this.traceListener = service.getTraceListener();
     this.traceFlags = service.getTraceFlags();
+    this.tracePipeline = service.getTracePipeline();
+    this.requestMetricsListener = service.getRequestMetricsListener();
+    this.hedgingPolicy = service.getHedgingPolicy();
     this.timeout = service.getTimeout();
     this.preAuthenticate = service.isPreAuthenticate();
     this.userAgent = service.getUserAgent();
@@ -177,6 +207,15 @@ public abstract class ExchangeServiceBase implements Closeable {
     httpContext.setCookieStore(cookieStore);
   }
 
+  /**
+   * Gets the cookie store shared by the requests of this service.
+   *
+   * @return the cookie store
+   */
+  public CookieStore getCookieStore() {
+    return httpContext.getCookieStore();
+  }
+
   @Override
   public void close() {
   }
@@ -225,7 +264,7 @@ public abstract class ExchangeServiceBase implements Closeable {
       throw new ServiceLocalException(strErr);
     }
 
-    HttpClientWebRequest request = new HttpClientWebRequest(httpClient, httpContext);
+    HttpClientWebRequest request = new HttpClientWebRequest(httpClient, newHttpContext());
     prepareHttpWebRequestForUrl(url, acceptGzipEncoding, allowAutoRedirect, request, timeout);
 
     return request;
@@ -255,12 +294,53 @@ public abstract class ExchangeServiceBase implements Closeable {
       String strErr = String.format("Protocol %s isn't supported for service request.", scheme);
       throw new ServiceLocalException(strErr);
     }
-    HttpClientWebRequest request = new HttpClientWebRequest(httpClient, httpContext);
+    HttpClientWebRequest request = new HttpClientWebRequest(httpClient, newHttpContext());
     prepareHttpWebRequestForUrl(url, acceptGzipEncoding, allowAutoRedirect, request, timeout);
 
     return request;
   }
 
+  /**
+   * Creates the HttpContext of a single request. Requests may execute
+   * concurrently, so each has its own authentication state; they share the
+   * cookie store of this service, unless the {@link RequestContext} has its
+   * own, and the user token of authenticated connections so that pooled NTLM
+   * connections are reused.
+   *
+   * @return the HttpContext
+   */
+  protected HttpClientContext newHttpContext() {
+    HttpClientContext context = HttpClientContext.adapt(new RequestHttpContext(httpContext));
+    RequestContext requestContext = RequestContext.current();
+    if (requestContext != null && requestContext.getCookieStore() != null) {
+      context.setCookieStore(requestContext.getCookieStore());
+    }
+    return context;
+  }
+
+  /**
+   * The HttpContext of a single request. Attributes not set on the request
+   * are looked up in the context of the service; the user token is also
+   * stored in the context of the service.
+   */
+  private static final class RequestHttpContext extends BasicHttpContext {
+
+    private final HttpContext serviceContext;
+
+    RequestHttpContext(HttpContext serviceContext) {
+      super(serviceContext);
+      this.serviceContext = serviceContext;
+    }
+
+    @Override
+    public void setAttribute(String id, Object obj) {
+      super.setAttribute(id, obj);
+      if (obj != null && HttpClientContext.USER_TOKEN.equals(id)) {
+        serviceContext.setAttribute(id, obj);
+      }
+    }
+  }
+
   private void prepareHttpWebRequestForUrl(URI url, boolean acceptGzipEncoding, boolean allowAutoRedirect,
       HttpClientWebRequest request, Integer timeout) throws ServiceLocalException, URISyntaxException {
     try {
@@ -271,19 +351,38 @@ public abstract class ExchangeServiceBase implements Closeable {
     }
 
     request.setPreAuthenticate(preAuthenticate);
-    request.setTimeout(timeout != null ? timeout : this.timeout);
+    applyTimeout(request, timeout);
     request.setContentType("text/xml; charset=utf-8");
     request.setAccept("text/xml");
     request.setUserAgent(userAgent);
     request.setAllowAutoRedirect(allowAutoRedirect);
     request.setAcceptGzipEncoding(acceptGzipEncoding);
-    request.setHeaders(getHttpHeaders());
+    RequestContext requestContext = RequestContext.current();
+    request.setHeaders(requestContext != null ? requestContext.mergeHttpHeaders(getHttpHeaders()) : getHttpHeaders());
     request.setProxy(getWebProxy());
     prepareCredentials(request);
 
     request.prepareConnection();
 
-    httpResponseHeaders.clear();
+    httpResponseHeaders = new HashMap<String, String>();
+  }
+
+  /**
+   * Sets the time-out of a request, capped to the remaining time of the
+   * deadline attached to the current thread, if any, and sets that deadline
+   * on the request.
+   *
+   * @param request the request, not yet prepared
+   * @param timeout If not null then overrides service specified timeout
+   */
+  protected void applyTimeout(HttpWebRequest request, Integer timeout) {
+    int requestTimeout = timeout != null ? timeout : this.timeout;
+    Deadline deadline = Deadline.current();
+    if (deadline != null) {
+      requestTimeout = deadline.capTimeout(requestTimeout);
+    }
+    request.setTimeout(requestTimeout);
+    request.setDeadline(deadline);
   }
 
   protected void prepareCredentials(HttpWebRequest request) throws ServiceLocalException, URISyntaxException {
@@ -376,6 +475,10 @@ public abstract class ExchangeServiceBase implements Closeable {
    */
   public void traceMessage(TraceFlags traceType, String logEntry) throws XMLStreamException, IOException {
     if (this.isTraceEnabledFor(traceType)) {
+      if (this.tracePipeline != null) {
+        this.tracePipeline.traceMessage(traceType, logEntry);
+        return;
+      }
       String traceTypeStr = traceType.toString();
       String logMessage = EwsUtilities.formatLogMessage(traceTypeStr, logEntry);
       this.traceListener.trace(traceTypeStr, logMessage);
@@ -390,12 +493,61 @@ public abstract class ExchangeServiceBase implements Closeable {
    */
   public void traceXml(TraceFlags traceType, ByteArrayOutputStream stream) {
     if (this.isTraceEnabledFor(traceType)) {
+      if (this.tracePipeline != null) {
+        this.tracePipeline.traceXml(traceType, stream);
+        return;
+      }
       String traceTypeStr = traceType.toString();
       String logMessage = EwsUtilities.formatLogMessageWithXmlContent(traceTypeStr, stream);
       this.traceListener.trace(traceTypeStr, logMessage);
     }
   }
 
+  /**
+   * Logs the specified XML to the TraceListener if tracing is enabled.
+   *
+   * @param traceType   Kind of trace entry.
+   * @param buffer      The buffer containing (the beginning of) the XML.
+   * @param length      The number of valid bytes in the buffer.
+   * @param totalLength The length of the complete XML content.
+   */
+  public void traceXml(TraceFlags traceType, byte[] buffer, int length, long totalLength) {
+    if (this.isTraceEnabledFor(traceType)) {
+      if (this.tracePipeline != null) {
+        this.tracePipeline.traceXml(traceType, buffer, length, totalLength);
+        return;
+      }
+      String traceTypeStr = traceType.toString();
+      String logMessage = EwsUtilities.formatLogMessageWithXmlContent(traceTypeStr,
+          new String(buffer, 0, length, Charset.forName("UTF-8")));
+      this.traceListener.trace(traceTypeStr, logMessage);
+    }
+  }
+
+  /**
+   * Determines whether a request should be traced at all. Without a trace
+   * pipeline all requests are traced (subject to the trace flags); with one,
+   * its filter decides.
+   *
+   * @param operationName the name of the EWS operation
+   * @return true if the request should be traced
+   */
+  public boolean isTraceSelected(String operationName) {
+    if (!this.isTraceEnabled() || this.tracePipeline == null) {
+      return true;
+    }
+    return this.tracePipeline.getFilter().isTraced(operationName, this.getTraceMailbox());
+  }
+
+  /**
+   * Gets the mailbox that requests of this service target, used to filter traces.
+   *
+   * @return the mailbox, or null if unknown
+   */
+  protected String getTraceMailbox() {
+    return null;
+  }
+
   /**
    * Traces the HTTP request headers.
    *
@@ -411,6 +563,10 @@ public abstract class ExchangeServiceBase implements Closeable {
     if (this.isTraceEnabledFor(traceType)) {
       String traceTypeStr = traceType.toString();
       String headersAsString = EwsUtilities.formatHttpRequestHeaders(request);
+      if (this.tracePipeline != null) {
+        this.tracePipeline.traceMessage(traceType, headersAsString);
+        return;
+      }
       String logMessage = EwsUtilities.formatLogMessage(traceTypeStr, headersAsString);
       this.traceListener.trace(traceTypeStr, logMessage);
     }
@@ -430,6 +586,10 @@ public abstract class ExchangeServiceBase implements Closeable {
     if (this.isTraceEnabledFor(traceType)) {
       String traceTypeStr = traceType.toString();
       String headersAsString = EwsUtilities.formatHttpResponseHeaders(request);
+      if (this.tracePipeline != null) {
+        this.tracePipeline.traceMessage(traceType, headersAsString);
+        return;
+      }
       String logMessage = EwsUtilities.formatLogMessage(traceTypeStr, headersAsString);
       this.traceListener.trace(traceTypeStr, logMessage);
     }
@@ -523,6 +683,65 @@ public abstract class ExchangeServiceBase implements Closeable {
     this.traceEnabled = (traceListener != null);
   }
 
+  /**
+   * Gets the asynchronous trace pipeline.
+   *
+   * @return The trace pipeline, or null if trace entries are formatted synchronously.
+   */
+  public AsyncTracePipeline getTracePipeline() {
+    return tracePipeline;
+  }
+
+  /**
+   * Sets the asynchronous trace pipeline. When set, trace entries are only
+   * captured on the request thread and are formatted and delivered to the
+   * pipeline's own trace listener in the background; the pipeline's filter
+   * selects which requests are traced. Tracing still has to be enabled.
+   *
+   * @param tracePipeline the trace pipeline, or null to trace synchronously
+   */
+  public void setTracePipeline(AsyncTracePipeline tracePipeline) {
+    this.tracePipeline = tracePipeline;
+  }
+
+  /**
+   * Gets the request metrics listener.
+   *
+   * @return The request metrics listener, or null if none is registered.
+   */
+  public IRequestMetricsListener getRequestMetricsListener() {
+    return requestMetricsListener;
+  }
+
+  /**
+   * Sets the request metrics listener. When null (the default), requests are
+   * not instrumented.
+   *
+   * @param requestMetricsListener the request metrics listener
+   */
+  public void setRequestMetricsListener(IRequestMetricsListener requestMetricsListener) {
+    this.requestMetricsListener = requestMetricsListener;
+  }
+
+  /**
+   * Gets the hedging policy.
+   *
+   * @return The hedging policy, or null if requests are not hedged.
+   */
+  public HedgingPolicy getHedgingPolicy() {
+    return hedgingPolicy;
+  }
+
+  /**
+   * Sets the hedging policy for requests that are safe to repeat. When null
+   * (the default), requests are not hedged.
+   *
+   * @param hedgingPolicy the hedging policy
+   */
+  public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+    this.hedgingPolicy = hedgingPolicy;
+  }
+
   /**
    * Gets the credential used to authenticate with the Exchange Web Services.
    *
@@ -672,7 +891,9 @@ public abstract class ExchangeServiceBase implements Closeable {
 
   /**
    * Gets information associated with the server that processed the last
-   * request. Will be null if no request have been processed.
+   * request. Will be null if no request have been processed. When the
+   * service is used from several threads, use a {@link ResponseMetadata}
+   * to get the information of a specific call.
    *
    * @return the server info
    */
@@ -688,6 +909,10 @@ public abstract class ExchangeServiceBase implements Closeable {
    */
   public void setServerInfo(ExchangeServerInfo serverInfo) {
     this.serverInfo = serverInfo;
+    ResponseMetadata metadata = RequestContext.currentMetadata();
+    if (metadata != null) {
+      metadata.setServerInfo(serverInfo);
+    }
   }
 
   /**
@@ -757,7 +982,24 @@ public abstract class ExchangeServiceBase implements Closeable {
    */
   public void processHttpResponseHeaders(TraceFlags traceType, HttpWebRequest request)
       throws XMLStreamException, IOException, EWSHttpException {
-    this.traceHttpResponseHeaders(traceType, request);
+    this.processHttpResponseHeaders(traceType, request, true);
+  }
+
+  /**
+   * Saves and optionally traces the HTTP response headers.
+   *
+   * @param traceType kind of trace entry
+   * @param request   The request
+   * @param trace     false if the headers must not be traced
+   * @throws EWSHttpException EWS http exception
+   * @throws IOException signals that an I/O exception has occurred
+   * @throws XMLStreamException the XML stream exception
+   */
+  public void processHttpResponseHeaders(TraceFlags traceType, HttpWebRequest request, boolean trace)
+      throws XMLStreamException, IOException, EWSHttpException {
+    if (trace) {
+      this.traceHttpResponseHeaders(traceType, request);
+    }
     this.saveHttpResponseHeaders(request.getResponseHeaders());
   }
 
@@ -767,15 +1009,18 @@ public abstract class ExchangeServiceBase implements Closeable {
    * @param headers The response headers
    */
   private void saveHttpResponseHeaders(Map<String, String> headers) {
-    this.httpResponseHeaders.clear();
+    this.httpResponseHeaders = new HashMap<String, String>(headers);
 
-    for (String key : headers.keySet()) {
-      this.httpResponseHeaders.put(key, headers.get(key));
+    ResponseMetadata metadata = RequestContext.currentMetadata();
+    if (metadata != null) {
+      metadata.setHttpResponseHeaders(headers);
     }
   }
 
   /**
-   * Gets a collection of HTTP headers from the last response.
+   * Gets a collection of HTTP headers from the last response. When the
+   * service is used from several threads, use a {@link ResponseMetadata}
+   * to get the headers of a specific call.
    * @return HTTP response headers
    */
   public Map<String, String> getHttpResponseHeaders() {
@@ -26,6 +26,7 @@ package microsoft.exchange.webservices.data.core;
 import microsoft.exchange.webservices.data.ISelfValidate;
 import microsoft.exchange.webservices.data.core.service.ServiceObject;
 import microsoft.exchange.webservices.data.core.service.item.Item;
+import microsoft.exchange.webservices.data.core.service.schema.ServiceObjectSchema;
 import microsoft.exchange.webservices.data.core.enumeration.property.BasePropertySet;
 import microsoft.exchange.webservices.data.core.enumeration.property.PropertyDefinitionFlags;
 import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
@@ -43,11 +44,12 @@ import microsoft.exchange.webservices.data.property.definition.PropertyDefinitio
 import microsoft.exchange.webservices.data.security.XmlNodeType;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 /**
  * Represents a property bag keyed on PropertyDefinition objects.
@@ -77,32 +79,27 @@ public class PropertyBag implements IComplexPropertyChanged, IComplexPropertyCha
   /**
    * The loaded property.
    */
-  private List<PropertyDefinition> loadedProperties =
-      new ArrayList<PropertyDefinition>();
+  private final Set<PropertyDefinition> loadedProperties;
 
   /**
    * The property.
    */
-  private Map<PropertyDefinition, Object> properties =
-      new HashMap<PropertyDefinition, Object>();
+  private final Map<PropertyDefinition, Object> properties;
 
   /**
    * The deleted property.
    */
-  private Map<PropertyDefinition, Object> deletedProperties =
-      new HashMap<PropertyDefinition, Object>();
+  private final Map<PropertyDefinition, Object> deletedProperties;
 
   /**
    * The modified property.
    */
-  private List<PropertyDefinition> modifiedProperties =
-      new ArrayList<PropertyDefinition>();
+  private final Set<PropertyDefinition> modifiedProperties;
 
   /**
    * The added property.
    */
-  private List<PropertyDefinition> addedProperties =
-      new ArrayList<PropertyDefinition>();
+  private final Set<PropertyDefinition> addedProperties;
 
   /**
    * The requested property set.
@@ -110,7 +107,8 @@ public class PropertyBag implements IComplexPropertyChanged, IComplexPropertyCha
   private PropertySet requestedPropertySet;
 
   /**
-   * Initializes a new instance of PropertyBag.
+   * Initializes a new instance of PropertyBag. The property are stored by
+   * their ordinal in the schema of the owner, see {@link CompactPropertyMap}.
    *
    * @param owner The owner of the bag.
    */
@@ -118,6 +116,13 @@ public class PropertyBag implements IComplexPropertyChanged, IComplexPropertyCha
     EwsUtilities.ewsAssert(owner != null, "PropertyBag.ctor", "owner is null");
 
     this.owner = owner;
+
+    ServiceObjectSchema schema = owner.getSchema();
+    this.properties = new CompactPropertyMap<Object>(schema);
+    this.deletedProperties = new CompactPropertyMap<Object>(schema);
+    this.loadedProperties = new CompactPropertySet(schema);
+    this.modifiedProperties = new CompactPropertySet(schema);
+    this.addedProperties = new CompactPropertySet(schema);
   }
 
   /**
@@ -158,7 +163,7 @@ public class PropertyBag implements IComplexPropertyChanged, IComplexPropertyCha
    */
   protected static void addToChangeList(
       PropertyDefinition propertyDefinition,
-      List<PropertyDefinition> changeList) {
+      Collection<PropertyDefinition> changeList) {
     if (!changeList.contains(propertyDefinition)) {
       changeList.add(propertyDefinition);
     }
@@ -199,12 +204,8 @@ public class PropertyBag implements IComplexPropertyChanged, IComplexPropertyCha
     // to be explicitly requested and needs to be listed in
     // AdditionalProperties.
     if (this.requestedPropertySet.getBasePropertySet() == BasePropertySet.FirstClassProperties) {
-      List<PropertyDefinition> firstClassProps =
-          this.onlySummaryPropertiesRequested ? this
-              .getOwner().getSchema().getFirstClassSummaryProperties() :
-              this.getOwner().getSchema().getFirstClassProperties();
-
-      return firstClassProps.contains(propertyDefinition) ||
+      return this.getOwner().getSchema()
+          .isFirstClassProperty(propertyDefinition, this.onlySummaryPropertiesRequested) ||
           this.requestedPropertySet.contains(propertyDefinition);
     } else {
       return this.requestedPropertySet.contains(propertyDefinition);
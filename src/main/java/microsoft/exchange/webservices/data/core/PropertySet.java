@@ -39,12 +39,17 @@ import microsoft.exchange.webservices.data.property.definition.PropertyDefinitio
 
 import javax.xml.stream.XMLStreamException;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * Represents a set of item or folder property. Property sets are used to
@@ -139,6 +144,17 @@ public final class PropertySet implements ISelfValidate,
    */
   private boolean isReadOnly;
 
+  /**
+   * The additional property of a frozen PropertySet, for lookups.
+   */
+  private volatile Set<PropertyDefinitionBase> frozenProperties;
+
+  /**
+   * The XML of a frozen PropertySet, per service object type and requested
+   * server version.
+   */
+  private AtomicReferenceArray<byte[]> xmlFragments;
+
   /**
    * Initializes a new instance of PropertySet.
    *
@@ -280,9 +296,35 @@ public final class PropertySet implements ISelfValidate,
    */
   private static PropertySet createReadonlyPropertySet(
       BasePropertySet basePropertySet) {
-    PropertySet propertySet = new PropertySet(basePropertySet);
-    propertySet.isReadOnly = true;
-    return propertySet;
+    return new PropertySet(basePropertySet).freeze();
+  }
+
+  /**
+   * Makes this property set read-only, so that it can be shared by any number
+   * of requests and threads. A frozen property set looks up its property in
+   * constant time and writes its XML once per service object type and
+   * requested server version; the XML is reused by subsequent requests.
+   *
+   * @return this property set
+   */
+  public synchronized PropertySet freeze() {
+    if (this.frozenProperties == null) {
+      this.isReadOnly = true;
+      this.xmlFragments = new AtomicReferenceArray<byte[]>(
+          ServiceObjectType.values().length * ExchangeVersion.values().length);
+      // Published last, see isFrozen.
+      this.frozenProperties = new HashSet<PropertyDefinitionBase>(this.additionalProperties);
+    }
+    return this;
+  }
+
+  /**
+   * Gets whether this property set is frozen.
+   *
+   * @return true if frozen
+   */
+  public boolean isFrozen() {
+    return this.frozenProperties != null;
   }
 
   /**
@@ -303,6 +345,10 @@ public final class PropertySet implements ISelfValidate,
    * otherwise, false
    */
   public boolean contains(PropertyDefinitionBase property) {
+    Set<PropertyDefinitionBase> frozenProperties = this.frozenProperties;
+    if (frozenProperties != null) {
+      return frozenProperties.contains(property);
+    }
     return this.additionalProperties.contains(property);
   }
 
@@ -539,6 +585,34 @@ public final class PropertySet implements ISelfValidate,
    * @throws ServiceXmlSerializationException the service xml serialization exception
    */
   public void writeToXml(EwsServiceXmlWriter writer, ServiceObjectType serviceObjectType) throws XMLStreamException, ServiceXmlSerializationException {
+    if (this.isFrozen()) {
+      ExchangeVersion version = writer.getService().getRequestedServerVersion();
+      int index = serviceObjectType.ordinal() * ExchangeVersion.values().length + version.ordinal();
+      byte[] xml = this.xmlFragments.get(index);
+      if (xml == null) {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        EwsServiceXmlWriter fragmentWriter = new EwsServiceXmlWriter(writer.getService(), stream);
+        this.internalWriteToXml(fragmentWriter, serviceObjectType);
+        fragmentWriter.flush();
+        xml = stream.toByteArray();
+        this.xmlFragments.set(index, xml);
+      }
+      writer.writeRawElement(xml);
+    } else {
+      this.internalWriteToXml(writer, serviceObjectType);
+    }
+  }
+
+  /**
+   * Writes the property set to XML.
+   *
+   * @param writer            The writer to write to
+   * @param serviceObjectType The type of service object the property set is emitted for
+   * @throws XMLStreamException the XML stream exception
+   * @throws ServiceXmlSerializationException the service xml serialization exception
+   */
+  private void internalWriteToXml(EwsServiceXmlWriter writer, ServiceObjectType serviceObjectType)
+      throws XMLStreamException, ServiceXmlSerializationException {
     writer
         .writeStartElement(
             XmlNamespace.Messages,
@@ -585,6 +659,9 @@ public final class PropertySet implements ISelfValidate,
    */
   @Override
   public Iterator<PropertyDefinitionBase> iterator() {
+    if (this.isFrozen()) {
+      return Collections.unmodifiableList(this.additionalProperties).iterator();
+    }
     return this.additionalProperties.iterator();
   }
 
@@ -0,0 +1,258 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.ConnectingIdType;
+import microsoft.exchange.webservices.data.misc.ImpersonatedUserId;
+import org.apache.http.client.CookieStore;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * An immutable context for the requests of a call: the impersonated user,
+ * the anchor mailbox, additional HTTP headers and the cookie store.
+ * <p>
+ * The context of a call overrides the corresponding settings of the service,
+ * so that a single ExchangeService can serve many mailboxes from many threads:
+ * </p>
+ * <pre>
+ * ResponseMetadata metadata = new ResponseMetadata();
+ * try (RequestContext.Scope scope = RequestContext.forMailbox("user@contoso.com").attach(metadata)) {
+ *   service.findItems(WellKnownFolderName.Inbox, view);
+ * }
+ * String requestId = metadata.getRequestId();
+ * </pre>
+ */
+public final class RequestContext {
+
+  /**
+   * The context without any settings.
+   */
+  public static final RequestContext EMPTY =
+      new RequestContext(null, null, Collections.<String, String>emptyMap(), null);
+
+  private static final ThreadLocal<RequestContext> CURRENT = new ThreadLocal<RequestContext>();
+
+  private static final ThreadLocal<ResponseMetadata> CURRENT_METADATA = new ThreadLocal<ResponseMetadata>();
+
+  /**
+   * The context attached to the current thread, restored when closed.
+   */
+  public interface Scope extends Closeable {
+
+    /**
+     * Restores the context that was attached before.
+     */
+    @Override
+    void close();
+  }
+
+  private final ConnectingIdType impersonationIdType;
+  private final String impersonationId;
+  private final String anchorMailbox;
+  private final Map<String, String> httpHeaders;
+  private final CookieStore cookieStore;
+
+  private RequestContext(ImpersonatedUserId impersonatedUserId, String anchorMailbox,
+      Map<String, String> httpHeaders, CookieStore cookieStore) {
+    this.impersonationIdType = impersonatedUserId != null ? impersonatedUserId.getIdType() : null;
+    this.impersonationId = impersonatedUserId != null ? impersonatedUserId.getId() : null;
+    this.anchorMailbox = anchorMailbox;
+    this.httpHeaders = httpHeaders;
+    this.cookieStore = cookieStore;
+  }
+
+  /**
+   * Creates the context to access a mailbox through impersonation: the user
+   * with the SMTP address is impersonated and the mailbox is used as anchor
+   * mailbox, so that requests are routed to the mailbox server.
+   *
+   * @param smtpAddress the SMTP address of the mailbox
+   * @return the context
+   */
+  public static RequestContext forMailbox(String smtpAddress) {
+    return EMPTY.withImpersonatedUserId(new ImpersonatedUserId(ConnectingIdType.SmtpAddress, smtpAddress))
+        .withAnchorMailbox(smtpAddress);
+  }
+
+  /**
+   * Gets the context attached to the current thread.
+   *
+   * @return the context, or null if none is attached
+   */
+  public static RequestContext current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Gets the response metadata attached to the current thread.
+   *
+   * @return the response metadata, or null if none is attached
+   */
+  static ResponseMetadata currentMetadata() {
+    return CURRENT_METADATA.get();
+  }
+
+  /**
+   * Returns a copy of this context with the given impersonated user.
+   *
+   * @param impersonatedUserId the impersonated user, or null to use the one of the service
+   * @return the new context
+   */
+  public RequestContext withImpersonatedUserId(ImpersonatedUserId impersonatedUserId) {
+    return new RequestContext(impersonatedUserId, anchorMailbox, httpHeaders, cookieStore);
+  }
+
+  /**
+   * Returns a copy of this context with the given anchor mailbox, sent as the
+   * X-AnchorMailbox header.
+   *
+   * @param anchorMailbox the SMTP address of the anchor mailbox, or null
+   * @return the new context
+   */
+  public RequestContext withAnchorMailbox(String anchorMailbox) {
+    return new RequestContext(getImpersonatedUserId(), anchorMailbox, httpHeaders, cookieStore);
+  }
+
+  /**
+   * Returns a copy of this context with an additional HTTP header.
+   *
+   * @param name  the name of the header
+   * @param value the value of the header
+   * @return the new context
+   */
+  public RequestContext withHttpHeader(String name, String value) {
+    Map<String, String> headers = new LinkedHashMap<String, String>(httpHeaders);
+    headers.put(name, value);
+    return new RequestContext(getImpersonatedUserId(), anchorMailbox, Collections.unmodifiableMap(headers),
+        cookieStore);
+  }
+
+  /**
+   * Returns a copy of this context with the given cookie store, used instead
+   * of the cookie store of the service.
+   *
+   * @param cookieStore the cookie store, or null to use the one of the service
+   * @return the new context
+   */
+  public RequestContext withCookieStore(CookieStore cookieStore) {
+    return new RequestContext(getImpersonatedUserId(), anchorMailbox, httpHeaders, cookieStore);
+  }
+
+  /**
+   * Gets the impersonated user.
+   *
+   * @return a new instance describing the impersonated user, or null
+   */
+  public ImpersonatedUserId getImpersonatedUserId() {
+    return impersonationId != null ? new ImpersonatedUserId(impersonationIdType, impersonationId) : null;
+  }
+
+  /**
+   * Gets the anchor mailbox.
+   *
+   * @return the SMTP address of the anchor mailbox, or null
+   */
+  public String getAnchorMailbox() {
+    return anchorMailbox;
+  }
+
+  /**
+   * Gets the additional HTTP headers.
+   *
+   * @return the unmodifiable headers
+   */
+  public Map<String, String> getHttpHeaders() {
+    return httpHeaders;
+  }
+
+  /**
+   * Gets the cookie store.
+   *
+   * @return the cookie store, or null
+   */
+  public CookieStore getCookieStore() {
+    return cookieStore;
+  }
+
+  /**
+   * Merges the HTTP headers of this context into the headers of a service.
+   *
+   * @param serviceHeaders the headers of the service
+   * @return the headers to send
+   */
+  Map<String, String> mergeHttpHeaders(Map<String, String> serviceHeaders) {
+    if (httpHeaders.isEmpty() && anchorMailbox == null) {
+      return serviceHeaders;
+    }
+    Map<String, String> headers = new LinkedHashMap<String, String>(serviceHeaders);
+    headers.putAll(httpHeaders);
+    if (anchorMailbox != null) {
+      headers.put("X-AnchorMailbox", anchorMailbox);
+    }
+    return headers;
+  }
+
+  /**
+   * Attaches this context to the current thread, until the returned scope is closed.
+   *
+   * @return the scope
+   */
+  public Scope attach() {
+    return attach(null);
+  }
+
+  /**
+   * Attaches this context to the current thread, until the returned scope is
+   * closed; the metadata of the responses received meanwhile is recorded.
+   *
+   * @param metadata receives the metadata of the responses, or null
+   * @return the scope
+   */
+  public Scope attach(ResponseMetadata metadata) {
+    final RequestContext previous = CURRENT.get();
+    final ResponseMetadata previousMetadata = CURRENT_METADATA.get();
+    CURRENT.set(this);
+    CURRENT_METADATA.set(metadata);
+    return new Scope() {
+      @Override
+      public void close() {
+        restore(CURRENT, previous);
+        restore(CURRENT_METADATA, previousMetadata);
+      }
+    };
+  }
+
+  private static <T> void restore(ThreadLocal<T> threadLocal, T previous) {
+    if (previous != null) {
+      threadLocal.set(previous);
+    } else {
+      threadLocal.remove();
+    }
+  }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Receives the metadata of the responses of a call made under a
+ * {@link RequestContext}. If the call issued several requests, the metadata
+ * of the last response is kept.
+ */
+public final class ResponseMetadata {
+
+  private volatile Map<String, String> httpResponseHeaders = Collections.emptyMap();
+
+  private volatile ExchangeServerInfo serverInfo;
+
+  /**
+   * Gets the HTTP headers of the last response.
+   *
+   * @return the unmodifiable response headers
+   */
+  public Map<String, String> getHttpResponseHeaders() {
+    return httpResponseHeaders;
+  }
+
+  /**
+   * Gets the request id the server assigned to the last request, useful to
+   * correlate with server logs.
+   *
+   * @return the request id, or null
+   */
+  public String getRequestId() {
+    return httpResponseHeaders.get("request-id");
+  }
+
+  /**
+   * Gets information associated with the server that processed the last request.
+   *
+   * @return the server info, or null
+   */
+  public ExchangeServerInfo getServerInfo() {
+    return serverInfo;
+  }
+
+  void setHttpResponseHeaders(Map<String, String> httpResponseHeaders) {
+    this.httpResponseHeaders = Collections.unmodifiableMap(new HashMap<String, String>(httpResponseHeaders));
+  }
+
+  void setServerInfo(ExchangeServerInfo serverInfo) {
+    this.serverInfo = serverInfo;
+  }
+
+}
@@ -373,6 +373,17 @@ public class XmlAttributeNames {
    * The Constant IsArchive.
    */
   public static final String IsArchive = "IsArchive";
+
+  /**
+   * The Constant CreateAction.
+   */
+  public static final String CreateAction = "CreateAction";
+
+  /**
+   * The Constant IsAssociated.
+   */
+  public static final String IsAssociated = "IsAssociated";
+
   // xsi attribute
   /**
    * The Constant Nil.
@@ -4474,6 +4474,86 @@ public class XmlElementNames {
   public static final String ConvertIdResponseMessage =
       "ConvertIdResponseMessage";
 
+  /**
+   * The Constant ExportItems.
+   */
+  public static final String ExportItems = "ExportItems";
+
+  /**
+   * The Constant ExportItemsResponse.
+   */
+  public static final String ExportItemsResponse = "ExportItemsResponse";
+
+  /**
+   * The Constant ExportItemsResponseMessage.
+   */
+  public static final String ExportItemsResponseMessage =
+      "ExportItemsResponseMessage";
+
+  /**
+   * The Constant UploadItems.
+   */
+  public static final String UploadItems = "UploadItems";
+
+  /**
+   * The Constant UploadItemsResponse.
+   */
+  public static final String UploadItemsResponse = "UploadItemsResponse";
+
+  /**
+   * The Constant UploadItemsResponseMessage.
+   */
+  public static final String UploadItemsResponseMessage =
+      "UploadItemsResponseMessage";
+
+  /**
+   * The Constant Data.
+   */
+  public static final String Data = "Data";
+
+  /**
+   * The Constant GetConversationItems.
+   */
+  public static final String GetConversationItems = "GetConversationItems";
+
+  /**
+   * The Constant GetConversationItemsResponse.
+   */
+  public static final String GetConversationItemsResponse =
+      "GetConversationItemsResponse";
+
+  /**
+   * The Constant GetConversationItemsResponseMessage.
+   */
+  public static final String GetConversationItemsResponseMessage =
+      "GetConversationItemsResponseMessage";
+
+  /**
+   * The Constant FoldersToIgnore.
+   */
+  public static final String FoldersToIgnore = "FoldersToIgnore";
+
+  /**
+   * The Constant MaxItemsToReturn.
+   */
+  public static final String MaxItemsToReturn = "MaxItemsToReturn";
+
+  /**
+   * The Constant ConversationNodes.
+   */
+  public static final String ConversationNodes = "ConversationNodes";
+
+  /**
+   * The Constant ConversationNode.
+   */
+  public static final String ConversationNode = "ConversationNode";
+
+  /**
+   * The Constant ParentInternetMessageId.
+   */
+  public static final String ParentInternetMessageId =
+      "ParentInternetMessageId";
+
   // AddDelegate
   /**
    * The Constant AddDelegate.
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package microsoft.exchange.webservices.data.core.exception.service.remote;
+
+import microsoft.exchange.webservices.data.core.response.ServiceResponse;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents an error that occurs when some of the calls of a bulk operation
+ * executed in batches fail. The responses of the batches that succeeded are
+ * kept, so that the operation can be retried for the failed items only.
+ */
+public final class BatchExecutionException extends ServiceRemoteException {
+
+  /**
+   * Constant serialized ID used for compatibility.
+   */
+  private static final long serialVersionUID = 1L;
+
+  /**
+   * The responses, by item.
+   */
+  private final List<? extends ServiceResponse> responses;
+
+  /**
+   * The errors, by item.
+   */
+  private final List<Exception> errors;
+
+  /**
+   * Initializes a new instance of BatchExecutionException.
+   *
+   * @param message        the message
+   * @param responses      the response for each item, null for the items
+   *                       of the batches that failed
+   * @param errors         the error for each item, null for the items of
+   *                       the batches that succeeded
+   * @param innerException the error of the first batch that failed
+   */
+  public BatchExecutionException(String message, List<? extends ServiceResponse> responses,
+      List<Exception> errors, Exception innerException) {
+    super(message, innerException);
+    this.responses = Collections.unmodifiableList(responses);
+    this.errors = Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * Gets the responses, in the order of the items.
+   *
+   * @return the response for each item, null for the items of the batches
+   * that failed
+   */
+  public List<? extends ServiceResponse> getResponses() {
+    return this.responses;
+  }
+
+  /**
+   * Gets the errors, in the order of the items.
+   *
+   * @return the error for each item, null for the items of the batches that
+   * succeeded
+   */
+  public List<Exception> getErrors() {
+    return this.errors;
+  }
+}
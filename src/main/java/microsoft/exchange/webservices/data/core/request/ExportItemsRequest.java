@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.request;
+
+import com.google.common.io.ByteSink;
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.service.error.ServiceErrorHandling;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceValidationException;
+import microsoft.exchange.webservices.data.core.response.ExportItemsResponse;
+import microsoft.exchange.webservices.data.misc.IFunction;
+import microsoft.exchange.webservices.data.misc.ItemIdWrapperList;
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+
+/**
+ * Represents an ExportItems request, which gets the full-fidelity data of
+ * items, e.g. for a migration.
+ */
+public final class ExportItemsRequest extends MultiResponseServiceRequest<ExportItemsResponse> {
+
+  private final ItemIdWrapperList itemIds = new ItemIdWrapperList();
+
+  private IFunction<ItemId, ByteSink> sinks;
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param service           the service
+   * @param errorHandlingMode the error handling mode
+   * @throws Exception the exception
+   */
+  public ExportItemsRequest(ExchangeService service, ServiceErrorHandling errorHandlingMode)
+      throws Exception {
+    super(service, errorHandlingMode);
+  }
+
+  @Override
+  protected ExportItemsResponse createServiceResponse(ExchangeService service, int responseIndex) {
+    return new ExportItemsResponse(this.sinks);
+  }
+
+  @Override
+  protected String getResponseXmlElementName() {
+    return XmlElementNames.ExportItemsResponse;
+  }
+
+  @Override
+  protected String getResponseMessageXmlElementName() {
+    return XmlElementNames.ExportItemsResponseMessage;
+  }
+
+  @Override
+  protected int getExpectedResponseMessageCount() {
+    return this.itemIds.getCount();
+  }
+
+  @Override
+  public String getXmlElementName() {
+    return XmlElementNames.ExportItems;
+  }
+
+  @Override
+  protected void validate() throws Exception {
+    super.validate();
+    if (this.itemIds.getCount() == 0) {
+      throw new ServiceValidationException("The collection \"ItemIds\" is empty.");
+    }
+  }
+
+  @Override
+  protected void writeElementsToXml(EwsServiceXmlWriter writer) throws Exception {
+    this.itemIds.writeToXml(writer, XmlNamespace.Messages, XmlElementNames.ItemIds);
+  }
+
+  @Override
+  protected ExchangeVersion getMinimumRequiredServerVersion() {
+    return ExchangeVersion.Exchange2010_SP1;
+  }
+
+  /**
+   * Gets the ids of the items to export.
+   *
+   * @return the item ids
+   */
+  public ItemIdWrapperList getItemIds() {
+    return this.itemIds;
+  }
+
+  /**
+   * Sets what the data of each item is decoded to as it is received.
+   *
+   * @param sinks gives the sink for an item id, or null to keep the data in
+   *              the responses
+   */
+  public void setSinks(IFunction<ItemId, ByteSink> sinks) {
+    this.sinks = sinks;
+  }
+}
@@ -247,4 +247,15 @@ abstract class FindRequest<TResponse extends ServiceResponse> extends
   public void setView(ViewBase view) {
     this.view = view;
   }
+
+  /**
+   * Gets a value indicating whether this request may be hedged; it only reads data.
+   *
+   * @return true
+   */
+  @Override
+  protected boolean isHedgeable() {
+    return true;
+  }
+
 }
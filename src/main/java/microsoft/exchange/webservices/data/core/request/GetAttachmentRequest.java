@@ -235,4 +235,14 @@ public final class GetAttachmentRequest extends
     this.bodyType = bodyType;
   }
 
+  /**
+   * Gets a value indicating whether this request may be hedged; it only reads data.
+   *
+   * @return true
+   */
+  @Override
+  protected boolean isHedgeable() {
+    return true;
+  }
+
 }
@@ -0,0 +1,180 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.request;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.PropertySet;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.search.ConversationSortOrder;
+import microsoft.exchange.webservices.data.core.enumeration.service.ServiceObjectType;
+import microsoft.exchange.webservices.data.core.enumeration.service.error.ServiceErrorHandling;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceValidationException;
+import microsoft.exchange.webservices.data.core.response.GetConversationItemsResponse;
+import microsoft.exchange.webservices.data.misc.FolderIdWrapperList;
+import microsoft.exchange.webservices.data.property.complex.ConversationRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a GetConversationItems request, which gets the items of many
+ * conversations in a single call.
+ */
+public final class GetConversationItemsRequest
+    extends MultiResponseServiceRequest<GetConversationItemsResponse> {
+
+  private final List<ConversationRequest> conversations = new ArrayList<ConversationRequest>();
+
+  private final FolderIdWrapperList foldersToIgnore = new FolderIdWrapperList();
+
+  private PropertySet itemProperties;
+
+  private Integer maxItemsToReturn;
+
+  private ConversationSortOrder sortOrder;
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param service           the service
+   * @param errorHandlingMode the error handling mode
+   * @throws Exception the exception
+   */
+  public GetConversationItemsRequest(ExchangeService service, ServiceErrorHandling errorHandlingMode)
+      throws Exception {
+    super(service, errorHandlingMode);
+  }
+
+  @Override
+  protected GetConversationItemsResponse createServiceResponse(ExchangeService service,
+      int responseIndex) {
+    return new GetConversationItemsResponse(this.itemProperties);
+  }
+
+  @Override
+  protected String getResponseXmlElementName() {
+    return XmlElementNames.GetConversationItemsResponse;
+  }
+
+  @Override
+  protected String getResponseMessageXmlElementName() {
+    return XmlElementNames.GetConversationItemsResponseMessage;
+  }
+
+  @Override
+  protected int getExpectedResponseMessageCount() {
+    return this.conversations.size();
+  }
+
+  @Override
+  public String getXmlElementName() {
+    return XmlElementNames.GetConversationItems;
+  }
+
+  @Override
+  protected void validate() throws Exception {
+    super.validate();
+    EwsUtilities.validateParamCollection(this.conversations.iterator(), "Conversations");
+    EwsUtilities.validateParam(this.itemProperties, "ItemProperties");
+    this.itemProperties.validateForRequest(this, false /* summaryPropertiesOnly */);
+    this.foldersToIgnore.validate(this.getService().getRequestedServerVersion());
+    if (this.maxItemsToReturn != null && (this.maxItemsToReturn < 1 || this.maxItemsToReturn > 100)) {
+      throw new ServiceValidationException("MaxItemsToReturn must be between 1 and 100.");
+    }
+  }
+
+  @Override
+  protected void writeElementsToXml(EwsServiceXmlWriter writer) throws Exception {
+    this.itemProperties.writeToXml(writer, ServiceObjectType.Item);
+    this.foldersToIgnore.writeToXml(writer, XmlNamespace.Messages, XmlElementNames.FoldersToIgnore);
+    if (this.maxItemsToReturn != null) {
+      writer.writeElementValue(XmlNamespace.Messages, XmlElementNames.MaxItemsToReturn,
+          this.maxItemsToReturn);
+    }
+    if (this.sortOrder != null) {
+      writer.writeElementValue(XmlNamespace.Messages, XmlElementNames.SortOrder, this.sortOrder);
+    }
+
+    writer.writeStartElement(XmlNamespace.Messages, XmlElementNames.Conversations);
+    for (ConversationRequest conversation : this.conversations) {
+      conversation.writeToXml(writer, XmlNamespace.Types, XmlElementNames.Conversation);
+    }
+    writer.writeEndElement(); // Conversations
+  }
+
+  @Override
+  protected ExchangeVersion getMinimumRequiredServerVersion() {
+    return ExchangeVersion.Exchange2013;
+  }
+
+  /**
+   * Gets the conversations to get the items of.
+   *
+   * @return the conversations
+   */
+  public List<ConversationRequest> getConversations() {
+    return this.conversations;
+  }
+
+  /**
+   * Gets the folders whose items are left out of the conversations.
+   *
+   * @return the folders to ignore
+   */
+  public FolderIdWrapperList getFoldersToIgnore() {
+    return this.foldersToIgnore;
+  }
+
+  /**
+   * Sets the properties to load for each item.
+   *
+   * @param itemProperties the property set
+   */
+  public void setItemProperties(PropertySet itemProperties) {
+    this.itemProperties = itemProperties;
+  }
+
+  /**
+   * Sets the maximum number of items to return per conversation.
+   *
+   * @param maxItemsToReturn a number between 1 and 100, or null for the
+   *                         server default
+   */
+  public void setMaxItemsToReturn(Integer maxItemsToReturn) {
+    this.maxItemsToReturn = maxItemsToReturn;
+  }
+
+  /**
+   * Sets the order of the conversation nodes.
+   *
+   * @param sortOrder the sort order, or null for the server default
+   */
+  public void setSortOrder(ConversationSortOrder sortOrder) {
+    this.sortOrder = sortOrder;
+  }
+}
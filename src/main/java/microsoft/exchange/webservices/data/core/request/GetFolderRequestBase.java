@@ -148,4 +148,14 @@ abstract class GetFolderRequestBase<TResponse extends ServiceResponse> extends G
     return this.folderIds;
   }
 
+  /**
+   * Gets a value indicating whether this request may be hedged; it only reads data.
+   *
+   * @return true
+   */
+  @Override
+  protected boolean isHedgeable() {
+    return true;
+  }
+
 }
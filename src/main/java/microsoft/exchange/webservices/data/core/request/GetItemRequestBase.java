@@ -148,4 +148,15 @@ abstract class GetItemRequestBase<TResponse extends ServiceResponse> extends Get
   public ItemIdWrapperList getItemIds() {
     return this.itemIds;
   }
+
+  /**
+   * Gets a value indicating whether this request may be hedged; it only reads data.
+   *
+   * @return true
+   */
+  @Override
+  protected boolean isHedgeable() {
+    return true;
+  }
+
 }
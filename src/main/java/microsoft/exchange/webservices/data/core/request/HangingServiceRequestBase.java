@@ -177,6 +177,7 @@ public abstract class HangingServiceRequestBase<T> extends ServiceRequestBase<T>
   public void internalExecute() throws Exception {
     synchronized (this) {
       this.response = this.validateAndEmitRequest();
+      this.completeRequest(null, null);
       this.internalOnConnect();
     }
   }
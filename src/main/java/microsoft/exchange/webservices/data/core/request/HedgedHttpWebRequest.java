@@ -0,0 +1,275 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.request;
+
+import microsoft.exchange.webservices.data.core.exception.http.EWSHttpException;
+import microsoft.exchange.webservices.data.misc.Deadline;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An HttpWebRequest that, when executed, sends an identical second request
+ * if the first one is slow according to its {@link HedgingPolicy}. The first
+ * response wins; the other request is aborted. Afterwards, all calls are
+ * delegated to the request that won.
+ */
+final class HedgedHttpWebRequest extends HttpWebRequest {
+
+  private static final Log LOG = LogFactory.getLog(HedgedHttpWebRequest.class);
+
+  private final HttpWebRequest primary;
+  private final Callable<HttpWebRequest> hedgeFactory;
+  private final HedgingPolicy policy;
+  private final String operationName;
+
+  private volatile HttpWebRequest hedge;
+  private volatile HttpWebRequest winner;
+  private volatile boolean decided;
+
+  /**
+   * Initializes a new instance of the HedgedHttpWebRequest class.
+   *
+   * @param primary       the prepared request, including its content
+   * @param hedgeFactory  prepares an identical request, including its content
+   * @param policy        the hedging policy
+   * @param operationName the name of the operation
+   */
+  HedgedHttpWebRequest(HttpWebRequest primary, Callable<HttpWebRequest> hedgeFactory,
+      HedgingPolicy policy, String operationName) {
+    this.primary = primary;
+    this.hedgeFactory = hedgeFactory;
+    this.policy = policy;
+    this.operationName = operationName;
+  }
+
+  private HttpWebRequest current() {
+    HttpWebRequest request = this.winner;
+    return request != null ? request : this.primary;
+  }
+
+  @Override
+  public int executeRequest() throws EWSHttpException, IOException {
+    long start = System.nanoTime();
+    policy.requestSent();
+
+    CompletionService<HttpWebRequest> completion =
+        new ExecutorCompletionService<HttpWebRequest>(policy.getExecutor());
+    try {
+      completion.submit(execution(primary));
+    } catch (RejectedExecutionException e) {
+      // The policy was closed.
+      winner = primary;
+      decided = true;
+      return primary.executeRequest();
+    }
+
+    HttpWebRequest hedge = null;
+    Throwable failure = null;
+    int pending = 1;
+    try {
+      Future<HttpWebRequest> done =
+          completion.poll(policy.getHedgeDelayMillis(operationName), TimeUnit.MILLISECONDS);
+      if (done == null && policy.tryAcquireHedge()) {
+        try {
+          hedge = hedgeFactory.call();
+          this.hedge = hedge;
+          completion.submit(execution(hedge));
+          pending++;
+        } catch (Exception e) {
+          LOG.debug("Could not hedge " + operationName + " request", e);
+          IOUtils.closeQuietly(hedge);
+          hedge = null;
+        }
+      }
+
+      while (winner == null && pending > 0) {
+        if (done == null) {
+          done = completion.take();
+        }
+        pending--;
+        try {
+          winner = done.get();
+        } catch (ExecutionException e) {
+          if (failure == null) {
+            failure = e.getCause();
+          }
+        }
+        done = null;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure = new InterruptedIOException("Interrupted while waiting for the response");
+    } finally {
+      decided = true;
+      if (winner != primary) {
+        primary.releaseConnection();
+      }
+      if (hedge != null && winner != hedge) {
+        hedge.releaseConnection();
+      }
+    }
+
+    if (winner == null) {
+      if (failure instanceof IOException) {
+        throw (IOException) failure;
+      } else if (failure instanceof EWSHttpException) {
+        throw (EWSHttpException) failure;
+      } else if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      } else if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+      throw new IOException(failure);
+    }
+
+    policy.recordResponse(operationName, System.nanoTime() - start, winner == hedge);
+    return winner.getResponseCode();
+  }
+
+  /**
+   * Executes a request; aborts it if the other request has already won.
+   */
+  private Callable<HttpWebRequest> execution(final HttpWebRequest request) {
+    return new Callable<HttpWebRequest>() {
+      @Override
+      public HttpWebRequest call() throws Exception {
+        request.executeRequest();
+        if (decided && winner != request) {
+          request.releaseConnection();
+        }
+        return request;
+      }
+    };
+  }
+
+  @Override
+  public URL getUrl() {
+    return primary.getUrl();
+  }
+
+  @Override
+  public int getTimeout() {
+    return primary.getTimeout();
+  }
+
+  @Override
+  public Map<String, String> getHeaders() {
+    return primary.getHeaders();
+  }
+
+  @Override
+  public InputStream getInputStream() throws EWSHttpException, IOException {
+    return current().getInputStream();
+  }
+
+  @Override
+  public InputStream getErrorStream() throws EWSHttpException {
+    return current().getErrorStream();
+  }
+
+  @Override
+  public OutputStream getOutputStream() throws EWSHttpException {
+    return primary.getOutputStream();
+  }
+
+  @Override
+  public void close() throws IOException {
+    current().close();
+  }
+
+  @Override
+  public void releaseConnection() {
+    current().releaseConnection();
+  }
+
+  @Override
+  public void abort() {
+    primary.abort();
+    HttpWebRequest hedge = this.hedge;
+    if (hedge != null) {
+      hedge.abort();
+    }
+  }
+
+  @Override
+  public Deadline getDeadline() {
+    return primary.getDeadline();
+  }
+
+  @Override
+  public void prepareConnection() {
+    primary.prepareConnection();
+  }
+
+  @Override
+  public Map<String, String> getResponseHeaders() throws EWSHttpException {
+    return current().getResponseHeaders();
+  }
+
+  @Override
+  public String getContentEncoding() throws EWSHttpException {
+    return current().getContentEncoding();
+  }
+
+  @Override
+  public String getResponseContentType() throws EWSHttpException {
+    return current().getResponseContentType();
+  }
+
+  @Override
+  public int getResponseCode() throws EWSHttpException {
+    return current().getResponseCode();
+  }
+
+  @Override
+  public String getResponseText() throws EWSHttpException {
+    return current().getResponseText();
+  }
+
+  @Override
+  public String getResponseHeaderField(String headerName) throws EWSHttpException {
+    return current().getResponseHeaderField(headerName);
+  }
+
+  @Override
+  public Map<String, String> getRequestProperty() throws EWSHttpException {
+    return current().getRequestProperty();
+  }
+
+}
@@ -0,0 +1,270 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.request;
+
+import microsoft.exchange.webservices.data.misc.ContextExecutors;
+import microsoft.exchange.webservices.data.misc.metrics.Histogram;
+
+import java.io.Closeable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Policy for hedging requests that are safe to repeat (GetItem, FindItem,
+ * FindFolder, GetFolder, GetAttachment and ResolveNames).
+ * <p>
+ * If no response arrived within the hedge delay, an identical second request
+ * is sent; the first response wins and the other request is aborted. The
+ * hedge delay is the configured percentile of the response times observed so
+ * far for the operation, bounded by the minimum and maximum delay; until
+ * enough responses were observed, the initial delay is used. The budget caps
+ * the number of hedges at a fraction of all requests.
+ * </p>
+ * <p>
+ * A policy can be shared by several services. Hedged requests are executed
+ * on daemon threads owned by the policy, which are released by {@link #close()}.
+ * </p>
+ */
+public class HedgingPolicy implements Closeable {
+
+  /**
+   * The default percentile of the response times used as hedge delay.
+   */
+  public static final double DEFAULT_PERCENTILE = 95.0;
+
+  /**
+   * The default fraction of requests that may be hedged.
+   */
+  public static final double DEFAULT_BUDGET = 0.05;
+
+  private static final long MAX_TRACKED_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+  /**
+   * Budget tokens are kept in thousandths of a hedge.
+   */
+  private static final long TOKEN_SCALE = 1000;
+
+  private final ConcurrentMap<String, Histogram> latencies = new ConcurrentHashMap<String, Histogram>();
+
+  private final ExecutorService executor;
+
+  private volatile double percentile = DEFAULT_PERCENTILE;
+  private volatile long initialDelayMillis = 500;
+  private volatile long minDelayMillis = 10;
+  private volatile long maxDelayMillis = 5000;
+  private volatile int minSamples = 100;
+  private volatile double budget = DEFAULT_BUDGET;
+  private volatile int maxBurst = 10;
+
+  private final AtomicLong budgetTokens = new AtomicLong();
+  private final AtomicLong requestCount = new AtomicLong();
+  private final AtomicLong hedgeCount = new AtomicLong();
+  private final AtomicLong hedgeWinCount = new AtomicLong();
+
+  /**
+   * Initializes a new instance of the HedgingPolicy class with default settings.
+   */
+  public HedgingPolicy() {
+    this.executor = Executors.newCachedThreadPool(ContextExecutors.newPoolThreadFactory("ews-hedging"));
+  }
+
+  /**
+   * Sets the percentile of the observed response times used as hedge delay.
+   *
+   * @param percentile the percentile, between 0 and 100
+   */
+  public void setPercentile(double percentile) {
+    if (percentile <= 0 || percentile > 100) {
+      throw new IllegalArgumentException("Invalid percentile: " + percentile);
+    }
+    this.percentile = percentile;
+  }
+
+  public double getPercentile() {
+    return percentile;
+  }
+
+  /**
+   * Sets the bounds of the hedge delay.
+   *
+   * @param minDelay the minimum delay
+   * @param maxDelay the maximum delay
+   * @param timeUnit the unit of the delays
+   */
+  public void setDelayBounds(long minDelay, long maxDelay, TimeUnit timeUnit) {
+    if (minDelay < 0 || maxDelay < minDelay) {
+      throw new IllegalArgumentException("Invalid delay bounds");
+    }
+    this.minDelayMillis = timeUnit.toMillis(minDelay);
+    this.maxDelayMillis = timeUnit.toMillis(maxDelay);
+  }
+
+  /**
+   * Sets the hedge delay used until enough response times were observed.
+   *
+   * @param initialDelay the delay
+   * @param timeUnit     the unit of the delay
+   * @param minSamples   the number of response times to observe before
+   *                     the percentile is used
+   */
+  public void setInitialDelay(long initialDelay, TimeUnit timeUnit, int minSamples) {
+    if (initialDelay < 0 || minSamples < 0) {
+      throw new IllegalArgumentException("Invalid initial delay");
+    }
+    this.initialDelayMillis = timeUnit.toMillis(initialDelay);
+    this.minSamples = minSamples;
+  }
+
+  /**
+   * Sets the hedging budget.
+   *
+   * @param budget   the fraction of requests that may be hedged, e.g. 0.05 for 5%
+   * @param maxBurst the maximum number of hedges that may be sent in a row
+   *                 once the budget has built up
+   */
+  public void setBudget(double budget, int maxBurst) {
+    if (budget < 0 || budget > 1 || maxBurst < 1) {
+      throw new IllegalArgumentException("Invalid hedging budget");
+    }
+    this.budget = budget;
+    this.maxBurst = maxBurst;
+  }
+
+  public double getBudget() {
+    return budget;
+  }
+
+  /**
+   * Gets the number of hedgeable requests sent under this policy.
+   *
+   * @return the number of requests
+   */
+  public long getRequestCount() {
+    return requestCount.get();
+  }
+
+  /**
+   * Gets the number of hedges sent.
+   *
+   * @return the number of hedges
+   */
+  public long getHedgeCount() {
+    return hedgeCount.get();
+  }
+
+  /**
+   * Gets the number of hedges whose response arrived before the one of the original request.
+   *
+   * @return the number of hedges that won
+   */
+  public long getHedgeWinCount() {
+    return hedgeWinCount.get();
+  }
+
+  /**
+   * Gets the current hedge delay of an operation.
+   *
+   * @param operationName the name of the operation
+   * @return the delay, in milliseconds
+   */
+  public long getHedgeDelayMillis(String operationName) {
+    Histogram histogram = latencies.get(operationName);
+    if (histogram == null || histogram.getTotalCount() < minSamples) {
+      return initialDelayMillis;
+    }
+    long delay = TimeUnit.MICROSECONDS.toMillis(histogram.getValueAtPercentile(percentile));
+    return Math.min(Math.max(delay, minDelayMillis), maxDelayMillis);
+  }
+
+  /**
+   * Records that a hedgeable request is sent; this adds to the budget.
+   */
+  void requestSent() {
+    requestCount.incrementAndGet();
+    long increment = (long) (budget * TOKEN_SCALE);
+    long cap = maxBurst * TOKEN_SCALE;
+    long current;
+    long next;
+    do {
+      current = budgetTokens.get();
+      next = Math.min(current + increment, cap);
+    } while (next != current && !budgetTokens.compareAndSet(current, next));
+  }
+
+  /**
+   * Takes a hedge from the budget.
+   *
+   * @return true if a hedge may be sent
+   */
+  boolean tryAcquireHedge() {
+    long current;
+    do {
+      current = budgetTokens.get();
+      if (current < TOKEN_SCALE) {
+        return false;
+      }
+    } while (!budgetTokens.compareAndSet(current, current - TOKEN_SCALE));
+    hedgeCount.incrementAndGet();
+    return true;
+  }
+
+  /**
+   * Records the response time of a request.
+   *
+   * @param operationName the name of the operation
+   * @param nanos         the time until the response arrived
+   * @param hedgeWon      whether the response of the hedge arrived first
+   */
+  void recordResponse(String operationName, long nanos, boolean hedgeWon) {
+    Histogram histogram = latencies.get(operationName);
+    if (histogram == null) {
+      Histogram created = new Histogram(MAX_TRACKED_MICROS);
+      histogram = latencies.putIfAbsent(operationName, created);
+      if (histogram == null) {
+        histogram = created;
+      }
+    }
+    histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+    if (hedgeWon) {
+      hedgeWinCount.incrementAndGet();
+    }
+  }
+
+  ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Stops the threads of this policy; requests are no longer hedged afterwards.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+}
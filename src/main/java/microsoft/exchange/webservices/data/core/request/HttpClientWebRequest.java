@@ -25,10 +25,13 @@ package microsoft.exchange.webservices.data.core.request;
 
 import microsoft.exchange.webservices.data.core.WebProxy;
 import microsoft.exchange.webservices.data.core.exception.http.EWSHttpException;
+import microsoft.exchange.webservices.data.misc.Deadline;
 import org.apache.http.Header;
 import org.apache.http.HttpEntityEnclosingRequest;
 import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthProtocolState;
 import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.AuthState;
 import org.apache.http.auth.NTCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.client.config.AuthSchemes;
@@ -46,6 +49,7 @@ import java.io.BufferedInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.util.Arrays;
@@ -68,6 +72,8 @@ public class HttpClientWebRequest extends HttpWebRequest {
   private final CloseableHttpClient httpClient;
   private final HttpClientContext httpContext;
 
+  private Deadline.Registration deadlineRegistration = null;
+
 
   /**
    * Instantiates a new http native web request.
@@ -96,6 +102,7 @@ public class HttpClientWebRequest extends HttpWebRequest {
     // The response is kept, in case something in the library still wants to read something from it,
     // like response code or headers
     request = null;
+    removeDeadlineRegistration();
   }
 
 
@@ -104,6 +111,22 @@ public class HttpClientWebRequest extends HttpWebRequest {
     if (request != null) {
       request.releaseConnection();
     }
+    removeDeadlineRegistration();
+  }
+
+  @Override
+  public void abort() {
+    HttpRequestBase abortable = request;
+    if (abortable != null) {
+      abortable.abort();
+    }
+  }
+
+  private void removeDeadlineRegistration() {
+    if (deadlineRegistration != null) {
+      deadlineRegistration.remove();
+      deadlineRegistration = null;
+    }
   }
 
   /**
@@ -163,6 +186,10 @@ public class HttpClientWebRequest extends HttpWebRequest {
     if (isAllowAuthentication() && getUsername() != null) {
       NTCredentials webServiceCredentials = new NTCredentials(getUsername(), getPassword(), "", getDomain());
       credentialsProvider.setCredentials(new AuthScope(AuthScope.ANY), webServiceCredentials);
+      // NTLM authenticates connections rather than requests. Leasing with the
+      // principal as state reuses connections already authenticated for it, and
+      // never those of another principal.
+      httpContext.setUserToken(webServiceCredentials.getUserPrincipal());
     }
 
     httpContext.setCredentialsProvider(credentialsProvider);
@@ -314,10 +341,41 @@ public class HttpClientWebRequest extends HttpWebRequest {
   @Override
   public int executeRequest() throws EWSHttpException, IOException {
     throwIfRequestIsNull();
+    Deadline deadline = getDeadline();
+    if (deadline != null) {
+      if (deadline.isDone()) {
+        throw new InterruptedIOException(
+            deadline.isCancelled() ? "The request was cancelled" : "The deadline of the request was exceeded");
+      }
+      // Abort the exchange, including reading the response, when the deadline is done
+      final HttpRequestBase abortable = request;
+      deadlineRegistration = deadline.onDone(new Runnable() {
+        @Override
+        public void run() {
+          abortable.abort();
+        }
+      });
+    }
     response = httpClient.execute(request, httpContext);
     return response.getStatusLine().getStatusCode(); // ?? don't know what is wanted in return
   }
 
+  /**
+   * Gets whether executing the request went through an authentication
+   * handshake with the server or the proxy.
+   *
+   * @return true if the server or proxy challenged the request
+   */
+  @Override
+  public boolean isAuthenticationHandshake() {
+    return response != null
+        && (isChallenged(httpContext.getTargetAuthState()) || isChallenged(httpContext.getProxyAuthState()));
+  }
+
+  private static boolean isChallenged(AuthState authState) {
+    return authState != null && authState.getState() != AuthProtocolState.UNCHALLENGED;
+  }
+
   /**
    * Gets the response code.
    *
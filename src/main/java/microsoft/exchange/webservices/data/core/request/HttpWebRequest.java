@@ -26,6 +26,7 @@ package microsoft.exchange.webservices.data.core.request;
 import microsoft.exchange.webservices.data.EWSConstants;
 import microsoft.exchange.webservices.data.core.WebProxy;
 import microsoft.exchange.webservices.data.core.exception.http.EWSHttpException;
+import microsoft.exchange.webservices.data.misc.Deadline;
 
 import java.io.Closeable;
 import java.io.IOException;
@@ -121,6 +122,11 @@ public abstract class HttpWebRequest implements Closeable {
    */
   private WebProxy proxy;
 
+  /**
+   * The deadline of the request.
+   */
+  private Deadline deadline;
+
   /**
    * Gets the Web Proxy.
    *
@@ -465,6 +471,25 @@ public abstract class HttpWebRequest implements Closeable {
     this.password = pwd;
   }
 
+  /**
+   * Gets the deadline of the request.
+   *
+   * @return the deadline, or null if the request has none
+   */
+  public Deadline getDeadline() {
+    return deadline;
+  }
+
+  /**
+   * Sets the deadline of the request; the request is aborted when the deadline
+   * expires or is cancelled.
+   *
+   * @param deadline the deadline, or null
+   */
+  public void setDeadline(Deadline deadline) {
+    this.deadline = deadline;
+  }
+
   /**
    * Gets the input stream.
    *
@@ -497,11 +522,29 @@ public abstract class HttpWebRequest implements Closeable {
 
   public abstract void releaseConnection();
 
+  /**
+   * Aborts the request, from any thread; a pending or subsequent execution
+   * of the request fails.
+   */
+  public void abort() {
+    releaseConnection();
+  }
+
   /**
    * Prepare connection.
    */
   public abstract void prepareConnection();
 
+  /**
+   * Gets whether executing the request went through an authentication
+   * handshake, as opposed to reusing an already authenticated connection.
+   *
+   * @return true if the server challenged the request
+   */
+  public boolean isAuthenticationHandshake() {
+    return false;
+  }
+
   /**
    * Gets the response headers.
    *
@@ -329,4 +329,14 @@ public final class ResolveNamesRequest extends
     return this.contactDataPropertySet;
   }
 
+  /**
+   * Gets a value indicating whether this request may be hedged; it only reads data.
+   *
+   * @return true
+   */
+  @Override
+  protected boolean isHedgeable() {
+    return true;
+  }
+
 }
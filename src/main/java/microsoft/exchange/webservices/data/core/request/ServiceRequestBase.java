@@ -28,25 +28,42 @@ import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
 import microsoft.exchange.webservices.data.core.EwsUtilities;
 import microsoft.exchange.webservices.data.core.ExchangeServerInfo;
 import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.ICustomXmlSerialization;
+import microsoft.exchange.webservices.data.core.RequestContext;
 import microsoft.exchange.webservices.data.core.XmlAttributeNames;
 import microsoft.exchange.webservices.data.core.XmlElementNames;
 import microsoft.exchange.webservices.data.core.response.ServiceResponse;
+import microsoft.exchange.webservices.data.core.response.ServiceResponseCollection;
 import microsoft.exchange.webservices.data.core.enumeration.misc.DateTimePrecision;
 import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
 import microsoft.exchange.webservices.data.core.enumeration.misc.TraceFlags;
 import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.misc.error.ServiceError;
+import microsoft.exchange.webservices.data.core.enumeration.service.ServiceResult;
 import microsoft.exchange.webservices.data.core.exception.http.EWSHttpException;
 import microsoft.exchange.webservices.data.core.exception.http.HttpErrorException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
+import microsoft.exchange.webservices.data.core.exception.service.remote.DeadlineExceededException;
 import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceRequestException;
 import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceResponseException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceVersionException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceXmlDeserializationException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceXmlSerializationException;
 import microsoft.exchange.webservices.data.core.exception.xml.XmlException;
+import microsoft.exchange.webservices.data.credential.ExchangeCredentials;
+import microsoft.exchange.webservices.data.misc.AsyncRequestResult;
+import microsoft.exchange.webservices.data.misc.Deadline;
+import microsoft.exchange.webservices.data.misc.IAsyncResult;
+import microsoft.exchange.webservices.data.misc.ImpersonatedUserId;
 import microsoft.exchange.webservices.data.misc.SoapFaultDetails;
+import microsoft.exchange.webservices.data.misc.management.RequestActivity;
+import microsoft.exchange.webservices.data.misc.metrics.IRequestMetricsListener;
+import microsoft.exchange.webservices.data.misc.metrics.RequestMetrics;
+import microsoft.exchange.webservices.data.misc.trace.AsyncTracePipeline;
+import microsoft.exchange.webservices.data.misc.trace.BoundedTeeInputStream;
 import microsoft.exchange.webservices.data.security.XmlNodeType;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.CountingInputStream;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -57,6 +74,9 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.InflaterInputStream;
 
@@ -75,8 +95,43 @@ public abstract class ServiceRequestBase<T> {
   /* If included then overrides service specified timeout */
   private Integer timeout;
 
+  /**
+   * The metrics listener and the measurements of this request; only set
+   * while a listener is registered with the service.
+   */
+  private IRequestMetricsListener metricsListener;
+  private RequestMetrics metrics;
+  private CountingInputStream wireResponseStream;
+  private CountingInputStream decodedResponseStream;
+
+  /**
+   * Whether the trace filter of the service selected this request; decided
+   * once per request so that all of its trace entries are kept or dropped together.
+   */
+  private boolean traceSelected = true;
+
+  /**
+   * Whether this request has been reported to the {@link RequestActivity} as in flight.
+   */
+  private boolean inFlight;
+
+  /**
+   * The deadline of this request, taken from the thread that built it.
+   */
+  private Deadline deadline;
+
   // Methods for subclasses to override
 
+  /**
+   * Gets a value indicating whether this request is safe to send twice, so
+   * that it may be hedged according to the hedging policy of the service.
+   *
+   * @return true if the request may be hedged
+   */
+  protected boolean isHedgeable() {
+    return false;
+  }
+
   /**
    * Gets the name of the XML element.
    *
@@ -196,6 +251,40 @@ public abstract class ServiceRequestBase<T> {
    * @throws Exception the exception
    */
   protected void writeToXml(EwsServiceXmlWriter writer) throws Exception {
+    RequestContext requestContext = RequestContext.current();
+    ImpersonatedUserId impersonatedUserId = requestContext != null ? requestContext.getImpersonatedUserId() : null;
+    if (impersonatedUserId == null) {
+      impersonatedUserId = this.service.getImpersonatedUserId();
+    }
+
+    String templateKey = this.getEnvelopeTemplateKey(writer, impersonatedUserId);
+    if (templateKey != null) {
+      SoapEnvelopeTemplate template = this.getEnvelopeTemplate(templateKey, impersonatedUserId);
+      writer.writeRaw(template.getPrefix());
+      this.writeBodyToXml(writer);
+      writer.writeRaw(template.getSuffix());
+      writer.flush();
+      return;
+    }
+
+    this.writeEnvelopeStart(writer, impersonatedUserId);
+
+    this.writeBodyToXml(writer);
+
+    writer.writeEndElement(); // soap:Body
+    writer.writeEndElement(); // soap:Envelope
+    writer.flush();
+  }
+
+  /**
+   * Writes the SOAP envelope up to the start of the SOAP body.
+   *
+   * @param writer             The writer.
+   * @param impersonatedUserId The impersonated user, or null.
+   * @throws Exception the exception
+   */
+  private void writeEnvelopeStart(EwsServiceXmlWriter writer, ImpersonatedUserId impersonatedUserId)
+      throws Exception {
     writer.writeStartDocument();
     writer.writeStartElement(XmlNamespace.Soap, XmlElementNames.SOAPEnvelopeElementName);
     writer.writeAttributeValue("xmlns", EwsUtilities.getNamespacePrefix(XmlNamespace.Soap),
@@ -247,8 +336,8 @@ public abstract class ServiceRequestBase<T> {
       writer.writeElementValue(XmlNamespace.Types, XmlElementNames.DateTimePrecision,
                                this.getService().getDateTimePrecision().toString());
     }
-    if (this.service.getImpersonatedUserId() != null) {
-      this.service.getImpersonatedUserId().writeToXml(writer);
+    if (impersonatedUserId != null) {
+      impersonatedUserId.writeToXml(writer);
     }
 
     if (this.service.getCredentials() != null) {
@@ -261,11 +350,66 @@ public abstract class ServiceRequestBase<T> {
 
     writer.writeStartElement(XmlNamespace.Soap, XmlElementNames.SOAPBodyElementName);
 
-    this.writeBodyToXml(writer);
+  }
 
-    writer.writeEndElement(); // soap:Body
-    writer.writeEndElement(); // soap:Envelope
-    writer.flush();
+  /**
+   * Gets the key of the cached envelope of this request. The envelope only
+   * depends on the settings in the key, unless the credentials, a custom SOAP
+   * header or a signature contribute to it; it is not cached then.
+   *
+   * @param writer             The writer.
+   * @param impersonatedUserId The impersonated user, or null.
+   * @return the key, or null if the envelope must be written
+   */
+  private String getEnvelopeTemplateKey(EwsServiceXmlWriter writer, ImpersonatedUserId impersonatedUserId) {
+    ExchangeCredentials credentials = this.service.getCredentials();
+    List<ICustomXmlSerialization> customSoapHeaders = this.service.getOnSerializeCustomSoapHeaders();
+    if (writer.isRequireWSSecurityUtilityNamespace() ||
+        (credentials != null && credentials.hasExtraSoapHeaders()) ||
+        (customSoapHeaders != null && !customSoapHeaders.isEmpty())) {
+      return null;
+    }
+
+    StringBuilder key = new StringBuilder(this.getRequestedServiceVersionString());
+    key.append('|').append(this.service.getDateTimePrecision().name());
+    key.append('|');
+    if (this.service.getPreferredCulture() != null) {
+      key.append(this.service.getPreferredCulture());
+    }
+    // The impersonation id comes last, it may contain any character.
+    if (impersonatedUserId != null) {
+      key.append('|').append(impersonatedUserId.getIdType().name()).append('|').append(impersonatedUserId.getId());
+    }
+    return key.toString();
+  }
+
+  /**
+   * Gets the cached envelope of this request, rendering it if not cached.
+   *
+   * @param key                The key of the envelope.
+   * @param impersonatedUserId The impersonated user, or null.
+   * @return the envelope
+   * @throws Exception the exception
+   */
+  private SoapEnvelopeTemplate getEnvelopeTemplate(String key, final ImpersonatedUserId impersonatedUserId)
+      throws Exception {
+    return SoapEnvelopeTemplate.get(key, new Callable<SoapEnvelopeTemplate>() {
+      @Override
+      public SoapEnvelopeTemplate call() throws Exception {
+        ByteArrayOutputStream stream = new ByteArrayOutputStream();
+        EwsServiceXmlWriter writer = new EwsServiceXmlWriter(service, stream);
+        writeEnvelopeStart(writer, impersonatedUserId);
+        writer.getInternalWriter().writeCharacters(""); // closes the soap:Body start tag
+        writer.flush();
+        int prefixLength = stream.size();
+        writer.writeEndElement(); // soap:Body
+        writer.writeEndElement(); // soap:Envelope
+        writer.flush();
+        byte[] xml = stream.toByteArray();
+        return new SoapEnvelopeTemplate(Arrays.copyOfRange(xml, 0, prefixLength),
+            Arrays.copyOfRange(xml, prefixLength, xml.length));
+      }
+    });
   }
 
   /**
@@ -294,22 +438,51 @@ public abstract class ServiceRequestBase<T> {
    */
   protected static InputStream getResponseStream(HttpWebRequest request)
       throws IOException, EWSHttpException {
-    String contentEncoding = "";
+    return decodeResponseStream(request.getInputStream(), request.getContentEncoding());
+  }
 
-    if (null != request.getContentEncoding()) {
-      contentEncoding = request.getContentEncoding().toLowerCase();
+  /**
+   * Wraps a response stream with a GZip/Deflate stream according to the content encoding.
+   *
+   * @param stream          the raw response stream
+   * @param contentEncoding the content encoding header value, may be null
+   * @return the decoded stream
+   * @throws IOException signals that an I/O exception has occurred
+   */
+  private static InputStream decodeResponseStream(InputStream stream, String contentEncoding)
+      throws IOException {
+    String encoding = contentEncoding != null ? contentEncoding.toLowerCase() : "";
+
+    if (encoding.contains("gzip")) {
+      return new GZIPInputStream(stream);
+    } else if (encoding.contains("deflate")) {
+      return new InflaterInputStream(stream);
+    } else {
+      return stream;
     }
+  }
 
-    InputStream responseStream;
-
-    if (contentEncoding.contains("gzip")) {
-      responseStream = new GZIPInputStream(request.getInputStream());
-    } else if (contentEncoding.contains("deflate")) {
-      responseStream = new InflaterInputStream(request.getInputStream());
-    } else {
-      responseStream = request.getInputStream();
+  /**
+   * Opens the (decompressed) response stream, counting the bytes read if
+   * request metrics are being collected.
+   *
+   * @param request the request whose response should be read
+   * @return the response stream
+   * @throws IOException      signals that an I/O exception has occurred
+   * @throws EWSHttpException the EWS http exception
+   */
+  private InputStream openResponseStream(HttpWebRequest request) throws IOException, EWSHttpException {
+    if (this.metrics == null) {
+      return ServiceRequestBase.getResponseStream(request);
     }
-    return responseStream;
+
+    String contentEncoding = request.getContentEncoding();
+    this.metrics.setContentEncoding(contentEncoding);
+    this.metrics.setHttpStatusCode(request.getResponseCode());
+    this.wireResponseStream = new CountingInputStream(request.getInputStream());
+    this.decodedResponseStream =
+        new CountingInputStream(decodeResponseStream(this.wireResponseStream, contentEncoding));
+    return this.decodedResponseStream;
   }
 
   /**
@@ -324,11 +497,11 @@ public abstract class ServiceRequestBase<T> {
   protected void traceResponse(HttpWebRequest request, ByteArrayOutputStream memoryStream)
       throws XMLStreamException, IOException, EWSHttpException {
 
-    this.service.processHttpResponseHeaders(TraceFlags.EwsResponseHttpHeaders, request);
-    String contentType = request.getResponseContentType();
-
-    if (!isNullOrEmpty(contentType) && (contentType.startsWith("text/") || contentType
-        .startsWith("application/soap"))) {
+    this.service.processHttpResponseHeaders(TraceFlags.EwsResponseHttpHeaders, request, this.traceSelected);
+    if (!this.traceSelected) {
+      return;
+    }
+    if (isTextualContentType(request.getResponseContentType())) {
       this.service.traceXml(TraceFlags.EwsResponse, memoryStream);
     } else {
       this.service.traceMessage(TraceFlags.EwsResponse, "Non-textual response");
@@ -336,6 +509,41 @@ public abstract class ServiceRequestBase<T> {
 
   }
 
+  /**
+   * Traces the response captured while it was parsed. The response headers
+   * have already been processed.
+   *
+   * @param request the response
+   * @param capture the stream the response was read through
+   * @throws XMLStreamException the XML stream exception
+   * @throws IOException        signals that an I/O exception has occurred
+   * @throws EWSHttpException   the EWS http exception
+   */
+  private void traceResponse(HttpWebRequest request, BoundedTeeInputStream capture)
+      throws XMLStreamException, IOException, EWSHttpException {
+    if (isTextualContentType(request.getResponseContentType())) {
+      this.service.traceXml(TraceFlags.EwsResponse, capture.getBuffer(), capture.getCapturedLength(),
+          capture.getTotalBytes());
+    } else {
+      this.service.traceMessage(TraceFlags.EwsResponse, "Non-textual response");
+    }
+  }
+
+  private boolean isTextualContentType(String contentType) {
+    return !isNullOrEmpty(contentType) && (contentType.startsWith("text/") || contentType
+        .startsWith("application/soap"));
+  }
+
+  /**
+   * Determines whether the given kind of trace entry is written for this request.
+   *
+   * @param traceFlags the trace flags
+   * @return true if the entry is traced
+   */
+  private boolean isTraceEnabledFor(TraceFlags traceFlags) {
+    return this.traceSelected && this.service.isTraceEnabledFor(traceFlags);
+  }
+
   /**
    * Gets the response error stream.
    *
@@ -346,56 +554,104 @@ public abstract class ServiceRequestBase<T> {
    */
   private static InputStream getResponseErrorStream(HttpWebRequest request)
       throws EWSHttpException, IOException {
-    String contentEncoding = "";
+    return decodeResponseStream(request.getErrorStream(), request.getContentEncoding());
+  }
 
-    if (null != request.getContentEncoding()) {
-      contentEncoding = request.getContentEncoding().toLowerCase();
-    }
+  /**
+   * Reads the response.
+   *
+   * @param response HTTP web request
+   * @return response response object
+   * @throws Exception on error
+   */
+  protected T readResponse(HttpWebRequest response) throws Exception {
+    return this.readCompletedResponse(response, null);
+  }
 
-    InputStream responseStream;
+  /**
+   * Reads the response of a request that was executed asynchronously. The
+   * request is completed whether the asynchronous execution succeeded or not.
+   *
+   * @param asyncResult the result of the asynchronous execution
+   * @return response response object
+   * @throws Exception on error
+   */
+  protected T readResponse(IAsyncResult asyncResult) throws Exception {
+    return this.readCompletedResponse(null, asyncResult);
+  }
 
-    if (contentEncoding.contains("gzip")) {
-      responseStream = new GZIPInputStream(request.getErrorStream());
-    } else if (contentEncoding.contains("deflate")) {
-      responseStream = new InflaterInputStream(request.getErrorStream());
-    } else {
-      responseStream = request.getErrorStream();
+  /**
+   * Reads the response of a request, waiting for its asynchronous execution
+   * first if there is one, and completes the request.
+   *
+   * @param response    HTTP web request, or null if asyncResult is set
+   * @param asyncResult the result of the asynchronous execution, or null
+   * @return response response object
+   * @throws Exception on error
+   */
+  private T readCompletedResponse(HttpWebRequest response, IAsyncResult asyncResult) throws Exception {
+    T serviceResponse = null;
+    Exception failure = null;
+
+    try {
+      if (asyncResult != null) {
+        response = (HttpWebRequest) asyncResult.get();
+      }
+      serviceResponse = this.readResponseContent(response);
+      return serviceResponse;
+    } catch (Exception e) {
+      if (response == null && asyncResult instanceof AsyncRequestResult) {
+        IOUtils.closeQuietly(((AsyncRequestResult) asyncResult).getHttpWebRequest());
+      }
+      failure = this.deadlineFailure(e);
+      throw failure;
+    } finally {
+      this.completeRequest(serviceResponse, failure);
     }
-    return responseStream;
   }
 
   /**
-   * Reads the response.
+   * Reads and parses the response content.
    *
    * @param response HTTP web request
    * @return response response object
    * @throws Exception on error
    */
-  protected T readResponse(HttpWebRequest response) throws Exception {
+  private T readResponseContent(HttpWebRequest response) throws Exception {
     T serviceResponse;
 
     if (!response.getResponseContentType().startsWith("text/xml")) {
       throw new ServiceRequestException("The response received from the service didn't contain valid XML.");
     }
 
+    long parseStart = this.metrics != null ? System.nanoTime() : 0;
+
     /**
      * If tracing is enabled, we read the entire response into a
      * MemoryStream so that we can pass it along to the ITraceListener. Then
-     * we parse the response from the MemoryStream.
+     * we parse the response from the MemoryStream. With a trace pipeline,
+     * the response is parsed as it arrives and only a bounded copy of it is
+     * kept for the trace.
      */
 
     try {
-      this.getService().processHttpResponseHeaders(TraceFlags.EwsResponseHttpHeaders, response);
-
-      if (this.getService().isTraceEnabledFor(TraceFlags.EwsResponse)) {
-        ByteArrayOutputStream memoryStream = new ByteArrayOutputStream();
-        InputStream serviceResponseStream = ServiceRequestBase.getResponseStream(response);
-
-        int data = serviceResponseStream.read();
-        while (data != -1) {
-          memoryStream.write(data);
-          data = serviceResponseStream.read();
+      this.getService().processHttpResponseHeaders(TraceFlags.EwsResponseHttpHeaders, response,
+          this.traceSelected);
+
+      AsyncTracePipeline tracePipeline = this.getService().getTracePipeline();
+      if (this.isTraceEnabledFor(TraceFlags.EwsResponse) && tracePipeline != null) {
+        BoundedTeeInputStream capture =
+            new BoundedTeeInputStream(this.openResponseStream(response), tracePipeline.getMaxBodyBytes());
+        try {
+          EwsServiceXmlReader ewsXmlReader = new EwsServiceXmlReader(capture, this.getService());
+          serviceResponse = this.readResponse(ewsXmlReader);
+        } finally {
+          this.traceResponse(response, capture);
         }
+      } else if (this.isTraceEnabledFor(TraceFlags.EwsResponse)) {
+        ByteArrayOutputStream memoryStream = new ByteArrayOutputStream();
+        InputStream serviceResponseStream = this.openResponseStream(response);
+        IOUtils.copy(serviceResponseStream, memoryStream);
 
         this.traceResponse(response, memoryStream);
         ByteArrayInputStream memoryStreamIn = new ByteArrayInputStream(memoryStream.toByteArray());
@@ -404,15 +660,19 @@ public abstract class ServiceRequestBase<T> {
         serviceResponseStream.close();
         memoryStream.flush();
       } else {
-        InputStream responseStream = ServiceRequestBase.getResponseStream(response);
+        InputStream responseStream = this.openResponseStream(response);
         EwsServiceXmlReader ewsXmlReader = new EwsServiceXmlReader(responseStream, this.getService());
         serviceResponse = this.readResponse(ewsXmlReader);
       }
 
+      if (this.metrics != null) {
+        this.metrics.setParseNanos(System.nanoTime() - parseStart);
+      }
       return serviceResponse;
     } catch (HTTPException e) {
       if (e.getMessage() != null) {
-        this.getService().processHttpResponseHeaders(TraceFlags.EwsResponseHttpHeaders, response);
+        this.getService().processHttpResponseHeaders(TraceFlags.EwsResponseHttpHeaders, response,
+            this.traceSelected);
       }
       throw new ServiceRequestException(String.format("The request failed. %s", e.getMessage()), e);
     } catch (IOException e) {
@@ -487,19 +747,12 @@ public abstract class ServiceRequestBase<T> {
   protected void processWebException(Exception webException, HttpWebRequest req) throws Exception {
     SoapFaultDetails soapFaultDetails;
     if (null != req) {
-      this.getService().processHttpResponseHeaders(TraceFlags.EwsResponseHttpHeaders, req);
+      this.getService().processHttpResponseHeaders(TraceFlags.EwsResponseHttpHeaders, req, this.traceSelected);
       if (500 == req.getResponseCode()) {
-        if (this.service.isTraceEnabledFor(TraceFlags.EwsResponse)) {
+        if (this.isTraceEnabledFor(TraceFlags.EwsResponse)) {
           ByteArrayOutputStream memoryStream = new ByteArrayOutputStream();
           InputStream serviceResponseStream = ServiceRequestBase.getResponseErrorStream(req);
-          while (true) {
-            int data = serviceResponseStream.read();
-            if (-1 == data) {
-              break;
-            } else {
-              memoryStream.write(data);
-            }
-          }
+          IOUtils.copy(serviceResponseStream, memoryStream);
           memoryStream.flush();
           serviceResponseStream.close();
           this.traceResponse(req, memoryStream);
@@ -639,6 +892,7 @@ public abstract class ServiceRequestBase<T> {
    */
   protected HttpWebRequest validateAndEmitRequest() throws Exception {
     this.validate();
+    Deadline.checkCurrent();
 
     HttpWebRequest request = this.buildEwsHttpWebRequest();
 
@@ -653,10 +907,91 @@ public abstract class ServiceRequestBase<T> {
       }
     } catch (Exception e) {
       IOUtils.closeQuietly(request);
-      throw e;
+      Exception failure = this.deadlineFailure(e);
+      this.completeRequest(null, failure);
+      throw failure;
+    }
+  }
+
+  /**
+   * Replaces the exception a request failed with by a DeadlineExceededException
+   * if the request failed because it was aborted by its deadline.
+   *
+   * @param exception the exception
+   * @return the exception to throw
+   */
+  private Exception deadlineFailure(Exception exception) {
+    if (this.deadline == null || !this.deadline.isDone() || exception instanceof DeadlineExceededException) {
+      return exception;
+    }
+    return this.deadline.createException(exception);
+  }
+
+  /**
+   * Marks this request as no longer in flight and reports its measurements to
+   * the registered metrics listener. Does nothing if this has already been
+   * done; metrics are only reported if a listener was registered when the
+   * request was built.
+   *
+   * @param serviceResponse the parsed response, or null
+   * @param exception       the exception the request failed with, or null
+   */
+  void completeRequest(T serviceResponse, Exception exception) {
+    if (this.inFlight) {
+      this.inFlight = false;
+      RequestActivity.getInstance().requestEnded(this.getXmlElementName());
+    }
+
+    RequestMetrics completed = this.metrics;
+    if (completed == null) {
+      return;
+    }
+    this.metrics = null;
+
+    if (this.wireResponseStream != null) {
+      completed.setResponseBytes(this.wireResponseStream.getByteCount());
+      completed.setUncompressedResponseBytes(this.decodedResponseStream.getByteCount());
+      this.wireResponseStream = null;
+      this.decodedResponseStream = null;
+    }
+    completed.setServiceError(getServiceError(serviceResponse, exception));
+    completed.complete(exception);
+
+    try {
+      this.metricsListener.requestCompleted(completed);
+    } catch (RuntimeException e) {
+      LOG.warn("Request metrics listener failed", e);
     }
   }
 
+  /**
+   * Gets the first EWS error of a response or exception.
+   *
+   * @param serviceResponse the parsed response, or null
+   * @param exception       the exception, or null
+   * @return the service error, or null if there is none
+   */
+  private static ServiceError getServiceError(Object serviceResponse, Throwable exception) {
+    for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+      if (cause instanceof ServiceResponseException) {
+        return ((ServiceResponseException) cause).getErrorCode();
+      }
+    }
+
+    if (serviceResponse instanceof ServiceResponse) {
+      ServiceResponse response = (ServiceResponse) serviceResponse;
+      return response.getResult() == ServiceResult.Error ? response.getErrorCode() : null;
+    }
+    if (serviceResponse instanceof ServiceResponseCollection) {
+      for (ServiceResponse response : (ServiceResponseCollection<?>) serviceResponse) {
+        if (response.getResult() == ServiceResult.Error) {
+          return response.getErrorCode();
+        }
+      }
+    }
+    return null;
+  }
+
   /**
    * Builds the HttpWebRequest object for current service request with exception handling.
    *
@@ -684,9 +1019,18 @@ public abstract class ServiceRequestBase<T> {
   }
 
   private HttpWebRequest buildEwsHttpWebRequest(HttpWebRequest request) throws Exception {
+    this.deadline = request.getDeadline();
+    this.metricsListener = service.getRequestMetricsListener();
+    if (this.metricsListener != null) {
+      this.metrics = new RequestMetrics(this.getXmlElementName());
+    }
+    this.traceSelected = service.isTraceSelected(this.getXmlElementName());
+
     try {
 
-      service.traceHttpRequestHeaders(TraceFlags.EwsRequestHttpHeaders, request);
+      if (this.traceSelected) {
+        service.traceHttpRequestHeaders(TraceFlags.EwsRequestHttpHeaders, request);
+      }
 
       ByteArrayOutputStream requestStream = (ByteArrayOutputStream) request.getOutputStream();
 
@@ -702,8 +1046,23 @@ public abstract class ServiceRequestBase<T> {
         service.getCredentials().sign(requestStream);
       }
 
-      service.traceXml(TraceFlags.EwsRequest, requestStream);
+      if (this.metrics != null) {
+        this.metrics.setSerializeNanos(System.nanoTime() - this.metrics.getStartNanos());
+        this.metrics.setRequestBytes(requestStream.size());
+      }
 
+      if (this.traceSelected) {
+        service.traceXml(TraceFlags.EwsRequest, requestStream);
+      }
+
+      HedgingPolicy hedgingPolicy = service.getHedgingPolicy();
+      if (hedgingPolicy != null && this.isHedgeable()) {
+        request = new HedgedHttpWebRequest(request, this.newHedgeFactory(requestStream.toByteArray()),
+            hedgingPolicy, this.getXmlElementName());
+      }
+
+      RequestActivity.getInstance().requestStarted(this.getXmlElementName());
+      this.inFlight = true;
       return request;
     } catch (IOException e) {
       // Wrap exception.
@@ -711,6 +1070,31 @@ public abstract class ServiceRequestBase<T> {
     }
   }
 
+  /**
+   * Creates the factory of the hedge of this request.
+   *
+   * @param content the content of this request
+   * @return the hedge factory
+   */
+  private Callable<HttpWebRequest> newHedgeFactory(final byte[] content) {
+    // The hedge is prepared by the thread that executes this request, which for
+    // asynchronous requests is not the one that built it: capture the context
+    // and deadline of this request now so that the hedge carries them as well.
+    final RequestContext requestContext = RequestContext.current();
+    final Deadline requestDeadline = this.deadline;
+    return new Callable<HttpWebRequest>() {
+      @Override
+      public HttpWebRequest call() throws Exception {
+        try (RequestContext.Scope contextScope = requestContext != null ? requestContext.attach() : null;
+             Deadline.Scope deadlineScope = requestDeadline != null ? requestDeadline.attach() : null) {
+          HttpWebRequest hedge = service.prepareHttpWebRequest(timeout);
+          hedge.getOutputStream().write(content);
+          return hedge;
+        }
+      }
+    };
+  }
+
   /**
    * Gets the IEwsHttpWebRequest object from the specifiedHttpWebRequest object with exception handling
    *
@@ -720,8 +1104,15 @@ public abstract class ServiceRequestBase<T> {
    */
   protected HttpWebRequest getEwsHttpWebResponse(HttpWebRequest request) throws Exception {
     try {
+      long sendStart = this.metrics != null ? System.nanoTime() : 0;
       request.executeRequest();
 
+      if (this.metrics != null) {
+        this.metrics.setTimeToFirstByteNanos(System.nanoTime() - sendStart);
+        this.metrics.setHttpStatusCode(request.getResponseCode());
+        this.metrics.setAuthenticationHandshake(request.isAuthenticationHandshake());
+      }
+
       if (request.getResponseCode() >= 400) {
         throw new HttpErrorException(
             "The remote server returned an error: (" + request.getResponseCode() + ")" +
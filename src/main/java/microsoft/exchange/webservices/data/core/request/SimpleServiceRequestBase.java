@@ -25,12 +25,14 @@ package microsoft.exchange.webservices.data.core.request;
 
 import microsoft.exchange.webservices.data.core.ExchangeService;
 import microsoft.exchange.webservices.data.core.enumeration.misc.TraceFlags;
+import microsoft.exchange.webservices.data.core.exception.service.remote.DeadlineExceededException;
 import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceRequestException;
 import microsoft.exchange.webservices.data.misc.AsyncCallback;
 import microsoft.exchange.webservices.data.misc.AsyncExecutor;
 import microsoft.exchange.webservices.data.misc.AsyncRequestResult;
 import microsoft.exchange.webservices.data.misc.CallableMethod;
 import microsoft.exchange.webservices.data.misc.IAsyncResult;
+import org.apache.commons.io.IOUtils;
 
 import java.io.IOException;
 import java.util.concurrent.Callable;
@@ -61,6 +63,8 @@ public abstract class SimpleServiceRequestBase<T> extends ServiceRequestBase<T>
     try {
       response = this.validateAndEmitRequest();
       return this.readResponse(response);
+    } catch (DeadlineExceededException ex) {
+      throw ex;
     } catch (IOException ex) {
       // Wrap exception.
       throw new ServiceRequestException(String.
@@ -83,8 +87,7 @@ public abstract class SimpleServiceRequestBase<T> extends ServiceRequestBase<T>
    * @throws Exception on error
    */
   protected T endInternalExecute(IAsyncResult asyncResult) throws Exception {
-    HttpWebRequest response = (HttpWebRequest) asyncResult.get();
-    return this.readResponse(response);
+    return this.readResponse(asyncResult);
   }
 
   /**
@@ -98,10 +101,17 @@ public abstract class SimpleServiceRequestBase<T> extends ServiceRequestBase<T>
     this.validate();
 
     HttpWebRequest request = this.buildEwsHttpWebRequest();
-    AsyncExecutor es = new AsyncExecutor();
-    Callable<?> cl = new CallableMethod(request);
-    Future<?> task = es.submit(cl, callback);
-    es.shutdown();
+    Future<?> task;
+    try {
+      AsyncExecutor es = new AsyncExecutor();
+      Callable<?> cl = new CallableMethod(request);
+      task = es.submit(cl, callback);
+      es.shutdown();
+    } catch (RuntimeException e) {
+      IOUtils.closeQuietly(request);
+      this.completeRequest(null, e);
+      throw e;
+    }
 
     return new AsyncRequestResult(this, request, task, null);
   }
@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.request;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A pre-serialized SOAP envelope: the bytes before and after the body of a
+ * request. Envelopes are cached by the settings they depend on, so a change
+ * of setting simply selects another envelope.
+ */
+final class SoapEnvelopeTemplate {
+
+  private static final Cache<String, SoapEnvelopeTemplate> CACHE = CacheBuilder.newBuilder()
+      .maximumSize(10000)
+      .build();
+
+  private final byte[] prefix;
+
+  private final byte[] suffix;
+
+  SoapEnvelopeTemplate(byte[] prefix, byte[] suffix) {
+    this.prefix = prefix;
+    this.suffix = suffix;
+  }
+
+  /**
+   * Gets the cached envelope, rendering it if not cached.
+   *
+   * @param key    the key of the envelope
+   * @param loader renders the envelope
+   * @return the envelope
+   * @throws Exception if the envelope could not be rendered
+   */
+  static SoapEnvelopeTemplate get(String key, Callable<SoapEnvelopeTemplate> loader) throws Exception {
+    try {
+      return CACHE.get(key, loader);
+    } catch (ExecutionException e) {
+      throw (Exception) e.getCause();
+    } catch (UncheckedExecutionException e) {
+      throw (RuntimeException) e.getCause();
+    }
+  }
+
+  /**
+   * Clears the cache.
+   */
+  static void clear() {
+    CACHE.invalidateAll();
+  }
+
+  /**
+   * Gets the bytes up to and including the start of the SOAP body.
+   *
+   * @return the prefix, not to be modified
+   */
+  byte[] getPrefix() {
+    return prefix;
+  }
+
+  /**
+   * Gets the bytes from the end of the SOAP body.
+   *
+   * @return the suffix, not to be modified
+   */
+  byte[] getSuffix() {
+    return suffix;
+  }
+
+}
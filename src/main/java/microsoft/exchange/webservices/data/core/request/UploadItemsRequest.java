@@ -0,0 +1,112 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.request;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.service.error.ServiceErrorHandling;
+import microsoft.exchange.webservices.data.core.response.UploadItemsResponse;
+import microsoft.exchange.webservices.data.misc.UploadItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents an UploadItems request, which creates or updates items from
+ * the data returned by ExportItems.
+ */
+public final class UploadItemsRequest extends MultiResponseServiceRequest<UploadItemsResponse> {
+
+  private final List<UploadItem> items = new ArrayList<UploadItem>();
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param service           the service
+   * @param errorHandlingMode the error handling mode
+   * @throws Exception the exception
+   */
+  public UploadItemsRequest(ExchangeService service, ServiceErrorHandling errorHandlingMode)
+      throws Exception {
+    super(service, errorHandlingMode);
+  }
+
+  @Override
+  protected UploadItemsResponse createServiceResponse(ExchangeService service, int responseIndex) {
+    return new UploadItemsResponse();
+  }
+
+  @Override
+  protected String getResponseXmlElementName() {
+    return XmlElementNames.UploadItemsResponse;
+  }
+
+  @Override
+  protected String getResponseMessageXmlElementName() {
+    return XmlElementNames.UploadItemsResponseMessage;
+  }
+
+  @Override
+  protected int getExpectedResponseMessageCount() {
+    return this.items.size();
+  }
+
+  @Override
+  public String getXmlElementName() {
+    return XmlElementNames.UploadItems;
+  }
+
+  @Override
+  protected void validate() throws Exception {
+    super.validate();
+    EwsUtilities.validateParamCollection(this.items.iterator(), "Items");
+  }
+
+  @Override
+  protected void writeElementsToXml(EwsServiceXmlWriter writer) throws Exception {
+    writer.writeStartElement(XmlNamespace.Messages, XmlElementNames.Items);
+    for (UploadItem item : this.items) {
+      item.writeToXml(writer);
+    }
+    writer.writeEndElement(); // Items
+  }
+
+  @Override
+  protected ExchangeVersion getMinimumRequiredServerVersion() {
+    return ExchangeVersion.Exchange2010_SP1;
+  }
+
+  /**
+   * Gets the items to upload.
+   *
+   * @return the items
+   */
+  public List<UploadItem> getItems() {
+    return this.items;
+  }
+}
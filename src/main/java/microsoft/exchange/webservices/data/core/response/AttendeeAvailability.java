@@ -28,6 +28,8 @@ import microsoft.exchange.webservices.data.core.XmlElementNames;
 import microsoft.exchange.webservices.data.core.enumeration.availability.FreeBusyViewType;
 import microsoft.exchange.webservices.data.core.enumeration.property.LegacyFreeBusyStatus;
 import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.misc.error.ServiceError;
+import microsoft.exchange.webservices.data.core.enumeration.service.ServiceResult;
 import microsoft.exchange.webservices.data.property.complex.availability.CalendarEvent;
 import microsoft.exchange.webservices.data.property.complex.availability.WorkingHours;
 
@@ -68,6 +70,22 @@ public final class AttendeeAvailability extends ServiceResponse {
     super();
   }
 
+  /**
+   * Initializes a new instance of the AttendeeAvailability class with
+   * calendar events that were retrieved before, for example in parts.
+   *
+   * @param viewType       the view type
+   * @param calendarEvents the calendar events
+   * @param workingHours   the working hours, or null
+   */
+  public AttendeeAvailability(FreeBusyViewType viewType, Collection<CalendarEvent> calendarEvents,
+      WorkingHours workingHours) {
+    super(ServiceResult.Success, ServiceError.NoError);
+    this.viewType = viewType;
+    this.calendarEvents.addAll(calendarEvents);
+    this.workingHours = workingHours;
+  }
+
   /**
    * Loads the free busy view from XML.
    *
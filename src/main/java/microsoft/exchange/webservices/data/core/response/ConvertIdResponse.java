@@ -28,6 +28,8 @@ import microsoft.exchange.webservices.data.core.EwsUtilities;
 import microsoft.exchange.webservices.data.core.XmlAttributeNames;
 import microsoft.exchange.webservices.data.core.XmlElementNames;
 import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.misc.error.ServiceError;
+import microsoft.exchange.webservices.data.core.enumeration.service.ServiceResult;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
 import microsoft.exchange.webservices.data.misc.id.AlternateId;
 import microsoft.exchange.webservices.data.misc.id.AlternateIdBase;
@@ -51,6 +53,17 @@ public final class ConvertIdResponse extends ServiceResponse {
     super();
   }
 
+  /**
+   * Initializes a new instance of the class for an id converted without
+   * calling EWS.
+   *
+   * @param convertedId the converted id
+   */
+  public ConvertIdResponse(AlternateIdBase convertedId) {
+    super(ServiceResult.Success, ServiceError.NoError);
+    this.convertedId = convertedId;
+  }
+
   /**
    * Reads response elements from XML.
    *
@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.response;
+
+import com.google.common.io.ByteSink;
+import com.google.common.io.ByteSource;
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.misc.IFunction;
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+import microsoft.exchange.webservices.data.util.CachedContent;
+
+/**
+ * Represents the response to the export of an individual item.
+ */
+public final class ExportItemsResponse extends ServiceResponse {
+
+  /**
+   * Gives the sink the data of an item is written to, or null.
+   */
+  private final IFunction<ItemId, ByteSink> sinks;
+
+  private ItemId itemId;
+
+  private CachedContent data;
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param sinks gives the sink the data of an item is decoded to as it is
+   *              received, or null to keep the data in the response
+   */
+  public ExportItemsResponse(IFunction<ItemId, ByteSink> sinks) {
+    super();
+    this.sinks = sinks;
+  }
+
+  /**
+   * Reads response elements from XML.
+   *
+   * @param reader the reader
+   * @throws Exception the exception
+   */
+  @Override
+  protected void readElementsFromXml(EwsServiceXmlReader reader) throws Exception {
+    super.readElementsFromXml(reader);
+
+    reader.readStartElement(XmlNamespace.Messages, XmlElementNames.ItemId);
+    this.itemId = new ItemId();
+    this.itemId.loadFromXml(reader, XmlNamespace.Messages, XmlElementNames.ItemId);
+
+    reader.readStartElement(XmlNamespace.Messages, XmlElementNames.Data);
+    ByteSink sink = this.sinks != null ? this.sinks.func(this.itemId) : null;
+    if (sink != null) {
+      reader.readBase64ElementValue(sink);
+    } else {
+      this.data = reader.readBase64ElementValue();
+    }
+  }
+
+  /**
+   * Gets the id of the exported item.
+   *
+   * @return the item id
+   */
+  public ItemId getItemId() {
+    return this.itemId;
+  }
+
+  /**
+   * Gets the data of the exported item, if it was not written to a sink.
+   *
+   * @return the data, or null
+   */
+  public ByteSource getData() {
+    return this.data != null ? this.data.source() : null;
+  }
+}
@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.response;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.PropertySet;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.property.complex.ConversationId;
+import microsoft.exchange.webservices.data.property.complex.ConversationNode;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the response to the retrieval of the items of an individual
+ * conversation.
+ */
+public final class GetConversationItemsResponse extends ServiceResponse {
+
+  private final PropertySet propertySet;
+
+  private ConversationId conversationId;
+
+  private String syncState;
+
+  private final List<ConversationNode> conversationNodes = new ArrayList<ConversationNode>();
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param propertySet the property set the items were requested with
+   */
+  public GetConversationItemsResponse(PropertySet propertySet) {
+    super();
+    this.propertySet = propertySet;
+    EwsUtilities.ewsAssert(this.propertySet != null, "GetConversationItemsResponse.ctor",
+        "PropertySet should not be null");
+  }
+
+  /**
+   * Reads response elements from XML.
+   *
+   * @param reader the reader
+   * @throws Exception the exception
+   */
+  @Override
+  protected void readElementsFromXml(EwsServiceXmlReader reader) throws Exception {
+    super.readElementsFromXml(reader);
+
+    reader.readStartElement(XmlNamespace.Messages, XmlElementNames.Conversation);
+    do {
+      reader.read();
+      if (reader.isStartElement(XmlNamespace.Types, XmlElementNames.ConversationId)) {
+        this.conversationId = new ConversationId();
+        this.conversationId.loadFromXml(reader, XmlNamespace.Types, XmlElementNames.ConversationId);
+      } else if (reader.isStartElement(XmlNamespace.Types, XmlElementNames.SyncState)) {
+        this.syncState = reader.readElementValue();
+      } else if (reader.isStartElement(XmlNamespace.Types, XmlElementNames.ConversationNodes)) {
+        this.readConversationNodesFromXml(reader);
+      } else if (reader.isStartElement()) {
+        reader.skipCurrentElement();
+      }
+    } while (!reader.isEndElement(XmlNamespace.Messages, XmlElementNames.Conversation));
+  }
+
+  private void readConversationNodesFromXml(EwsServiceXmlReader reader) throws Exception {
+    if (reader.isEmptyElement()) {
+      reader.read();
+      return;
+    }
+    do {
+      reader.read();
+      if (reader.isStartElement(XmlNamespace.Types, XmlElementNames.ConversationNode)) {
+        ConversationNode node = new ConversationNode(this.propertySet);
+        node.loadFromXml(reader, XmlNamespace.Types, XmlElementNames.ConversationNode);
+        this.conversationNodes.add(node);
+      }
+    } while (!reader.isEndElement(XmlNamespace.Types, XmlElementNames.ConversationNodes));
+  }
+
+  /**
+   * Gets the id of the conversation.
+   *
+   * @return the conversation id
+   */
+  public ConversationId getConversationId() {
+    return this.conversationId;
+  }
+
+  /**
+   * Gets the sync state to pass with the next request for this
+   * conversation, to only get the items that changed.
+   *
+   * @return the sync state
+   */
+  public String getSyncState() {
+    return this.syncState;
+  }
+
+  /**
+   * Gets the nodes of the conversation, in the requested sort order.
+   *
+   * @return the conversation nodes
+   */
+  public List<ConversationNode> getConversationNodes() {
+    return Collections.unmodifiableList(this.conversationNodes);
+  }
+}
@@ -78,6 +78,17 @@ public class ServiceResponse {
   public ServiceResponse() {
   }
 
+  /**
+   * Initializes a new instance with a known result.
+   *
+   * @param result    the result
+   * @param errorCode the error code
+   */
+  protected ServiceResponse(ServiceResult result, ServiceError errorCode) {
+    this.result = result;
+    this.errorCode = errorCode;
+  }
+
   /**
    * Initializes a new instance.
    *
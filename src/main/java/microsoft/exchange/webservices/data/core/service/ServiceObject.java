@@ -23,7 +23,7 @@
 
 package microsoft.exchange.webservices.data.core.service;
 
-import microsoft.exchange.webservices.data.attribute.ServiceObjectDefinition;
+import microsoft.exchange.webservices.data.attribute.AttributeRegistries;
 import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
 import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
 import microsoft.exchange.webservices.data.core.EwsUtilities;
@@ -140,11 +140,10 @@ public abstract class ServiceObject {
       this.xmlElementName = this.getXmlElementNameOverride();
       if (this.isNullOrEmpty(this.xmlElementName)) {
         synchronized (this.lockObject) {
-
-          ServiceObjectDefinition annotation = this.getClass()
-              .getAnnotation(ServiceObjectDefinition.class);
-          if (null != annotation) {
-            this.xmlElementName = annotation.xmlElementName();
+          this.xmlElementName = AttributeRegistries.get().getXmlElementName(this.getClass());
+          if (this.isNullOrEmpty(this.xmlElementName)) {
+            // Types outside this library are not in the generated registry.
+            this.xmlElementName = AttributeRegistries.getReflection().getXmlElementName(this.getClass());
           }
         }
       }
@@ -47,6 +47,7 @@ import microsoft.exchange.webservices.data.core.enumeration.service.SendInvitati
 import microsoft.exchange.webservices.data.core.enumeration.service.SendInvitationsOrCancellationsMode;
 import microsoft.exchange.webservices.data.core.enumeration.property.WellKnownFolderName;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceValidationException;
 import microsoft.exchange.webservices.data.misc.CalendarActionResults;
 import microsoft.exchange.webservices.data.misc.TimeSpan;
 import microsoft.exchange.webservices.data.property.complex.AppointmentOccurrenceId;
@@ -61,11 +62,13 @@ import microsoft.exchange.webservices.data.property.complex.MessageBody;
 import microsoft.exchange.webservices.data.property.complex.OccurrenceInfo;
 import microsoft.exchange.webservices.data.property.complex.OccurrenceInfoCollection;
 import microsoft.exchange.webservices.data.property.complex.RecurringAppointmentMasterId;
+import microsoft.exchange.webservices.data.property.complex.recurrence.pattern.OccurrenceIterator;
 import microsoft.exchange.webservices.data.property.complex.recurrence.pattern.Recurrence;
 import microsoft.exchange.webservices.data.property.complex.time.TimeZoneDefinition;
 
 import java.util.Arrays;
 import java.util.Date;
+import java.util.TimeZone;
 
 /**
  * Represents an appointment or a meeting. Properties available on appointments
@@ -1061,6 +1064,29 @@ public class Appointment extends Item implements ICalendarActionProvider {
           AppointmentSchema.DeletedOccurrences);
   }
 
+  /**
+   * Expands the occurrences of this recurring master that overlap a date
+   * range, giving the same occurrences as a CalendarView without a request.
+   * Start, End, Recurrence, ModifiedOccurrences and DeletedOccurrences must
+   * have been loaded.
+   *
+   * @param rangeStart the start of the range
+   * @param rangeEnd   the end of the range
+   * @param timeZone   the time zone of the series, as given by StartTimeZone
+   * @return an iterator over the occurrences
+   * @throws ServiceLocalException if a property isn't loaded or the
+   *                               appointment isn't a recurring master
+   */
+  public OccurrenceIterator expandOccurrences(Date rangeStart, Date rangeEnd, TimeZone timeZone)
+      throws ServiceLocalException {
+    Recurrence recurrence = this.getRecurrence();
+    if (recurrence == null) {
+      throw new ServiceValidationException("The appointment doesn't have a recurrence pattern.");
+    }
+    return recurrence.expand(this.getStart(), this.getEnd(), timeZone, rangeStart, rangeEnd,
+        this.getModifiedOccurrences(), this.getDeletedOccurrences());
+  }
+
   /**
    * Gets the start time zone.
    *
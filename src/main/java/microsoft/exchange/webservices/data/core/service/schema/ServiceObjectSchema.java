@@ -23,6 +23,7 @@
 
 package microsoft.exchange.webservices.data.core.service.schema;
 
+import microsoft.exchange.webservices.data.attribute.AttributeRegistries;
 import microsoft.exchange.webservices.data.attribute.EditorBrowsable;
 import microsoft.exchange.webservices.data.core.EwsUtilities;
 import microsoft.exchange.webservices.data.core.ILazyMember;
@@ -38,17 +39,15 @@ import microsoft.exchange.webservices.data.property.definition.ComplexPropertyDe
 import microsoft.exchange.webservices.data.property.definition.IndexedPropertyDefinition;
 import microsoft.exchange.webservices.data.property.definition.PropertyDefinition;
 import microsoft.exchange.webservices.data.property.definition.PropertyDefinitionBase;
-import org.apache.commons.logging.Log;
-import org.apache.commons.logging.LogFactory;
 
-import java.lang.reflect.Field;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Represents the base class for all item and folder schema.
@@ -57,8 +56,6 @@ import java.util.Map;
 public abstract class ServiceObjectSchema implements
     Iterable<PropertyDefinition> {
 
-  private static final Log LOG = LogFactory.getLog(ServiceObjectSchema.class);
-
   /**
    * The lock object.
    */
@@ -137,63 +134,42 @@ public abstract class ServiceObjectSchema implements
    */
   protected static void addSchemaPropertiesToDictionary(Class<?> type,
       Map<String, PropertyDefinitionBase> propDefDictionary) {
-    Field[] fields = type.getDeclaredFields();
-    for (Field field : fields) {
-      int modifier = field.getModifiers();
-      if (Modifier.isPublic(modifier) && Modifier.isStatic(modifier)) {
-        Object o;
-        try {
-          o = field.get(null);
-          if (o instanceof PropertyDefinition) {
-            PropertyDefinition propertyDefinition =
-                (PropertyDefinition) o;
-            // Some property definitions descend from
-            // ServiceObjectPropertyDefinition but don't have
-            // a Uri, like ExtendedProperties. Ignore them.
-            if (null != propertyDefinition.getUri() &&
-                !propertyDefinition.getUri().isEmpty()) {
-              PropertyDefinitionBase existingPropertyDefinition;
-              if (propDefDictionary
-                  .containsKey(propertyDefinition.getUri())) {
-                existingPropertyDefinition = propDefDictionary
-                    .get(propertyDefinition.getUri());
-                EwsUtilities
-                    .ewsAssert(existingPropertyDefinition == propertyDefinition,
-                               "Schema.allSchemaProperties." + "delegate",
-                               String.format("There are at least " +
-                                             "two distinct property " +
-                                             "definitions with the" +
-                                             " following URI: %s", propertyDefinition.getUri()));
-              } else {
-                propDefDictionary.put(propertyDefinition
-                    .getUri(), propertyDefinition);
-                // The following is a "generic hack" to register
-                // property that are not public and
-                // thus not returned by the above GetFields
-                // call. It is currently solely used to register
-                // the MeetingTimeZone property.
-                List<PropertyDefinition> associatedInternalProperties =
-                    propertyDefinition.getAssociatedInternalProperties();
-                for (PropertyDefinition associatedInternalProperty : associatedInternalProperties) {
-                  propDefDictionary
-                      .put(associatedInternalProperty
-                              .getUri(),
-                          associatedInternalProperty);
-                }
-
-              }
-            }
+    for (PropertyDefinition propertyDefinition : getSchemaProperties(type).values()) {
+      // Some property definitions descend from
+      // ServiceObjectPropertyDefinition but don't have
+      // a Uri, like ExtendedProperties. Ignore them.
+      if (null != propertyDefinition.getUri() &&
+          !propertyDefinition.getUri().isEmpty()) {
+        PropertyDefinitionBase existingPropertyDefinition;
+        if (propDefDictionary
+            .containsKey(propertyDefinition.getUri())) {
+          existingPropertyDefinition = propDefDictionary
+              .get(propertyDefinition.getUri());
+          EwsUtilities
+              .ewsAssert(existingPropertyDefinition == propertyDefinition,
+                         "Schema.allSchemaProperties." + "delegate",
+                         String.format("There are at least " +
+                                       "two distinct property " +
+                                       "definitions with the" +
+                                       " following URI: %s", propertyDefinition.getUri()));
+        } else {
+          propDefDictionary.put(propertyDefinition
+              .getUri(), propertyDefinition);
+          // The following is a "generic hack" to register
+          // property that are not public and
+          // thus not returned by the above GetFields
+          // call. It is currently solely used to register
+          // the MeetingTimeZone property.
+          List<PropertyDefinition> associatedInternalProperties =
+              propertyDefinition.getAssociatedInternalProperties();
+          for (PropertyDefinition associatedInternalProperty : associatedInternalProperties) {
+            propDefDictionary
+                .put(associatedInternalProperty
+                        .getUri(),
+                    associatedInternalProperty);
           }
-        } catch (IllegalArgumentException e) {
-          LOG.error(e);
 
-          // Skip the field
-        } catch (IllegalAccessException e) {
-          LOG.error(e);
-
-          // Skip the field
         }
-
       }
     }
   }
@@ -206,31 +182,24 @@ public abstract class ServiceObjectSchema implements
    */
   protected static void addSchemaPropertyNamesToDictionary(Class<?> type,
       Map<PropertyDefinition, String> propertyNameDictionary) {
+    for (Map.Entry<String, PropertyDefinition> entry : getSchemaProperties(type).entrySet()) {
+      propertyNameDictionary.put(entry.getValue(), entry.getKey());
+    }
+  }
 
-    Field[] fields = type.getDeclaredFields();
-    for (Field field : fields) {
-      int modifier = field.getModifiers();
-      if (Modifier.isPublic(modifier) && Modifier.isStatic(modifier)) {
-        Object o;
-        try {
-          o = field.get(null);
-          if (o instanceof PropertyDefinition) {
-            PropertyDefinition propertyDefinition =
-                (PropertyDefinition) o;
-            propertyNameDictionary.put(propertyDefinition, field
-                .getName());
-          }
-        } catch (IllegalArgumentException e) {
-          LOG.error(e);
-
-          // Skip the field
-        } catch (IllegalAccessException e) {
-          LOG.error(e);
-
-          // Skip the field
-        }
-      }
+  /**
+   * Gets the public static property definitions of a schema type, from the
+   * generated attribute registry when it knows the type.
+   *
+   * @param type the schema type
+   * @return the property definitions, keyed by field name
+   */
+  private static Map<String, PropertyDefinition> getSchemaProperties(Class<?> type) {
+    Map<String, PropertyDefinition> properties = AttributeRegistries.get().getSchemaProperties(type);
+    if (properties.isEmpty()) {
+      properties = AttributeRegistries.getReflection().getSchemaProperties(type);
     }
+    return properties;
   }
 
   /**
@@ -256,29 +225,8 @@ public abstract class ServiceObjectSchema implements
   public static void initializeSchemaPropertyNames() {
     synchronized (lockObject) {
       for (Class<?> type : ServiceObjectSchema.allSchemaTypes.getMember()) {
-        Field[] fields = type.getDeclaredFields();
-        for (Field field : fields) {
-          int modifier = field.getModifiers();
-          if (Modifier.isPublic(modifier) &&
-              Modifier.isStatic(modifier)) {
-            Object o;
-            try {
-              o = field.get(null);
-              if (o instanceof PropertyDefinition) {
-                PropertyDefinition propertyDefinition =
-                    (PropertyDefinition) o;
-                propertyDefinition.setName(field.getName());
-              }
-            } catch (IllegalArgumentException e) {
-              LOG.error(e);
-
-              // Skip the field
-            } catch (IllegalAccessException e) {
-              LOG.error(e);
-
-              // Skip the field
-            }
-          }
+        for (Map.Entry<String, PropertyDefinition> entry : getSchemaProperties(type).entrySet()) {
+          entry.getValue().setName(entry.getKey());
         }
       }
     }
@@ -326,6 +274,28 @@ public abstract class ServiceObjectSchema implements
   private List<PropertyDefinition> firstClassSummaryProperties =
       new ArrayList<PropertyDefinition>();
 
+  /**
+   * The first class property, for lookups.
+   */
+  private Set<PropertyDefinition> firstClassPropertySet =
+      new HashSet<PropertyDefinition>();
+
+  /**
+   * The first class summary property, for lookups.
+   */
+  private Set<PropertyDefinition> firstClassSummaryPropertySet =
+      new HashSet<PropertyDefinition>();
+
+  /**
+   * The property by ordinal, built on first use.
+   */
+  private volatile PropertyDefinition[] propertiesByOrdinal;
+
+  /**
+   * The ordinal + 1 of the property by global index, built on first use.
+   */
+  private int[] ordinalsByGlobalIndex;
+
   private List<IndexedPropertyDefinition> indexedProperties =
       new ArrayList<IndexedPropertyDefinition>();
 
@@ -348,12 +318,14 @@ public abstract class ServiceObjectSchema implements
     // it to the list of firstClassProperties.
     if (!property.hasFlag(PropertyDefinitionFlags.MustBeExplicitlyLoaded)) {
       this.firstClassProperties.add(property);
+      this.firstClassPropertySet.add(property);
     }
 
     // If this property can be found, add it to the list of
     // firstClassSummaryProperties
     if (property.hasFlag(PropertyDefinitionFlags.CanFind)) {
       this.firstClassSummaryProperties.add(property);
+      this.firstClassSummaryPropertySet.add(property);
     }
   }
 
@@ -411,6 +383,83 @@ public abstract class ServiceObjectSchema implements
     return this.firstClassSummaryProperties;
   }
 
+  /**
+   * Determines whether a property is a first class property of this service
+   * object type.
+   *
+   * @param property     the property definition
+   * @param summaryOnly  whether only first class summary property are considered
+   * @return true if the property is a first class (summary) property
+   */
+  public boolean isFirstClassProperty(PropertyDefinition property, boolean summaryOnly) {
+    return summaryOnly ? this.firstClassSummaryPropertySet.contains(property)
+                       : this.firstClassPropertySet.contains(property);
+  }
+
+  /**
+   * Gets the number of property registered with this schema; they have the
+   * ordinals 0 to getPropertyCount() - 1.
+   *
+   * @return the number of property
+   */
+  public int getPropertyCount() {
+    return this.getPropertiesByOrdinal().length;
+  }
+
+  /**
+   * Gets the ordinal of a property registered with this schema.
+   *
+   * @param property the property definition
+   * @return the ordinal, or -1 if the property is not registered
+   */
+  public int getPropertyOrdinal(PropertyDefinition property) {
+    this.getPropertiesByOrdinal();
+    int globalIndex = property.getGlobalIndex();
+    return globalIndex < this.ordinalsByGlobalIndex.length ? this.ordinalsByGlobalIndex[globalIndex] - 1 : -1;
+  }
+
+  /**
+   * Gets the property registered with this schema with the given ordinal.
+   *
+   * @param ordinal the ordinal
+   * @return the property definition
+   */
+  public PropertyDefinition getPropertyAtOrdinal(int ordinal) {
+    return this.getPropertiesByOrdinal()[ordinal];
+  }
+
+  /**
+   * Assigns dense ordinals to the registered property.
+   *
+   * @return the property by ordinal
+   */
+  private PropertyDefinition[] getPropertiesByOrdinal() {
+    PropertyDefinition[] result = this.propertiesByOrdinal;
+    if (result == null) {
+      synchronized (this) {
+        result = this.propertiesByOrdinal;
+        if (result == null) {
+          int maxGlobalIndex = -1;
+          for (PropertyDefinition property : this.properties.values()) {
+            maxGlobalIndex = Math.max(maxGlobalIndex, property.getGlobalIndex());
+          }
+          int[] ordinals = new int[maxGlobalIndex + 1];
+          List<PropertyDefinition> byOrdinal = new ArrayList<PropertyDefinition>();
+          for (PropertyDefinition property : this.properties.values()) {
+            if (ordinals[property.getGlobalIndex()] == 0) {
+              byOrdinal.add(property);
+              ordinals[property.getGlobalIndex()] = byOrdinal.size();
+            }
+          }
+          this.ordinalsByGlobalIndex = ordinals;
+          result = byOrdinal.toArray(new PropertyDefinition[byOrdinal.size()]);
+          this.propertiesByOrdinal = result;
+        }
+      }
+    }
+    return result;
+  }
+
   /**
    * Tries to get property definition.
    *
@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.credential;
+
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents an OAuth access token and the time it expires at.
+ */
+public final class AccessToken {
+
+  /**
+   * The token type of OAuth 2.0 bearer tokens.
+   */
+  public static final String BEARER = "Bearer";
+
+  private final String tokenType;
+
+  private final String value;
+
+  private final long expiresAtMillis;
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param tokenType       the token type, such as Bearer
+   * @param value           the token
+   * @param expiresAtMillis the time the token expires at, in milliseconds
+   *                        since the epoch
+   * @throws Exception on validation error
+   */
+  public AccessToken(String tokenType, String value, long expiresAtMillis) throws Exception {
+    EwsUtilities.validateParam(tokenType, "tokenType");
+    EwsUtilities.validateParam(value, "value");
+    this.tokenType = tokenType;
+    this.value = value;
+    this.expiresAtMillis = expiresAtMillis;
+  }
+
+  /**
+   * Creates a bearer token expiring after the given duration, as returned
+   * in the expires_in field of a token response.
+   *
+   * @param value     the token
+   * @param expiresIn the lifetime of the token
+   * @param unit      the unit of the lifetime
+   * @return the token
+   * @throws Exception on validation error
+   */
+  public static AccessToken bearer(String value, long expiresIn, TimeUnit unit) throws Exception {
+    return new AccessToken(BEARER, value, System.currentTimeMillis() + unit.toMillis(expiresIn));
+  }
+
+  /**
+   * Gets the token type.
+   *
+   * @return the token type
+   */
+  public String getTokenType() {
+    return tokenType;
+  }
+
+  /**
+   * Gets the token.
+   *
+   * @return the token
+   */
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Gets the time the token expires at.
+   *
+   * @return the expiry, in milliseconds since the epoch
+   */
+  public long getExpiresAtMillis() {
+    return expiresAtMillis;
+  }
+
+  /**
+   * Gets the value of the Authorization header for this token.
+   *
+   * @return the header value
+   */
+  public String getAuthorizationHeader() {
+    return tokenType + " " + value;
+  }
+
+  @Override
+  public String toString() {
+    // Never print the token itself.
+    return tokenType + " token expiring at " + expiresAtMillis;
+  }
+
+}
@@ -25,6 +25,7 @@ package microsoft.exchange.webservices.data.credential;
 
 import microsoft.exchange.webservices.data.core.request.HttpWebRequest;
 import microsoft.exchange.webservices.data.core.exception.misc.InvalidOperationException;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
 
 import javax.xml.stream.XMLStreamException;
 import javax.xml.stream.XMLStreamWriter;
@@ -32,6 +33,8 @@ import javax.xml.stream.XMLStreamWriter;
 import java.io.ByteArrayOutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Base class of Exchange credential types.
@@ -78,8 +81,10 @@ public abstract class ExchangeCredentials {
   /**
    * This method is called to pre-authenticate credential before a service
    * request is made.
+   *
+   * @throws ServiceLocalException if the credentials cannot be obtained
    */
-  public void preAuthenticate() {
+  public void preAuthenticate() throws ServiceLocalException {
     // do nothing by default.
   }
 
@@ -95,6 +100,47 @@ public abstract class ExchangeCredentials {
     // do nothing by default.
   }
 
+  /**
+   * Gets whether these credentials emit extra namespace aliases or SOAP
+   * headers. Requests whose envelope contains such headers are never served
+   * from the shared envelope cache.
+   * <p>
+   * By default, this is true if the class of these credentials overrides
+   * emitExtraSoapHeaderNamespaceAliases or serializeExtraSoapHeaders.
+   * Subclasses that override them without emitting anything may return false.
+   * </p>
+   *
+   * @return true if extra SOAP headers are emitted
+   */
+  public boolean hasExtraSoapHeaders() {
+    Class<?> type = getClass();
+    Boolean overridden = EXTRA_SOAP_HEADER_TYPES.get(type);
+    if (overridden == null) {
+      overridden = overridesExtraSoapHeaders(type);
+      EXTRA_SOAP_HEADER_TYPES.put(type, overridden);
+    }
+    return overridden;
+  }
+
+  /**
+   * Whether a credential class overrides the methods emitting extra SOAP
+   * headers, per class.
+   */
+  private static final ConcurrentMap<Class<?>, Boolean> EXTRA_SOAP_HEADER_TYPES =
+      new ConcurrentHashMap<Class<?>, Boolean>();
+
+  private static boolean overridesExtraSoapHeaders(Class<?> type) {
+    try {
+      return type.getMethod("emitExtraSoapHeaderNamespaceAliases", XMLStreamWriter.class)
+                 .getDeclaringClass() != ExchangeCredentials.class ||
+             type.getMethod("serializeExtraSoapHeaders", XMLStreamWriter.class, String.class)
+                 .getDeclaringClass() != ExchangeCredentials.class;
+    } catch (NoSuchMethodException e) {
+      // Cannot happen, the methods are public members of this class.
+      return true;
+    }
+  }
+
   /**
    * Emit any extra necessary namespace aliases for the SOAP:header block.
    *
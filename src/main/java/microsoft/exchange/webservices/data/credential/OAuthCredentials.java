@@ -0,0 +1,280 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.credential;
+
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
+import microsoft.exchange.webservices.data.core.request.HttpWebRequest;
+import microsoft.exchange.webservices.data.misc.ContextExecutors;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * OAuthCredentials authenticate requests with an OAuth access token obtained
+ * from an {@link IAccessTokenSupplier}. The token is cached and refreshed in
+ * the background when it comes within the refresh margin of its expiry, but
+ * not before half of its lifetime has passed, so requests only wait for the
+ * supplier when there is no unexpired token.
+ * Concurrent refreshes are coalesced into a single call of the supplier.
+ */
+public final class OAuthCredentials extends ExchangeCredentials {
+
+  private static final Log LOG = LogFactory.getLog(OAuthCredentials.class);
+
+  /**
+   * The default refresh margin, in milliseconds.
+   */
+  public static final long DEFAULT_REFRESH_MARGIN_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+  /**
+   * The delay before a failed background refresh is retried, at most.
+   */
+  private static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(10);
+
+  /**
+   * Schedules the background refreshes. It only starts them, so that a slow
+   * supplier does not delay the refreshes of other credentials.
+   */
+  private static final ScheduledThreadPoolExecutor SCHEDULER;
+
+  /**
+   * Runs the suppliers of background refreshes.
+   */
+  private static final ExecutorService REFRESHER =
+      Executors.newCachedThreadPool(ContextExecutors.newPoolThreadFactory("ews-token-refresh"));
+
+  static {
+    SCHEDULER = new ScheduledThreadPoolExecutor(1, ContextExecutors.newThreadFactory("ews-token-refresh-scheduler"));
+    SCHEDULER.setRemoveOnCancelPolicy(true);
+  }
+
+  private final IAccessTokenSupplier tokenSupplier;
+
+  private final long refreshMarginMillis;
+
+  private final Object lock = new Object();
+
+  private volatile AccessToken token;
+
+  /**
+   * When the token is due to be refreshed.
+   */
+  private volatile long refreshAtMillis;
+
+  /**
+   * Whether the token was used since it was obtained. Background refreshes
+   * stop when it is not, so that abandoned credentials are not kept alive.
+   */
+  private volatile boolean used;
+
+  /**
+   * The refresh in progress, if any.
+   */
+  private FutureTask<AccessToken> refresh;
+
+  private ScheduledFuture<?> scheduledRefresh;
+
+  /**
+   * Initializes a new instance of the class, with the default refresh
+   * margin.
+   *
+   * @param tokenSupplier the token supplier
+   * @throws Exception on validation error
+   */
+  public OAuthCredentials(IAccessTokenSupplier tokenSupplier) throws Exception {
+    this(tokenSupplier, DEFAULT_REFRESH_MARGIN_MILLIS, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param tokenSupplier the token supplier
+   * @param refreshMargin how long before its expiry a token is refreshed
+   * @param unit          the unit of the refresh margin
+   * @throws Exception on validation error
+   */
+  public OAuthCredentials(IAccessTokenSupplier tokenSupplier, long refreshMargin, TimeUnit unit)
+      throws Exception {
+    EwsUtilities.validateParam(tokenSupplier, "tokenSupplier");
+    if (refreshMargin < 0) {
+      throw new IllegalArgumentException("refreshMargin must not be negative");
+    }
+    this.tokenSupplier = tokenSupplier;
+    this.refreshMarginMillis = unit.toMillis(refreshMargin);
+  }
+
+  /**
+   * Gets an unexpired access token. Waits for the supplier only if there is
+   * none; a token within the refresh margin is returned while a refresh is
+   * started in the background.
+   *
+   * @return the access token
+   * @throws ServiceLocalException if no token could be obtained
+   */
+  public AccessToken getToken() throws ServiceLocalException {
+    this.used = true;
+    AccessToken current = this.token;
+    long now = System.currentTimeMillis();
+    if (current != null && now < current.getExpiresAtMillis()) {
+      if (now >= this.refreshAtMillis) {
+        this.refresh(false);
+      }
+      return current;
+    }
+
+    try {
+      return this.refresh(true).get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof ServiceLocalException) {
+        throw (ServiceLocalException) cause;
+      }
+      throw new ServiceLocalException("Could not obtain an access token.",
+          cause instanceof Exception ? (Exception) cause : e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ServiceLocalException("Interrupted while waiting for an access token.", e);
+    }
+  }
+
+  /**
+   * Starts a refresh unless one is in progress.
+   *
+   * @param inline whether a new refresh runs in the calling thread rather than
+   *               in the background
+   * @return the refresh in progress
+   */
+  private FutureTask<AccessToken> refresh(boolean inline) {
+    FutureTask<AccessToken> task;
+    boolean created = false;
+    synchronized (this.lock) {
+      task = this.refresh;
+      if (task == null) {
+        task = new FutureTask<AccessToken>(new Callable<AccessToken>() {
+          @Override
+          public AccessToken call() throws Exception {
+            return fetchToken();
+          }
+        });
+        this.refresh = task;
+        created = true;
+      }
+    }
+    if (created) {
+      if (inline) {
+        task.run();
+      } else {
+        REFRESHER.execute(task);
+      }
+    }
+    return task;
+  }
+
+  private AccessToken fetchToken() throws Exception {
+    try {
+      AccessToken fetched = this.tokenSupplier.getToken();
+      if (fetched == null) {
+        throw new ServiceLocalException("The token supplier returned no token.");
+      }
+      long now = System.currentTimeMillis();
+      // A margin as long as the lifetime of the token would refresh it at
+      // once, and again on every use.
+      long halfLife = now + (fetched.getExpiresAtMillis() - now) / 2;
+      this.token = fetched;
+      this.used = false;
+      this.scheduleRefresh(Math.max(fetched.getExpiresAtMillis() - this.refreshMarginMillis, halfLife));
+      return fetched;
+    } catch (Exception e) {
+      AccessToken current = this.token;
+      long now = System.currentTimeMillis();
+      if (current != null && now < current.getExpiresAtMillis()) {
+        LOG.warn("Could not refresh the access token, retrying", e);
+        this.scheduleRefresh(now + Math.min(RETRY_DELAY_MILLIS, (current.getExpiresAtMillis() - now) / 2));
+      }
+      throw e;
+    } finally {
+      synchronized (this.lock) {
+        this.refresh = null;
+      }
+    }
+  }
+
+  private void scheduleRefresh(long atMillis) {
+    synchronized (this.lock) {
+      this.refreshAtMillis = atMillis;
+      if (this.scheduledRefresh != null) {
+        this.scheduledRefresh.cancel(false);
+      }
+      this.scheduledRefresh = SCHEDULER.schedule(new Runnable() {
+        @Override
+        public void run() {
+          if (used) {
+            refresh(false);
+          }
+        }
+      }, Math.max(0, atMillis - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Makes sure an unexpired token is available before a request is made.
+   *
+   * @throws ServiceLocalException if no token could be obtained
+   */
+  @Override
+  public void preAuthenticate() throws ServiceLocalException {
+    this.getToken();
+  }
+
+  /**
+   * Adds the Authorization header with the current token to the request.
+   *
+   * @param request The request.
+   */
+  @Override
+  public void prepareWebRequest(HttpWebRequest request) {
+    AccessToken current = this.token;
+    if (current != null) {
+      Map<String, String> headers = new HashMap<String, String>();
+      if (request.getHeaders() != null) {
+        // The map may be the one of the service, so it is copied.
+        headers.putAll(request.getHeaders());
+      }
+      headers.put("Authorization", current.getAuthorizationHeader());
+      request.setHeaders(headers);
+    }
+  }
+
+}
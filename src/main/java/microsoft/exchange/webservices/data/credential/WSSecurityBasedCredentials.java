@@ -143,6 +143,15 @@ public abstract class WSSecurityBasedCredentials extends ExchangeCredentials {
     // Nothing special to do here.
   }
 
+  /**
+   * WS-Security credentials emit extra SOAP headers.
+   *
+   * @return true
+   */
+  @Override public boolean hasExtraSoapHeaders() {
+    return true;
+  }
+
   /**
    * Emit the extra namespace aliases used for WS-Security and WS-Addressing.
    *
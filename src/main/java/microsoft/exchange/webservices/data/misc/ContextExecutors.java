@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import microsoft.exchange.webservices.data.core.RequestContext;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the threads the API runs service calls on, and carries the
+ * {@link RequestContext} and the {@link Deadline} of the calling thread over
+ * to them.
+ */
+public final class ContextExecutors {
+
+  private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+  private ContextExecutors() {
+  }
+
+  /**
+   * Creates a factory of daemon threads.
+   *
+   * @param nameFormat the name of the threads, a format that may contain
+   *                   %d for the number of the thread
+   * @return the factory
+   */
+  public static ThreadFactory newThreadFactory(String nameFormat) {
+    return new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build();
+  }
+
+  /**
+   * Creates a factory of daemon threads for a pool, named
+   * name-&lt;pool&gt;-&lt;thread&gt;.
+   *
+   * @param name the name of the pool
+   * @return the factory
+   */
+  public static ThreadFactory newPoolThreadFactory(String name) {
+    return newThreadFactory(name + "-" + POOL_NUMBER.incrementAndGet() + "-%d");
+  }
+
+  /**
+   * Creates a pool of a fixed number of daemon threads.
+   *
+   * @param name    the name of the pool
+   * @param threads the number of threads
+   * @return the pool
+   */
+  public static ExecutorService newFixedThreadPool(String name, int threads) {
+    return Executors.newFixedThreadPool(threads, newPoolThreadFactory(name));
+  }
+
+  /**
+   * Wraps a task so that it runs in the request context and before the
+   * deadline of the calling thread, if any.
+   *
+   * @param task the task
+   * @param <T>  the type of the result
+   * @return the wrapped task
+   */
+  public static <T> Callable<T> withCurrentContext(final Callable<T> task) {
+    final RequestContext context = RequestContext.current();
+    final Deadline deadline = Deadline.current();
+    return new Callable<T>() {
+      @Override
+      public T call() throws Exception {
+        try (RequestContext.Scope contextScope = context != null ? context.attach() : null;
+             Deadline.Scope deadlineScope = deadline != null ? deadline.attach() : null) {
+          return task.call();
+        }
+      }
+    };
+  }
+
+  /**
+   * Wraps a task so that it runs in the request context and before the
+   * deadline of the calling thread, if any.
+   *
+   * @param task the task
+   * @return the wrapped task
+   */
+  public static Runnable withCurrentContext(final Runnable task) {
+    final RequestContext context = RequestContext.current();
+    final Deadline deadline = Deadline.current();
+    return new Runnable() {
+      @Override
+      public void run() {
+        try (RequestContext.Scope contextScope = context != null ? context.attach() : null;
+             Deadline.Scope deadlineScope = deadline != null ? deadline.attach() : null) {
+          task.run();
+        }
+      }
+    };
+  }
+
+  /**
+   * Waits for the result of a task, rethrowing the exception the task
+   * failed with.
+   *
+   * @param future the future of the task
+   * @param <T>    the type of the result
+   * @return the result
+   * @throws Exception the exception the task failed with
+   */
+  public static <T> T getResult(Future<T> future) throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+}
@@ -0,0 +1,317 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc;
+
+import microsoft.exchange.webservices.data.core.exception.service.remote.DeadlineExceededException;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A deadline and cancellation token for service calls.
+ * <p>
+ * A deadline is attached to the calling thread for the duration of one or
+ * more service calls:
+ * </p>
+ * <pre>
+ * Deadline deadline = Deadline.after(5, TimeUnit.SECONDS);
+ * try (Deadline.Scope scope = deadline.attach()) {
+ *   service.bindToItems(itemIds, propertySet);
+ * }
+ * </pre>
+ * <p>
+ * Every request sent while the deadline is attached, including the steps of
+ * multi-step flows such as autodiscover, has its connection, pool lease and
+ * socket time-outs capped to the remaining time, and is aborted when the
+ * deadline expires or {@link #cancel()} is called from any thread, whether
+ * it is waiting for a connection, sending, or its response is being parsed.
+ * Requests that would start after that fail with a
+ * {@link DeadlineExceededException}.
+ * </p>
+ */
+public final class Deadline {
+
+  private static final Log LOG = LogFactory.getLog(Deadline.class);
+
+  private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<Deadline>();
+
+  private static final ScheduledThreadPoolExecutor TIMER;
+
+  static {
+    TIMER = new ScheduledThreadPoolExecutor(1, ContextExecutors.newThreadFactory("ews-deadline-timer"));
+    TIMER.setRemoveOnCancelPolicy(true);
+  }
+
+  /**
+   * A deadline attached to the current thread.
+   */
+  public interface Scope extends Closeable {
+
+    /**
+     * Restores the deadline that was attached before.
+     */
+    @Override
+    void close();
+  }
+
+  /**
+   * An action registered with {@link #onDone(Runnable)}.
+   */
+  public interface Registration {
+
+    /**
+     * Removes the action, if it has not run yet.
+     */
+    void remove();
+  }
+
+  private final long deadlineNanos;
+
+  private final boolean unlimited;
+
+  private volatile boolean cancelled;
+
+  /**
+   * The actions to run when the deadline expires or is cancelled; null once they ran.
+   */
+  private List<Runnable> actions = new ArrayList<Runnable>();
+
+  private ScheduledFuture<?> timer;
+
+  private Deadline(long deadlineNanos, boolean unlimited) {
+    this.deadlineNanos = deadlineNanos;
+    this.unlimited = unlimited;
+  }
+
+  /**
+   * Creates a deadline that expires after the given time.
+   *
+   * @param duration the time until the deadline expires
+   * @param timeUnit the unit of the duration
+   * @return the deadline
+   */
+  public static Deadline after(long duration, TimeUnit timeUnit) {
+    return new Deadline(System.nanoTime() + timeUnit.toNanos(duration), false);
+  }
+
+  /**
+   * Creates a deadline that never expires, but can be cancelled.
+   *
+   * @return the deadline
+   */
+  public static Deadline cancellable() {
+    return new Deadline(0, true);
+  }
+
+  /**
+   * Gets the deadline attached to the current thread.
+   *
+   * @return the deadline, or null if none is attached
+   */
+  public static Deadline current() {
+    return CURRENT.get();
+  }
+
+  /**
+   * Throws if the deadline attached to the current thread, if any, is done.
+   *
+   * @throws DeadlineExceededException if the deadline expired or was cancelled
+   */
+  public static void checkCurrent() throws DeadlineExceededException {
+    Deadline deadline = CURRENT.get();
+    if (deadline != null) {
+      deadline.throwIfDone();
+    }
+  }
+
+  /**
+   * Attaches this deadline to the current thread, until the returned scope is closed.
+   *
+   * @return the scope
+   */
+  public Scope attach() {
+    final Deadline previous = CURRENT.get();
+    CURRENT.set(this);
+    return new Scope() {
+      @Override
+      public void close() {
+        if (previous != null) {
+          CURRENT.set(previous);
+        } else {
+          CURRENT.remove();
+        }
+      }
+    };
+  }
+
+  /**
+   * Gets the time remaining until the deadline expires.
+   *
+   * @param timeUnit the unit of the result
+   * @return the remaining time, 0 if the deadline is done, or Long.MAX_VALUE
+   * if it never expires
+   */
+  public long getRemaining(TimeUnit timeUnit) {
+    if (cancelled) {
+      return 0;
+    }
+    if (unlimited) {
+      return Long.MAX_VALUE;
+    }
+    return timeUnit.convert(Math.max(deadlineNanos - System.nanoTime(), 0), TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Caps a time-out to the remaining time.
+   *
+   * @param timeoutMillis the time-out, in milliseconds; 0 or less means no time-out
+   * @return the capped time-out, at least 1 millisecond
+   */
+  public int capTimeout(int timeoutMillis) {
+    long remaining = getRemaining(TimeUnit.MILLISECONDS);
+    if (remaining == Long.MAX_VALUE) {
+      return timeoutMillis;
+    }
+    long capped = timeoutMillis > 0 ? Math.min(timeoutMillis, remaining) : remaining;
+    return (int) Math.max(Math.min(capped, Integer.MAX_VALUE), 1);
+  }
+
+  public boolean isExpired() {
+    return !unlimited && System.nanoTime() - deadlineNanos >= 0;
+  }
+
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  /**
+   * Gets a value indicating whether the deadline expired or was cancelled.
+   *
+   * @return true if the deadline is done
+   */
+  public boolean isDone() {
+    return cancelled || isExpired();
+  }
+
+  /**
+   * Throws if the deadline expired or was cancelled.
+   *
+   * @throws DeadlineExceededException if the deadline is done
+   */
+  public void throwIfDone() throws DeadlineExceededException {
+    if (isDone()) {
+      throw createException(null);
+    }
+  }
+
+  /**
+   * Creates the exception for a request that failed because this deadline is done.
+   *
+   * @param cause the exception the request failed with, or null
+   * @return the exception
+   */
+  public DeadlineExceededException createException(Exception cause) {
+    String message = cancelled ? "The request was cancelled." : "The deadline of the request was exceeded.";
+    return new DeadlineExceededException(message, cause);
+  }
+
+  /**
+   * Cancels the deadline; requests in flight under this deadline are aborted.
+   */
+  public void cancel() {
+    cancelled = true;
+    fire();
+  }
+
+  /**
+   * Registers an action to run when the deadline expires or is cancelled. The
+   * action runs on the thread that cancels the deadline or on a timer
+   * thread; if the deadline is already done, it runs immediately.
+   *
+   * @param action the action
+   * @return the registration, to remove the action once it is no longer needed
+   */
+  public Registration onDone(final Runnable action) {
+    synchronized (this) {
+      if (actions != null && !isDone()) {
+        actions.add(action);
+        if (timer == null && !unlimited) {
+          timer = TIMER.schedule(new Runnable() {
+            @Override
+            public void run() {
+              fire();
+            }
+          }, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+        return new Registration() {
+          @Override
+          public void remove() {
+            synchronized (Deadline.this) {
+              if (actions != null) {
+                actions.remove(action);
+              }
+            }
+          }
+        };
+      }
+    }
+    run(action);
+    return new Registration() {
+      @Override
+      public void remove() {
+      }
+    };
+  }
+
+  private void fire() {
+    List<Runnable> toRun;
+    synchronized (this) {
+      toRun = actions;
+      actions = null;
+      if (timer != null) {
+        timer.cancel(false);
+      }
+    }
+    if (toRun != null) {
+      for (Runnable action : toRun) {
+        run(action);
+      }
+    }
+  }
+
+  private static void run(Runnable action) {
+    try {
+      action.run();
+    } catch (RuntimeException e) {
+      LOG.warn("Deadline action failed", e);
+    }
+  }
+
+}
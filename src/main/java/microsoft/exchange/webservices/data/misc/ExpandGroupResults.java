@@ -55,6 +55,20 @@ public final class ExpandGroupResults implements Iterable<EmailAddress> {
   public ExpandGroupResults() {
   }
 
+  /**
+   * Initializes a new instance from another ExpandGroupResults instance,
+   * with copies of its members.
+   *
+   * @param results the results to copy
+   * @throws Exception the exception
+   */
+  public ExpandGroupResults(ExpandGroupResults results) throws Exception {
+    this.includesAllMembers = results.getIncludesAllMembers();
+    for (EmailAddress member : results) {
+      this.members.add(new EmailAddress(member));
+    }
+  }
+
   /**
    * Gets the number of members that were returned by the ExpandGroup
    * operation. Count might be less than the total number of members in the
@@ -27,6 +27,7 @@ import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
 import microsoft.exchange.webservices.data.core.service.item.Item;
 import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
+import microsoft.exchange.webservices.data.misc.id.CompactServiceId;
 import microsoft.exchange.webservices.data.property.complex.ItemId;
 
 import java.util.ArrayList;
@@ -95,6 +96,18 @@ public class ItemIdWrapperList implements Iterable<AbstractItemIdWrapper> {
 
   }
 
+  /**
+   * Adds the range of compact item ids. They are encoded as they are
+   * written.
+   *
+   * @param itemIds the item ids
+   */
+  public void addRangeCompactId(Iterable<CompactServiceId> itemIds) {
+    for (CompactServiceId itemId : itemIds) {
+      this.itemIds.add(new CompactItemIdWrapper(itemId));
+    }
+  }
+
   /**
    * Writes to XML.
    *
@@ -62,6 +62,19 @@ public final class NameResolution {
     this.owner = owner;
   }
 
+  /**
+   * Initializes a new instance from another NameResolution instance, with a
+   * copy of its mailbox and without its contact.
+   *
+   * @param owner      the owner
+   * @param resolution the resolution to copy
+   * @throws Exception the exception
+   */
+  protected NameResolution(NameResolutionCollection owner, NameResolution resolution) throws Exception {
+    this(owner);
+    this.mailbox = new EmailAddress(resolution.getMailbox());
+  }
+
   /**
    * Loads from XML.
    *
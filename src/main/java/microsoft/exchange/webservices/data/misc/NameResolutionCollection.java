@@ -66,6 +66,24 @@ public final class NameResolutionCollection implements
     this.service = service;
   }
 
+  /**
+   * Initializes a new instance from another NameResolutionCollection
+   * instance, with copies of its mailboxes. Contacts are bound to the
+   * service that loaded them and are not copied.
+   *
+   * @param service     the service
+   * @param resolutions the resolutions to copy
+   * @throws Exception the exception
+   */
+  public NameResolutionCollection(ExchangeService service, NameResolutionCollection resolutions)
+      throws Exception {
+    this(service);
+    this.includesAllResolutions = resolutions.getIncludesAllResolutions();
+    for (NameResolution resolution : resolutions) {
+      this.items.add(new NameResolution(this, resolution));
+    }
+  }
+
   /**
    * Loads from XML.
    *
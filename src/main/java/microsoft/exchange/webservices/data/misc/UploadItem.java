@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc;
+
+import com.google.common.io.ByteSource;
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.XmlAttributeNames;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.service.CreateAction;
+import microsoft.exchange.webservices.data.property.complex.FolderId;
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+
+/**
+ * An item to upload with UploadItems: the full-fidelity data of an item, as
+ * returned by ExportItems, and where to put it.
+ */
+public final class UploadItem {
+
+  private final FolderId parentFolderId;
+
+  private final CreateAction createAction;
+
+  private final ItemId itemId;
+
+  private final ByteSource data;
+
+  private Boolean isAssociated;
+
+  /**
+   * Initializes a new instance of the class for a new item.
+   *
+   * @param parentFolderId the folder the item is created in
+   * @param data           the exported item data
+   */
+  public UploadItem(FolderId parentFolderId, ByteSource data) {
+    this(parentFolderId, CreateAction.CreateNew, null, data);
+  }
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param parentFolderId the folder of the item, which cannot be a
+   *                       well-known folder name
+   * @param createAction   whether the item is created or updated
+   * @param itemId         the id of the item to update, or null for a new
+   *                       item
+   * @param data           the exported item data, which is read when the
+   *                       request is sent
+   */
+  public UploadItem(FolderId parentFolderId, CreateAction createAction, ItemId itemId, ByteSource data) {
+    if (parentFolderId == null || createAction == null || data == null) {
+      throw new IllegalArgumentException("The parent folder, the create action and the data are required.");
+    }
+    if (parentFolderId.getFolderName() != null) {
+      throw new IllegalArgumentException("UploadItems requires the unique id of the parent folder.");
+    }
+    if (createAction != CreateAction.CreateNew && itemId == null) {
+      throw new IllegalArgumentException("An item id is required to update an item.");
+    }
+    this.parentFolderId = parentFolderId;
+    this.createAction = createAction;
+    this.itemId = itemId;
+    this.data = data;
+  }
+
+  public FolderId getParentFolderId() {
+    return parentFolderId;
+  }
+
+  public CreateAction getCreateAction() {
+    return createAction;
+  }
+
+  public ItemId getItemId() {
+    return itemId;
+  }
+
+  public ByteSource getData() {
+    return data;
+  }
+
+  public Boolean getIsAssociated() {
+    return isAssociated;
+  }
+
+  /**
+   * Sets whether the item is a folder associated item, such as a view or a
+   * rule.
+   *
+   * @param isAssociated true for a folder associated item
+   */
+  public void setIsAssociated(Boolean isAssociated) {
+    this.isAssociated = isAssociated;
+  }
+
+  /**
+   * Writes the item to XML, encoding the data as it is read.
+   *
+   * @param writer the writer
+   * @throws Exception the exception
+   */
+  public void writeToXml(EwsServiceXmlWriter writer) throws Exception {
+    writer.writeStartElement(XmlNamespace.Types, XmlElementNames.Item);
+    writer.writeAttributeValue(XmlAttributeNames.CreateAction, this.createAction);
+    if (this.isAssociated != null) {
+      writer.writeAttributeValue(XmlAttributeNames.IsAssociated, this.isAssociated);
+    }
+    this.parentFolderId.writeToXml(writer, XmlElementNames.ParentFolderId);
+    if (this.itemId != null) {
+      this.itemId.writeToXml(writer, XmlElementNames.ItemId);
+    }
+    writer.writeStartElement(XmlNamespace.Types, XmlElementNames.Data);
+    writer.writeBase64ElementValue(this.data);
+    writer.writeEndElement(); // Data
+    writer.writeEndElement(); // Item
+  }
+}
@@ -0,0 +1,553 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.availability;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.RequestContext;
+import microsoft.exchange.webservices.data.core.enumeration.availability.AvailabilityData;
+import microsoft.exchange.webservices.data.core.enumeration.availability.FreeBusyViewType;
+import microsoft.exchange.webservices.data.core.enumeration.availability.MeetingAttendeeType;
+import microsoft.exchange.webservices.data.core.enumeration.misc.error.ServiceError;
+import microsoft.exchange.webservices.data.core.response.AttendeeAvailability;
+import microsoft.exchange.webservices.data.core.response.ServiceResponseCollection;
+import microsoft.exchange.webservices.data.misc.ContextExecutors;
+import microsoft.exchange.webservices.data.misc.Deadline;
+import microsoft.exchange.webservices.data.misc.ImpersonatedUserId;
+import microsoft.exchange.webservices.data.property.complex.availability.CalendarEvent;
+import microsoft.exchange.webservices.data.property.complex.availability.WorkingHours;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Retrieves free/busy information for many attendees and long time windows,
+ * with a short-lived cache.
+ * <p>
+ * Time windows are divided into days (UTC), and the calendar events of each
+ * attendee are cached per day. Days that are not cached are retrieved with
+ * GetUserAvailability requests of at most maxAttendeesPerRequest attendees
+ * and maxDaysPerRequest days, which are executed concurrently. A day that is
+ * being retrieved for one caller is not requested again for another; the
+ * second caller waits for the first request. An event spanning several
+ * days is reported once. Days are cached per requester: the endpoint and
+ * credentials of the service, and the impersonated user and anchor mailbox
+ * of the request context or, without one, of the service.
+ * </p>
+ * <p>
+ * The merged free/busy views and suggestions are not supported; request
+ * them through {@link ExchangeService#getUserAvailability}. An engine can be
+ * shared by several threads. The request context and the deadline attached
+ * to the calling thread, if any, apply to the requests it causes; the
+ * deadline also bounds the wait for days requested by other callers. Requests
+ * are executed on daemon threads owned by the engine, which are released by
+ * {@link #close()}.
+ * </p>
+ */
+public final class AvailabilityEngine implements Closeable {
+
+  /**
+   * The default maximum number of attendees per request, matching the limit
+   * of Exchange.
+   */
+  public static final int DEFAULT_MAX_ATTENDEES_PER_REQUEST = 100;
+
+  /**
+   * The default maximum number of days per request, matching the limit of
+   * Exchange.
+   */
+  public static final int DEFAULT_MAX_DAYS_PER_REQUEST = 42;
+
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  private static final Comparator<CalendarEvent> START_ORDER = new Comparator<CalendarEvent>() {
+    @Override
+    public int compare(CalendarEvent first, CalendarEvent second) {
+      return first.getStartTime().compareTo(second.getStartTime());
+    }
+  };
+
+  private final ExchangeService service;
+
+  private final ExecutorService executor;
+
+  private final Cache<DayKey, SettableFuture<Day>> days;
+
+  private volatile int maxAttendeesPerRequest = DEFAULT_MAX_ATTENDEES_PER_REQUEST;
+  private volatile int maxDaysPerRequest = DEFAULT_MAX_DAYS_PER_REQUEST;
+
+  /**
+   * Initializes a new instance of the AvailabilityEngine class that caches
+   * at most 100000 attendee days.
+   *
+   * @param service        the service the requests are executed with
+   * @param maxConcurrency the maximum number of requests executed at once
+   * @param cacheTtl       the time free/busy information is cached
+   * @param timeUnit       the unit of the time
+   */
+  public AvailabilityEngine(ExchangeService service, int maxConcurrency, long cacheTtl, TimeUnit timeUnit) {
+    this(service, maxConcurrency, cacheTtl, timeUnit, 100000);
+  }
+
+  /**
+   * Initializes a new instance of the AvailabilityEngine class.
+   *
+   * @param service         the service the requests are executed with
+   * @param maxConcurrency  the maximum number of requests executed at once
+   * @param cacheTtl        the time free/busy information is cached
+   * @param timeUnit        the unit of the time
+   * @param maxCachedDays   the maximum number of attendee days cached
+   */
+  public AvailabilityEngine(ExchangeService service, int maxConcurrency, long cacheTtl, TimeUnit timeUnit,
+      int maxCachedDays) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("The concurrency must be at least 1.");
+    }
+    this.service = service;
+    this.days = CacheBuilder.newBuilder()
+        .maximumSize(maxCachedDays)
+        .expireAfterWrite(cacheTtl, timeUnit)
+        .build();
+    this.executor = ContextExecutors.newFixedThreadPool("ews-availability", maxConcurrency);
+  }
+
+  /**
+   * Sets the maximum number of attendees per request.
+   *
+   * @param maxAttendeesPerRequest the number of attendees
+   */
+  public void setMaxAttendeesPerRequest(int maxAttendeesPerRequest) {
+    if (maxAttendeesPerRequest < 1) {
+      throw new IllegalArgumentException("The value must be greater than 0.");
+    }
+    this.maxAttendeesPerRequest = maxAttendeesPerRequest;
+  }
+
+  public int getMaxAttendeesPerRequest() {
+    return maxAttendeesPerRequest;
+  }
+
+  /**
+   * Sets the maximum number of days per request.
+   *
+   * @param maxDaysPerRequest the number of days
+   */
+  public void setMaxDaysPerRequest(int maxDaysPerRequest) {
+    if (maxDaysPerRequest < 1) {
+      throw new IllegalArgumentException("The value must be greater than 0.");
+    }
+    this.maxDaysPerRequest = maxDaysPerRequest;
+  }
+
+  public int getMaxDaysPerRequest() {
+    return maxDaysPerRequest;
+  }
+
+  /**
+   * Forgets all cached free/busy information.
+   */
+  public void clearCache() {
+    days.invalidateAll();
+  }
+
+  /**
+   * Gets the free/busy information of attendees within a time window.
+   *
+   * @param attendees  the attendees
+   * @param timeWindow the time window
+   * @param viewType   FreeBusyViewType.FreeBusy or FreeBusyViewType.Detailed
+   * @return the availability of each attendee, in the order of the attendees
+   * @throws Exception if a request failed
+   */
+  public GetUserAvailabilityResults getUserAvailability(List<AttendeeInfo> attendees, TimeWindow timeWindow,
+      FreeBusyViewType viewType) throws Exception {
+    if (viewType != FreeBusyViewType.FreeBusy && viewType != FreeBusyViewType.Detailed) {
+      throw new IllegalArgumentException("Only the FreeBusy and Detailed views are supported.");
+    }
+    timeWindow.validate();
+    long start = timeWindow.getStartTime().getTime();
+    long end = timeWindow.getEndTime().getTime();
+    long firstDay = floorDay(start);
+    int dayCount = (int) Math.max(1, (floorDay(end - 1) - firstDay) / DAY + 1);
+
+    // Claim the days nobody has cached or is retrieving; wait for the others.
+    List<?> requester = this.getRequester();
+    List<List<SettableFuture<Day>>> futures = new ArrayList<List<SettableFuture<Day>>>(attendees.size());
+    Map<DayKey, SettableFuture<Day>> claimed = new HashMap<DayKey, SettableFuture<Day>>();
+    Map<Long, List<AttendeeInfo>> claimedByDay = new TreeMap<Long, List<AttendeeInfo>>();
+    for (AttendeeInfo attendee : attendees) {
+      List<SettableFuture<Day>> attendeeFutures = new ArrayList<SettableFuture<Day>>(dayCount);
+      for (int i = 0; i < dayCount; i++) {
+        long day = firstDay + i * DAY;
+        DayKey key = new DayKey(requester, attendee, viewType, day);
+        SettableFuture<Day> future = SettableFuture.create();
+        SettableFuture<Day> existing = days.asMap().putIfAbsent(key, future);
+        if (existing == null) {
+          claimed.put(key, future);
+          List<AttendeeInfo> dayAttendees = claimedByDay.get(day);
+          if (dayAttendees == null) {
+            dayAttendees = new ArrayList<AttendeeInfo>();
+            claimedByDay.put(day, dayAttendees);
+          }
+          dayAttendees.add(attendee);
+          existing = future;
+        }
+        attendeeFutures.add(existing);
+      }
+      futures.add(attendeeFutures);
+    }
+
+    for (Request request : this.createRequests(claimedByDay, requester, viewType, claimed)) {
+      try {
+        this.executor.execute(ContextExecutors.withCurrentContext(request));
+      } catch (RejectedExecutionException e) {
+        // The engine was closed: nobody else will complete these days.
+        request.fail(e);
+      }
+    }
+
+    GetUserAvailabilityResults results = new GetUserAvailabilityResults();
+    results.setAttendeesAvailability(new ServiceResponseCollection<AttendeeAvailability>());
+    Deadline deadline = Deadline.current();
+    for (List<SettableFuture<Day>> attendeeFutures : futures) {
+      results.getAttendeesAvailability().add(
+          merge(attendeeFutures, viewType, firstDay, start, end, deadline));
+    }
+    return results;
+  }
+
+  /**
+   * Groups the claimed days into requests: consecutive days with the same
+   * attendees share a request, within the limits on days and attendees.
+   */
+  private List<Request> createRequests(Map<Long, List<AttendeeInfo>> claimedByDay, List<?> requester,
+      FreeBusyViewType viewType, Map<DayKey, SettableFuture<Day>> claimed) {
+    List<Request> requests = new ArrayList<Request>();
+    long runStart = 0;
+    long runEnd = 0;
+    List<AttendeeInfo> runAttendees = null;
+    for (Map.Entry<Long, List<AttendeeInfo>> entry : claimedByDay.entrySet()) {
+      long day = entry.getKey();
+      if (runAttendees != null && day == runEnd && entry.getValue().equals(runAttendees)
+          && (runEnd - runStart) / DAY < this.maxDaysPerRequest) {
+        runEnd += DAY;
+        continue;
+      }
+      if (runAttendees != null) {
+        this.addRequests(requests, runAttendees, runStart, runEnd, requester, viewType, claimed);
+      }
+      runStart = day;
+      runEnd = day + DAY;
+      runAttendees = entry.getValue();
+    }
+    if (runAttendees != null) {
+      this.addRequests(requests, runAttendees, runStart, runEnd, requester, viewType, claimed);
+    }
+    return requests;
+  }
+
+  private void addRequests(List<Request> requests, List<AttendeeInfo> attendees, long start, long end,
+      List<?> requester, FreeBusyViewType viewType, Map<DayKey, SettableFuture<Day>> claimed) {
+    int chunkSize = this.maxAttendeesPerRequest;
+    for (int i = 0; i < attendees.size(); i += chunkSize) {
+      List<AttendeeInfo> chunk = attendees.subList(i, Math.min(attendees.size(), i + chunkSize));
+      requests.add(new Request(chunk, start, end, requester, viewType, claimed));
+    }
+  }
+
+  /**
+   * Identifies who the requests of the calling thread are made for, as the
+   * free/busy information the server returns depends on it.
+   */
+  private List<?> getRequester() {
+    RequestContext context = RequestContext.current();
+    ImpersonatedUserId user = context != null && context.getImpersonatedUserId() != null
+        ? context.getImpersonatedUserId() : service.getImpersonatedUserId();
+    String anchorMailbox = context != null && context.getAnchorMailbox() != null
+        ? context.getAnchorMailbox() : service.getHttpHeaders().get("X-AnchorMailbox");
+    return Arrays.asList(service.getUrl(), service.getCredentials(),
+        user != null ? user.getIdType() : null,
+        user != null && user.getId() != null ? user.getId().toLowerCase(Locale.ROOT) : null,
+        anchorMailbox != null ? anchorMailbox.toLowerCase(Locale.ROOT) : null);
+  }
+
+  /**
+   * Combines the days of an attendee into the availability for the time
+   * window. An error on any day is reported for the whole window.
+   */
+  private static AttendeeAvailability merge(List<SettableFuture<Day>> attendeeFutures, FreeBusyViewType viewType,
+      long firstDay, long start, long end, Deadline deadline) throws Exception {
+    List<CalendarEvent> events = new ArrayList<CalendarEvent>();
+    WorkingHours workingHours = null;
+    for (int i = 0; i < attendeeFutures.size(); i++) {
+      Day day = getResult(attendeeFutures.get(i), deadline);
+      if (day.error != null) {
+        return day.error;
+      }
+      long dayStart = firstDay + i * DAY;
+      for (CalendarEvent event : day.events) {
+        long eventStart = event.getStartTime().getTime();
+        // Events spanning several days are kept from the first day only.
+        if ((i == 0 || eventStart >= dayStart) && overlaps(event, start, end)) {
+          events.add(event);
+        }
+      }
+      if (workingHours == null) {
+        workingHours = day.workingHours;
+      }
+    }
+    Collections.sort(events, START_ORDER);
+    return new AttendeeAvailability(viewType, events, workingHours);
+  }
+
+  /**
+   * Waits for a day, for at most as long as the deadline of the caller
+   * allows. The day may be retrieved for another caller, so it is not failed
+   * when the deadline is done.
+   */
+  private static Day getResult(SettableFuture<Day> future, Deadline deadline) throws Exception {
+    if (deadline != null && !future.isDone()) {
+      final CountDownLatch done = new CountDownLatch(1);
+      Runnable wakeUp = new Runnable() {
+        @Override
+        public void run() {
+          done.countDown();
+        }
+      };
+      future.addListener(wakeUp, MoreExecutors.directExecutor());
+      Deadline.Registration registration = deadline.onDone(wakeUp);
+      try {
+        done.await();
+      } finally {
+        registration.remove();
+      }
+      if (!future.isDone()) {
+        throw deadline.createException(null);
+      }
+    }
+    return ContextExecutors.getResult(future);
+  }
+
+  private static boolean overlaps(CalendarEvent event, long start, long end) {
+    long eventStart = event.getStartTime().getTime();
+    long eventEnd = event.getEndTime().getTime();
+    if (eventStart >= end) {
+      return false;
+    }
+    return eventEnd > start || (eventEnd == eventStart && eventStart >= start);
+  }
+
+  private static long floorDay(long time) {
+    long day = time - time % DAY;
+    return time % DAY < 0 ? day - DAY : day;
+  }
+
+  /**
+   * Releases the threads of this engine. Callers waiting for days that are
+   * still being retrieved fail.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+    // The requests that were queued are dropped, and those running are
+    // interrupted: fail whatever they had not completed.
+    RejectedExecutionException closed = new RejectedExecutionException("The engine was closed.");
+    for (Map.Entry<DayKey, SettableFuture<Day>> entry : days.asMap().entrySet()) {
+      if (!entry.getValue().isDone()) {
+        days.asMap().remove(entry.getKey(), entry.getValue());
+        entry.getValue().setException(closed);
+      }
+    }
+  }
+
+  /**
+   * The free/busy information of an attendee on a day.
+   */
+  private static final class Day {
+
+    private final List<CalendarEvent> events;
+
+    private final WorkingHours workingHours;
+
+    /**
+     * The response, if the attendee's availability could not be retrieved.
+     */
+    private final AttendeeAvailability error;
+
+    Day(List<CalendarEvent> events, WorkingHours workingHours, AttendeeAvailability error) {
+      this.events = events;
+      this.workingHours = workingHours;
+      this.error = error;
+    }
+  }
+
+  /**
+   * Identifies the free/busy information of an attendee on a day.
+   */
+  private static final class DayKey {
+
+    private final List<?> requester;
+
+    private final String smtpAddress;
+
+    private final MeetingAttendeeType attendeeType;
+
+    private final boolean excludeConflicts;
+
+    private final FreeBusyViewType viewType;
+
+    private final long day;
+
+    DayKey(List<?> requester, AttendeeInfo attendee, FreeBusyViewType viewType, long day) {
+      this.requester = requester;
+      this.smtpAddress = attendee.getSmtpAddress().toLowerCase(Locale.ROOT);
+      this.attendeeType = attendee.getAttendeeType();
+      this.excludeConflicts = attendee.isExcludeConflicts();
+      this.viewType = viewType;
+      this.day = day;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof DayKey)) {
+        return false;
+      }
+      DayKey other = (DayKey) o;
+      return day == other.day
+          && excludeConflicts == other.excludeConflicts
+          && attendeeType == other.attendeeType
+          && viewType == other.viewType
+          && smtpAddress.equals(other.smtpAddress)
+          && requester.equals(other.requester);
+    }
+
+    @Override
+    public int hashCode() {
+      int result = smtpAddress.hashCode();
+      result = 31 * result + (int) (day ^ (day >>> 32));
+      result = 31 * result + viewType.hashCode();
+      result = 31 * result + requester.hashCode();
+      return result;
+    }
+  }
+
+  /**
+   * A GetUserAvailability request for some attendees over consecutive days.
+   */
+  private final class Request implements Runnable {
+
+    private final List<AttendeeInfo> attendees;
+
+    private final long start;
+
+    private final long end;
+
+    private final List<?> requester;
+
+    private final FreeBusyViewType viewType;
+
+    private final Map<DayKey, SettableFuture<Day>> claimed;
+
+    Request(List<AttendeeInfo> attendees, long start, long end, List<?> requester, FreeBusyViewType viewType,
+        Map<DayKey, SettableFuture<Day>> claimed) {
+      this.attendees = attendees;
+      this.start = start;
+      this.end = end;
+      this.requester = requester;
+      this.viewType = viewType;
+      this.claimed = claimed;
+    }
+
+    @Override
+    public void run() {
+      AvailabilityOptions options = new AvailabilityOptions();
+      options.setRequestedFreeBusyView(viewType);
+      try {
+        GetUserAvailabilityResults results = service.getUserAvailability(attendees,
+            new TimeWindow(new Date(start), new Date(end)), AvailabilityData.FreeBusy, options);
+        for (int i = 0; i < attendees.size(); i++) {
+          this.complete(attendees.get(i), results.getAttendeesAvailability().getResponseAtIndex(i));
+        }
+      } catch (Throwable e) {
+        this.fail(e);
+      }
+    }
+
+    private void complete(AttendeeInfo attendee, AttendeeAvailability availability) {
+      boolean failed = availability.getErrorCode() != ServiceError.NoError;
+      for (long day = start; day < end; day += DAY) {
+        DayKey key = new DayKey(requester, attendee, viewType, day);
+        SettableFuture<Day> future = claimed.get(key);
+        if (failed) {
+          // Errors are reported, but not cached.
+          days.asMap().remove(key, future);
+          future.set(new Day(null, null, availability));
+          continue;
+        }
+        List<CalendarEvent> events = new ArrayList<CalendarEvent>();
+        for (CalendarEvent event : availability.getCalendarEvents()) {
+          if (overlaps(event, day, day + DAY)) {
+            events.add(event);
+          }
+        }
+        future.set(new Day(Collections.unmodifiableList(events), availability.getWorkingHours(), null));
+      }
+    }
+
+    /**
+     * Fails the days of this request that have not been completed.
+     */
+    private void fail(Throwable e) {
+      for (AttendeeInfo attendee : attendees) {
+        for (long day = start; day < end; day += DAY) {
+          DayKey key = new DayKey(requester, attendee, viewType, day);
+          SettableFuture<Day> future = claimed.get(key);
+          if (!future.isDone()) {
+            days.asMap().remove(key, future);
+            future.setException(e);
+          }
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.fanout;
+
+import microsoft.exchange.webservices.data.core.ExchangeService;
+
+/**
+ * An operation executed against each mailbox of a fan-out.
+ *
+ * @param <T> the type of the result
+ */
+public interface IMailboxOperation<T> {
+
+  /**
+   * Executes the operation against a mailbox. The service is shared by all
+   * mailboxes; the impersonation and anchor mailbox of the call are set by
+   * the fan-out executor.
+   *
+   * @param service the service
+   * @param mailbox the SMTP address of the mailbox
+   * @return the result
+   * @throws Exception on error
+   */
+  T execute(ExchangeService service, String mailbox) throws Exception;
+
+}
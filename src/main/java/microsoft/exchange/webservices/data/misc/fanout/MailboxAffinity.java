@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.fanout;
+
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.ResponseMetadata;
+import org.apache.http.client.CookieStore;
+import org.apache.http.cookie.Cookie;
+import org.apache.http.impl.client.BasicCookieStore;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The routing affinity learned for a mailbox: the backend-affinity cookies
+ * returned by Exchange and the backend server that hosts the mailbox.
+ * <p>
+ * The cookie store keeps the affinity cookies of the mailbox apart from the
+ * cookies of other mailboxes, so that they are sent back with the requests
+ * of this mailbox only; other cookies are kept in the store of the service.
+ * </p>
+ */
+final class MailboxAffinity implements CookieStore {
+
+  /**
+   * The prefix of the names of the backend-affinity cookies.
+   */
+  static final String BACKEND_COOKIE_PREFIX = "X-BackEndCookie";
+
+  /**
+   * The response header naming the backend server the request was proxied to.
+   */
+  static final String BACKEND_TARGET_HEADER = "X-CalculatedBETarget";
+
+  private final ExchangeService service;
+
+  private final BasicCookieStore affinityCookies = new BasicCookieStore();
+
+  private volatile String backend;
+
+  MailboxAffinity(ExchangeService service) {
+    this.service = service;
+  }
+
+  /**
+   * Gets the backend server that hosts the mailbox.
+   *
+   * @return the backend, or null if not known yet
+   */
+  String getBackend() {
+    return backend;
+  }
+
+  /**
+   * Learns the backend server from the metadata of a response.
+   *
+   * @param metadata the response metadata
+   */
+  void update(ResponseMetadata metadata) {
+    String target = metadata.getHttpResponseHeaders().get(BACKEND_TARGET_HEADER);
+    if (target != null && !target.isEmpty()) {
+      backend = target.toLowerCase();
+      return;
+    }
+    // The cookie value is <mailbox>=<backend>.
+    for (Cookie cookie : affinityCookies.getCookies()) {
+      String value = cookie.getValue();
+      int index = value != null ? value.indexOf('=') : -1;
+      if (index >= 0 && index < value.length() - 1) {
+        backend = value.substring(index + 1);
+        return;
+      }
+    }
+  }
+
+  static boolean isAffinityCookie(Cookie cookie) {
+    return cookie.getName().regionMatches(true, 0, BACKEND_COOKIE_PREFIX, 0, BACKEND_COOKIE_PREFIX.length());
+  }
+
+  @Override
+  public void addCookie(Cookie cookie) {
+    if (isAffinityCookie(cookie)) {
+      affinityCookies.addCookie(cookie);
+    } else {
+      service.getCookieStore().addCookie(cookie);
+    }
+  }
+
+  @Override
+  public List<Cookie> getCookies() {
+    List<Cookie> cookies = new ArrayList<Cookie>();
+    for (Cookie cookie : service.getCookieStore().getCookies()) {
+      if (!isAffinityCookie(cookie)) {
+        cookies.add(cookie);
+      }
+    }
+    cookies.addAll(affinityCookies.getCookies());
+    return cookies;
+  }
+
+  @Override
+  public boolean clearExpired(Date date) {
+    boolean cleared = affinityCookies.clearExpired(date);
+    return service.getCookieStore().clearExpired(date) || cleared;
+  }
+
+  @Override
+  public void clear() {
+    affinityCookies.clear();
+    backend = null;
+  }
+
+}
@@ -0,0 +1,318 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.fanout;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.RequestContext;
+import microsoft.exchange.webservices.data.core.ResponseMetadata;
+import microsoft.exchange.webservices.data.misc.ContextExecutors;
+import microsoft.exchange.webservices.data.misc.Deadline;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executes an operation against many mailboxes through a single shared
+ * ExchangeService.
+ * <p>
+ * Each mailbox is accessed under a {@link RequestContext} that impersonates
+ * it and sends it as X-AnchorMailbox. The backend-affinity cookies Exchange
+ * returns are kept per mailbox, so that later requests for the mailbox are
+ * routed directly to its backend server. At most maxConcurrency mailboxes
+ * are processed at once, and at most maxConcurrencyPerBackend of those on
+ * the same backend server, once the backend of a mailbox is known.
+ * </p>
+ * <pre>
+ * MailboxResults&lt;FindItemsResults&lt;Item&gt;&gt; results = executor.execute(mailboxes, operation);
+ * MailboxResult&lt;FindItemsResults&lt;Item&gt;&gt; result;
+ * while ((result = results.take()) != null) {
+ *   ...
+ * }
+ * </pre>
+ */
+public final class MailboxFanOutExecutor implements Closeable {
+
+  private final ExchangeService service;
+
+  private final int maxConcurrencyPerBackend;
+
+  private final ExecutorService executor;
+
+  private final Cache<String, MailboxAffinity> affinities;
+
+  private final ConcurrentMap<String, BackendSlots> backends = new ConcurrentHashMap<String, BackendSlots>();
+
+  private volatile boolean impersonate = true;
+
+  /**
+   * Initializes a new instance of MailboxFanOutExecutor that remembers the
+   * affinity of up to 100000 mailboxes for 8 hours.
+   *
+   * @param service                  the service shared by all mailboxes
+   * @param maxConcurrency           the maximum number of mailboxes processed at once
+   * @param maxConcurrencyPerBackend the maximum number of mailboxes processed at once on a backend server
+   */
+  public MailboxFanOutExecutor(ExchangeService service, int maxConcurrency, int maxConcurrencyPerBackend) {
+    this(service, maxConcurrency, maxConcurrencyPerBackend, 100000, TimeUnit.HOURS.toMillis(8));
+  }
+
+  /**
+   * Initializes a new instance of MailboxFanOutExecutor.
+   *
+   * @param service                  the service shared by all mailboxes
+   * @param maxConcurrency           the maximum number of mailboxes processed at once
+   * @param maxConcurrencyPerBackend the maximum number of mailboxes processed at once on a backend server
+   * @param maxAffinities            the maximum number of mailboxes whose affinity is remembered
+   * @param affinityTtlMillis        the time the affinity of an unused mailbox is remembered
+   */
+  public MailboxFanOutExecutor(ExchangeService service, int maxConcurrency, int maxConcurrencyPerBackend,
+      int maxAffinities, long affinityTtlMillis) {
+    if (maxConcurrency < 1 || maxConcurrencyPerBackend < 1) {
+      throw new IllegalArgumentException("The concurrency must be at least 1.");
+    }
+    this.service = service;
+    this.maxConcurrencyPerBackend = maxConcurrencyPerBackend;
+    this.affinities = CacheBuilder.newBuilder()
+        .maximumSize(maxAffinities)
+        .expireAfterAccess(affinityTtlMillis, TimeUnit.MILLISECONDS)
+        .build();
+    this.executor = ContextExecutors.newFixedThreadPool("ews-fanout", maxConcurrency);
+  }
+
+  /**
+   * Gets whether the mailboxes are impersonated. If not, the mailboxes are
+   * only used as anchor mailbox, e.g. for delegate access.
+   *
+   * @return true if the mailboxes are impersonated
+   */
+  public boolean isImpersonate() {
+    return impersonate;
+  }
+
+  /**
+   * Sets whether the mailboxes are impersonated.
+   *
+   * @param impersonate true to impersonate the mailboxes
+   */
+  public void setImpersonate(boolean impersonate) {
+    this.impersonate = impersonate;
+  }
+
+  /**
+   * Gets the backend server of a mailbox, as learned from previous responses.
+   *
+   * @param mailbox the SMTP address of the mailbox
+   * @return the backend, or null if not known
+   */
+  public String getBackend(String mailbox) {
+    MailboxAffinity affinity = affinities.getIfPresent(mailbox.toLowerCase());
+    return affinity != null ? affinity.getBackend() : null;
+  }
+
+  /**
+   * Forgets the affinity of all mailboxes, e.g. after mailboxes were moved.
+   */
+  public void clearAffinities() {
+    affinities.invalidateAll();
+  }
+
+  /**
+   * Executes an operation against each mailbox. Returns immediately; the
+   * results are delivered as each mailbox completes. The deadline attached
+   * to the calling thread, if any, applies to all mailboxes.
+   *
+   * @param mailboxes the SMTP addresses of the mailboxes
+   * @param operation the operation
+   * @param <T>       the type of the results
+   * @return the results
+   */
+  public <T> MailboxResults<T> execute(Collection<String> mailboxes, IMailboxOperation<T> operation) {
+    List<String> targets = new ArrayList<String>(mailboxes);
+    MailboxResults<T> results = new MailboxResults<T>(targets.size());
+    Deadline deadline = Deadline.current();
+    for (String mailbox : targets) {
+      submit(new MailboxTask<T>(mailbox, operation, results, deadline));
+    }
+    return results;
+  }
+
+  /**
+   * Submits a task to the pool. If the pool no longer accepts tasks, e.g.
+   * after {@link #close()}, the mailbox fails instead.
+   *
+   * @param task the task
+   * @return true if the task was submitted
+   */
+  private boolean submit(MailboxTask<?> task) {
+    try {
+      executor.execute(task);
+      return true;
+    } catch (RejectedExecutionException e) {
+      task.fail(e);
+      return false;
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+  }
+
+  private MailboxAffinity getAffinity(String mailbox) {
+    try {
+      return affinities.get(mailbox.toLowerCase(), new Callable<MailboxAffinity>() {
+        @Override
+        public MailboxAffinity call() {
+          return new MailboxAffinity(service);
+        }
+      });
+    } catch (ExecutionException e) {
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private BackendSlots getBackendSlots(String backend) {
+    BackendSlots slots = backends.get(backend);
+    if (slots == null) {
+      BackendSlots newSlots = new BackendSlots();
+      slots = backends.putIfAbsent(backend, newSlots);
+      if (slots == null) {
+        slots = newSlots;
+      }
+    }
+    return slots;
+  }
+
+  /**
+   * The concurrency slots of a backend server. A task that finds no free
+   * slot is parked instead of holding a thread; a finishing task hands its
+   * slot over to a parked one.
+   */
+  private final class BackendSlots {
+
+    private final Queue<MailboxTask<?>> parked = new ArrayDeque<MailboxTask<?>>();
+
+    private int active;
+
+    synchronized boolean tryAcquire(MailboxTask<?> task) {
+      if (active < maxConcurrencyPerBackend) {
+        active++;
+        return true;
+      }
+      parked.add(task);
+      return false;
+    }
+
+    synchronized MailboxTask<?> release() {
+      MailboxTask<?> next = parked.poll();
+      if (next == null) {
+        active--;
+      }
+      return next;
+    }
+  }
+
+  private final class MailboxTask<T> implements Runnable {
+
+    private final String mailbox;
+
+    private final IMailboxOperation<T> operation;
+
+    private final MailboxResults<T> results;
+
+    private final Deadline deadline;
+
+    private BackendSlots slots;
+
+    MailboxTask(String mailbox, IMailboxOperation<T> operation, MailboxResults<T> results, Deadline deadline) {
+      this.mailbox = mailbox;
+      this.operation = operation;
+      this.results = results;
+      this.deadline = deadline;
+    }
+
+    @Override
+    public void run() {
+      MailboxAffinity affinity = getAffinity(mailbox);
+      if (slots == null) {
+        String backend = affinity.getBackend();
+        if (backend != null) {
+          slots = getBackendSlots(backend);
+          if (!slots.tryAcquire(this)) {
+            // Parked; runs again once a slot is handed over.
+            return;
+          }
+        }
+      }
+      try {
+        results.add(execute(affinity));
+      } finally {
+        if (slots != null) {
+          // A parked task that cannot be submitted fails and hands the slot on.
+          MailboxTask<?> next;
+          while ((next = slots.release()) != null && !submit(next)) {
+          }
+        }
+      }
+    }
+
+    void fail(Exception exception) {
+      results.add(new MailboxResult<T>(mailbox, null, exception, new ResponseMetadata()));
+    }
+
+    private MailboxResult<T> execute(MailboxAffinity affinity) {
+      ResponseMetadata metadata = new ResponseMetadata();
+      if (results.isCancelled()) {
+        return new MailboxResult<T>(mailbox, null, new CancellationException("The fan-out was cancelled."),
+            metadata);
+      }
+      RequestContext context = impersonate ? RequestContext.forMailbox(mailbox)
+          : RequestContext.EMPTY.withAnchorMailbox(mailbox);
+      try (RequestContext.Scope contextScope = context.withCookieStore(affinity).attach(metadata);
+           Deadline.Scope deadlineScope = deadline != null ? deadline.attach() : null) {
+        T value = operation.execute(service, mailbox);
+        return new MailboxResult<T>(mailbox, value, null, metadata);
+      } catch (Exception e) {
+        return new MailboxResult<T>(mailbox, null, e, metadata);
+      } finally {
+        affinity.update(metadata);
+      }
+    }
+  }
+
+}
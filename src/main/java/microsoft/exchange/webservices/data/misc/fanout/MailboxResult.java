@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.fanout;
+
+import microsoft.exchange.webservices.data.core.ResponseMetadata;
+
+/**
+ * The result of an operation executed against a single mailbox of a fan-out.
+ *
+ * @param <T> the type of the result
+ */
+public final class MailboxResult<T> {
+
+  private final String mailbox;
+
+  private final T value;
+
+  private final Exception exception;
+
+  private final ResponseMetadata metadata;
+
+  MailboxResult(String mailbox, T value, Exception exception, ResponseMetadata metadata) {
+    this.mailbox = mailbox;
+    this.value = value;
+    this.exception = exception;
+    this.metadata = metadata;
+  }
+
+  /**
+   * Gets the SMTP address of the mailbox.
+   *
+   * @return the mailbox
+   */
+  public String getMailbox() {
+    return mailbox;
+  }
+
+  /**
+   * Gets whether the operation succeeded.
+   *
+   * @return true if the operation succeeded
+   */
+  public boolean isSuccess() {
+    return exception == null;
+  }
+
+  /**
+   * Gets the value returned by the operation.
+   *
+   * @return the value, or null if the operation failed
+   */
+  public T getValue() {
+    return value;
+  }
+
+  /**
+   * Gets the exception thrown by the operation.
+   *
+   * @return the exception, or null if the operation succeeded
+   */
+  public Exception getException() {
+    return exception;
+  }
+
+  /**
+   * Gets the metadata of the last response received for the mailbox.
+   *
+   * @return the response metadata
+   */
+  public ResponseMetadata getMetadata() {
+    return metadata;
+  }
+
+}
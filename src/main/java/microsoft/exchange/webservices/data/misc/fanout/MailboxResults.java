@@ -0,0 +1,130 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.fanout;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The results of a fan-out, delivered as each mailbox completes.
+ *
+ * @param <T> the type of the results
+ */
+public final class MailboxResults<T> {
+
+  private final BlockingQueue<MailboxResult<T>> completed = new LinkedBlockingQueue<MailboxResult<T>>();
+
+  private final int count;
+
+  private int taken;
+
+  private volatile boolean cancelled;
+
+  MailboxResults(int count) {
+    this.count = count;
+  }
+
+  /**
+   * Gets the number of mailboxes of the fan-out.
+   *
+   * @return the number of mailboxes
+   */
+  public int getCount() {
+    return count;
+  }
+
+  /**
+   * Gets whether results remain to be taken.
+   *
+   * @return true if not all results have been taken
+   */
+  public synchronized boolean hasMore() {
+    return taken < count;
+  }
+
+  /**
+   * Takes the next completed result, waiting if none is available.
+   *
+   * @return the result, or null if all results have been taken
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public MailboxResult<T> take() throws InterruptedException {
+    synchronized (this) {
+      if (taken >= count) {
+        return null;
+      }
+    }
+    MailboxResult<T> result = completed.take();
+    synchronized (this) {
+      taken++;
+    }
+    return result;
+  }
+
+  /**
+   * Takes the next completed result, waiting up to the given time if none is available.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit    the unit of the timeout
+   * @return the result, or null if none completed in time or all results have been taken
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public MailboxResult<T> poll(long timeout, TimeUnit unit) throws InterruptedException {
+    synchronized (this) {
+      if (taken >= count) {
+        return null;
+      }
+    }
+    MailboxResult<T> result = completed.poll(timeout, unit);
+    if (result != null) {
+      synchronized (this) {
+        taken++;
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Cancels the mailboxes that have not started yet; their results carry a
+   * CancellationException. Operations already running are not interrupted.
+   */
+  public void cancel() {
+    cancelled = true;
+  }
+
+  /**
+   * Gets whether the fan-out was cancelled.
+   *
+   * @return true if cancelled
+   */
+  public boolean isCancelled() {
+    return cancelled;
+  }
+
+  void add(MailboxResult<T> result) {
+    completed.add(result);
+  }
+
+}
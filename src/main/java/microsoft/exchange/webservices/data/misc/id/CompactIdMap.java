@@ -0,0 +1,287 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.id;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map keyed by item or folder id for bulk reconciliation of large id sets.
+ * Keys are held as their decoded bytes in open-addressed arrays, without an
+ * entry or id object per mapping. Change keys are not kept.
+ *
+ * @param <V> the value type
+ */
+public class CompactIdMap<V> implements Iterable<CompactServiceId> {
+
+  private static final int MIN_CAPACITY = 16;
+
+  private byte[][] keys;
+
+  private int[] hashes;
+
+  private Object[] values;
+
+  private int size;
+
+  /**
+   * Initializes a new instance of the class.
+   */
+  public CompactIdMap() {
+    this(MIN_CAPACITY);
+  }
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param expectedSize the number of ids the map is expected to hold
+   */
+  public CompactIdMap(int expectedSize) {
+    this.allocate(capacityFor(expectedSize));
+  }
+
+  private static int capacityFor(int expectedSize) {
+    int capacity = MIN_CAPACITY;
+    // Keep the load factor at or below 2/3.
+    while (capacity * 2 < expectedSize * 3) {
+      capacity <<= 1;
+    }
+    return capacity;
+  }
+
+  private void allocate(int capacity) {
+    this.keys = new byte[capacity][];
+    this.hashes = new int[capacity];
+    this.values = new Object[capacity];
+  }
+
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+
+  private int find(byte[] key, int hash) {
+    int mask = this.keys.length - 1;
+    for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+      byte[] k = this.keys[i];
+      if (k == null) {
+        return -(i + 1);
+      }
+      if (this.hashes[i] == hash && Arrays.equals(k, key)) {
+        return i;
+      }
+    }
+  }
+
+  /**
+   * Associates a value with an id.
+   *
+   * @param id    the id
+   * @param value the value
+   * @return the previous value, or null
+   */
+  public V put(CompactServiceId id, V value) {
+    return this.put(id.getIdBytes(), id.hashCode(), value);
+  }
+
+  /**
+   * Associates a value with an id given in base64.
+   *
+   * @param uniqueId the unique id
+   * @param value    the value
+   * @return the previous value, or null
+   */
+  public V put(String uniqueId, V value) {
+    byte[] key = CompactServiceId.decode(uniqueId);
+    return this.put(key, Arrays.hashCode(key), value);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V put(byte[] key, int hash, V value) {
+    int index = this.find(key, hash);
+    if (index >= 0) {
+      V previous = (V) this.values[index];
+      this.values[index] = value;
+      return previous;
+    }
+    if ((this.size + 1) * 3 > this.keys.length * 2) {
+      this.resize(this.keys.length << 1);
+      index = this.find(key, hash);
+    }
+    index = -index - 1;
+    this.keys[index] = key;
+    this.hashes[index] = hash;
+    this.values[index] = value;
+    this.size++;
+    return null;
+  }
+
+  private void resize(int capacity) {
+    byte[][] oldKeys = this.keys;
+    int[] oldHashes = this.hashes;
+    Object[] oldValues = this.values;
+    this.allocate(capacity);
+    int mask = capacity - 1;
+    for (int j = 0; j < oldKeys.length; j++) {
+      if (oldKeys[j] != null) {
+        int i = spread(oldHashes[j]) & mask;
+        while (this.keys[i] != null) {
+          i = (i + 1) & mask;
+        }
+        this.keys[i] = oldKeys[j];
+        this.hashes[i] = oldHashes[j];
+        this.values[i] = oldValues[j];
+      }
+    }
+  }
+
+  /**
+   * Gets the value associated with an id.
+   *
+   * @param id the id
+   * @return the value, or null
+   */
+  @SuppressWarnings("unchecked")
+  public V get(CompactServiceId id) {
+    int index = this.find(id.getIdBytes(), id.hashCode());
+    return index >= 0 ? (V) this.values[index] : null;
+  }
+
+  /**
+   * Determines whether the map contains an id.
+   *
+   * @param id the id
+   * @return true if the id is in the map
+   */
+  public boolean containsKey(CompactServiceId id) {
+    return this.find(id.getIdBytes(), id.hashCode()) >= 0;
+  }
+
+  /**
+   * Removes an id from the map.
+   *
+   * @param id the id
+   * @return the value that was associated with the id, or null
+   */
+  @SuppressWarnings("unchecked")
+  public V remove(CompactServiceId id) {
+    int index = this.find(id.getIdBytes(), id.hashCode());
+    if (index < 0) {
+      return null;
+    }
+    V previous = (V) this.values[index];
+    this.removeAt(index);
+    return previous;
+  }
+
+  /**
+   * Removes the mapping at an index, moving back the following mappings of
+   * the probe sequence so that no tombstones are needed.
+   */
+  private void removeAt(int index) {
+    int mask = this.keys.length - 1;
+    int hole = index;
+    for (int i = (hole + 1) & mask; this.keys[i] != null; i = (i + 1) & mask) {
+      int home = spread(this.hashes[i]) & mask;
+      // Move the mapping into the hole unless its home slot lies cyclically
+      // in (hole, i].
+      if (((i - home) & mask) >= ((i - hole) & mask)) {
+        this.keys[hole] = this.keys[i];
+        this.hashes[hole] = this.hashes[i];
+        this.values[hole] = this.values[i];
+        hole = i;
+      }
+    }
+    this.keys[hole] = null;
+    this.values[hole] = null;
+    this.size--;
+  }
+
+  /**
+   * Gets the number of ids in the map.
+   *
+   * @return the size
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Determines whether the map is empty.
+   *
+   * @return true if the map is empty
+   */
+  public boolean isEmpty() {
+    return this.size == 0;
+  }
+
+  /**
+   * Removes all ids from the map.
+   */
+  public void clear() {
+    Arrays.fill(this.keys, null);
+    Arrays.fill(this.values, null);
+    this.size = 0;
+  }
+
+  /**
+   * Gets an iterator over the ids of the map. The ids have no change key.
+   *
+   * @return the iterator
+   */
+  @Override
+  public Iterator<CompactServiceId> iterator() {
+    return new Iterator<CompactServiceId>() {
+      private int next = this.advance(0);
+
+      private int advance(int from) {
+        while (from < keys.length && keys[from] == null) {
+          from++;
+        }
+        return from;
+      }
+
+      @Override
+      public boolean hasNext() {
+        return this.next < keys.length;
+      }
+
+      @Override
+      public CompactServiceId next() {
+        if (!this.hasNext()) {
+          throw new NoSuchElementException();
+        }
+        CompactServiceId id = new CompactServiceId(keys[this.next], null);
+        this.next = this.advance(this.next + 1);
+        return id;
+      }
+
+      @Override
+      public void remove() {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+}
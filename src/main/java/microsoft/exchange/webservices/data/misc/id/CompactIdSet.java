@@ -0,0 +1,127 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.id;
+
+import java.util.Iterator;
+
+/**
+ * A set of item or folder ids for bulk reconciliation of large id sets,
+ * backed by a CompactIdMap. Change keys are not kept.
+ */
+public class CompactIdSet implements Iterable<CompactServiceId> {
+
+  private final CompactIdMap<Boolean> map;
+
+  /**
+   * Initializes a new instance of the class.
+   */
+  public CompactIdSet() {
+    this.map = new CompactIdMap<Boolean>();
+  }
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param expectedSize the number of ids the set is expected to hold
+   */
+  public CompactIdSet(int expectedSize) {
+    this.map = new CompactIdMap<Boolean>(expectedSize);
+  }
+
+  /**
+   * Adds an id to the set.
+   *
+   * @param id the id
+   * @return true if the id was not already in the set
+   */
+  public boolean add(CompactServiceId id) {
+    return this.map.put(id, Boolean.TRUE) == null;
+  }
+
+  /**
+   * Adds an id given in base64 to the set.
+   *
+   * @param uniqueId the unique id
+   * @return true if the id was not already in the set
+   */
+  public boolean add(String uniqueId) {
+    return this.map.put(uniqueId, Boolean.TRUE) == null;
+  }
+
+  /**
+   * Determines whether the set contains an id.
+   *
+   * @param id the id
+   * @return true if the id is in the set
+   */
+  public boolean contains(CompactServiceId id) {
+    return this.map.containsKey(id);
+  }
+
+  /**
+   * Removes an id from the set.
+   *
+   * @param id the id
+   * @return true if the id was in the set
+   */
+  public boolean remove(CompactServiceId id) {
+    return this.map.remove(id) != null;
+  }
+
+  /**
+   * Gets the number of ids in the set.
+   *
+   * @return the size
+   */
+  public int size() {
+    return this.map.size();
+  }
+
+  /**
+   * Determines whether the set is empty.
+   *
+   * @return true if the set is empty
+   */
+  public boolean isEmpty() {
+    return this.map.isEmpty();
+  }
+
+  /**
+   * Removes all ids from the set.
+   */
+  public void clear() {
+    this.map.clear();
+  }
+
+  /**
+   * Gets an iterator over the ids of the set. The ids have no change key.
+   *
+   * @return the iterator
+   */
+  @Override
+  public Iterator<CompactServiceId> iterator() {
+    return this.map.iterator();
+  }
+
+}
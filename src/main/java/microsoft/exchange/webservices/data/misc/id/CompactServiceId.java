@@ -0,0 +1,229 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.id;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.XmlAttributeNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceXmlSerializationException;
+import microsoft.exchange.webservices.data.property.complex.FolderId;
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+import microsoft.exchange.webservices.data.property.complex.ServiceId;
+import org.apache.commons.codec.binary.Base64;
+
+import javax.xml.stream.XMLStreamException;
+
+import java.util.Arrays;
+
+/**
+ * Represents an item or folder id in a compact form, for holding large numbers
+ * of them in memory. The id and change key are kept as the binary data their
+ * base64 form encodes and are only encoded again when they are written out.
+ * Like ServiceId, equality does not consider the change key.
+ */
+public final class CompactServiceId {
+
+  /**
+   * The decoded unique id.
+   */
+  private final byte[] id;
+
+  /**
+   * The decoded change key, or null.
+   */
+  private final byte[] changeKey;
+
+  /**
+   * The hash of the id.
+   */
+  private final int hash;
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param id        the decoded unique id
+   * @param changeKey the decoded change key, or null
+   */
+  CompactServiceId(byte[] id, byte[] changeKey) {
+    this.id = id;
+    this.changeKey = changeKey;
+    this.hash = Arrays.hashCode(id);
+  }
+
+  /**
+   * Creates a compact id from its base64 form.
+   *
+   * @param uniqueId  the unique id
+   * @param changeKey the change key, or null
+   * @return the compact id
+   * @throws IllegalArgumentException if the unique id or change key is not
+   *                                  canonical base64, as EWS ids are
+   */
+  public static CompactServiceId valueOf(String uniqueId, String changeKey) {
+    if (uniqueId == null || uniqueId.isEmpty()) {
+      throw new IllegalArgumentException("The unique id must not be empty.");
+    }
+    return new CompactServiceId(decode(uniqueId), changeKey == null ? null : decode(changeKey));
+  }
+
+  /**
+   * Creates a compact id from an item or folder id.
+   *
+   * @param serviceId the id
+   * @return the compact id
+   * @throws IllegalArgumentException if the id is not valid, or not canonical
+   *                                  base64
+   */
+  public static CompactServiceId valueOf(ServiceId serviceId) {
+    if (serviceId == null || !serviceId.isValid()) {
+      throw new IllegalArgumentException("The id must be valid.");
+    }
+    return valueOf(serviceId.getUniqueId(), serviceId.getChangeKey());
+  }
+
+  /**
+   * Decodes a base64 id, checking that encoding it again gives back the same
+   * string.
+   *
+   * @param value the base64 value
+   * @return the decoded value
+   */
+  static byte[] decode(String value) {
+    byte[] bytes = Base64.decodeBase64(value);
+    if (!Base64.encodeBase64String(bytes).equals(value)) {
+      throw new IllegalArgumentException(String.format("'%s' is not a base64 id.", value));
+    }
+    return bytes;
+  }
+
+  /**
+   * Gets the decoded unique id. The array is shared and must not be modified.
+   *
+   * @return the decoded unique id
+   */
+  byte[] getIdBytes() {
+    return this.id;
+  }
+
+  /**
+   * Gets the unique id.
+   *
+   * @return the unique id, in base64
+   */
+  public String getUniqueId() {
+    return Base64.encodeBase64String(this.id);
+  }
+
+  /**
+   * Gets the change key.
+   *
+   * @return the change key, in base64, or null
+   */
+  public String getChangeKey() {
+    return this.changeKey == null ? null : Base64.encodeBase64String(this.changeKey);
+  }
+
+  /**
+   * Gets the number of bytes of the decoded unique id.
+   *
+   * @return the length of the id
+   */
+  public int getIdLength() {
+    return this.id.length;
+  }
+
+  /**
+   * Creates an ItemId with this id and change key.
+   *
+   * @return the item id
+   */
+  public ItemId toItemId() {
+    ItemId itemId = new ItemId();
+    itemId.setUniqueId(this.getUniqueId());
+    itemId.setChangeKey(this.getChangeKey());
+    return itemId;
+  }
+
+  /**
+   * Creates a FolderId with this id and change key.
+   *
+   * @return the folder id
+   */
+  public FolderId toFolderId() {
+    FolderId folderId = new FolderId();
+    folderId.setUniqueId(this.getUniqueId());
+    folderId.setChangeKey(this.getChangeKey());
+    return folderId;
+  }
+
+  /**
+   * Writes the id as an element with Id and ChangeKey attributes, encoding
+   * them as they are written.
+   *
+   * @param writer         the writer
+   * @param xmlElementName the element name, such as ItemId or FolderId
+   * @throws XMLStreamException               the XML stream exception
+   * @throws ServiceXmlSerializationException the service xml serialization exception
+   */
+  public void writeToXml(EwsServiceXmlWriter writer, String xmlElementName)
+      throws XMLStreamException, ServiceXmlSerializationException {
+    writer.writeStartElement(XmlNamespace.Types, xmlElementName);
+    writer.writeAttributeValue(XmlAttributeNames.Id, this.getUniqueId());
+    writer.writeAttributeValue(XmlAttributeNames.ChangeKey, this.getChangeKey());
+    writer.writeEndElement();
+  }
+
+  /**
+   * Determines whether two ids are equal, including their change keys.
+   *
+   * @param other the id to compare with
+   * @return true if equal otherwise false
+   */
+  public boolean sameIdAndChangeKey(CompactServiceId other) {
+    return this.equals(other) && Arrays.equals(this.changeKey, other.changeKey);
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    }
+    if (!(obj instanceof CompactServiceId)) {
+      return false;
+    }
+    CompactServiceId other = (CompactServiceId) obj;
+    return this.hash == other.hash && Arrays.equals(this.id, other.id);
+  }
+
+  @Override
+  public int hashCode() {
+    return this.hash;
+  }
+
+  @Override
+  public String toString() {
+    return this.getUniqueId();
+  }
+
+}
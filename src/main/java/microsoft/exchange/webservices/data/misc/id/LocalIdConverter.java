@@ -0,0 +1,247 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.id;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.IdFormat;
+import org.apache.commons.codec.DecoderException;
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.codec.binary.Hex;
+
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Converts mailbox item and folder ids between the EwsId, EntryId and
+ * HexEntryId formats without calling EWS.
+ * <p>
+ * These formats encode the same MAPI entry id; an EwsId adds the mailbox it
+ * belongs to, as the mailbox GUID. Converting to EwsId therefore requires the
+ * mailbox GUID, which the converter learns from the EwsIds the server returns
+ * for the mailbox, or which can be set with {@link #setMailboxGuid}. The
+ * mailbox of an id to convert is given by the caller, so the GUIDs of those
+ * ids are not learned. Compressed
+ * EwsIds, ids of occurrences, public folder ids and the EwsLegacyId, StoreId
+ * and OwaId formats are left to the server.
+ * </p>
+ * <p>
+ * A converter is attached to a service with
+ * {@link microsoft.exchange.webservices.data.core.ExchangeService#setLocalIdConverter(LocalIdConverter)},
+ * which then only sends the ids that can't be converted locally to EWS, in a
+ * single request.
+ * </p>
+ */
+public final class LocalIdConverter {
+
+  private static final Charset ASCII = Charset.forName("US-ASCII");
+
+  /**
+   * The first byte of an EwsId that is not compressed.
+   */
+  private static final int NOT_COMPRESSED = 0;
+
+  private static final int SMTP_ADDRESS_BASED = 0;
+
+  private static final int MAILBOX_GUID_BASED = 3;
+
+  /**
+   * The processing instruction of an id that is not an occurrence.
+   */
+  private static final int NORMAL = 0;
+
+  private static final int MAILBOX_GUID_LENGTH = 36;
+
+  /**
+   * The mailbox GUIDs, by lower case SMTP address and archive flag.
+   */
+  private final ConcurrentMap<String, String> mailboxGuids = new ConcurrentHashMap<String, String>();
+
+  /**
+   * Converts an id, if it can be converted locally.
+   *
+   * @param id                the id
+   * @param destinationFormat the format to convert to
+   * @return the converted id, or null if the id must be converted by the server
+   */
+  public AlternateId convert(AlternateIdBase id, IdFormat destinationFormat) {
+    if (id == null || id.getClass() != AlternateId.class) {
+      return null;
+    }
+    AlternateId alternateId = (AlternateId) id;
+    if (alternateId.getUniqueId() == null || alternateId.getFormat() == null) {
+      return null;
+    }
+
+    byte[] entryId = this.decodeEntryId(alternateId, false);
+    if (entryId == null) {
+      return null;
+    }
+
+    String converted;
+    switch (destinationFormat) {
+      case EntryId:
+        converted = Base64.encodeBase64String(entryId);
+        break;
+      case HexEntryId:
+        converted = Hex.encodeHexString(entryId).toUpperCase(Locale.ROOT);
+        break;
+      case EwsId:
+        String mailboxGuid = this.getMailboxGuid(alternateId.getMailbox(), alternateId.getIsArchive());
+        if (mailboxGuid == null) {
+          return null;
+        }
+        converted = encodeEwsId(mailboxGuid, entryId);
+        break;
+      default:
+        return null;
+    }
+    return new AlternateId(destinationFormat, converted, alternateId.getMailbox(), alternateId.getIsArchive());
+  }
+
+  /**
+   * Learns the mailbox GUID from an EwsId returned by the server, whose
+   * mailbox is the one the id belongs to.
+   *
+   * @param id the id
+   */
+  public void learn(AlternateIdBase id) {
+    if (id instanceof AlternateId && id.getFormat() == IdFormat.EwsId) {
+      this.decodeEntryId((AlternateId) id, true);
+    }
+  }
+
+  /**
+   * Sets the GUID of a mailbox.
+   *
+   * @param smtpAddress the SMTP address of the mailbox
+   * @param isArchive   true for the archive mailbox
+   * @param mailboxGuid the mailbox GUID, e.g. b6a7b3c0-5b3e-4d6a-9f6c-1c2d3e4f5a6b
+   */
+  public void setMailboxGuid(String smtpAddress, boolean isArchive, String mailboxGuid) {
+    if (mailboxGuid.length() != MAILBOX_GUID_LENGTH) {
+      throw new IllegalArgumentException(String.format("'%s' is not a mailbox GUID.", mailboxGuid));
+    }
+    this.mailboxGuids.put(mailboxKey(smtpAddress, isArchive), mailboxGuid.toLowerCase(Locale.ROOT));
+  }
+
+  /**
+   * Gets the GUID of a mailbox, if known.
+   *
+   * @param smtpAddress the SMTP address of the mailbox
+   * @param isArchive   true for the archive mailbox
+   * @return the mailbox GUID, or null
+   */
+  public String getMailboxGuid(String smtpAddress, boolean isArchive) {
+    return smtpAddress != null ? this.mailboxGuids.get(mailboxKey(smtpAddress, isArchive)) : null;
+  }
+
+  private static String mailboxKey(String smtpAddress, boolean isArchive) {
+    String key = smtpAddress.toLowerCase(Locale.ROOT);
+    return isArchive ? key + "/archive" : key;
+  }
+
+  /**
+   * Gets the entry id an id encodes.
+   *
+   * @param learn whether to learn the mailbox GUID of an EwsId
+   * @return the entry id, or null if it can't be decoded locally
+   */
+  private byte[] decodeEntryId(AlternateId id, boolean learn) {
+    String value = id.getUniqueId();
+    try {
+      switch (id.getFormat()) {
+        case EntryId:
+          return CompactServiceId.decode(value);
+        case HexEntryId:
+          return Hex.decodeHex(value.toCharArray());
+        case EwsId:
+          return this.decodeEwsId(CompactServiceId.decode(value), id, learn);
+        default:
+          return null;
+      }
+    } catch (IllegalArgumentException e) {
+      return null;
+    } catch (DecoderException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Decodes an EwsId: the compression flag, the storage type, the mailbox
+   * as a length-prefixed string, the processing instruction and the entry id
+   * as length-prefixed bytes. Lengths are 16-bit little-endian.
+   */
+  private byte[] decodeEwsId(byte[] bytes, AlternateId id, boolean learn) {
+    if (bytes.length < 4 || bytes[0] != NOT_COMPRESSED) {
+      return null;
+    }
+    int storageType = bytes[1];
+    if (storageType != MAILBOX_GUID_BASED && storageType != SMTP_ADDRESS_BASED) {
+      return null;
+    }
+    int monikerLength = readShort(bytes, 2);
+    int offset = 4 + monikerLength;
+    if (offset + 3 > bytes.length || bytes[offset] != NORMAL) {
+      return null;
+    }
+    int entryIdLength = readShort(bytes, offset + 1);
+    offset += 3;
+    if (offset + entryIdLength != bytes.length) {
+      return null;
+    }
+
+    if (learn && storageType == MAILBOX_GUID_BASED && monikerLength == MAILBOX_GUID_LENGTH
+        && id.getMailbox() != null) {
+      this.mailboxGuids.put(mailboxKey(id.getMailbox(), id.getIsArchive()),
+          new String(bytes, 4, monikerLength, ASCII).toLowerCase(Locale.ROOT));
+    }
+    byte[] entryId = new byte[entryIdLength];
+    System.arraycopy(bytes, offset, entryId, 0, entryIdLength);
+    return entryId;
+  }
+
+  private static String encodeEwsId(String mailboxGuid, byte[] entryId) {
+    byte[] moniker = mailboxGuid.getBytes(ASCII);
+    byte[] bytes = new byte[4 + moniker.length + 3 + entryId.length];
+    bytes[0] = NOT_COMPRESSED;
+    bytes[1] = MAILBOX_GUID_BASED;
+    writeShort(bytes, 2, moniker.length);
+    System.arraycopy(moniker, 0, bytes, 4, moniker.length);
+    int offset = 4 + moniker.length;
+    bytes[offset] = NORMAL;
+    writeShort(bytes, offset + 1, entryId.length);
+    System.arraycopy(entryId, 0, bytes, offset + 3, entryId.length);
+    return Base64.encodeBase64String(bytes);
+  }
+
+  private static int readShort(byte[] bytes, int offset) {
+    return (bytes[offset] & 0xff) | ((bytes[offset + 1] & 0xff) << 8);
+  }
+
+  private static void writeShort(byte[] bytes, int offset, int value) {
+    bytes[offset] = (byte) value;
+    bytes[offset + 1] = (byte) (value >>> 8);
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.management;
+
+import java.util.List;
+
+/**
+ * Management interface of a pooling HTTP connection manager.
+ */
+public interface ConnectionPoolMXBean {
+
+  /**
+   * Gets the maximum number of connections in the pool.
+   *
+   * @return the maximum number of connections
+   */
+  int getMaxTotal();
+
+  /**
+   * Sets the maximum number of connections in the pool.
+   *
+   * @param maxTotal the maximum number of connections
+   */
+  void setMaxTotal(int maxTotal);
+
+  /**
+   * Gets the maximum number of connections per route.
+   *
+   * @return the maximum number of connections per route
+   */
+  int getDefaultMaxPerRoute();
+
+  /**
+   * Sets the maximum number of connections per route.
+   *
+   * @param defaultMaxPerRoute the maximum number of connections per route
+   */
+  void setDefaultMaxPerRoute(int defaultMaxPerRoute);
+
+  /**
+   * Gets the number of connections currently in use.
+   *
+   * @return the number of leased connections
+   */
+  int getLeased();
+
+  /**
+   * Gets the number of idle persistent connections.
+   *
+   * @return the number of available connections
+   */
+  int getAvailable();
+
+  /**
+   * Gets the number of requests waiting for a connection.
+   *
+   * @return the number of pending connection requests
+   */
+  int getPending();
+
+  /**
+   * Gets the statistics of every route the pool has connections for.
+   *
+   * @return the per-route statistics
+   */
+  List<RoutePoolStats> getRoutes();
+
+  /**
+   * Closes all idle connections, so that subsequent requests open new ones;
+   * connections in use are not affected.
+   */
+  void recycleIdleConnections();
+
+  /**
+   * Closes the connections that have been idle for longer than the given time.
+   *
+   * @param idleSeconds the idle time, in seconds
+   */
+  void closeIdleConnections(long idleSeconds);
+
+}
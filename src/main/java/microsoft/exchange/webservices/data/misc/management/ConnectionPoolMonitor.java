@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.management;
+
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exposes the statistics of a {@link PoolingHttpClientConnectionManager} and
+ * allows resizing it at runtime.
+ */
+public class ConnectionPoolMonitor implements ConnectionPoolMXBean {
+
+  private final PoolingHttpClientConnectionManager connectionManager;
+
+  /**
+   * Initializes a new instance of the ConnectionPoolMonitor class.
+   *
+   * @param connectionManager the connection manager to monitor
+   */
+  public ConnectionPoolMonitor(PoolingHttpClientConnectionManager connectionManager) {
+    if (connectionManager == null) {
+      throw new NullPointerException("connectionManager");
+    }
+    this.connectionManager = connectionManager;
+  }
+
+  @Override
+  public int getMaxTotal() {
+    return connectionManager.getMaxTotal();
+  }
+
+  @Override
+  public void setMaxTotal(int maxTotal) {
+    if (maxTotal <= 0) {
+      throw new IllegalArgumentException("Invalid max pool size: " + maxTotal);
+    }
+    connectionManager.setMaxTotal(maxTotal);
+  }
+
+  @Override
+  public int getDefaultMaxPerRoute() {
+    return connectionManager.getDefaultMaxPerRoute();
+  }
+
+  @Override
+  public void setDefaultMaxPerRoute(int defaultMaxPerRoute) {
+    if (defaultMaxPerRoute <= 0) {
+      throw new IllegalArgumentException("Invalid max pool size per route: " + defaultMaxPerRoute);
+    }
+    connectionManager.setDefaultMaxPerRoute(defaultMaxPerRoute);
+  }
+
+  @Override
+  public int getLeased() {
+    return connectionManager.getTotalStats().getLeased();
+  }
+
+  @Override
+  public int getAvailable() {
+    return connectionManager.getTotalStats().getAvailable();
+  }
+
+  @Override
+  public int getPending() {
+    return connectionManager.getTotalStats().getPending();
+  }
+
+  @Override
+  public List<RoutePoolStats> getRoutes() {
+    List<RoutePoolStats> routes = new ArrayList<RoutePoolStats>();
+    for (HttpRoute route : connectionManager.getRoutes()) {
+      PoolStats stats = connectionManager.getStats(route);
+      routes.add(new RoutePoolStats(route.toString(), stats.getMax(), stats.getLeased(),
+          stats.getAvailable(), stats.getPending()));
+    }
+    return routes;
+  }
+
+  @Override
+  public void recycleIdleConnections() {
+    connectionManager.closeExpiredConnections();
+    connectionManager.closeIdleConnections(0, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public void closeIdleConnections(long idleSeconds) {
+    connectionManager.closeIdleConnections(idleSeconds, TimeUnit.SECONDS);
+  }
+
+}
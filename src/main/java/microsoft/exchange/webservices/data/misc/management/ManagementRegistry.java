@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.management;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Registers the management beans of the EWS client with an MBeanServer.
+ * <p>
+ * Nothing is registered by default; applications that want to monitor the
+ * client call {@link #registerRequestActivity()},
+ * {@link #registerStreamingConnections()} and
+ * {@link #registerConnectionPool(String, PoolingHttpClientConnectionManager)}
+ * once at startup.
+ * </p>
+ */
+public class ManagementRegistry {
+
+  /**
+   * The JMX domain of the registered beans.
+   */
+  public static final String DOMAIN = "microsoft.exchange.webservices";
+
+  private final MBeanServer server;
+
+  private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+  /**
+   * Initializes a new instance of the ManagementRegistry class that
+   * registers with the platform MBeanServer.
+   */
+  public ManagementRegistry() {
+    this(ManagementFactory.getPlatformMBeanServer());
+  }
+
+  /**
+   * Initializes a new instance of the ManagementRegistry class.
+   *
+   * @param server the MBeanServer to register with
+   */
+  public ManagementRegistry(MBeanServer server) {
+    if (server == null) {
+      throw new NullPointerException("server");
+    }
+    this.server = server;
+  }
+
+  /**
+   * Registers the statistics of a connection pool, e.g.
+   * {@code ExchangeFactory.defaultConnectionManager()}.
+   *
+   * @param name              the name of the pool, unique within the registry
+   * @param connectionManager the connection manager
+   * @return the name of the registered bean
+   * @throws JMException if the bean cannot be registered
+   */
+  public ObjectName registerConnectionPool(String name,
+      PoolingHttpClientConnectionManager connectionManager) throws JMException {
+    return register(new ConnectionPoolMonitor(connectionManager), "ConnectionPool", name);
+  }
+
+  /**
+   * Registers the requests in flight of all services.
+   *
+   * @return the name of the registered bean
+   * @throws JMException if the bean cannot be registered
+   */
+  public ObjectName registerRequestActivity() throws JMException {
+    return register(RequestActivity.getInstance(), "RequestActivity", null);
+  }
+
+  /**
+   * Registers the open streaming subscription connections.
+   *
+   * @return the name of the registered bean
+   * @throws JMException if the bean cannot be registered
+   */
+  public ObjectName registerStreamingConnections() throws JMException {
+    return register(StreamingConnections.getInstance(), "StreamingConnections", null);
+  }
+
+  private synchronized ObjectName register(Object bean, String type, String name) throws JMException {
+    String objectName = DOMAIN + ":type=" + type;
+    if (name != null) {
+      objectName += ",name=" + ObjectName.quote(name);
+    }
+    ObjectName registeredName = server.registerMBean(bean, new ObjectName(objectName)).getObjectName();
+    registered.add(registeredName);
+    return registeredName;
+  }
+
+  /**
+   * Unregisters all beans registered through this registry.
+   *
+   * @throws JMException if a bean cannot be unregistered
+   */
+  public synchronized void unregisterAll() throws JMException {
+    while (!registered.isEmpty()) {
+      ObjectName name = registered.remove(registered.size() - 1);
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    }
+  }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.management;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the requests in flight, per operation. Service requests
+ * report themselves when they are sent and when they complete.
+ */
+public final class RequestActivity implements RequestActivityMXBean {
+
+  private static final RequestActivity INSTANCE = new RequestActivity();
+
+  private final ConcurrentMap<String, Counters> operations = new ConcurrentHashMap<String, Counters>();
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private static final class Counters {
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong started = new AtomicLong();
+  }
+
+  private RequestActivity() {
+  }
+
+  /**
+   * Gets the process-wide request activity.
+   *
+   * @return the request activity
+   */
+  public static RequestActivity getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Records that a request was sent.
+   *
+   * @param operationName the name of the operation
+   */
+  public void requestStarted(String operationName) {
+    Counters counters = getOrCreate(operationName);
+    counters.started.incrementAndGet();
+    counters.inFlight.incrementAndGet();
+    inFlight.incrementAndGet();
+  }
+
+  /**
+   * Records that a request previously reported to {@link #requestStarted(String)} completed.
+   *
+   * @param operationName the name of the operation
+   */
+  public void requestEnded(String operationName) {
+    getOrCreate(operationName).inFlight.decrementAndGet();
+    inFlight.decrementAndGet();
+  }
+
+  private Counters getOrCreate(String operationName) {
+    Counters counters = operations.get(operationName);
+    if (counters == null) {
+      Counters created = new Counters();
+      counters = operations.putIfAbsent(operationName, created);
+      if (counters == null) {
+        counters = created;
+      }
+    }
+    return counters;
+  }
+
+  @Override
+  public int getInFlightCount() {
+    return inFlight.get();
+  }
+
+  @Override
+  public Map<String, Integer> getInFlightRequests() {
+    Map<String, Integer> snapshot = new TreeMap<String, Integer>();
+    for (Map.Entry<String, Counters> entry : operations.entrySet()) {
+      int count = entry.getValue().inFlight.get();
+      if (count > 0) {
+        snapshot.put(entry.getKey(), count);
+      }
+    }
+    return snapshot;
+  }
+
+  @Override
+  public Map<String, Long> getRequestCounts() {
+    Map<String, Long> snapshot = new TreeMap<String, Long>();
+    for (Map.Entry<String, Counters> entry : operations.entrySet()) {
+      snapshot.put(entry.getKey(), entry.getValue().started.get());
+    }
+    return snapshot;
+  }
+
+}
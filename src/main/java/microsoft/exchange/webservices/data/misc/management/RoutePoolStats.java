@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.management;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Connection pool statistics of a single route.
+ */
+public final class RoutePoolStats {
+
+  private final String route;
+  private final int max;
+  private final int leased;
+  private final int available;
+  private final int pending;
+
+  /**
+   * Initializes a new instance of the RoutePoolStats class.
+   *
+   * @param route     the route
+   * @param max       the maximum number of connections of the route
+   * @param leased    the number of connections in use
+   * @param available the number of idle connections
+   * @param pending   the number of requests waiting for a connection
+   */
+  @ConstructorProperties({"route", "max", "leased", "available", "pending"})
+  public RoutePoolStats(String route, int max, int leased, int available, int pending) {
+    this.route = route;
+    this.max = max;
+    this.leased = leased;
+    this.available = available;
+    this.pending = pending;
+  }
+
+  public String getRoute() {
+    return route;
+  }
+
+  public int getMax() {
+    return max;
+  }
+
+  public int getLeased() {
+    return leased;
+  }
+
+  public int getAvailable() {
+    return available;
+  }
+
+  public int getPending() {
+    return pending;
+  }
+
+  @Override
+  public String toString() {
+    return route + " [leased: " + leased + "; pending: " + pending + "; available: " + available
+        + "; max: " + max + "]";
+  }
+
+}
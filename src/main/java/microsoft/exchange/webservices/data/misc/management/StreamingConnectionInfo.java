@@ -0,0 +1,87 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.management;
+
+import java.beans.ConstructorProperties;
+import java.util.Date;
+
+/**
+ * The state of an open streaming subscription connection.
+ */
+public final class StreamingConnectionInfo {
+
+  private final String id;
+  private final int subscriptionCount;
+  private final Date lastResponseTime;
+  private final long heartbeatLagMillis;
+  private final int reconnectCount;
+  private final String lastDisconnectReason;
+
+  /**
+   * Initializes a new instance of the StreamingConnectionInfo class.
+   *
+   * @param id                   identifies the connection
+   * @param subscriptionCount    the number of subscriptions on the connection
+   * @param lastResponseTime     the time the last response or heartbeat was received
+   * @param heartbeatLagMillis   the time since the last response or heartbeat
+   * @param reconnectCount       the number of times the connection was reopened
+   * @param lastDisconnectReason the reason of the last disconnect, or null
+   */
+  @ConstructorProperties({"id", "subscriptionCount", "lastResponseTime", "heartbeatLagMillis",
+      "reconnectCount", "lastDisconnectReason"})
+  public StreamingConnectionInfo(String id, int subscriptionCount, Date lastResponseTime,
+      long heartbeatLagMillis, int reconnectCount, String lastDisconnectReason) {
+    this.id = id;
+    this.subscriptionCount = subscriptionCount;
+    this.lastResponseTime = lastResponseTime;
+    this.heartbeatLagMillis = heartbeatLagMillis;
+    this.reconnectCount = reconnectCount;
+    this.lastDisconnectReason = lastDisconnectReason;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public int getSubscriptionCount() {
+    return subscriptionCount;
+  }
+
+  public Date getLastResponseTime() {
+    return lastResponseTime;
+  }
+
+  public long getHeartbeatLagMillis() {
+    return heartbeatLagMillis;
+  }
+
+  public int getReconnectCount() {
+    return reconnectCount;
+  }
+
+  public String getLastDisconnectReason() {
+    return lastDisconnectReason;
+  }
+
+}
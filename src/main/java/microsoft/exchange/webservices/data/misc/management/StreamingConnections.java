@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.management;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.HangingRequestDisconnectReason;
+import microsoft.exchange.webservices.data.notification.StreamingSubscriptionConnection;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps track of the open streaming subscription connections. Connections
+ * report themselves when they open, disconnect or are disposed.
+ */
+public final class StreamingConnections implements StreamingConnectionsMXBean {
+
+  private static final StreamingConnections INSTANCE = new StreamingConnections();
+
+  private final Set<StreamingSubscriptionConnection> connections =
+      Collections.newSetFromMap(new ConcurrentHashMap<StreamingSubscriptionConnection, Boolean>());
+
+  private final AtomicLong reconnects = new AtomicLong();
+
+  private final AtomicLongArray disconnects =
+      new AtomicLongArray(HangingRequestDisconnectReason.values().length);
+
+  private StreamingConnections() {
+  }
+
+  /**
+   * Gets the process-wide streaming connection tracker.
+   *
+   * @return the streaming connection tracker
+   */
+  public static StreamingConnections getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Records that a connection was opened.
+   *
+   * @param connection the connection
+   */
+  public void connectionOpened(StreamingSubscriptionConnection connection) {
+    connections.add(connection);
+    if (connection.getReconnectCount() > 0) {
+      reconnects.incrementAndGet();
+    }
+  }
+
+  /**
+   * Records that a connection was disconnected.
+   *
+   * @param connection the connection
+   * @param reason     the reason of the disconnect
+   */
+  public void connectionClosed(StreamingSubscriptionConnection connection,
+      HangingRequestDisconnectReason reason) {
+    if (connections.remove(connection) && reason != null) {
+      disconnects.incrementAndGet(reason.ordinal());
+    }
+  }
+
+  /**
+   * Records that a connection was disposed.
+   *
+   * @param connection the connection
+   */
+  public void connectionDisposed(StreamingSubscriptionConnection connection) {
+    connections.remove(connection);
+  }
+
+  @Override
+  public int getOpenConnectionCount() {
+    return connections.size();
+  }
+
+  @Override
+  public int getSubscriptionCount() {
+    int count = 0;
+    for (StreamingSubscriptionConnection connection : connections) {
+      count += connection.getSubscriptionCount();
+    }
+    return count;
+  }
+
+  @Override
+  public long getMaxHeartbeatLagMillis() {
+    long now = System.currentTimeMillis();
+    long lag = 0;
+    for (StreamingSubscriptionConnection connection : connections) {
+      lag = Math.max(lag, now - connection.getLastResponseTime());
+    }
+    return lag;
+  }
+
+  @Override
+  public long getReconnectCount() {
+    return reconnects.get();
+  }
+
+  @Override
+  public Map<String, Long> getDisconnectCounts() {
+    Map<String, Long> counts = new TreeMap<String, Long>();
+    for (HangingRequestDisconnectReason reason : HangingRequestDisconnectReason.values()) {
+      counts.put(reason.name(), disconnects.get(reason.ordinal()));
+    }
+    return counts;
+  }
+
+  @Override
+  public List<StreamingConnectionInfo> getConnections() {
+    long now = System.currentTimeMillis();
+    List<StreamingConnectionInfo> infos = new ArrayList<StreamingConnectionInfo>();
+    for (StreamingSubscriptionConnection connection : connections) {
+      long lastResponseTime = connection.getLastResponseTime();
+      HangingRequestDisconnectReason lastDisconnectReason = connection.getLastDisconnectReason();
+      infos.add(new StreamingConnectionInfo(
+          Integer.toHexString(System.identityHashCode(connection)),
+          connection.getSubscriptionCount(),
+          new Date(lastResponseTime),
+          now - lastResponseTime,
+          connection.getReconnectCount(),
+          lastDisconnectReason != null ? lastDisconnectReason.name() : null));
+    }
+    return infos;
+  }
+
+  @Override
+  public void recycleConnections() {
+    for (StreamingSubscriptionConnection connection :
+        new ArrayList<StreamingSubscriptionConnection>(connections)) {
+      connection.close();
+    }
+  }
+
+}
@@ -0,0 +1,83 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.management;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Management interface of the open streaming subscription connections.
+ */
+public interface StreamingConnectionsMXBean {
+
+  /**
+   * Gets the number of open streaming subscription connections.
+   *
+   * @return the number of open connections
+   */
+  int getOpenConnectionCount();
+
+  /**
+   * Gets the number of subscriptions on all open connections.
+   *
+   * @return the number of subscriptions
+   */
+  int getSubscriptionCount();
+
+  /**
+   * Gets the longest time any open connection has gone without receiving
+   * a response or heartbeat from the server.
+   *
+   * @return the heartbeat lag, in milliseconds
+   */
+  long getMaxHeartbeatLagMillis();
+
+  /**
+   * Gets the number of times a connection was reopened after a disconnect.
+   *
+   * @return the number of reconnects
+   */
+  long getReconnectCount();
+
+  /**
+   * Gets the number of disconnects, per disconnect reason.
+   *
+   * @return the number of disconnects, keyed by reason
+   */
+  Map<String, Long> getDisconnectCounts();
+
+  /**
+   * Gets the state of every open connection.
+   *
+   * @return the open connections
+   */
+  List<StreamingConnectionInfo> getConnections();
+
+  /**
+   * Closes all open connections. Their disconnect handlers are invoked as
+   * usual and can reopen them.
+   */
+  void recycleConnections();
+
+}
@@ -0,0 +1,222 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A fixed-size, lock-free histogram of non-negative long values using
+ * log-linear buckets (in the spirit of HdrHistogram).
+ * <p>
+ * Values below 2^precisionBits are recorded exactly; larger values are
+ * recorded with a relative error of at most 2^-(precisionBits - 1). Values
+ * greater than the highest trackable value are clamped to it. Recording
+ * never allocates.
+ * </p>
+ */
+public final class Histogram {
+
+  /**
+   * The default number of precision bits, which gives a relative error below 1.6%.
+   */
+  public static final int DEFAULT_PRECISION_BITS = 7;
+
+  private final int precisionBits;
+
+  private final int subBucketCount;
+
+  private final int subBucketHalfCount;
+
+  private final long highestTrackableValue;
+
+  private final AtomicLongArray counts;
+
+  private final AtomicLong totalCount = new AtomicLong();
+
+  private final AtomicLong totalSum = new AtomicLong();
+
+  private final AtomicLong minValue = new AtomicLong(Long.MAX_VALUE);
+
+  private final AtomicLong maxValue = new AtomicLong();
+
+  /**
+   * Initializes a new instance of Histogram with the default precision.
+   *
+   * @param highestTrackableValue the highest value that can be recorded exactly
+   */
+  public Histogram(long highestTrackableValue) {
+    this(highestTrackableValue, DEFAULT_PRECISION_BITS);
+  }
+
+  /**
+   * Initializes a new instance of Histogram.
+   *
+   * @param highestTrackableValue the highest value that can be recorded without clamping
+   * @param precisionBits         the number of significant bits kept per value (2 to 16)
+   */
+  public Histogram(long highestTrackableValue, int precisionBits) {
+    if (precisionBits < 2 || precisionBits > 16) {
+      throw new IllegalArgumentException("Invalid precision bits: " + precisionBits);
+    }
+    if (highestTrackableValue < 1) {
+      throw new IllegalArgumentException("Invalid highest trackable value: " + highestTrackableValue);
+    }
+    this.precisionBits = precisionBits;
+    this.subBucketCount = 1 << precisionBits;
+    this.subBucketHalfCount = subBucketCount >> 1;
+    this.highestTrackableValue = highestTrackableValue;
+    this.counts = new AtomicLongArray(indexFor(highestTrackableValue) + 1);
+  }
+
+  /**
+   * Records a value.
+   *
+   * @param value the value; negative values are recorded as 0
+   */
+  public void recordValue(long value) {
+    if (value < 0) {
+      value = 0;
+    } else if (value > highestTrackableValue) {
+      value = highestTrackableValue;
+    }
+    counts.incrementAndGet(indexFor(value));
+    totalCount.incrementAndGet();
+    totalSum.addAndGet(value);
+    long current;
+    while (value < (current = minValue.get()) && !minValue.compareAndSet(current, value)) {
+      // retry
+    }
+    while (value > (current = maxValue.get()) && !maxValue.compareAndSet(current, value)) {
+      // retry
+    }
+  }
+
+  /**
+   * Gets the number of recorded values.
+   *
+   * @return the count
+   */
+  public long getTotalCount() {
+    return totalCount.get();
+  }
+
+  /**
+   * Gets the smallest recorded value, or 0 if the histogram is empty.
+   *
+   * @return the minimum value
+   */
+  public long getMinValue() {
+    long min = minValue.get();
+    return min == Long.MAX_VALUE ? 0 : min;
+  }
+
+  /**
+   * Gets the largest recorded value.
+   *
+   * @return the maximum value
+   */
+  public long getMaxValue() {
+    return maxValue.get();
+  }
+
+  /**
+   * Gets the mean of the recorded values.
+   *
+   * @return the mean, or 0 if the histogram is empty
+   */
+  public double getMean() {
+    long count = totalCount.get();
+    return count == 0 ? 0 : (double) totalSum.get() / count;
+  }
+
+  /**
+   * Gets the value at the given percentile. The result is the highest value
+   * that is equivalent (within the histogram's precision) to the recorded
+   * value at that rank, capped by the maximum recorded value.
+   *
+   * @param percentile the percentile, between 0 and 100
+   * @return the value at the percentile, or 0 if the histogram is empty
+   */
+  public long getValueAtPercentile(double percentile) {
+    long count = totalCount.get();
+    if (count == 0) {
+      return 0;
+    }
+    double requested = Math.min(Math.max(percentile, 0.0), 100.0);
+    long countAtPercentile = Math.max(1, (long) Math.ceil(requested / 100.0 * count));
+    long running = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      running += counts.get(i);
+      if (running >= countAtPercentile) {
+        return Math.min(highestEquivalentValue(i), getMaxValue());
+      }
+    }
+    return getMaxValue();
+  }
+
+  /**
+   * Clears all recorded values.
+   */
+  public void reset() {
+    for (int i = 0; i < counts.length(); i++) {
+      counts.set(i, 0);
+    }
+    totalCount.set(0);
+    totalSum.set(0);
+    minValue.set(Long.MAX_VALUE);
+    maxValue.set(0);
+  }
+
+  /**
+   * Gets the bucket index of a value.
+   *
+   * @param value the value
+   * @return the bucket index
+   */
+  private int indexFor(long value) {
+    if (value < subBucketCount) {
+      return (int) value;
+    }
+    int shift = (63 - Long.numberOfLeadingZeros(value)) - (precisionBits - 1);
+    return subBucketCount + (shift - 1) * subBucketHalfCount
+        + (int) ((value >>> shift) - subBucketHalfCount);
+  }
+
+  /**
+   * Gets the highest value that maps to the given bucket index.
+   *
+   * @param index the bucket index
+   * @return the highest equivalent value
+   */
+  private long highestEquivalentValue(int index) {
+    if (index < subBucketCount) {
+      return index;
+    }
+    int offset = index - subBucketCount;
+    int shift = offset / subBucketHalfCount + 1;
+    long subBucket = offset % subBucketHalfCount + subBucketHalfCount;
+    return ((subBucket + 1) << shift) - 1;
+  }
+}
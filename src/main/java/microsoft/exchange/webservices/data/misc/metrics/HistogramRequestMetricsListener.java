@@ -0,0 +1,91 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An {@link IRequestMetricsListener} that aggregates request measurements into
+ * per-operation {@link Histogram}s, without any external dependency.
+ * <p>
+ * The collected {@link OperationMetrics} can be polled periodically and
+ * bridged to a metrics library such as Micrometer or OpenTelemetry.
+ * </p>
+ */
+public class HistogramRequestMetricsListener implements IRequestMetricsListener {
+
+  private final ConcurrentMap<String, OperationMetrics> operations =
+      new ConcurrentHashMap<String, OperationMetrics>();
+
+  /**
+   * Handles the measurements of a completed request.
+   *
+   * @param metrics The request measurements.
+   */
+  @Override
+  public void requestCompleted(RequestMetrics metrics) {
+    getOrCreate(metrics.getOperationName()).record(metrics);
+  }
+
+  private OperationMetrics getOrCreate(String operationName) {
+    OperationMetrics operation = operations.get(operationName);
+    if (operation == null) {
+      OperationMetrics created = new OperationMetrics(operationName);
+      operation = operations.putIfAbsent(operationName, created);
+      if (operation == null) {
+        operation = created;
+      }
+    }
+    return operation;
+  }
+
+  /**
+   * Gets the metrics of an operation.
+   *
+   * @param operationName the operation name, e.g. GetItem
+   * @return the operation metrics, or null if no such request completed yet
+   */
+  public OperationMetrics getOperation(String operationName) {
+    return operations.get(operationName);
+  }
+
+  /**
+   * Gets the metrics of all operations seen so far.
+   *
+   * @return the operation metrics
+   */
+  public Collection<OperationMetrics> getOperations() {
+    return new ArrayList<OperationMetrics>(operations.values());
+  }
+
+  /**
+   * Discards all collected metrics.
+   */
+  public void reset() {
+    operations.clear();
+  }
+}
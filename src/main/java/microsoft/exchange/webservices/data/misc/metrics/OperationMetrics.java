@@ -0,0 +1,220 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.metrics;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.error.ServiceError;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Aggregated measurements for one EWS operation, as collected by
+ * {@link HistogramRequestMetricsListener}. Durations are recorded in
+ * microseconds and sizes in bytes.
+ */
+public final class OperationMetrics {
+
+  private static final long MAX_MICROS = TimeUnit.HOURS.toMicros(1);
+
+  private static final long MAX_BYTES = 1L << 40;
+
+  private final String operationName;
+
+  private final Histogram totalMicros = new Histogram(MAX_MICROS);
+
+  private final Histogram serializeMicros = new Histogram(MAX_MICROS);
+
+  private final Histogram timeToFirstByteMicros = new Histogram(MAX_MICROS);
+
+  private final Histogram parseMicros = new Histogram(MAX_MICROS);
+
+  private final Histogram requestBytes = new Histogram(MAX_BYTES);
+
+  private final Histogram responseBytes = new Histogram(MAX_BYTES);
+
+  private final Histogram uncompressedResponseBytes = new Histogram(MAX_BYTES);
+
+  private final AtomicLong failureCount = new AtomicLong();
+
+  private final AtomicLong compressedResponseCount = new AtomicLong();
+
+  private final AtomicLong authenticationHandshakeCount = new AtomicLong();
+
+  private final ConcurrentMap<ServiceError, AtomicLong> serviceErrors =
+      new ConcurrentHashMap<ServiceError, AtomicLong>();
+
+  private final ConcurrentMap<Integer, AtomicLong> httpStatusCodes =
+      new ConcurrentHashMap<Integer, AtomicLong>();
+
+  OperationMetrics(String operationName) {
+    this.operationName = operationName;
+  }
+
+  /**
+   * Records the measurements of a single request.
+   *
+   * @param metrics the request measurements
+   */
+  void record(RequestMetrics metrics) {
+    recordMicros(totalMicros, metrics.getTotalNanos());
+    recordMicros(serializeMicros, metrics.getSerializeNanos());
+    recordMicros(timeToFirstByteMicros, metrics.getTimeToFirstByteNanos());
+    recordMicros(parseMicros, metrics.getParseNanos());
+    recordIfSet(requestBytes, metrics.getRequestBytes());
+    recordIfSet(responseBytes, metrics.getResponseBytes());
+    recordIfSet(uncompressedResponseBytes, metrics.getUncompressedResponseBytes());
+
+    if (metrics.isCompressed()) {
+      compressedResponseCount.incrementAndGet();
+    }
+    if (metrics.isFailed()) {
+      failureCount.incrementAndGet();
+    }
+    if (metrics.isAuthenticationHandshake()) {
+      authenticationHandshakeCount.incrementAndGet();
+    }
+    if (metrics.getServiceError() != null && metrics.getServiceError() != ServiceError.NoError) {
+      increment(serviceErrors, metrics.getServiceError());
+    }
+    if (metrics.getHttpStatusCode() > 0) {
+      increment(httpStatusCodes, metrics.getHttpStatusCode());
+    }
+  }
+
+  private static void recordMicros(Histogram histogram, long nanos) {
+    if (nanos >= 0) {
+      histogram.recordValue(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+  }
+
+  private static void recordIfSet(Histogram histogram, long value) {
+    if (value >= 0) {
+      histogram.recordValue(value);
+    }
+  }
+
+  private static <K> void increment(ConcurrentMap<K, AtomicLong> counters, K key) {
+    AtomicLong counter = counters.get(key);
+    if (counter == null) {
+      AtomicLong created = new AtomicLong();
+      counter = counters.putIfAbsent(key, created);
+      if (counter == null) {
+        counter = created;
+      }
+    }
+    counter.incrementAndGet();
+  }
+
+  private static <K> Map<K, Long> snapshot(ConcurrentMap<K, AtomicLong> counters) {
+    Map<K, Long> result = new HashMap<K, Long>();
+    for (Map.Entry<K, AtomicLong> entry : counters.entrySet()) {
+      result.put(entry.getKey(), entry.getValue().get());
+    }
+    return Collections.unmodifiableMap(result);
+  }
+
+  public String getOperationName() {
+    return operationName;
+  }
+
+  public long getRequestCount() {
+    return totalMicros.getTotalCount();
+  }
+
+  public long getFailureCount() {
+    return failureCount.get();
+  }
+
+  public long getCompressedResponseCount() {
+    return compressedResponseCount.get();
+  }
+
+  /**
+   * Gets the number of requests that went through an authentication
+   * handshake instead of reusing an authenticated connection.
+   *
+   * @return the handshake count
+   */
+  public long getAuthenticationHandshakeCount() {
+    return authenticationHandshakeCount.get();
+  }
+
+  public Histogram getTotalMicros() {
+    return totalMicros;
+  }
+
+  public Histogram getSerializeMicros() {
+    return serializeMicros;
+  }
+
+  public Histogram getTimeToFirstByteMicros() {
+    return timeToFirstByteMicros;
+  }
+
+  public Histogram getParseMicros() {
+    return parseMicros;
+  }
+
+  public Histogram getRequestBytes() {
+    return requestBytes;
+  }
+
+  public Histogram getResponseBytes() {
+    return responseBytes;
+  }
+
+  public Histogram getUncompressedResponseBytes() {
+    return uncompressedResponseBytes;
+  }
+
+  /**
+   * Gets a snapshot of the number of responses per EWS error code.
+   *
+   * @return the error counts
+   */
+  public Map<ServiceError, Long> getServiceErrorCounts() {
+    return snapshot(serviceErrors);
+  }
+
+  /**
+   * Gets a snapshot of the number of responses per HTTP status code.
+   *
+   * @return the status code counts
+   */
+  public Map<Integer, Long> getHttpStatusCounts() {
+    return snapshot(httpStatusCodes);
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: count=%d failures=%d p50=%dus p99=%dus max=%dus",
+        operationName, getRequestCount(), getFailureCount(), totalMicros.getValueAtPercentile(50),
+        totalMicros.getValueAtPercentile(99), totalMicros.getMaxValue());
+  }
+}
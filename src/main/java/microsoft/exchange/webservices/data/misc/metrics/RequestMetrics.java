@@ -0,0 +1,302 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.metrics;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.error.ServiceError;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the measurements taken while executing a single service request.
+ * <p>
+ * An instance is only allocated when an {@link IRequestMetricsListener} is
+ * registered with the service; it is populated by the request pipeline and
+ * handed to the listener once the request completes. Durations are expressed
+ * in nanoseconds and are -1 when the corresponding phase was not reached.
+ * </p>
+ */
+public final class RequestMetrics {
+
+  /**
+   * The operation name.
+   */
+  private final String operationName;
+
+  /**
+   * The time at which the request started, as returned by System.nanoTime().
+   */
+  private final long startNanos;
+
+  private long serializeNanos = -1;
+
+  private long timeToFirstByteNanos = -1;
+
+  private long parseNanos = -1;
+
+  private long totalNanos = -1;
+
+  private long requestBytes = -1;
+
+  private long responseBytes = -1;
+
+  private long uncompressedResponseBytes = -1;
+
+  private String contentEncoding;
+
+  private int httpStatusCode;
+
+  private boolean authenticationHandshake;
+
+  private ServiceError serviceError;
+
+  private Throwable exception;
+
+  /**
+   * Initializes a new instance of RequestMetrics.
+   *
+   * @param operationName the name of the EWS operation, e.g. GetItem
+   */
+  public RequestMetrics(String operationName) {
+    this.operationName = operationName;
+    this.startNanos = System.nanoTime();
+  }
+
+  /**
+   * Gets the name of the EWS operation (the request's XML element name).
+   *
+   * @return the operation name
+   */
+  public String getOperationName() {
+    return operationName;
+  }
+
+  /**
+   * Gets the time at which the request started, as returned by System.nanoTime().
+   *
+   * @return the start time in nanoseconds
+   */
+  public long getStartNanos() {
+    return startNanos;
+  }
+
+  /**
+   * Gets the time spent serializing (and signing) the SOAP request.
+   *
+   * @return the serialization time in nanoseconds
+   */
+  public long getSerializeNanos() {
+    return serializeNanos;
+  }
+
+  public void setSerializeNanos(long serializeNanos) {
+    this.serializeNanos = serializeNanos;
+  }
+
+  /**
+   * Gets the time between sending the request and receiving the response
+   * headers. This includes connection lease, connect and authentication.
+   *
+   * @return the time to first byte in nanoseconds
+   */
+  public long getTimeToFirstByteNanos() {
+    return timeToFirstByteNanos;
+  }
+
+  public void setTimeToFirstByteNanos(long timeToFirstByteNanos) {
+    this.timeToFirstByteNanos = timeToFirstByteNanos;
+  }
+
+  /**
+   * Gets the time spent reading and parsing the response body.
+   *
+   * @return the parse time in nanoseconds
+   */
+  public long getParseNanos() {
+    return parseNanos;
+  }
+
+  public void setParseNanos(long parseNanos) {
+    this.parseNanos = parseNanos;
+  }
+
+  /**
+   * Gets the total time from the start of serialization to completion.
+   *
+   * @return the total time in nanoseconds
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * Gets the total time in the specified unit.
+   *
+   * @param unit the time unit
+   * @return the total time
+   */
+  public long getTotalTime(TimeUnit unit) {
+    return totalNanos < 0 ? -1 : unit.convert(totalNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Gets the size of the SOAP request body.
+   *
+   * @return the request size in bytes
+   */
+  public long getRequestBytes() {
+    return requestBytes;
+  }
+
+  public void setRequestBytes(long requestBytes) {
+    this.requestBytes = requestBytes;
+  }
+
+  /**
+   * Gets the number of response body bytes read from the wire (compressed
+   * size if the server used a content encoding).
+   *
+   * @return the response size in bytes
+   */
+  public long getResponseBytes() {
+    return responseBytes;
+  }
+
+  public void setResponseBytes(long responseBytes) {
+    this.responseBytes = responseBytes;
+  }
+
+  /**
+   * Gets the number of response bytes after decompression.
+   *
+   * @return the uncompressed response size in bytes
+   */
+  public long getUncompressedResponseBytes() {
+    return uncompressedResponseBytes;
+  }
+
+  public void setUncompressedResponseBytes(long uncompressedResponseBytes) {
+    this.uncompressedResponseBytes = uncompressedResponseBytes;
+  }
+
+  /**
+   * Gets the content encoding of the response, or null if it was not encoded.
+   *
+   * @return the content encoding
+   */
+  public String getContentEncoding() {
+    return contentEncoding;
+  }
+
+  public void setContentEncoding(String contentEncoding) {
+    this.contentEncoding = contentEncoding;
+  }
+
+  /**
+   * Gets whether the response was transferred compressed.
+   *
+   * @return true if the response was gzip or deflate encoded
+   */
+  public boolean isCompressed() {
+    return contentEncoding != null
+        && (contentEncoding.contains("gzip") || contentEncoding.contains("deflate"));
+  }
+
+  /**
+   * Gets the HTTP status code, or 0 if no response was received.
+   *
+   * @return the HTTP status code
+   */
+  public int getHttpStatusCode() {
+    return httpStatusCode;
+  }
+
+  public void setHttpStatusCode(int httpStatusCode) {
+    this.httpStatusCode = httpStatusCode;
+  }
+
+  /**
+   * Gets whether the request went through an authentication handshake rather
+   * than reusing an authenticated connection.
+   *
+   * @return true if the server or proxy challenged the request
+   */
+  public boolean isAuthenticationHandshake() {
+    return authenticationHandshake;
+  }
+
+  public void setAuthenticationHandshake(boolean authenticationHandshake) {
+    this.authenticationHandshake = authenticationHandshake;
+  }
+
+  /**
+   * Gets the first EWS error reported by the server, or null if the request
+   * succeeded.
+   *
+   * @return the service error
+   */
+  public ServiceError getServiceError() {
+    return serviceError;
+  }
+
+  public void setServiceError(ServiceError serviceError) {
+    this.serviceError = serviceError;
+  }
+
+  /**
+   * Gets the exception the request failed with, or null.
+   *
+   * @return the exception
+   */
+  public Throwable getException() {
+    return exception;
+  }
+
+  /**
+   * Gets whether the request failed, either locally, on the transport or
+   * with an EWS error.
+   *
+   * @return true if the request failed
+   */
+  public boolean isFailed() {
+    return exception != null || (serviceError != null && serviceError != ServiceError.NoError);
+  }
+
+  /**
+   * Marks the request as completed.
+   *
+   * @param exception the exception the request failed with, or null
+   */
+  public void complete(Throwable exception) {
+    this.totalNanos = System.nanoTime() - startNanos;
+    this.exception = exception;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s: total=%dus serialize=%dus ttfb=%dus parse=%dus request=%dB response=%dB/%dB status=%d error=%s",
+        operationName, totalNanos / 1000, serializeNanos / 1000, timeToFirstByteNanos / 1000,
+        parseNanos / 1000, requestBytes, responseBytes, uncompressedResponseBytes, httpStatusCode,
+        serviceError);
+  }
+}
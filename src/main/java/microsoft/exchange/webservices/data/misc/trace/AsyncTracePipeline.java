@@ -0,0 +1,334 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.trace;
+
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.enumeration.misc.TraceFlags;
+import microsoft.exchange.webservices.data.misc.ContextExecutors;
+import microsoft.exchange.webservices.data.misc.ITraceListener;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Formats and delivers trace entries on a background thread.
+ * <p>
+ * When an AsyncTracePipeline is set on an ExchangeService, the request thread
+ * only captures the raw trace content (bodies are truncated to
+ * {@link #getMaxBodyBytes()} bytes) and hands it over through a bounded
+ * ring buffer. XML pretty-printing, log message formatting and the call to the
+ * {@link ITraceListener} happen on the formatter thread. If the buffer is
+ * full, entries are dropped (and counted) rather than slowing down requests.
+ * </p>
+ */
+public class AsyncTracePipeline implements Closeable {
+
+  private static final Log LOG = LogFactory.getLog(AsyncTracePipeline.class);
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  /**
+   * The default number of entries the ring buffer can hold.
+   */
+  public static final int DEFAULT_CAPACITY = 1024;
+
+  /**
+   * The default maximum number of body bytes kept per entry.
+   */
+  public static final int DEFAULT_MAX_BODY_BYTES = 64 * 1024;
+
+  private final ITraceListener traceListener;
+
+  private final ArrayBlockingQueue<TraceEntry> queue;
+
+  private final int maxBodyBytes;
+
+  private final boolean prettyPrint;
+
+  private volatile ITraceFilter filter = TraceFilters.all();
+
+  private final AtomicLong enqueuedCount = new AtomicLong();
+
+  private final AtomicLong deliveredCount = new AtomicLong();
+
+  private final AtomicLong droppedCount = new AtomicLong();
+
+  private volatile boolean closed;
+
+  private final Thread formatterThread;
+
+  /**
+   * Initializes a new instance of AsyncTracePipeline with the default
+   * capacity and body limit, pretty-printing XML content.
+   *
+   * @param traceListener the listener receiving the formatted entries
+   */
+  public AsyncTracePipeline(ITraceListener traceListener) {
+    this(traceListener, DEFAULT_CAPACITY, DEFAULT_MAX_BODY_BYTES, true);
+  }
+
+  /**
+   * Initializes a new instance of AsyncTracePipeline.
+   *
+   * @param traceListener the listener receiving the formatted entries
+   * @param capacity      the number of entries the ring buffer can hold
+   * @param maxBodyBytes  the maximum number of body bytes kept per entry
+   * @param prettyPrint   whether to indent (complete) XML bodies
+   */
+  public AsyncTracePipeline(ITraceListener traceListener, int capacity, int maxBodyBytes,
+      boolean prettyPrint) {
+    if (traceListener == null) {
+      throw new NullPointerException("traceListener");
+    }
+    if (capacity <= 0) {
+      throw new IllegalArgumentException("Invalid capacity: " + capacity);
+    }
+    if (maxBodyBytes < 0) {
+      throw new IllegalArgumentException("Invalid max body bytes: " + maxBodyBytes);
+    }
+    this.traceListener = traceListener;
+    this.queue = new ArrayBlockingQueue<TraceEntry>(capacity);
+    this.maxBodyBytes = maxBodyBytes;
+    this.prettyPrint = prettyPrint;
+
+    this.formatterThread = ContextExecutors.newThreadFactory("ews-trace-formatter").newThread(new Runnable() {
+      public void run() {
+        formatEntries();
+      }
+    });
+    this.formatterThread.start();
+  }
+
+  /**
+   * Gets the filter selecting the traced requests.
+   *
+   * @return the filter
+   */
+  public ITraceFilter getFilter() {
+    return filter;
+  }
+
+  /**
+   * Sets the filter selecting the traced requests.
+   *
+   * @param filter the filter; null traces all requests
+   */
+  public void setFilter(ITraceFilter filter) {
+    this.filter = filter != null ? filter : TraceFilters.all();
+  }
+
+  /**
+   * Gets the maximum number of body bytes kept per entry.
+   *
+   * @return the maximum number of bytes
+   */
+  public int getMaxBodyBytes() {
+    return maxBodyBytes;
+  }
+
+  /**
+   * Gets the number of entries dropped because the ring buffer was full.
+   *
+   * @return the dropped entry count
+   */
+  public long getDroppedCount() {
+    return droppedCount.get();
+  }
+
+  /**
+   * Queues a plain text trace entry.
+   *
+   * @param traceType the kind of trace entry
+   * @param logEntry  the entry
+   */
+  public void traceMessage(TraceFlags traceType, String logEntry) {
+    enqueue(new TraceEntry(traceType, logEntry, null, 0, 0));
+  }
+
+  /**
+   * Queues an XML trace entry, copying at most {@link #getMaxBodyBytes()} bytes.
+   *
+   * @param traceType the kind of trace entry
+   * @param stream    the stream containing the XML
+   */
+  public void traceXml(TraceFlags traceType, ByteArrayOutputStream stream) {
+    BoundedCopy copy = new BoundedCopy(Math.min(maxBodyBytes, stream.size()));
+    try {
+      stream.writeTo(copy);
+    } catch (IOException e) {
+      // Cannot happen, BoundedCopy doesn't throw.
+      LOG.error(e);
+    }
+    enqueue(new TraceEntry(traceType, null, copy.buffer, copy.length, stream.size()));
+  }
+
+  /**
+   * Queues an XML trace entry, copying at most {@link #getMaxBodyBytes()} bytes.
+   *
+   * @param traceType   the kind of trace entry
+   * @param buffer      the buffer containing (the beginning of) the XML
+   * @param length      the number of valid bytes in the buffer
+   * @param totalLength the length of the complete XML content
+   */
+  public void traceXml(TraceFlags traceType, byte[] buffer, int length, long totalLength) {
+    int count = Math.min(length, maxBodyBytes);
+    enqueue(new TraceEntry(traceType, null, Arrays.copyOf(buffer, count), count, totalLength));
+  }
+
+  private void enqueue(TraceEntry entry) {
+    if (closed || !queue.offer(entry)) {
+      droppedCount.incrementAndGet();
+    } else {
+      enqueuedCount.incrementAndGet();
+    }
+  }
+
+  /**
+   * Waits until all entries queued so far have been delivered.
+   *
+   * @param timeout the maximum time to wait
+   * @param unit    the time unit of the timeout
+   * @return true if all entries were delivered, false if the timeout elapsed
+   * @throws InterruptedException if interrupted while waiting
+   */
+  public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+    long target = enqueuedCount.get();
+    long deadline = System.nanoTime() + unit.toNanos(timeout);
+    while (deliveredCount.get() < target) {
+      if (System.nanoTime() >= deadline) {
+        return false;
+      }
+      Thread.sleep(1);
+    }
+    return true;
+  }
+
+  /**
+   * Stops accepting entries, delivers the queued ones and stops the formatter thread.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    try {
+      formatterThread.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void formatEntries() {
+    while (!closed || !queue.isEmpty()) {
+      TraceEntry entry;
+      try {
+        entry = queue.poll(100, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        break;
+      }
+      if (entry == null) {
+        continue;
+      }
+      try {
+        String traceTypeStr = entry.traceType.toString();
+        String logMessage =
+            EwsUtilities.formatLogMessage(traceTypeStr, format(entry), entry.threadId, new Date(entry.time));
+        traceListener.trace(traceTypeStr, logMessage);
+      } catch (Exception e) {
+        LOG.warn("Unable to deliver trace entry", e);
+      } finally {
+        deliveredCount.incrementAndGet();
+      }
+    }
+  }
+
+  private String format(TraceEntry entry) {
+    if (entry.content == null) {
+      return entry.message;
+    }
+
+    String xml = new String(entry.content, 0, entry.length, UTF8);
+    if (entry.length >= entry.totalLength) {
+      return prettyPrint ? EwsUtilities.prettyXml(xml) : xml;
+    }
+    return xml + String.format("%n... [%d more bytes truncated]%n", entry.totalLength - entry.length);
+  }
+
+  /**
+   * A captured trace entry.
+   */
+  private static final class TraceEntry {
+    final TraceFlags traceType;
+    final String message;
+    final byte[] content;
+    final int length;
+    final long totalLength;
+    final long threadId;
+    final long time;
+
+    TraceEntry(TraceFlags traceType, String message, byte[] content, int length, long totalLength) {
+      this.traceType = traceType;
+      this.message = message;
+      this.content = content;
+      this.length = length;
+      this.totalLength = totalLength;
+      this.threadId = Thread.currentThread().getId();
+      this.time = System.currentTimeMillis();
+    }
+  }
+
+  /**
+   * An output stream keeping at most a fixed number of bytes.
+   */
+  private static final class BoundedCopy extends OutputStream {
+    final byte[] buffer;
+    int length;
+
+    BoundedCopy(int limit) {
+      this.buffer = new byte[limit];
+    }
+
+    @Override
+    public void write(int b) {
+      if (length < buffer.length) {
+        buffer[length++] = (byte) b;
+      }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      int count = Math.min(len, buffer.length - length);
+      System.arraycopy(b, off, buffer, length, count);
+      length += count;
+    }
+  }
+}
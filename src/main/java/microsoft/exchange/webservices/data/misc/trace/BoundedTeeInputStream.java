@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.trace;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * An input stream that keeps a copy of at most a fixed number of the bytes
+ * read through it, and counts all of them.
+ * <p>
+ * Used to trace responses while they are parsed straight from the wire,
+ * instead of buffering the whole response first.
+ * </p>
+ */
+public class BoundedTeeInputStream extends FilterInputStream {
+
+  private final int limit;
+
+  private byte[] buffer = new byte[0];
+
+  private int length;
+
+  private long totalBytes;
+
+  /**
+   * Initializes a new instance of BoundedTeeInputStream.
+   *
+   * @param in    the underlying stream
+   * @param limit the maximum number of bytes to keep
+   */
+  public BoundedTeeInputStream(InputStream in, int limit) {
+    super(in);
+    if (limit < 0) {
+      throw new IllegalArgumentException("Invalid limit: " + limit);
+    }
+    this.limit = limit;
+  }
+
+  @Override
+  public int read() throws IOException {
+    int data = super.read();
+    if (data != -1) {
+      totalBytes++;
+      if (length < limit) {
+        ensureCapacity(1);
+        buffer[length++] = (byte) data;
+      }
+    }
+    return data;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    int count = super.read(b, off, len);
+    if (count > 0) {
+      capture(b, off, count);
+    }
+    return count;
+  }
+
+  @Override
+  public long skip(long n) throws IOException {
+    long skipped = super.skip(n);
+    totalBytes += skipped;
+    return skipped;
+  }
+
+  @Override
+  public boolean markSupported() {
+    return false;
+  }
+
+  private void capture(byte[] b, int off, int len) {
+    totalBytes += len;
+    int count = Math.min(len, limit - length);
+    if (count <= 0) {
+      return;
+    }
+    ensureCapacity(count);
+    System.arraycopy(b, off, buffer, length, count);
+    length += count;
+  }
+
+  private void ensureCapacity(int count) {
+    if (length + count > buffer.length) {
+      int capacity = Math.min(limit, Math.max(length + count, Math.max(256, buffer.length * 2)));
+      buffer = Arrays.copyOf(buffer, capacity);
+    }
+  }
+
+  /**
+   * Gets the buffer holding the captured bytes. Only the first
+   * {@link #getCapturedLength()} bytes are valid.
+   *
+   * @return the capture buffer
+   */
+  public byte[] getBuffer() {
+    return buffer;
+  }
+
+  /**
+   * Gets the number of bytes captured.
+   *
+   * @return the captured length
+   */
+  public int getCapturedLength() {
+    return length;
+  }
+
+  /**
+   * Gets the total number of bytes read through this stream.
+   *
+   * @return the total number of bytes
+   */
+  public long getTotalBytes() {
+    return totalBytes;
+  }
+}
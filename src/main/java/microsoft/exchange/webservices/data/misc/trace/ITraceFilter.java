@@ -0,0 +1,46 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.trace;
+
+/**
+ * ITraceFilter decides which requests are traced by an {@link AsyncTracePipeline}.
+ * <p>
+ * The filter is evaluated once per request, on the calling thread, before
+ * anything is captured; all trace entries of a request are either kept or
+ * dropped together.
+ * </p>
+ */
+public interface ITraceFilter {
+
+  /**
+   * Determines whether a request should be traced.
+   *
+   * @param operationName the name of the EWS operation, e.g. GetItem
+   * @param mailbox       the mailbox the request targets (impersonated user or
+   *                      anchor mailbox), or null if unknown
+   * @return true if the request should be traced
+   */
+  boolean isTraced(String operationName, String mailbox);
+
+}
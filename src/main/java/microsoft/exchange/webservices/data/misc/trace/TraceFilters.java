@@ -0,0 +1,132 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.trace;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Factory methods for common {@link ITraceFilter}s.
+ */
+public final class TraceFilters {
+
+  private static final ITraceFilter ALL = new ITraceFilter() {
+    @Override
+    public boolean isTraced(String operationName, String mailbox) {
+      return true;
+    }
+  };
+
+  private TraceFilters() {
+  }
+
+  /**
+   * Gets a filter that traces every request.
+   *
+   * @return the filter
+   */
+  public static ITraceFilter all() {
+    return ALL;
+  }
+
+  /**
+   * Gets a filter that only traces requests targeting one of the given
+   * mailboxes. Mailboxes are compared case-insensitively.
+   *
+   * @param mailboxes the mailboxes (e.g. SMTP addresses) to trace
+   * @return the filter
+   */
+  public static ITraceFilter mailboxes(Collection<String> mailboxes) {
+    final Set<String> traced = new HashSet<String>();
+    for (String mailbox : mailboxes) {
+      traced.add(mailbox.toLowerCase(Locale.ROOT));
+    }
+    return new ITraceFilter() {
+      @Override
+      public boolean isTraced(String operationName, String mailbox) {
+        return mailbox != null && traced.contains(mailbox.toLowerCase(Locale.ROOT));
+      }
+    };
+  }
+
+  /**
+   * Gets a filter that only traces the given operations.
+   *
+   * @param operationNames the operation names, e.g. GetItem
+   * @return the filter
+   */
+  public static ITraceFilter operations(String... operationNames) {
+    final Set<String> traced = new HashSet<String>(Arrays.asList(operationNames));
+    return new ITraceFilter() {
+      @Override
+      public boolean isTraced(String operationName, String mailbox) {
+        return traced.contains(operationName);
+      }
+    };
+  }
+
+  /**
+   * Gets a filter that traces a random sample of the requests.
+   *
+   * @param rate the fraction of requests to trace, between 0 and 1
+   * @return the filter
+   */
+  public static ITraceFilter sampled(final double rate) {
+    if (rate < 0 || rate > 1) {
+      throw new IllegalArgumentException("Invalid sampling rate: " + rate);
+    }
+    return new ITraceFilter() {
+      @Override
+      public boolean isTraced(String operationName, String mailbox) {
+        return ThreadLocalRandom.current().nextDouble() < rate;
+      }
+    };
+  }
+
+  /**
+   * Gets a filter that traces a request only if all the given filters do.
+   *
+   * @param filters the filters
+   * @return the filter
+   */
+  public static ITraceFilter allOf(ITraceFilter... filters) {
+    final List<ITraceFilter> all = Arrays.asList(filters);
+    return new ITraceFilter() {
+      @Override
+      public boolean isTraced(String operationName, String mailbox) {
+        for (ITraceFilter filter : all) {
+          if (!filter.isTraced(operationName, mailbox)) {
+            return false;
+          }
+        }
+        return true;
+      }
+    };
+  }
+}
@@ -31,12 +31,14 @@ import microsoft.exchange.webservices.data.core.request.HangingRequestDisconnect
 import microsoft.exchange.webservices.data.core.request.HangingServiceRequestBase;
 import microsoft.exchange.webservices.data.core.response.GetStreamingEventsResponse;
 import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.misc.HangingRequestDisconnectReason;
 import microsoft.exchange.webservices.data.core.enumeration.misc.error.ServiceError;
 import microsoft.exchange.webservices.data.core.enumeration.service.ServiceResult;
 import microsoft.exchange.webservices.data.core.exception.misc.ArgumentException;
 import microsoft.exchange.webservices.data.core.exception.misc.ArgumentOutOfRangeException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
 import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceResponseException;
+import microsoft.exchange.webservices.data.misc.management.StreamingConnections;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
@@ -81,6 +83,21 @@ public final class StreamingSubscriptionConnection implements Closeable,
    */
   private GetStreamingEventsRequest currentHangingRequest;
 
+  /**
+   * Number of times this connection was opened.
+   */
+  private int openCount;
+
+  /**
+   * Time the last response or heartbeat was received, in milliseconds since the epoch.
+   */
+  private volatile long lastResponseTime;
+
+  /**
+   * Reason of the last disconnect.
+   */
+  private volatile HangingRequestDisconnectReason lastDisconnectReason;
+
 
   public interface INotificationEventDelegate {
     /**
@@ -319,6 +336,10 @@ public final class StreamingSubscriptionConnection implements Closeable,
       this.currentHangingRequest.addOnDisconnectEvent(this);
 
       this.currentHangingRequest.internalExecute();
+
+      this.openCount++;
+      this.lastResponseTime = System.currentTimeMillis();
+      StreamingConnections.getInstance().connectionOpened(this);
     }
   }
 
@@ -332,6 +353,8 @@ public final class StreamingSubscriptionConnection implements Closeable,
    */
   private void onRequestDisconnect(Object sender,
       HangingRequestDisconnectEventArgs args) {
+    this.lastDisconnectReason = args.getReason();
+    StreamingConnections.getInstance().connectionClosed(this, args.getReason());
     this.internalOnDisconnect(args.getException());
   }
 
@@ -387,6 +410,46 @@ public final class StreamingSubscriptionConnection implements Closeable,
 
   }
 
+  /**
+   * Gets the number of subscriptions on this connection.
+   *
+   * @return the number of subscriptions
+   */
+  public int getSubscriptionCount() {
+    synchronized (this) {
+      return this.subscriptions == null ? 0 : this.subscriptions.size();
+    }
+  }
+
+  /**
+   * Gets the time the last response or heartbeat was received from the server.
+   *
+   * @return the time in milliseconds since the epoch, or 0 if this connection was never opened
+   */
+  public long getLastResponseTime() {
+    return this.lastResponseTime;
+  }
+
+  /**
+   * Gets the number of times this connection was reopened after it disconnected.
+   *
+   * @return the number of reconnects
+   */
+  public int getReconnectCount() {
+    synchronized (this) {
+      return Math.max(this.openCount - 1, 0);
+    }
+  }
+
+  /**
+   * Gets the reason this connection last disconnected.
+   *
+   * @return the reason, or null if this connection never disconnected
+   */
+  public HangingRequestDisconnectReason getLastDisconnectReason() {
+    return this.lastDisconnectReason;
+  }
+
   /**
    * Validates the state of the connection.
    *
@@ -411,6 +474,7 @@ public final class StreamingSubscriptionConnection implements Closeable,
   private void handleServiceResponseObject(Object response)
       throws ArgumentException {
     GetStreamingEventsResponse gseResponse = (GetStreamingEventsResponse) response;
+    this.lastResponseTime = System.currentTimeMillis();
 
     if (gseResponse == null) {
       throw new ArgumentNullException("GetStreamingEventsResponse must not be null",
@@ -547,6 +611,7 @@ public final class StreamingSubscriptionConnection implements Closeable,
         this.session = null;
 
         this.isDisposed = true;
+        StreamingConnections.getInstance().connectionDisposed(this);
       }
     }
   }
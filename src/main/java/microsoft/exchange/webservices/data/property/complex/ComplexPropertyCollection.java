@@ -35,8 +35,11 @@ import microsoft.exchange.webservices.data.core.exception.service.local.ServiceL
 import microsoft.exchange.webservices.data.property.definition.PropertyDefinition;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Represents a collection of property that can be sent to and retrieved from
@@ -73,6 +76,18 @@ public abstract class ComplexPropertyCollection
   private final List<TComplexProperty> removedItems =
       new ArrayList<TComplexProperty>();
 
+  /**
+   * Identity indexes of the item, added item and removed item lists, so that
+   * membership checks do not scan the lists.
+   */
+  private final Set<TComplexProperty> itemSet = newIdentitySet();
+
+  private final Set<TComplexProperty> addedItemSet = newIdentitySet();
+
+  private final Set<TComplexProperty> modifiedItemSet = newIdentitySet();
+
+  private final Set<TComplexProperty> removedItemSet = newIdentitySet();
+
   /**
    * Creates the complex property.
    *
@@ -98,6 +113,80 @@ public abstract class ComplexPropertyCollection
     super();
   }
 
+  private static <T> Set<T> newIdentitySet() {
+    return Collections.newSetFromMap(new IdentityHashMap<T, Boolean>());
+  }
+
+  /**
+   * Determines whether the item of this collection override equals. Their
+   * membership is then decided by equality, which needs a scan of the lists,
+   * rather than by identity alone.
+   *
+   * @return true if the item are compared by value
+   */
+  protected boolean hasValueEquality() {
+    return false;
+  }
+
+  /**
+   * Determines whether a list contains a property, using its identity index
+   * when the item are not compared by value.
+   */
+  private boolean contains(List<TComplexProperty> list, Set<TComplexProperty> set,
+      TComplexProperty complexProperty) {
+    return set.contains(complexProperty) || (this.hasValueEquality() && list.contains(complexProperty));
+  }
+
+  /**
+   * Removes a property from a list and its identity index.
+   */
+  private boolean remove(List<TComplexProperty> list, Set<TComplexProperty> set,
+      TComplexProperty complexProperty) {
+    if (!this.hasValueEquality() && !set.contains(complexProperty)) {
+      return false;
+    }
+    if (this.hasValueEquality()) {
+      int index = list.indexOf(complexProperty);
+      if (index < 0) {
+        return false;
+      }
+      set.remove(list.remove(index));
+    } else {
+      set.remove(complexProperty);
+      removeIdentical(list, complexProperty);
+    }
+    return true;
+  }
+
+  /**
+   * Removes a property from a list by identity, searching from the end since
+   * recently added item are the most likely to be removed.
+   */
+  private static <T> void removeIdentical(List<T> list, T item) {
+    for (int i = list.size() - 1; i >= 0; i--) {
+      if (list.get(i) == item) {
+        list.remove(i);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Called after a property has been added to the collection.
+   *
+   * @param complexProperty The complex property.
+   */
+  protected void itemAdded(TComplexProperty complexProperty) {
+  }
+
+  /**
+   * Called after a property has been removed from the collection.
+   *
+   * @param complexProperty The complex property.
+   */
+  protected void itemRemoved(TComplexProperty complexProperty) {
+  }
+
   /**
    * Item changed.
    *
@@ -109,9 +198,10 @@ public abstract class ComplexPropertyCollection
       "The complexProperty argument must be not null"
     );
 
-    if (!this.addedItems.contains(property)) {
-      if (!this.modifiedItems.contains(property)) {
+    if (!this.contains(this.addedItems, this.addedItemSet, property)) {
+      if (!this.contains(this.modifiedItems, this.modifiedItemSet, property)) {
         this.modifiedItems.add(property);
+        this.modifiedItemSet.add(property);
         this.changed();
       }
     }
@@ -245,6 +335,9 @@ public abstract class ComplexPropertyCollection
     this.removedItems.clear();
     this.addedItems.clear();
     this.modifiedItems.clear();
+    this.removedItemSet.clear();
+    this.addedItemSet.clear();
+    this.modifiedItemSet.clear();
   }
 
   /**
@@ -253,9 +346,9 @@ public abstract class ComplexPropertyCollection
    * @param complexProperty The complex property.
    */
   protected void removeFromChangeLog(TComplexProperty complexProperty) {
-    this.removedItems.remove(complexProperty);
-    this.modifiedItems.remove(complexProperty);
-    this.addedItems.remove(complexProperty);
+    this.remove(this.removedItems, this.removedItemSet, complexProperty);
+    this.remove(this.modifiedItems, this.modifiedItemSet, complexProperty);
+    this.remove(this.addedItems, this.addedItemSet, complexProperty);
   }
 
   /**
@@ -314,13 +407,16 @@ public abstract class ComplexPropertyCollection
     EwsUtilities.ewsAssert(complexProperty != null, "ComplexPropertyCollection.InternalAdd",
                            "complexProperty is null");
 
-    if (!this.items.contains(complexProperty)) {
+    if (!this.contains(this.items, this.itemSet, complexProperty)) {
       this.items.add(complexProperty);
+      this.itemSet.add(complexProperty);
       if (!loading) {
-        this.removedItems.remove(complexProperty);
+        this.remove(this.removedItems, this.removedItemSet, complexProperty);
         this.addedItems.add(complexProperty);
+        this.addedItemSet.add(complexProperty);
       }
       complexProperty.addOnChangeEvent(this);
+      this.itemAdded(complexProperty);
       this.changed();
     }
   }
@@ -367,14 +463,14 @@ public abstract class ComplexPropertyCollection
     EwsUtilities.ewsAssert(complexProperty != null, "ComplexPropertyCollection.InternalRemove",
                            "complexProperty is null");
 
-    if (this.items.remove(complexProperty)) {
+    if (this.remove(this.items, this.itemSet, complexProperty)) {
       complexProperty.removeChangeEvent(this);
-      if (!this.addedItems.contains(complexProperty)) {
+      if (!this.remove(this.addedItems, this.addedItemSet, complexProperty)) {
         this.removedItems.add(complexProperty);
-      } else {
-        this.addedItems.remove(complexProperty);
+        this.removedItemSet.add(complexProperty);
       }
-      this.modifiedItems.remove(complexProperty);
+      this.remove(this.modifiedItems, this.modifiedItemSet, complexProperty);
+      this.itemRemoved(complexProperty);
       this.changed();
       return true;
     } else {
@@ -390,7 +486,7 @@ public abstract class ComplexPropertyCollection
    * otherwise.
    */
   public boolean contains(TComplexProperty complexProperty) {
-    return this.items.contains(complexProperty);
+    return this.contains(this.items, this.itemSet, complexProperty);
   }
 
   /**
@@ -401,6 +497,9 @@ public abstract class ComplexPropertyCollection
    * @return The zero-based index of the property within the collection.
    */
   public int indexOf(TComplexProperty complexProperty) {
+    if (!this.contains(complexProperty)) {
+      return -1;
+    }
     return this.items.indexOf(complexProperty);
   }
 
@@ -0,0 +1,143 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.property.complex;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.PropertySet;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.service.item.Item;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a node of a conversation returned by GetConversationItems: a
+ * message of the thread and the items that hold it.
+ */
+public final class ConversationNode extends ComplexProperty {
+
+  /**
+   * The property set the items are loaded with.
+   */
+  private final PropertySet propertySet;
+
+  /**
+   * The internet message id.
+   */
+  private String internetMessageId;
+
+  /**
+   * The internet message id of the parent node.
+   */
+  private String parentInternetMessageId;
+
+  /**
+   * The items.
+   */
+  private final List<Item> items = new ArrayList<Item>();
+
+  /**
+   * Initializes a new instance of the class.
+   *
+   * @param propertySet the property set the items were requested with
+   */
+  public ConversationNode(PropertySet propertySet) {
+    super();
+    this.propertySet = propertySet;
+  }
+
+  /**
+   * Gets the internet message id of the node.
+   *
+   * @return the internet message id
+   */
+  public String getInternetMessageId() {
+    return this.internetMessageId;
+  }
+
+  /**
+   * Gets the internet message id of the parent node.
+   *
+   * @return the parent internet message id, or null for the root
+   */
+  public String getParentInternetMessageId() {
+    return this.parentInternetMessageId;
+  }
+
+  /**
+   * Gets the items of the node.
+   *
+   * @return the items
+   */
+  public List<Item> getItems() {
+    return Collections.unmodifiableList(this.items);
+  }
+
+  /**
+   * Tries to read element from XML.
+   *
+   * @param reader the reader
+   * @return true if element was read
+   * @throws Exception the exception
+   */
+  @Override
+  public boolean tryReadElementFromXml(EwsServiceXmlReader reader) throws Exception {
+    if (reader.getLocalName().equals(XmlElementNames.InternetMessageId)) {
+      this.internetMessageId = reader.readElementValue();
+      return true;
+    } else if (reader.getLocalName().equals(XmlElementNames.ParentInternetMessageId)) {
+      this.parentInternetMessageId = reader.readElementValue();
+      return true;
+    } else if (reader.getLocalName().equals(XmlElementNames.Items)) {
+      this.readItemsFromXml(reader);
+      return true;
+    } else {
+      return false;
+    }
+  }
+
+  private void readItemsFromXml(EwsServiceXmlReader reader) throws Exception {
+    if (reader.isEmptyElement()) {
+      reader.read();
+      return;
+    }
+    do {
+      reader.read();
+      if (reader.isStartElement()) {
+        Item item = EwsUtilities.createEwsObjectFromXmlElementName(
+            Item.class, reader.getService(), reader.getLocalName());
+        if (item == null) {
+          reader.skipCurrentElement();
+        } else {
+          item.loadFromXml(reader, true /* clearPropertyBag */,
+              this.propertySet, false /* summaryPropertiesOnly */);
+          this.items.add(item);
+        }
+      }
+    } while (!reader.isEndElement(XmlNamespace.Types, XmlElementNames.Items));
+  }
+}
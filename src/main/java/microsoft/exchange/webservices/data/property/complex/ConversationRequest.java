@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.property.complex;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+
+/**
+ * Represents a conversation whose items are requested with
+ * GetConversationItems.
+ */
+public final class ConversationRequest extends ComplexProperty {
+
+  /**
+   * The conversation id.
+   */
+  private final ConversationId conversationId;
+
+  /**
+   * The sync state.
+   */
+  private final String syncState;
+
+  /**
+   * Initializes a new instance of the class for all items of the
+   * conversation.
+   *
+   * @param conversationId the conversation id
+   * @throws Exception the exception
+   */
+  public ConversationRequest(ConversationId conversationId) throws Exception {
+    this(conversationId, null);
+  }
+
+  /**
+   * Initializes a new instance of the class for the items of the
+   * conversation that changed since a previous call.
+   *
+   * @param conversationId the conversation id
+   * @param syncState      the sync state returned by the previous call, or
+   *                       null for all items
+   * @throws Exception the exception
+   */
+  public ConversationRequest(ConversationId conversationId, String syncState) throws Exception {
+    super();
+    EwsUtilities.validateParam(conversationId, "conversationId");
+    this.conversationId = conversationId;
+    this.syncState = syncState;
+  }
+
+  /**
+   * Gets the conversation id.
+   *
+   * @return the conversation id
+   */
+  public ConversationId getConversationId() {
+    return this.conversationId;
+  }
+
+  /**
+   * Gets the sync state.
+   *
+   * @return the sync state, or null
+   */
+  public String getSyncState() {
+    return this.syncState;
+  }
+
+  /**
+   * Writes elements to XML.
+   *
+   * @param writer the writer
+   * @throws Exception the exception
+   */
+  @Override
+  public void writeElementsToXml(EwsServiceXmlWriter writer) throws Exception {
+    this.conversationId.writeToXml(writer, XmlNamespace.Types, XmlElementNames.ConversationId);
+    if (this.syncState != null) {
+      writer.writeElementValue(XmlNamespace.Types, XmlElementNames.SyncState, this.syncState);
+    }
+  }
+}
@@ -146,20 +146,24 @@ public class EmailAddress extends ComplexProperty implements ISearchStringProvid
   }
 
   /**
-   * Initializes a new instance from another EmailAddress instance.
+   * Initializes a new instance from another EmailAddress instance. The id,
+   * if any, is copied as well.
    *
    * @param mailbox EMailAddress instance to copy.
    * @throws Exception the exception
    */
-  protected EmailAddress(EmailAddress mailbox) throws Exception {
+  public EmailAddress(EmailAddress mailbox) throws Exception {
     this();
     EwsUtilities.validateParam(mailbox, "mailbox");
     this.name = mailbox.getName();
     this.address = mailbox.getAddress();
     this.routingType = mailbox.getRoutingType();
     this.mailboxType = mailbox.getMailboxType();
-    this.setId(mailbox.getId());
-
+    if (mailbox.getId() != null) {
+      ItemId id = new ItemId();
+      id.assign(mailbox.getId());
+      this.setId(id);
+    }
   }
 
   /**
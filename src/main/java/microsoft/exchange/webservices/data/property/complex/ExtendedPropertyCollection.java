@@ -41,7 +41,9 @@ import microsoft.exchange.webservices.data.property.definition.PropertyDefinitio
 import javax.xml.stream.XMLStreamException;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Represents a collection of extended property.
@@ -50,6 +52,54 @@ import java.util.List;
 public final class ExtendedPropertyCollection extends ComplexPropertyCollection<ExtendedProperty> implements
                                                                                                   ICustomXmlUpdateSerializer {
 
+  /**
+   * The property of the collection, by definition.
+   */
+  private final Map<ExtendedPropertyDefinition, ExtendedProperty> propertiesByDefinition =
+      new HashMap<ExtendedPropertyDefinition, ExtendedProperty>();
+
+  /**
+   * Extended property are compared by definition and value.
+   *
+   * @return true
+   */
+  @Override
+  protected boolean hasValueEquality() {
+    return true;
+  }
+
+  /**
+   * Indexes an added property by its definition.
+   *
+   * @param complexProperty The complex property.
+   */
+  @Override
+  protected void itemAdded(ExtendedProperty complexProperty) {
+    if (!this.propertiesByDefinition.containsKey(complexProperty.getPropertyDefinition())) {
+      this.propertiesByDefinition.put(complexProperty.getPropertyDefinition(), complexProperty);
+    }
+  }
+
+  /**
+   * Removes a removed property from the definition index, falling back to
+   * another property with the same definition if there is one.
+   *
+   * @param complexProperty The complex property.
+   */
+  @Override
+  protected void itemRemoved(ExtendedProperty complexProperty) {
+    ExtendedPropertyDefinition definition = complexProperty.getPropertyDefinition();
+    if (this.propertiesByDefinition.get(definition) == complexProperty) {
+      this.propertiesByDefinition.remove(definition);
+      for (ExtendedProperty prop : this.getItems()) {
+        if (prop.getPropertyDefinition().equals(definition)) {
+          this.propertiesByDefinition.put(definition, prop);
+          break;
+        }
+      }
+    }
+  }
+
   /**
    * Creates the complex property.
    *
@@ -170,16 +220,9 @@ public final class ExtendedPropertyCollection extends ComplexPropertyCollection<
   private boolean tryGetProperty(
       ExtendedPropertyDefinition propertyDefinition,
       OutParam<ExtendedProperty> extendedPropertyOut) {
-    boolean found = false;
-    extendedPropertyOut.setParam(null);
-    for (ExtendedProperty prop : this.getItems()) {
-      if (prop.getPropertyDefinition().equals(propertyDefinition)) {
-        found = true;
-        extendedPropertyOut.setParam(prop);
-        break;
-      }
-    }
-    return found;
+    ExtendedProperty prop = this.propertiesByDefinition.get(propertyDefinition);
+    extendedPropertyOut.setParam(prop);
+    return prop != null;
   }
 
   /**
@@ -82,6 +82,16 @@ public final class FolderIdCollection extends ComplexPropertyCollection<FolderId
     return complexProperty.getXmlElementName();
   }
 
+  /**
+   * Ids are compared by value.
+   *
+   * @return true
+   */
+  @Override
+  protected boolean hasValueEquality() {
+    return true;
+  }
+
   /**
    * Adds a well-known folder to the collection.
    *
@@ -55,4 +55,14 @@ public final class ItemIdCollection extends ComplexPropertyCollection<ItemId> {
   protected String getCollectionItemXmlElementName(ItemId complexProperty) {
     return complexProperty.getXmlElementName();
   }
+
+  /**
+   * Ids are compared by value.
+   *
+   * @return true
+   */
+  @Override
+  protected boolean hasValueEquality() {
+    return true;
+  }
 }
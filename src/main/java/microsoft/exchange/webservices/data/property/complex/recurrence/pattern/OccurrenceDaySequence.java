@@ -0,0 +1,475 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.property.complex.recurrence.pattern;
+
+import microsoft.exchange.webservices.data.core.enumeration.property.time.DayOfTheWeek;
+import microsoft.exchange.webservices.data.core.enumeration.property.time.DayOfTheWeekIndex;
+
+/**
+ * Produces the calendar days on which a recurrence pattern has occurrences, in
+ * ascending order. Days are counted from 1970-01-01 so that expansion needs no
+ * per-occurrence allocation.
+ */
+abstract class OccurrenceDaySequence {
+
+  /**
+   * Milliseconds in a day.
+   */
+  static final long MILLIS_PER_DAY = 86400000L;
+
+  /**
+   * Number of days returned by next() or passed over by skipTo() so far.
+   */
+  int count;
+
+  /**
+   * Returns the next day of the sequence.
+   *
+   * @return the day, counted from 1970-01-01
+   */
+  abstract int next();
+
+  /**
+   * Moves forward without producing days before the given one, keeping
+   * {@link #count} accurate. Implementations may stop short of the day.
+   *
+   * @param day the day, counted from 1970-01-01
+   */
+  abstract void skipTo(int day);
+
+  /**
+   * Gets the day containing the given local time.
+   *
+   * @param localMillis milliseconds since 1970-01-01T00:00 local time
+   * @return the day
+   */
+  static int dayOf(long localMillis) {
+    long day = localMillis / MILLIS_PER_DAY;
+    if (localMillis % MILLIS_PER_DAY < 0) {
+      day--;
+    }
+    return (int) day;
+  }
+
+  /**
+   * Gets the day for a date of the proleptic Gregorian calendar.
+   *
+   * @param year  the year
+   * @param month the month, 1 to 12
+   * @param day   the day of month, 1 to 31
+   * @return the day, counted from 1970-01-01
+   */
+  static int toDay(int year, int month, int day) {
+    int y = month <= 2 ? year - 1 : year;
+    int era = (y >= 0 ? y : y - 399) / 400;
+    int yearOfEra = y - era * 400;
+    int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+    int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+    return era * 146097 + dayOfEra - 719468;
+  }
+
+  /**
+   * Gets the date of a day as year * 10000 + month * 100 + day of month.
+   *
+   * @param day the day, counted from 1970-01-01
+   * @return the packed date
+   */
+  static int toDate(int day) {
+    int z = day + 719468;
+    int era = (z >= 0 ? z : z - 146096) / 146097;
+    int dayOfEra = z - era * 146097;
+    int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+    int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+    int mp = (5 * dayOfYear + 2) / 153;
+    int dayOfMonth = dayOfYear - (153 * mp + 2) / 5 + 1;
+    int month = mp < 10 ? mp + 3 : mp - 9;
+    int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+    return year * 10000 + month * 100 + dayOfMonth;
+  }
+
+  /**
+   * Gets the day of the week, 0 for Sunday to 6 for Saturday.
+   *
+   * @param day the day, counted from 1970-01-01
+   * @return the day of the week
+   */
+  static int dayOfWeek(int day) {
+    int dow = (day + 4) % 7;
+    return dow < 0 ? dow + 7 : dow;
+  }
+
+  /**
+   * Gets the number of days in a month.
+   *
+   * @param year  the year
+   * @param month the month, 1 to 12
+   * @return the number of days
+   */
+  static int daysInMonth(int year, int month) {
+    if (month == 2) {
+      boolean leap = (year % 4 == 0) && (year % 100 != 0 || year % 400 == 0);
+      return leap ? 29 : 28;
+    }
+    return (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+  }
+
+  /**
+   * Gets the days of the week matched by a DayOfTheWeek, as a bit mask with
+   * bit 0 for Sunday.
+   *
+   * @param dayOfTheWeek the day of the week
+   * @return the mask
+   */
+  static int dayMask(DayOfTheWeek dayOfTheWeek) {
+    switch (dayOfTheWeek) {
+      case Day:
+        return 0x7f;
+      case Weekday:
+        return 0x3e;
+      case WeekendDay:
+        return 0x41;
+      default:
+        return 1 << dayOfTheWeek.ordinal();
+    }
+  }
+
+  /**
+   * Gets the day picked by a relative pattern within a month, for example
+   * the last weekday or the second Tuesday.
+   *
+   * @param year         the year
+   * @param month        the month, 1 to 12
+   * @param dayOfTheWeek the day of the week
+   * @param index        which of the matching days to pick
+   * @return the day, counted from 1970-01-01
+   */
+  static int relativeDay(int year, int month, DayOfTheWeek dayOfTheWeek,
+      DayOfTheWeekIndex index) {
+    int mask = dayMask(dayOfTheWeek);
+    int first = toDay(year, month, 1);
+    int last = first + daysInMonth(year, month) - 1;
+    if (index == DayOfTheWeekIndex.Last) {
+      for (int day = last; ; day--) {
+        if ((mask & (1 << dayOfWeek(day))) != 0) {
+          return day;
+        }
+      }
+    }
+    int remaining = index.ordinal();
+    for (int day = first; ; day++) {
+      if ((mask & (1 << dayOfWeek(day))) != 0 && remaining-- == 0) {
+        return day;
+      }
+    }
+  }
+
+
+  /**
+   * A sequence with at most one day per period, where only the first period
+   * can fall before the start of the recurrence.
+   */
+  abstract static class Periodic extends OccurrenceDaySequence {
+
+    /**
+     * The first day of the recurrence.
+     */
+    final int startDay;
+
+    /**
+     * The next period to produce.
+     */
+    private long period;
+
+    /**
+     * Initializes a new instance.
+     *
+     * @param startDay the first day of the recurrence
+     */
+    Periodic(int startDay) {
+      this.startDay = startDay;
+    }
+
+    /**
+     * Gets the day of a period.
+     *
+     * @param period the period, 0 being the one containing the start day
+     * @return the day
+     */
+    abstract int dayOfPeriod(long period);
+
+    /**
+     * Gets a period whose day is not after the given day.
+     *
+     * @param day the day
+     * @return the period, possibly negative
+     */
+    abstract long periodNotAfter(int day);
+
+    @Override
+    int next() {
+      while (true) {
+        int day = this.dayOfPeriod(this.period++);
+        if (day >= this.startDay) {
+          this.count++;
+          return day;
+        }
+      }
+    }
+
+    @Override
+    void skipTo(int day) {
+      long target = this.periodNotAfter(day);
+      if (target > this.period) {
+        long skipped = target - this.period;
+        if (this.period == 0 && this.dayOfPeriod(0) < this.startDay) {
+          skipped--;
+        }
+        this.count += (int) skipped;
+        this.period = target;
+      }
+    }
+  }
+
+
+  /**
+   * Every interval days.
+   */
+  static final class Daily extends Periodic {
+
+    private final int interval;
+
+    Daily(int startDay, int interval) {
+      super(startDay);
+      this.interval = interval;
+    }
+
+    @Override
+    int dayOfPeriod(long period) {
+      return (int) (this.startDay + period * this.interval);
+    }
+
+    @Override
+    long periodNotAfter(int day) {
+      return (day - this.startDay) / this.interval;
+    }
+  }
+
+
+  /**
+   * Every interval months, on a day picked by {@link #dayOfMonth(int, int)}.
+   */
+  abstract static class Monthly extends Periodic {
+
+    private final int startMonth;
+
+    private final int interval;
+
+    Monthly(int startDay, int interval) {
+      super(startDay);
+      int date = toDate(startDay);
+      this.startMonth = (date / 10000) * 12 + (date / 100 % 100) - 1;
+      this.interval = interval;
+    }
+
+    /**
+     * Gets the day picked within a month.
+     *
+     * @param year  the year
+     * @param month the month, 1 to 12
+     * @return the day, counted from 1970-01-01
+     */
+    abstract int dayOfMonth(int year, int month);
+
+    @Override
+    int dayOfPeriod(long period) {
+      int month = (int) (this.startMonth + period * this.interval);
+      return this.dayOfMonth(month / 12, month % 12 + 1);
+    }
+
+    @Override
+    long periodNotAfter(int day) {
+      int date = toDate(day);
+      int month = (date / 10000) * 12 + (date / 100 % 100) - 1;
+      return (month - this.startMonth) / this.interval - 1;
+    }
+  }
+
+
+  /**
+   * On a fixed day of the month, or the last day of shorter months.
+   */
+  static final class AbsoluteMonthly extends Monthly {
+
+    private final int dayOfMonth;
+
+    AbsoluteMonthly(int startDay, int interval, int dayOfMonth) {
+      super(startDay, interval);
+      this.dayOfMonth = dayOfMonth;
+    }
+
+    @Override
+    int dayOfMonth(int year, int month) {
+      return toDay(year, month, Math.min(this.dayOfMonth, daysInMonth(year, month)));
+    }
+  }
+
+
+  /**
+   * On a relative day of the month, such as the last Friday.
+   */
+  static final class RelativeMonthly extends Monthly {
+
+    private final DayOfTheWeek dayOfTheWeek;
+
+    private final DayOfTheWeekIndex index;
+
+    RelativeMonthly(int startDay, int interval, DayOfTheWeek dayOfTheWeek,
+        DayOfTheWeekIndex index) {
+      super(startDay, interval);
+      this.dayOfTheWeek = dayOfTheWeek;
+      this.index = index;
+    }
+
+    @Override
+    int dayOfMonth(int year, int month) {
+      return relativeDay(year, month, this.dayOfTheWeek, this.index);
+    }
+  }
+
+
+  /**
+   * Once a year in a fixed month, on a day picked by a monthly sequence.
+   */
+  static final class Yearly extends Periodic {
+
+    private final int startYear;
+
+    private final int month;
+
+    private final Monthly monthly;
+
+    Yearly(int startDay, int month, Monthly monthly) {
+      super(startDay);
+      this.startYear = toDate(startDay) / 10000;
+      this.month = month;
+      this.monthly = monthly;
+    }
+
+    @Override
+    int dayOfPeriod(long period) {
+      return this.monthly.dayOfMonth((int) (this.startYear + period), this.month);
+    }
+
+    @Override
+    long periodNotAfter(int day) {
+      return toDate(day) / 10000 - this.startYear - 1;
+    }
+  }
+
+
+  /**
+   * On a set of days of the week, every interval weeks.
+   */
+  static final class Weekly extends OccurrenceDaySequence {
+
+    private final int startDay;
+
+    /**
+     * The first day of the week containing the start day.
+     */
+    private final int firstWeekStart;
+
+    private final int interval;
+
+    /**
+     * Offsets of the selected days from the first day of the week.
+     */
+    private final int[] offsets;
+
+    /**
+     * Number of selected days in the first week that are not before the
+     * start day.
+     */
+    private final int firstWeekCount;
+
+    private long week;
+
+    private int position;
+
+    Weekly(int startDay, int interval, int dayMask, int firstDayOfWeek) {
+      this.startDay = startDay;
+      this.interval = interval;
+      this.firstWeekStart = startDay - (dayOfWeek(startDay) - firstDayOfWeek + 7) % 7;
+
+      int selected = 0;
+      int[] allOffsets = new int[7];
+      for (int offset = 0; offset < 7; offset++) {
+        if ((dayMask & (1 << ((firstDayOfWeek + offset) % 7))) != 0) {
+          allOffsets[selected++] = offset;
+        }
+      }
+      this.offsets = new int[selected];
+      System.arraycopy(allOffsets, 0, this.offsets, 0, selected);
+
+      int inFirstWeek = 0;
+      for (int offset : this.offsets) {
+        if (this.firstWeekStart + offset >= startDay) {
+          inFirstWeek++;
+        }
+      }
+      this.firstWeekCount = inFirstWeek;
+    }
+
+    @Override
+    int next() {
+      while (true) {
+        if (this.position == this.offsets.length) {
+          this.position = 0;
+          this.week++;
+        }
+        int day = (int) (this.firstWeekStart + this.week * this.interval * 7)
+            + this.offsets[this.position++];
+        if (day >= this.startDay) {
+          this.count++;
+          return day;
+        }
+      }
+    }
+
+    @Override
+    void skipTo(int day) {
+      long target = (day - this.firstWeekStart) / (7L * this.interval);
+      if (target > this.week) {
+        if (this.week == 0 && this.position == 0) {
+          this.count += this.firstWeekCount + (int) ((target - 1) * this.offsets.length);
+        } else {
+          this.count += (this.offsets.length - this.position)
+              + (int) ((target - this.week - 1) * this.offsets.length);
+        }
+        this.week = target;
+        this.position = 0;
+      }
+    }
+  }
+}
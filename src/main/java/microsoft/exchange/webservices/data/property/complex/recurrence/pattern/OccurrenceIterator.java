@@ -0,0 +1,327 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.property.complex.recurrence.pattern;
+
+import microsoft.exchange.webservices.data.property.complex.DeletedOccurrenceInfo;
+import microsoft.exchange.webservices.data.property.complex.DeletedOccurrenceInfoCollection;
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+import microsoft.exchange.webservices.data.property.complex.OccurrenceInfo;
+import microsoft.exchange.webservices.data.property.complex.OccurrenceInfoCollection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Lazily walks the occurrences of a recurring series that overlap a date
+ * range, in the order a CalendarView returns them.
+ * <p>
+ * Occurrences happen at the wall clock time of the first occurrence in the
+ * series' time zone, so their UTC times follow daylight saving changes.
+ * Deleted occurrences are skipped and modified occurrences are reported at
+ * their new times. The iterator is a cursor: call {@link #next()} and read the
+ * current occurrence through the getters, which do not allocate.
+ */
+public final class OccurrenceIterator {
+
+  /**
+   * Orders modified occurrences by start.
+   */
+  private static final Comparator<OccurrenceInfo> START_ORDER = new Comparator<OccurrenceInfo>() {
+    @Override
+    public int compare(OccurrenceInfo first, OccurrenceInfo second) {
+      return first.getStart().compareTo(second.getStart());
+    }
+  };
+
+  private static final long[] NO_STARTS = new long[0];
+
+  /**
+   * The days of the pattern.
+   */
+  private final OccurrenceDaySequence days;
+
+  /**
+   * The time zone of the series.
+   */
+  private final TimeZone timeZone;
+
+  /**
+   * The local time of day at which occurrences start.
+   */
+  private final long timeOfDay;
+
+  /**
+   * The length of an occurrence.
+   */
+  private final long duration;
+
+  private final long rangeStart;
+
+  private final long rangeEnd;
+
+  /**
+   * The last day of the series.
+   */
+  private final int lastDay;
+
+  /**
+   * The number of occurrences in the series.
+   */
+  private final int maxCount;
+
+  /**
+   * Sorted original starts of occurrences that are deleted or modified.
+   */
+  private final long[] excludedStarts;
+
+  /**
+   * Modified occurrences overlapping the range, sorted by start.
+   */
+  private final OccurrenceInfo[] modified;
+
+  private int modifiedIndex;
+
+  private boolean patternDone;
+
+  private boolean hasPending;
+
+  private long pendingStart;
+
+  private long start;
+
+  private long end;
+
+  private long originalStart;
+
+  private ItemId itemId;
+
+  private boolean isModified;
+
+  /**
+   * Initializes a new instance.
+   *
+   * @param days          the days of the pattern
+   * @param lastDay       the last day of the series
+   * @param maxCount      the number of occurrences in the series
+   * @param seriesStart   the start of the first occurrence
+   * @param seriesEnd     the end of the first occurrence
+   * @param timeZone      the time zone of the series
+   * @param rangeStart    the start of the range
+   * @param rangeEnd      the end of the range
+   * @param modified      the modified occurrences, or null
+   * @param deleted       the deleted occurrences, or null
+   */
+  OccurrenceIterator(OccurrenceDaySequence days, int lastDay, int maxCount,
+      Date seriesStart, Date seriesEnd, TimeZone timeZone, Date rangeStart, Date rangeEnd,
+      OccurrenceInfoCollection modified, DeletedOccurrenceInfoCollection deleted) {
+    this.days = days;
+    this.lastDay = lastDay;
+    this.maxCount = maxCount;
+    this.timeZone = timeZone;
+    this.duration = seriesEnd.getTime() - seriesStart.getTime();
+    long localStart = seriesStart.getTime() + timeZone.getOffset(seriesStart.getTime());
+    this.timeOfDay = localStart - OccurrenceDaySequence.dayOf(localStart) * OccurrenceDaySequence.MILLIS_PER_DAY;
+    this.rangeStart = rangeStart.getTime();
+    this.rangeEnd = rangeEnd.getTime();
+
+    int excludedCount = 0;
+    long[] excluded = NO_STARTS;
+    List<OccurrenceInfo> inRange = new ArrayList<OccurrenceInfo>();
+    if (modified != null || deleted != null) {
+      excluded = new long[(modified != null ? modified.getCount() : 0)
+          + (deleted != null ? deleted.getCount() : 0)];
+      if (modified != null) {
+        for (OccurrenceInfo occurrence : modified) {
+          excluded[excludedCount++] = occurrence.getOriginalStart().getTime();
+          if (this.overlaps(occurrence.getStart().getTime(), occurrence.getEnd().getTime())) {
+            inRange.add(occurrence);
+          }
+        }
+      }
+      if (deleted != null) {
+        for (DeletedOccurrenceInfo occurrence : deleted) {
+          excluded[excludedCount++] = occurrence.getOriginalStart().getTime();
+        }
+      }
+      Arrays.sort(excluded);
+    }
+    Collections.sort(inRange, START_ORDER);
+    this.excludedStarts = excluded;
+    this.modified = inRange.toArray(new OccurrenceInfo[inRange.size()]);
+
+    // Occurrences ending before the range can be passed over by whole
+    // periods; allow a day either way for the time zone offset.
+    long localRangeStart = this.rangeStart - this.duration + timeZone.getOffset(this.rangeStart);
+    this.days.skipTo(OccurrenceDaySequence.dayOf(localRangeStart) - 1);
+  }
+
+  /**
+   * Moves to the next occurrence.
+   *
+   * @return true if there is one, false if the range holds no more
+   */
+  public boolean next() {
+    if (!this.hasPending && !this.patternDone) {
+      this.advancePattern();
+    }
+
+    boolean hasModified = this.modifiedIndex < this.modified.length;
+    if (this.hasPending && (!hasModified
+        || this.pendingStart <= this.modified[this.modifiedIndex].getStart().getTime())) {
+      this.hasPending = false;
+      this.start = this.pendingStart;
+      this.end = this.pendingStart + this.duration;
+      this.originalStart = this.pendingStart;
+      this.itemId = null;
+      this.isModified = false;
+      return true;
+    } else if (hasModified) {
+      OccurrenceInfo occurrence = this.modified[this.modifiedIndex++];
+      this.start = occurrence.getStart().getTime();
+      this.end = occurrence.getEnd().getTime();
+      this.originalStart = occurrence.getOriginalStart().getTime();
+      this.itemId = occurrence.getItemId();
+      this.isModified = true;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Finds the next unmodified occurrence of the pattern in the range.
+   */
+  private void advancePattern() {
+    while (true) {
+      int day = this.days.next();
+      if (day > this.lastDay || this.days.count > this.maxCount) {
+        this.patternDone = true;
+        return;
+      }
+
+      long occurrenceStart = this.toUtc(day * OccurrenceDaySequence.MILLIS_PER_DAY + this.timeOfDay);
+      if (occurrenceStart >= this.rangeEnd) {
+        this.patternDone = true;
+        return;
+      }
+      if (this.overlaps(occurrenceStart, occurrenceStart + this.duration)
+          && Arrays.binarySearch(this.excludedStarts, occurrenceStart) < 0) {
+        this.hasPending = true;
+        this.pendingStart = occurrenceStart;
+        return;
+      }
+    }
+  }
+
+  /**
+   * Checks whether an occurrence overlaps the range. Occurrences without
+   * duration are included when they start within the range.
+   */
+  private boolean overlaps(long occurrenceStart, long occurrenceEnd) {
+    if (occurrenceStart >= this.rangeEnd) {
+      return false;
+    }
+    return occurrenceEnd > this.rangeStart
+        || (occurrenceEnd == occurrenceStart && occurrenceStart >= this.rangeStart);
+  }
+
+  /**
+   * Converts a local time in the series' time zone to UTC. Times skipped by a
+   * daylight saving change are moved forward by the change.
+   */
+  private long toUtc(long localMillis) {
+    int offset = this.timeZone.getOffset(localMillis);
+    long utc = localMillis - offset;
+    int actualOffset = this.timeZone.getOffset(utc);
+    return actualOffset == offset ? utc : localMillis - actualOffset;
+  }
+
+  /**
+   * Gets the start of the current occurrence.
+   *
+   * @return milliseconds since the epoch
+   */
+  public long getStartMillis() {
+    return this.start;
+  }
+
+  /**
+   * Gets the end of the current occurrence.
+   *
+   * @return milliseconds since the epoch
+   */
+  public long getEndMillis() {
+    return this.end;
+  }
+
+  /**
+   * Gets the start the current occurrence has in the pattern, which differs
+   * from its start if it was moved.
+   *
+   * @return milliseconds since the epoch
+   */
+  public long getOriginalStartMillis() {
+    return this.originalStart;
+  }
+
+  /**
+   * Gets the start of the current occurrence.
+   *
+   * @return the start
+   */
+  public Date getStart() {
+    return new Date(this.start);
+  }
+
+  /**
+   * Gets the end of the current occurrence.
+   *
+   * @return the end
+   */
+  public Date getEnd() {
+    return new Date(this.end);
+  }
+
+  /**
+   * Gets the id of the current occurrence if it is modified.
+   *
+   * @return the item id, or null for an unmodified occurrence
+   */
+  public ItemId getItemId() {
+    return this.itemId;
+  }
+
+  /**
+   * Gets a value indicating whether the current occurrence is modified.
+   *
+   * @return true if the occurrence is an exception to the pattern
+   */
+  public boolean isModified() {
+    return this.isModified;
+  }
+}
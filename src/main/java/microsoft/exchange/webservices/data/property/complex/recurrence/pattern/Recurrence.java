@@ -36,10 +36,13 @@ import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion
 import microsoft.exchange.webservices.data.core.enumeration.property.time.Month;
 import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
 import microsoft.exchange.webservices.data.core.exception.misc.ArgumentException;
+import microsoft.exchange.webservices.data.core.exception.misc.ArgumentNullException;
 import microsoft.exchange.webservices.data.core.exception.misc.ArgumentOutOfRangeException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceValidationException;
 import microsoft.exchange.webservices.data.property.complex.ComplexProperty;
+import microsoft.exchange.webservices.data.property.complex.DeletedOccurrenceInfoCollection;
 import microsoft.exchange.webservices.data.property.complex.IComplexPropertyChangedDelegate;
+import microsoft.exchange.webservices.data.property.complex.OccurrenceInfoCollection;
 import microsoft.exchange.webservices.data.property.complex.recurrence.DayOfTheWeekCollection;
 import microsoft.exchange.webservices.data.property.complex.recurrence.range.EndDateRecurrenceRange;
 import microsoft.exchange.webservices.data.property.complex.recurrence.range.NoEndRecurrenceRange;
@@ -51,6 +54,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.TimeZone;
 
 /**
  * Represents a recurrence pattern, as used by Appointment and Task item.
@@ -283,6 +287,92 @@ public abstract class Recurrence extends ComplexProperty {
 
   }
 
+  /**
+   * Expands the occurrences of this recurrence that overlap a date range,
+   * without applying exceptions.
+   *
+   * @param seriesStart the start of the first occurrence
+   * @param seriesEnd   the end of the first occurrence
+   * @param timeZone    the time zone the series is defined in
+   * @param rangeStart  the start of the range
+   * @param rangeEnd    the end of the range
+   * @return an iterator over the occurrences
+   * @throws ServiceValidationException if the pattern is incomplete or can't be
+   *                                    expanded locally
+   * @see #expand(Date, Date, TimeZone, Date, Date, OccurrenceInfoCollection, DeletedOccurrenceInfoCollection)
+   */
+  public OccurrenceIterator expand(Date seriesStart, Date seriesEnd, TimeZone timeZone,
+      Date rangeStart, Date rangeEnd) throws ServiceValidationException {
+    return this.expand(seriesStart, seriesEnd, timeZone, rangeStart, rangeEnd, null, null);
+  }
+
+  /**
+   * Expands the occurrences of this recurrence that overlap a date range, as
+   * a CalendarView would return them. Deleted occurrences are left out and
+   * modified occurrences are returned at their new times, including those
+   * moved into the range.
+   *
+   * @param seriesStart         the start of the first occurrence
+   * @param seriesEnd           the end of the first occurrence
+   * @param timeZone            the time zone the series is defined in
+   * @param rangeStart          the start of the range
+   * @param rangeEnd            the end of the range
+   * @param modifiedOccurrences the modified occurrences, or null
+   * @param deletedOccurrences  the deleted occurrences, or null
+   * @return an iterator over the occurrences
+   * @throws ServiceValidationException if the pattern is incomplete or can't be
+   *                                    expanded locally
+   */
+  public OccurrenceIterator expand(Date seriesStart, Date seriesEnd, TimeZone timeZone,
+      Date rangeStart, Date rangeEnd, OccurrenceInfoCollection modifiedOccurrences,
+      DeletedOccurrenceInfoCollection deletedOccurrences) throws ServiceValidationException {
+    if (seriesStart == null || seriesEnd == null) {
+      throw new ArgumentNullException("seriesStart and seriesEnd must be specified.");
+    }
+    if (timeZone == null) {
+      throw new ArgumentNullException("timeZone");
+    }
+    if (rangeStart == null || rangeEnd == null) {
+      throw new ArgumentNullException("rangeStart and rangeEnd must be specified.");
+    }
+
+    OccurrenceDaySequence days = this.createDaySequence(toDay(this.getStartDate(), timeZone));
+    int lastDay = this.endDate != null ? toDay(this.endDate, timeZone) : Integer.MAX_VALUE;
+    int maxCount = this.numberOfOccurrences != null ? this.numberOfOccurrences : Integer.MAX_VALUE;
+    return new OccurrenceIterator(days, lastDay, maxCount, seriesStart, seriesEnd, timeZone,
+        rangeStart, rangeEnd, modifiedOccurrences, deletedOccurrences);
+  }
+
+  /**
+   * Creates the sequence of days this pattern has occurrences on.
+   *
+   * @param startDay the first day of the recurrence
+   * @return the sequence
+   * @throws ServiceValidationException if the pattern is incomplete or can't be
+   *                                    expanded locally
+   */
+  OccurrenceDaySequence createDaySequence(int startDay) throws ServiceValidationException {
+    throw new ServiceValidationException(
+        String.format("%s recurrences can't be expanded locally.", this.getXmlElementName()));
+  }
+
+  /**
+   * Gets the calendar day of a recurrence date. Dates are read at midnight
+   * of their own offset, which is the offset of the recurrence's time zone
+   * for dates from the server, and are written in the default time zone.
+   * A date that is midnight in neither is taken as the nearest midnight UTC.
+   */
+  private static int toDay(Date date, TimeZone timeZone) {
+    long millis = date.getTime();
+    for (TimeZone candidate : new TimeZone[] {timeZone, TimeZone.getDefault()}) {
+      long localMillis = millis + candidate.getOffset(millis);
+      if (localMillis % OccurrenceDaySequence.MILLIS_PER_DAY == 0) {
+        return OccurrenceDaySequence.dayOf(localMillis);
+      }
+    }
+    return OccurrenceDaySequence.dayOf(millis + OccurrenceDaySequence.MILLIS_PER_DAY / 2);
+  }
+
   /**
    * Represents a recurrence pattern where each occurrence happens a specific
    * number of days after the previous one.
@@ -319,6 +409,11 @@ public abstract class Recurrence extends ComplexProperty {
       super(startDate, interval);
     }
 
+    @Override
+    OccurrenceDaySequence createDaySequence(int startDay) {
+      return new OccurrenceDaySequence.Daily(startDay, this.getInterval());
+    }
+
   }
 
 
@@ -588,6 +683,12 @@ public abstract class Recurrence extends ComplexProperty {
 
     }
 
+    @Override
+    OccurrenceDaySequence createDaySequence(int startDay) throws ServiceValidationException {
+      return new OccurrenceDaySequence.AbsoluteMonthly(startDay, this.getInterval(),
+          this.getDayOfMonth());
+    }
+
     /**
      * Sets the day of month.
      *
@@ -824,6 +925,12 @@ public abstract class Recurrence extends ComplexProperty {
 
     }
 
+    @Override
+    OccurrenceDaySequence createDaySequence(int startDay) throws ServiceValidationException {
+      return new OccurrenceDaySequence.RelativeMonthly(startDay, this.getInterval(),
+          this.getDayOfTheWeek(), this.getDayOfTheWeekIndex());
+    }
+
     /**
      * Sets the day of the week.
      *
@@ -1043,6 +1150,13 @@ public abstract class Recurrence extends ComplexProperty {
 
     }
 
+    @Override
+    OccurrenceDaySequence createDaySequence(int startDay) throws ServiceValidationException {
+      return new OccurrenceDaySequence.Yearly(startDay, this.getMonth().ordinal() + 1,
+          new OccurrenceDaySequence.RelativeMonthly(startDay, 1, this.getDayOfTheWeek(),
+              this.getDayOfTheWeekIndex()));
+    }
+
     /**
      * Sets the month.
      *
@@ -1194,6 +1308,21 @@ public abstract class Recurrence extends ComplexProperty {
       }
     }
 
+    @Override
+    OccurrenceDaySequence createDaySequence(int startDay) throws ServiceValidationException {
+      int dayMask = 0;
+      for (DayOfTheWeek dayOfTheWeek : this.getDaysOfTheWeek()) {
+        dayMask |= OccurrenceDaySequence.dayMask(dayOfTheWeek);
+      }
+      if (dayMask == 0) {
+        throw new ServiceValidationException(
+            "The recurrence pattern's property DaysOfTheWeek must contain at least one day of the week.");
+      }
+      int firstDayOfWeek = this.firstDayOfWeek != null
+          ? this.firstDayOfWeek.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY : 0;
+      return new OccurrenceDaySequence.Weekly(startDay, this.getInterval(), dayMask, firstDayOfWeek);
+    }
+
     /**
      * Gets the list of the days of the week when occurrences happen.
      *
@@ -1437,6 +1566,12 @@ public abstract class Recurrence extends ComplexProperty {
 
     }
 
+    @Override
+    OccurrenceDaySequence createDaySequence(int startDay) throws ServiceValidationException {
+      return new OccurrenceDaySequence.Yearly(startDay, this.getMonth().ordinal() + 1,
+          new OccurrenceDaySequence.AbsoluteMonthly(startDay, 1, this.getDayOfMonth()));
+    }
+
     /**
      * Sets the day of the month when each occurrence happens. DayOfMonth
      * must be between 1 and 31.
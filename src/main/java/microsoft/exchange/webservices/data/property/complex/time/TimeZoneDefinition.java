@@ -34,7 +34,9 @@ import microsoft.exchange.webservices.data.core.exception.service.local.InvalidO
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
 import microsoft.exchange.webservices.data.core.exception.service.local.ServiceXmlSerializationException;
 import microsoft.exchange.webservices.data.property.complex.ComplexProperty;
+import microsoft.exchange.webservices.data.property.complex.IComplexPropertyChangedDelegate;
 
+import java.io.ByteArrayOutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -43,6 +45,8 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Represents a time zone as defined by the EWS schema.
@@ -96,6 +100,12 @@ public class TimeZoneDefinition extends ComplexProperty implements Comparator<Ti
   private Map<String, TimeZoneTransitionGroup> transitionGroups =
       new HashMap<String, TimeZoneTransitionGroup>();
 
+  /**
+   * The XML of a frozen definition, per element and whether the full
+   * definition is emitted.
+   */
+  private volatile ConcurrentMap<String, byte[]> xmlFragments;
+
   /**
    * The transitions.
    */
@@ -266,6 +276,7 @@ public class TimeZoneDefinition extends ComplexProperty implements Comparator<Ti
    * @throws Exception the exception
    */
   public void loadFromXml(EwsServiceXmlReader reader) throws Exception {
+    this.throwIfFrozen();
     this.loadFromXml(reader, XmlElementNames.TimeZoneDefinition);
     Collections.sort(this.transitions, new TimeZoneDefinition());
   }
@@ -385,6 +396,7 @@ public class TimeZoneDefinition extends ComplexProperty implements Comparator<Ti
    * @param name the new name
    */
   protected void setName(String name) {
+    this.throwIfFrozen();
     this.name = name;
   }
 
@@ -403,6 +415,7 @@ public class TimeZoneDefinition extends ComplexProperty implements Comparator<Ti
    * @param id the new id
    */
   public void setId(String id) {
+    this.throwIfFrozen();
     this.id = id;
   }
 
@@ -437,4 +450,87 @@ public class TimeZoneDefinition extends ComplexProperty implements Comparator<Ti
     this.writeToXml(writer, this.getNamespace(), xmlElementName);
   }
 
+  /**
+   * Writes to XML. A frozen definition writes the XML it wrote before for the
+   * same element, if any.
+   *
+   * @param writer         the writer
+   * @param xmlNamespace   the XML namespace
+   * @param xmlElementName the name of the XML element
+   * @throws Exception the exception
+   */
+  @Override
+  public void writeToXml(EwsServiceXmlWriter writer, XmlNamespace xmlNamespace, String xmlElementName)
+      throws Exception {
+    ConcurrentMap<String, byte[]> fragments = this.xmlFragments;
+    if (fragments == null) {
+      super.writeToXml(writer, xmlNamespace, xmlElementName);
+      return;
+    }
+    boolean full = writer.getService().getRequestedServerVersion() != ExchangeVersion.Exchange2007_SP1;
+    // The name and id are public fields, which cannot be guarded.
+    String key = xmlNamespace + ":" + xmlElementName + ":" + full + ":" + this.id + ":" + this.name;
+    byte[] xml = fragments.get(key);
+    if (xml == null) {
+      ByteArrayOutputStream stream = new ByteArrayOutputStream();
+      EwsServiceXmlWriter fragmentWriter = new EwsServiceXmlWriter(writer.getService(), stream);
+      super.writeToXml(fragmentWriter, xmlNamespace, xmlElementName);
+      fragmentWriter.flush();
+      xml = stream.toByteArray();
+      fragments.put(key, xml);
+    }
+    writer.writeRawElement(xml);
+  }
+
+  /**
+   * Makes this definition read-only and write its XML once per element, e.g.
+   * for the StartTimeZone and EndTimeZone of many appointments. A frozen
+   * definition can be shared by any number of items.
+   *
+   * @return this definition
+   */
+  public synchronized TimeZoneDefinition freeze() {
+    if (this.xmlFragments == null) {
+      for (TimeZoneTransitionGroup transitionGroup : this.transitionGroups.values()) {
+        transitionGroup.freeze();
+      }
+      this.periods = Collections.unmodifiableMap(this.periods);
+      this.transitionGroups = Collections.unmodifiableMap(this.transitionGroups);
+      this.transitions = Collections.unmodifiableList(this.transitions);
+      this.xmlFragments = new ConcurrentHashMap<String, byte[]>();
+    }
+    return this;
+  }
+
+  /**
+   * Gets whether this definition is frozen.
+   *
+   * @return true if frozen
+   */
+  public boolean isFrozen() {
+    return this.xmlFragments != null;
+  }
+
+  /**
+   * Registers a change event. A frozen definition never changes, and keeps
+   * no reference to the items it is assigned to.
+   *
+   * @param change change event
+   */
+  @Override
+  public void addOnChangeEvent(IComplexPropertyChangedDelegate change) {
+    if (!this.isFrozen()) {
+      super.addOnChangeEvent(change);
+    }
+  }
+
+  /**
+   * Throws if this definition is frozen.
+   */
+  private void throwIfFrozen() {
+    if (this.isFrozen()) {
+      throw new UnsupportedOperationException("This TimeZoneDefinition is frozen and can't be modified.");
+    }
+  }
+
 }
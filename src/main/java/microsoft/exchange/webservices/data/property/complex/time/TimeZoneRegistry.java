@@ -0,0 +1,274 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.property.complex.time;
+
+import com.google.common.util.concurrent.SettableFuture;
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.security.XmlNodeType;
+import microsoft.exchange.webservices.data.util.TimeZoneUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * A registry of the time zone definitions of the server, which are fetched
+ * with GetServerTimeZones once per server and requested server version and
+ * kept.
+ * <p>
+ * The definitions are frozen, so they can be assigned to any number of items
+ * and the XML of a time zone is written once per element, e.g. StartTimeZone,
+ * and reused by later requests. Java time zones
+ * are mapped to definitions through their Microsoft time zone name. If a
+ * snapshot directory is set, the definitions are saved to it and loaded from
+ * it instead of the server, e.g. after a restart.
+ * </p>
+ * <p>
+ * A registry can be shared by several threads and services;
+ * {@link #getDefault()} is the registry of the process.
+ * </p>
+ */
+public final class TimeZoneRegistry {
+
+  private static final Log LOG = LogFactory.getLog(TimeZoneRegistry.class);
+
+  private static final TimeZoneRegistry DEFAULT = new TimeZoneRegistry();
+
+  /**
+   * The definitions by Microsoft time zone id, per server URL and requested
+   * server version.
+   */
+  private final ConcurrentMap<List<?>, SettableFuture<Map<String, TimeZoneDefinition>>> definitions =
+      new ConcurrentHashMap<List<?>, SettableFuture<Map<String, TimeZoneDefinition>>>();
+
+  private volatile File snapshotDirectory;
+
+  /**
+   * Gets the registry of the process.
+   *
+   * @return the registry
+   */
+  public static TimeZoneRegistry getDefault() {
+    return DEFAULT;
+  }
+
+  /**
+   * Sets the directory the definitions are saved to and loaded from.
+   *
+   * @param snapshotDirectory the directory, or null to always load the
+   *                          definitions from the server
+   */
+  public void setSnapshotDirectory(File snapshotDirectory) {
+    this.snapshotDirectory = snapshotDirectory;
+  }
+
+  public File getSnapshotDirectory() {
+    return snapshotDirectory;
+  }
+
+  /**
+   * Gets the time zone definitions of the server.
+   *
+   * @param service the service the definitions are fetched with, if not
+   *                known yet
+   * @return the definitions
+   * @throws Exception if the definitions could not be fetched
+   */
+  public Collection<TimeZoneDefinition> getTimeZoneDefinitions(ExchangeService service) throws Exception {
+    return this.getDefinitions(service).values();
+  }
+
+  /**
+   * Gets the definition of a time zone.
+   *
+   * @param service    the service the definitions are fetched with, if not
+   *                   known yet
+   * @param timeZoneId the Microsoft time zone id, e.g. Eastern Standard Time
+   * @return the definition, or null if the server has no such time zone
+   * @throws Exception if the definitions could not be fetched
+   */
+  public TimeZoneDefinition getTimeZoneDefinition(ExchangeService service, String timeZoneId) throws Exception {
+    return this.getDefinitions(service).get(timeZoneId);
+  }
+
+  /**
+   * Gets the definition of a Java time zone.
+   *
+   * @param service  the service the definitions are fetched with, if not
+   *                 known yet
+   * @param timeZone the time zone, e.g. America/New_York
+   * @return the definition, or null if the time zone has no Microsoft
+   * equivalent on the server
+   * @throws Exception if the definitions could not be fetched
+   */
+  public TimeZoneDefinition getTimeZoneDefinition(ExchangeService service, TimeZone timeZone) throws Exception {
+    String timeZoneId = TimeZoneUtils.getMicrosoftTimeZoneName(timeZone);
+    return timeZoneId != null ? this.getTimeZoneDefinition(service, timeZoneId) : null;
+  }
+
+  /**
+   * Forgets the definitions, e.g. after the time zones of the server were
+   * updated. Snapshots are kept.
+   */
+  public void invalidateAll() {
+    this.definitions.clear();
+  }
+
+  private Map<String, TimeZoneDefinition> getDefinitions(ExchangeService service) throws Exception {
+    List<?> key = Arrays.asList(service.getUrl(), service.getRequestedServerVersion());
+    SettableFuture<Map<String, TimeZoneDefinition>> future = this.definitions.get(key);
+    if (future == null) {
+      SettableFuture<Map<String, TimeZoneDefinition>> loading = SettableFuture.create();
+      future = this.definitions.putIfAbsent(key, loading);
+      if (future == null) {
+        future = loading;
+        try {
+          loading.set(this.load(service));
+        } catch (Exception e) {
+          this.definitions.remove(key, loading);
+          loading.setException(e);
+        }
+      }
+    }
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof Exception) {
+        throw (Exception) cause;
+      }
+      throw e;
+    }
+  }
+
+  private Map<String, TimeZoneDefinition> load(ExchangeService service) throws Exception {
+    File directory = this.snapshotDirectory;
+    File snapshot = directory != null ? new File(directory, "ews-timezones-"
+        + Integer.toHexString(String.valueOf(service.getUrl()).hashCode()) + "-"
+        + service.getRequestedServerVersion() + ".xml") : null;
+    if (snapshot != null && snapshot.isFile()) {
+      try {
+        return index(readSnapshot(service, snapshot));
+      } catch (Exception e) {
+        LOG.warn("Could not read the time zone snapshot " + snapshot + ", loading from the server", e);
+      }
+    }
+
+    Collection<TimeZoneDefinition> timeZones = service.getServerTimeZones();
+    Map<String, TimeZoneDefinition> definitions = index(timeZones);
+    if (snapshot != null) {
+      try {
+        writeSnapshot(service, snapshot, definitions.values());
+      } catch (Exception e) {
+        LOG.warn("Could not write the time zone snapshot " + snapshot, e);
+      }
+    }
+    return definitions;
+  }
+
+  private static Map<String, TimeZoneDefinition> index(Collection<TimeZoneDefinition> timeZones) {
+    Map<String, TimeZoneDefinition> definitions = new LinkedHashMap<String, TimeZoneDefinition>();
+    for (TimeZoneDefinition timeZone : timeZones) {
+      definitions.put(timeZone.getId(), timeZone.freeze());
+    }
+    return Collections.unmodifiableMap(definitions);
+  }
+
+  private static Collection<TimeZoneDefinition> readSnapshot(ExchangeService service, File snapshot)
+      throws Exception {
+    Collection<TimeZoneDefinition> timeZones = new ArrayList<TimeZoneDefinition>();
+    try (InputStream stream = new FileInputStream(snapshot)) {
+      EwsServiceXmlReader reader = new EwsServiceXmlReader(stream, service);
+      reader.read(new XmlNodeType(XmlNodeType.START_DOCUMENT));
+      reader.readStartElement(XmlNamespace.Messages, XmlElementNames.TimeZoneDefinitions);
+      if (!reader.isEmptyElement()) {
+        do {
+          reader.read();
+          if (reader.isStartElement(XmlNamespace.Types, XmlElementNames.TimeZoneDefinition)) {
+            TimeZoneDefinition timeZone = new TimeZoneDefinition();
+            timeZone.loadFromXml(reader);
+            timeZones.add(timeZone);
+          }
+        } while (!reader.isEndElement(XmlNamespace.Messages, XmlElementNames.TimeZoneDefinitions));
+      }
+    }
+    return timeZones;
+  }
+
+  /**
+   * Writes a snapshot to a temporary file first, so that a concurrent
+   * reader never sees a partial snapshot.
+   */
+  private static void writeSnapshot(ExchangeService service, File snapshot,
+      Collection<TimeZoneDefinition> timeZones) throws Exception {
+    File directory = snapshot.getParentFile();
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Could not create " + directory);
+    }
+    File temporary = File.createTempFile(snapshot.getName(), ".tmp", directory);
+    try {
+      try (OutputStream stream = new FileOutputStream(temporary)) {
+        EwsServiceXmlWriter writer = new EwsServiceXmlWriter(service, stream);
+        writer.writeStartDocument();
+        writer.writeStartElement(XmlNamespace.Messages, XmlElementNames.TimeZoneDefinitions);
+        writer.writeAttributeValue("xmlns", EwsUtilities.EwsMessagesNamespacePrefix,
+            EwsUtilities.EwsMessagesNamespace);
+        writer.writeAttributeValue("xmlns", EwsUtilities.EwsTypesNamespacePrefix, EwsUtilities.EwsTypesNamespace);
+        for (TimeZoneDefinition timeZone : timeZones) {
+          timeZone.writeToXml(writer, XmlElementNames.TimeZoneDefinition);
+        }
+        writer.writeEndElement();
+        writer.flush();
+      }
+      if (!temporary.renameTo(snapshot) && !(snapshot.delete() && temporary.renameTo(snapshot))) {
+        throw new IOException("Could not replace " + snapshot);
+      }
+    } finally {
+      if (temporary.exists() && !temporary.delete()) {
+        temporary.deleteOnExit();
+      }
+    }
+  }
+}
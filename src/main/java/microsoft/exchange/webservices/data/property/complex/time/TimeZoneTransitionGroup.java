@@ -35,6 +35,7 @@ import microsoft.exchange.webservices.data.misc.TimeSpan;
 import microsoft.exchange.webservices.data.property.complex.ComplexProperty;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -58,6 +59,11 @@ public class TimeZoneTransitionGroup extends ComplexProperty {
   private List<TimeZoneTransition> transitions =
       new ArrayList<TimeZoneTransition>();
 
+  /**
+   * Whether this group is part of a frozen time zone definition.
+   */
+  private boolean frozen;
+
   /**
    * The transition to standard.
    */
@@ -416,6 +422,9 @@ public class TimeZoneTransitionGroup extends ComplexProperty {
    * @param id the new id
    */
   public void setId(String id) {
+    if (this.frozen) {
+      throw new UnsupportedOperationException("This TimeZoneTransitionGroup is frozen and can't be modified.");
+    }
     this.id = id;
   }
 
@@ -427,4 +436,12 @@ public class TimeZoneTransitionGroup extends ComplexProperty {
   public List<TimeZoneTransition> getTransitions() {
     return this.transitions;
   }
+
+  /**
+   * Prevents further changes, as part of a frozen time zone definition.
+   */
+  void freeze() {
+    this.transitions = Collections.unmodifiableList(this.transitions);
+    this.frozen = true;
+  }
 }
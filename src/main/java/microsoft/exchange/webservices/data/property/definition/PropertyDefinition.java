@@ -33,6 +33,7 @@ import microsoft.exchange.webservices.data.core.enumeration.property.PropertyDef
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Represents the definition of a folder or item property.
@@ -40,6 +41,16 @@ import java.util.List;
 public abstract class PropertyDefinition extends
     ServiceObjectPropertyDefinition {
 
+  /**
+   * The global index of the next property definition.
+   */
+  private static final AtomicInteger nextGlobalIndex = new AtomicInteger();
+
+  /**
+   * The global index of this property definition.
+   */
+  private final int globalIndex = nextGlobalIndex.getAndIncrement();
+
   /**
    * The xml element name.
    */
@@ -104,6 +115,16 @@ public abstract class PropertyDefinition extends
     this.flags = flags;
   }
 
+  /**
+   * Gets the index of this property definition among all property
+   * definitions, in order of creation.
+   *
+   * @return the global index
+   */
+  public int getGlobalIndex() {
+    return this.globalIndex;
+  }
+
   /**
    * Determines whether the specified flag is set.
    *
@@ -0,0 +1,302 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.search;
+
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.enumeration.misc.error.ServiceError;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
+import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceResponseException;
+import microsoft.exchange.webservices.data.core.service.item.Appointment;
+import microsoft.exchange.webservices.data.misc.ContextExecutors;
+import microsoft.exchange.webservices.data.property.complex.FolderId;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Finds appointments in date ranges too large for a single CalendarView.
+ * <p>
+ * The range is split into windows that are fetched concurrently. A window
+ * that returns as many appointments as a single call may hold, or that the
+ * server rejects as too big, is split in halves that are fetched again, down
+ * to the minimum window. The results are merged in start order; an
+ * appointment spanning several windows is kept from the window it starts in,
+ * so the property set of the view must include AppointmentSchema.Start.
+ * </p>
+ * <p>
+ * Each window is fetched with the impersonation, anchor mailbox and deadline
+ * of the thread that called {@link #findAppointments}, so that the calendars
+ * of several mailboxes can be read through one finder. The windows of all
+ * calls in progress share the maxConcurrency threads of the finder, which
+ * stop when it is closed.
+ * </p>
+ */
+public final class CalendarWindowFinder implements Closeable {
+
+  /**
+   * The default number of appointments requested per window, matching the
+   * default EWSFindCountLimit of Exchange.
+   */
+  public static final int DEFAULT_MAX_ITEMS_PER_WINDOW = 1000;
+
+  private static final Comparator<Appointment> START_ORDER = new Comparator<Appointment>() {
+    @Override
+    public int compare(Appointment first, Appointment second) {
+      try {
+        return first.getStart().compareTo(second.getStart());
+      } catch (ServiceLocalException e) {
+        throw new IllegalStateException(e);
+      }
+    }
+  };
+
+  private final ExchangeService service;
+
+  private final ExecutorService executor;
+
+  private volatile long initialWindowMillis = TimeUnit.DAYS.toMillis(31);
+  private volatile long minWindowMillis = TimeUnit.MINUTES.toMillis(1);
+  private volatile int maxItemsPerWindow = DEFAULT_MAX_ITEMS_PER_WINDOW;
+
+  /**
+   * Initializes a new instance of the CalendarWindowFinder class.
+   *
+   * @param service        the service the windows are fetched with
+   * @param maxConcurrency the maximum number of windows fetched at once
+   */
+  public CalendarWindowFinder(ExchangeService service, int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("The concurrency must be at least 1.");
+    }
+    this.service = service;
+    this.executor = ContextExecutors.newFixedThreadPool("ews-calendar", maxConcurrency);
+  }
+
+  /**
+   * Sets the length of the windows a range is first split into.
+   *
+   * @param window   the length
+   * @param timeUnit the unit of the length
+   */
+  public void setInitialWindow(long window, TimeUnit timeUnit) {
+    long millis = timeUnit.toMillis(window);
+    if (millis < this.minWindowMillis) {
+      throw new IllegalArgumentException("The initial window must not be shorter than the minimum window.");
+    }
+    this.initialWindowMillis = millis;
+  }
+
+  public long getInitialWindow(TimeUnit timeUnit) {
+    return timeUnit.convert(initialWindowMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Sets the length below which a full window is not split any further.
+   *
+   * @param window   the length
+   * @param timeUnit the unit of the length
+   */
+  public void setMinWindow(long window, TimeUnit timeUnit) {
+    long millis = timeUnit.toMillis(window);
+    if (millis < 1 || millis > this.initialWindowMillis) {
+      throw new IllegalArgumentException("Invalid minimum window: " + millis + " ms");
+    }
+    this.minWindowMillis = millis;
+  }
+
+  public long getMinWindow(TimeUnit timeUnit) {
+    return timeUnit.convert(minWindowMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Sets the number of appointments requested per window. A window that
+   * returns this many appointments is split.
+   *
+   * @param maxItemsPerWindow the number of appointments, at most the
+   *                          EWSFindCountLimit of the server
+   */
+  public void setMaxItemsPerWindow(int maxItemsPerWindow) {
+    if (maxItemsPerWindow < 1) {
+      throw new IllegalArgumentException("The value must be greater than 0.");
+    }
+    this.maxItemsPerWindow = maxItemsPerWindow;
+  }
+
+  public int getMaxItemsPerWindow() {
+    return maxItemsPerWindow;
+  }
+
+  /**
+   * Obtains the appointments of a folder in the range of a calendar view.
+   * The traversal and property set of the view are used for each window; if
+   * the view has a maximum number of items, at most that many of the first
+   * appointments are returned.
+   *
+   * @param parentFolderId the parent folder id
+   * @param calendarView   the calendar view
+   * @return the appointments, in start order
+   * @throws Exception if a window could not be fetched
+   */
+  public FindItemsResults<Appointment> findAppointments(FolderId parentFolderId, CalendarView calendarView)
+      throws Exception {
+    long start = calendarView.getStartDate().getTime();
+    long end = calendarView.getEndDate().getTime();
+    if (end < start) {
+      throw new ServiceLocalException("EndDate must be greater than StartDate.");
+    }
+
+    List<Window> initial = new ArrayList<Window>();
+    long windowMillis = this.initialWindowMillis;
+    for (long windowStart = start; windowStart < end || windowStart == start; windowStart += windowMillis) {
+      long windowEnd = Math.min(end, windowStart + windowMillis);
+      initial.add(new Window(parentFolderId, calendarView, windowStart, windowEnd, windowStart == start));
+      if (windowEnd == end) {
+        break;
+      }
+    }
+
+    Map<Long, List<Appointment>> windows = new TreeMap<Long, List<Appointment>>();
+    for (Window window : SplittingSearch.run(this.executor, initial)) {
+      windows.put(window.start, window.items);
+    }
+
+    FindItemsResults<Appointment> results = new FindItemsResults<Appointment>();
+    Integer maxItemsReturned = calendarView.getMaxItemsReturned();
+    for (List<Appointment> items : windows.values()) {
+      for (Appointment item : items) {
+        if (maxItemsReturned != null && results.getItems().size() == maxItemsReturned) {
+          results.setMoreAvailable(true);
+          break;
+        }
+        results.getItems().add(item);
+      }
+    }
+    results.setTotalCount(results.getItems().size());
+    return results;
+  }
+
+  /**
+   * Releases the threads of this finder.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * A window of the range. Fetching yields either the appointments that
+   * start in the window, or no items if the window must be split.
+   */
+  private final class Window implements SplittingSearch.Part<Window> {
+
+    private final FolderId parentFolderId;
+
+    private final CalendarView calendarView;
+
+    private final long start;
+
+    private final long end;
+
+    /**
+     * Whether appointments starting before the window are kept, which is
+     * the case for the first window of the range.
+     */
+    private final boolean first;
+
+    private List<Appointment> items;
+
+    Window(FolderId parentFolderId, CalendarView calendarView, long start, long end, boolean first) {
+      this.parentFolderId = parentFolderId;
+      this.calendarView = calendarView;
+      this.start = start;
+      this.end = end;
+      this.first = first;
+    }
+
+    Window split(long start, long end) {
+      return new Window(this.parentFolderId, this.calendarView, start, end,
+          this.first && start == this.start);
+    }
+
+    @Override
+    public boolean isComplete() {
+      return this.items != null;
+    }
+
+    @Override
+    public List<Window> split() {
+      long middle = this.start + (this.end - this.start) / 2;
+      return Arrays.asList(this.split(this.start, middle), this.split(middle, this.end));
+    }
+
+    @Override
+    public Window call() throws Exception {
+      CalendarView view = new CalendarView(new Date(start), new Date(end), maxItemsPerWindow);
+      view.setTraversal(calendarView.getTraversal());
+      view.setPropertySet(calendarView.getPropertySet());
+
+      FindItemsResults<Appointment> results;
+      try {
+        results = service.findAppointments(parentFolderId, view);
+      } catch (ServiceResponseException e) {
+        if (e.getErrorCode() == ServiceError.ErrorCalendarViewRangeTooBig
+            || e.getErrorCode() == ServiceError.ErrorExceededFindCountLimit) {
+          return this.splitOrThrow(e);
+        }
+        throw e;
+      }
+      if (results.isMoreAvailable() || results.getItems().size() >= maxItemsPerWindow) {
+        return this.splitOrThrow(null);
+      }
+
+      List<Appointment> kept = new ArrayList<Appointment>(results.getItems().size());
+      for (Appointment item : results.getItems()) {
+        if (this.first || item.getStart().getTime() >= this.start) {
+          kept.add(item);
+        }
+      }
+      Collections.sort(kept, START_ORDER);
+      this.items = kept;
+      return this;
+    }
+
+    private Window splitOrThrow(Exception cause) throws ServiceLocalException {
+      if (this.end - this.start < 2 * minWindowMillis) {
+        throw new ServiceLocalException(String.format(
+            "The calendar has more than %d appointments between %s and %s.",
+            maxItemsPerWindow, new Date(this.start), new Date(this.end)), cause);
+      }
+      return this;
+    }
+  }
+}
@@ -0,0 +1,356 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.search;
+
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.PropertySet;
+import microsoft.exchange.webservices.data.core.enumeration.misc.error.ServiceError;
+import microsoft.exchange.webservices.data.core.enumeration.search.ItemTraversal;
+import microsoft.exchange.webservices.data.core.enumeration.search.LogicalOperator;
+import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceResponseException;
+import microsoft.exchange.webservices.data.core.service.item.Item;
+import microsoft.exchange.webservices.data.misc.ContextExecutors;
+import microsoft.exchange.webservices.data.property.complex.FolderId;
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+import microsoft.exchange.webservices.data.property.definition.PropertyDefinitionBase;
+import microsoft.exchange.webservices.data.search.filter.SearchFilter;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Finds items with restrictions too large for a single FindItem call, such
+ * as looking up thousands of messages by InternetMessageId.
+ * <p>
+ * A restriction that is an Or of many conditions, or an And with such an Or
+ * among its conditions, is partitioned into restrictions of at most
+ * {@link #getMaxConditionsPerFilter()} alternatives, which are searched
+ * concurrently, page by page. A partition that the server rejects as too
+ * long or too complex is split in halves that are searched again. The items
+ * found are merged in the order of the alternatives that matched them, and
+ * an item matched by several partitions is returned once.
+ * </p>
+ * <p>
+ * The partitions of a search are sent with the impersonation, anchor
+ * mailbox and deadline of the thread that started it, so one finder can
+ * serve lookups in several mailboxes at once; at most maxConcurrency
+ * partitions of all those lookups are searched at a time. The finder must
+ * be closed once it is no longer used.
+ * </p>
+ */
+public final class PartitionedItemFinder implements Closeable {
+
+  /**
+   * The default number of alternatives per restriction.
+   */
+  public static final int DEFAULT_MAX_CONDITIONS_PER_FILTER = 50;
+
+  /**
+   * The default number of items requested per page, matching the default
+   * EWSFindCountLimit of Exchange.
+   */
+  public static final int DEFAULT_PAGE_SIZE = 1000;
+
+  private final ExchangeService service;
+
+  private final ExecutorService executor;
+
+  private volatile int maxConditionsPerFilter = DEFAULT_MAX_CONDITIONS_PER_FILTER;
+  private volatile int pageSize = DEFAULT_PAGE_SIZE;
+  private volatile ItemTraversal traversal = ItemTraversal.Shallow;
+
+  /**
+   * Initializes a new instance of the PartitionedItemFinder class.
+   *
+   * @param service        the service the partitions are searched with
+   * @param maxConcurrency the maximum number of partitions searched at once
+   */
+  public PartitionedItemFinder(ExchangeService service, int maxConcurrency) {
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("The concurrency must be at least 1.");
+    }
+    this.service = service;
+    this.executor = ContextExecutors.newFixedThreadPool("ews-find", maxConcurrency);
+  }
+
+  /**
+   * Sets the maximum number of alternatives of a restriction sent in a
+   * single FindItem call.
+   *
+   * @param maxConditionsPerFilter the number of alternatives
+   */
+  public void setMaxConditionsPerFilter(int maxConditionsPerFilter) {
+    if (maxConditionsPerFilter < 1) {
+      throw new IllegalArgumentException("The value must be greater than 0.");
+    }
+    this.maxConditionsPerFilter = maxConditionsPerFilter;
+  }
+
+  public int getMaxConditionsPerFilter() {
+    return maxConditionsPerFilter;
+  }
+
+  /**
+   * Sets the number of items requested per FindItem call.
+   *
+   * @param pageSize the number of items, at most the EWSFindCountLimit of
+   *                 the server
+   */
+  public void setPageSize(int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("The value must be greater than 0.");
+    }
+    this.pageSize = pageSize;
+  }
+
+  public int getPageSize() {
+    return pageSize;
+  }
+
+  /**
+   * Sets the traversal of the searches.
+   *
+   * @param traversal the traversal
+   */
+  public void setTraversal(ItemTraversal traversal) {
+    this.traversal = traversal;
+  }
+
+  public ItemTraversal getTraversal() {
+    return traversal;
+  }
+
+  /**
+   * Obtains all items of a folder that have one of the given values of a
+   * property, e.g. the messages with one of a set of InternetMessageIds.
+   *
+   * @param parentFolderId the parent folder id
+   * @param property       the property
+   * @param values         the values
+   * @param propertySet    the property set of the items, or null for the
+   *                       default
+   * @return the items
+   * @throws Exception if a partition could not be searched
+   */
+  public FindItemsResults<Item> findItemsWithAnyValue(FolderId parentFolderId, PropertyDefinitionBase property,
+      Iterable<?> values, PropertySet propertySet) throws Exception {
+    List<SearchFilter> alternatives = new ArrayList<SearchFilter>();
+    for (Object value : values) {
+      alternatives.add(new SearchFilter.IsEqualTo(property, value));
+    }
+    if (alternatives.isEmpty()) {
+      return new FindItemsResults<Item>();
+    }
+    return this.findItems(new Partition(parentFolderId, propertySet, Collections.<SearchFilter>emptyList(),
+        alternatives, 0));
+  }
+
+  /**
+   * Obtains all items of a folder matching a restriction.
+   *
+   * @param parentFolderId the parent folder id
+   * @param searchFilter   the restriction
+   * @param propertySet    the property set of the items, or null for the
+   *                       default
+   * @return the items
+   * @throws Exception if a partition could not be searched
+   */
+  public FindItemsResults<Item> findItems(FolderId parentFolderId, SearchFilter searchFilter,
+      PropertySet propertySet) throws Exception {
+    List<SearchFilter> conditions = new ArrayList<SearchFilter>();
+    List<SearchFilter> alternatives = new ArrayList<SearchFilter>();
+    if (isOr(searchFilter)) {
+      addAll(alternatives, (SearchFilter.SearchFilterCollection) searchFilter);
+    } else if (searchFilter instanceof SearchFilter.SearchFilterCollection
+        && ((SearchFilter.SearchFilterCollection) searchFilter).getLogicalOperator() == LogicalOperator.And) {
+      // Partition the largest Or among the conditions.
+      SearchFilter.SearchFilterCollection largest = null;
+      for (SearchFilter condition : (SearchFilter.SearchFilterCollection) searchFilter) {
+        if (isOr(condition) && (largest == null
+            || ((SearchFilter.SearchFilterCollection) condition).getCount() > largest.getCount())) {
+          largest = (SearchFilter.SearchFilterCollection) condition;
+        }
+      }
+      for (SearchFilter condition : (SearchFilter.SearchFilterCollection) searchFilter) {
+        if (condition != largest) {
+          conditions.add(condition);
+        }
+      }
+      if (largest != null) {
+        addAll(alternatives, largest);
+      }
+    } else if (searchFilter != null) {
+      conditions.add(searchFilter);
+    }
+    return this.findItems(new Partition(parentFolderId, propertySet, conditions, alternatives, 0));
+  }
+
+  private static boolean isOr(SearchFilter searchFilter) {
+    return searchFilter instanceof SearchFilter.SearchFilterCollection
+        && ((SearchFilter.SearchFilterCollection) searchFilter).getLogicalOperator() == LogicalOperator.Or;
+  }
+
+  private static void addAll(List<SearchFilter> list, SearchFilter.SearchFilterCollection collection) {
+    for (SearchFilter searchFilter : collection) {
+      list.add(searchFilter);
+    }
+  }
+
+  private FindItemsResults<Item> findItems(Partition all) throws Exception {
+    List<Partition> initial = new ArrayList<Partition>();
+    int size = this.maxConditionsPerFilter;
+    if (all.alternatives.size() <= size) {
+      initial.add(all);
+    } else {
+      for (int first = 0; first < all.alternatives.size(); first += size) {
+        initial.add(all.split(first, Math.min(first + size, all.alternatives.size())));
+      }
+    }
+
+    Map<Integer, List<Item>> partitions = new TreeMap<Integer, List<Item>>();
+    for (Partition partition : SplittingSearch.run(this.executor, initial)) {
+      partitions.put(partition.first, partition.items);
+    }
+
+    Map<ItemId, Item> items = new LinkedHashMap<ItemId, Item>();
+    for (List<Item> partition : partitions.values()) {
+      for (Item item : partition) {
+        ItemId id = item.getId();
+        if (!items.containsKey(id)) {
+          items.put(id, item);
+        }
+      }
+    }
+    FindItemsResults<Item> results = new FindItemsResults<Item>();
+    results.getItems().addAll(items.values());
+    results.setTotalCount(items.size());
+    return results;
+  }
+
+  /**
+   * Releases the threads of this finder.
+   */
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  /**
+   * A partition of the restriction: the conditions, and a range of the
+   * alternatives of which one must hold as well. Searching yields either
+   * all matching items, or no items if the partition must be split.
+   */
+  private final class Partition implements SplittingSearch.Part<Partition> {
+
+    private final FolderId parentFolderId;
+
+    private final PropertySet propertySet;
+
+    private final List<SearchFilter> conditions;
+
+    private final List<SearchFilter> alternatives;
+
+    /**
+     * The index of the first alternative in the whole restriction.
+     */
+    private final int first;
+
+    private List<Item> items;
+
+    Partition(FolderId parentFolderId, PropertySet propertySet, List<SearchFilter> conditions,
+        List<SearchFilter> alternatives, int first) {
+      this.parentFolderId = parentFolderId;
+      this.propertySet = propertySet;
+      this.conditions = conditions;
+      this.alternatives = alternatives;
+      this.first = first;
+    }
+
+    Partition split(int fromIndex, int toIndex) {
+      return new Partition(this.parentFolderId, this.propertySet, this.conditions,
+          this.alternatives.subList(fromIndex, toIndex), this.first + fromIndex);
+    }
+
+    @Override
+    public boolean isComplete() {
+      return this.items != null;
+    }
+
+    @Override
+    public List<Partition> split() {
+      int middle = this.alternatives.size() / 2;
+      return Arrays.asList(this.split(0, middle), this.split(middle, this.alternatives.size()));
+    }
+
+    SearchFilter toSearchFilter() {
+      List<SearchFilter> filters = new ArrayList<SearchFilter>(this.conditions);
+      if (this.alternatives.size() == 1) {
+        filters.add(this.alternatives.get(0));
+      } else if (!this.alternatives.isEmpty()) {
+        filters.add(new SearchFilter.SearchFilterCollection(LogicalOperator.Or, this.alternatives));
+      }
+      if (filters.isEmpty()) {
+        return null;
+      }
+      return filters.size() == 1 ? filters.get(0)
+          : new SearchFilter.SearchFilterCollection(LogicalOperator.And, filters);
+    }
+
+    @Override
+    public Partition call() throws Exception {
+      SearchFilter searchFilter = this.toSearchFilter();
+      List<Item> found = new ArrayList<Item>();
+      int offset = 0;
+      try {
+        FindItemsResults<Item> results;
+        do {
+          ItemView view = new ItemView(pageSize, offset);
+          view.setTraversal(traversal);
+          view.setPropertySet(this.propertySet);
+          results = service.findItems(this.parentFolderId, searchFilter, view);
+          found.addAll(results.getItems());
+          Integer nextPageOffset = results.getNextPageOffset();
+          offset = nextPageOffset != null ? nextPageOffset : offset + results.getItems().size();
+        } while (results.isMoreAvailable() && !results.getItems().isEmpty());
+      } catch (ServiceResponseException e) {
+        if (this.alternatives.size() > 1
+            && (e.getErrorCode() == ServiceError.ErrorRestrictionTooComplex
+            || e.getErrorCode() == ServiceError.ErrorRestrictionTooLong
+            || e.getErrorCode() == ServiceError.ErrorQueryFilterTooLong)) {
+          return this;
+        }
+        throw e;
+      }
+      this.items = found;
+      return this;
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.search;
+
+import microsoft.exchange.webservices.data.misc.ContextExecutors;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Searches the parts of a request concurrently, splitting a part that turns
+ * out to be too large for a single call and searching its halves again.
+ * <p>
+ * The parts are run under the request context and the deadline of the
+ * calling thread. When a part fails, or the calling thread is interrupted,
+ * the parts still running are cancelled.
+ * </p>
+ */
+final class SplittingSearch {
+
+  private SplittingSearch() {
+  }
+
+  /**
+   * A part of a request. Searching a part yields either the part with its
+   * results, or the part without results if it must be split.
+   *
+   * @param <P> the type of the part
+   */
+  interface Part<P extends Part<P>> extends Callable<P> {
+
+    /**
+     * Gets whether the part holds its results.
+     *
+     * @return false if the part must be split
+     */
+    boolean isComplete();
+
+    /**
+     * Splits the part in halves.
+     *
+     * @return the halves
+     */
+    List<P> split();
+  }
+
+  /**
+   * Searches parts and the parts they are split into, until all are complete.
+   *
+   * @param executor the executor the parts are searched on
+   * @param parts    the parts
+   * @param <P>      the type of the parts
+   * @return the complete parts, in the order they completed
+   * @throws Exception if a part could not be searched
+   */
+  static <P extends Part<P>> List<P> run(ExecutorService executor, List<P> parts) throws Exception {
+    CompletionService<P> completion = new ExecutorCompletionService<P>(executor);
+    List<Future<P>> futures = new ArrayList<Future<P>>();
+    List<P> complete = new ArrayList<P>();
+    try {
+      for (P part : parts) {
+        futures.add(completion.submit(ContextExecutors.withCurrentContext(part)));
+      }
+      int pending = futures.size();
+      while (pending > 0) {
+        P part = ContextExecutors.getResult(completion.take());
+        pending--;
+        if (part.isComplete()) {
+          complete.add(part);
+        } else {
+          for (P half : part.split()) {
+            futures.add(completion.submit(ContextExecutors.withCurrentContext(half)));
+            pending++;
+          }
+        }
+      }
+    } finally {
+      for (Future<P> future : futures) {
+        future.cancel(true);
+      }
+    }
+    return complete;
+  }
+}
@@ -0,0 +1,536 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.search.filter;
+
+import com.google.common.base.Predicate;
+import microsoft.exchange.webservices.data.core.PropertyBag;
+import microsoft.exchange.webservices.data.core.enumeration.search.ComparisonMode;
+import microsoft.exchange.webservices.data.core.enumeration.search.ContainmentMode;
+import microsoft.exchange.webservices.data.core.enumeration.search.LogicalOperator;
+import microsoft.exchange.webservices.data.core.exception.misc.ArgumentException;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceValidationException;
+import microsoft.exchange.webservices.data.core.service.ServiceObject;
+import microsoft.exchange.webservices.data.core.service.schema.ServiceObjectSchema;
+import microsoft.exchange.webservices.data.misc.OutParam;
+import microsoft.exchange.webservices.data.property.complex.EmailAddress;
+import microsoft.exchange.webservices.data.property.complex.ExtendedPropertyCollection;
+import microsoft.exchange.webservices.data.property.complex.ServiceId;
+import microsoft.exchange.webservices.data.property.complex.StringList;
+import microsoft.exchange.webservices.data.property.definition.ExtendedPropertyDefinition;
+import microsoft.exchange.webservices.data.property.definition.PropertyDefinition;
+import microsoft.exchange.webservices.data.property.definition.PropertyDefinitionBase;
+
+import java.lang.reflect.Array;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A search filter compiled for evaluation against loaded items, e.g. to
+ * decide which changes returned by SyncFolderItems match a restriction
+ * without asking the server again.
+ * <p>
+ * The evaluation follows the semantics of restrictions in EWS:
+ * </p>
+ * <ul>
+ * <li>A condition on a property that is not set is false, except for Not and
+ * for Exists. Properties that were not loaded count as not set.</li>
+ * <li>Strings are compared ignoring case. Numbers are compared by value,
+ * whatever their type, and enumerations by their order.</li>
+ * <li>A condition on a multi-valued property, such as Categories, holds if
+ * it holds for any of the values; IsNotEqualTo holds if no value is
+ * equal.</li>
+ * <li>Ids are compared by unique id and e-mail addresses by address.</li>
+ * </ul>
+ * <p>
+ * Indexed properties, such as the e-mail addresses of a contact, can't be
+ * evaluated locally. A compiled filter does not change when the search
+ * filter it was compiled from changes, and can be used by several threads.
+ * </p>
+ */
+public final class CompiledSearchFilter implements Predicate<ServiceObject> {
+
+  private static final Pattern NON_SPACING_MARKS = Pattern.compile("\\p{Mn}+");
+
+  private final Node root;
+
+  private CompiledSearchFilter(Node root) {
+    this.root = root;
+  }
+
+  /**
+   * Compiles a search filter.
+   *
+   * @param searchFilter the search filter, or null to match all items
+   * @return the compiled filter
+   * @throws ServiceValidationException if the search filter can't be
+   *                                    evaluated locally
+   */
+  public static CompiledSearchFilter compile(SearchFilter searchFilter) throws ServiceValidationException {
+    return new CompiledSearchFilter(searchFilter != null ? compileNode(searchFilter) : new Node() {
+      @Override
+      boolean matches(PropertyBag bag) {
+        return true;
+      }
+    });
+  }
+
+  /**
+   * Evaluates the filter against the properties of an item or folder.
+   *
+   * @param bag the properties
+   * @return true if the filter matches
+   */
+  public boolean matches(PropertyBag bag) {
+    return this.root.matches(bag);
+  }
+
+  /**
+   * Evaluates the filter against an item or folder.
+   *
+   * @param serviceObject the item or folder
+   * @return true if the filter matches
+   */
+  @Override
+  public boolean apply(ServiceObject serviceObject) {
+    return this.root.matches(serviceObject.getPropertyBag());
+  }
+
+  private static Node compileNode(SearchFilter searchFilter) throws ServiceValidationException {
+    if (searchFilter instanceof SearchFilter.SearchFilterCollection) {
+      SearchFilter.SearchFilterCollection collection = (SearchFilter.SearchFilterCollection) searchFilter;
+      List<Node> nodes = new ArrayList<Node>(collection.getCount());
+      for (SearchFilter child : collection) {
+        nodes.add(compileNode(child));
+      }
+      return new Junction(nodes.toArray(new Node[nodes.size()]),
+          collection.getLogicalOperator() == LogicalOperator.Or);
+    }
+    if (searchFilter instanceof SearchFilter.Not) {
+      SearchFilter inner = ((SearchFilter.Not) searchFilter).getSearchFilter();
+      if (inner == null) {
+        throw new ServiceValidationException("The Not filter has no search filter.");
+      }
+      final Node node = compileNode(inner);
+      return new Node() {
+        @Override
+        boolean matches(PropertyBag bag) {
+          return !node.matches(bag);
+        }
+      };
+    }
+
+    SearchFilter.PropertyBasedFilter propertyFilter = (SearchFilter.PropertyBasedFilter) searchFilter;
+    final Accessor property = accessor(propertyFilter.getPropertyDefinition());
+    if (searchFilter instanceof SearchFilter.Exists) {
+      return new Node() {
+        @Override
+        boolean matches(PropertyBag bag) {
+          return property.get(bag) != null;
+        }
+      };
+    }
+    if (searchFilter instanceof SearchFilter.ExcludesBitmask) {
+      final long bitmask = ((SearchFilter.ExcludesBitmask) searchFilter).getBitmask();
+      return new ValueNode(property) {
+        @Override
+        boolean matchesValue(Object value) {
+          return value instanceof Number && (((Number) value).longValue() & bitmask) == 0;
+        }
+      };
+    }
+    if (searchFilter instanceof SearchFilter.ContainsSubstring) {
+      return new Substring(property, (SearchFilter.ContainsSubstring) searchFilter);
+    }
+    if (searchFilter instanceof SearchFilter.RelationalFilter) {
+      SearchFilter.RelationalFilter relationalFilter = (SearchFilter.RelationalFilter) searchFilter;
+      Operator operator = Operator.of(relationalFilter);
+      if (relationalFilter.getOtherPropertyDefinition() != null) {
+        return new PropertyComparison(property, operator,
+            accessor(relationalFilter.getOtherPropertyDefinition()));
+      }
+      if (relationalFilter.getValue() == null) {
+        throw new ServiceValidationException("The search filter has no value to compare with.");
+      }
+      return new Comparison(property, operator, constant(relationalFilter.getValue()));
+    }
+    throw new ServiceValidationException(String.format("%s can't be evaluated locally.",
+        searchFilter.getClass().getSimpleName()));
+  }
+
+  private static Accessor accessor(PropertyDefinitionBase propertyDefinition)
+      throws ServiceValidationException {
+    if (propertyDefinition instanceof PropertyDefinition) {
+      final PropertyDefinition definition = (PropertyDefinition) propertyDefinition;
+      return new Accessor() {
+        @Override
+        Object get(PropertyBag bag) {
+          return bag.getProperties().get(definition);
+        }
+      };
+    }
+    if (propertyDefinition instanceof ExtendedPropertyDefinition) {
+      final ExtendedPropertyDefinition definition = (ExtendedPropertyDefinition) propertyDefinition;
+      return new Accessor() {
+        @Override
+        Object get(PropertyBag bag) {
+          Object properties = bag.getProperties().get(ServiceObjectSchema.extendedProperties);
+          if (!(properties instanceof ExtendedPropertyCollection)) {
+            return null;
+          }
+          OutParam<Object> value = new OutParam<Object>();
+          try {
+            ((ExtendedPropertyCollection) properties).tryGetValue(Object.class, definition, value);
+          } catch (ArgumentException e) {
+            // Any property type is assignable to Object.
+            throw new IllegalStateException(e);
+          }
+          return value.getParam();
+        }
+      };
+    }
+    throw new ServiceValidationException(String.format("The property %s can't be evaluated locally.",
+        propertyDefinition != null ? propertyDefinition.getPrintableName() : null));
+  }
+
+  /**
+   * Converts a value to the form it is compared in.
+   */
+  private static Object constant(Object value) {
+    if (value instanceof ServiceId) {
+      return ((ServiceId) value).getUniqueId();
+    }
+    if (value instanceof EmailAddress) {
+      return ((EmailAddress) value).getAddress();
+    }
+    return value;
+  }
+
+  private static boolean isMultiValued(Object value) {
+    return value instanceof StringList || (value.getClass().isArray() && !(value instanceof byte[]));
+  }
+
+  /**
+   * Gets the values of a multi-valued property.
+   */
+  private static List<Object> values(Object value) {
+    List<Object> values = new ArrayList<Object>();
+    if (value instanceof StringList) {
+      for (String string : (StringList) value) {
+        values.add(string);
+      }
+    } else {
+      for (int i = 0, length = Array.getLength(value); i < length; i++) {
+        values.add(constant(Array.get(value, i)));
+      }
+    }
+    return values;
+  }
+
+  /**
+   * Compares two values.
+   *
+   * @return the comparison, or null if the values can't be ordered
+   */
+  @SuppressWarnings("unchecked")
+  private static Integer compare(Object first, Object second) {
+    if (first instanceof String && second instanceof String) {
+      return ((String) first).compareToIgnoreCase((String) second);
+    }
+    if (first instanceof Number || second instanceof Number) {
+      Double firstNumber = toDouble(first);
+      Double secondNumber = toDouble(second);
+      return firstNumber != null && secondNumber != null ? firstNumber.compareTo(secondNumber) : null;
+    }
+    if (first instanceof Enum && second instanceof String) {
+      return ((Enum<?>) first).name().equalsIgnoreCase((String) second) ? 0 : null;
+    }
+    if (first instanceof String && second instanceof Enum) {
+      return ((Enum<?>) second).name().equalsIgnoreCase((String) first) ? 0 : null;
+    }
+    if (first instanceof Date && second instanceof Date) {
+      return ((Date) first).compareTo((Date) second);
+    }
+    if (first instanceof Comparable && first.getClass() == second.getClass()) {
+      return ((Comparable<Object>) first).compareTo(second);
+    }
+    return first.equals(second) ? 0 : null;
+  }
+
+  private static Double toDouble(Object value) {
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    if (value instanceof String) {
+      try {
+        return Double.valueOf((String) value);
+      } catch (NumberFormatException e) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  private static String normalize(String value, ComparisonMode comparisonMode) {
+    if (comparisonMode == ComparisonMode.IgnoreNonSpacingCharacters
+        || comparisonMode == ComparisonMode.IgnoreCaseAndNonSpacingCharacters) {
+      value = NON_SPACING_MARKS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+    }
+    if (comparisonMode != ComparisonMode.Exact && comparisonMode != ComparisonMode.IgnoreNonSpacingCharacters) {
+      value = value.toLowerCase(Locale.ROOT);
+    }
+    return value;
+  }
+
+  private static boolean isWordCharacter(String value, int index) {
+    return index >= 0 && index < value.length() && Character.isLetterOrDigit(value.charAt(index));
+  }
+
+  /**
+   * Gets the value of a property from a property bag.
+   */
+  private abstract static class Accessor {
+
+    /**
+     * @return the value, or null if it is not set
+     */
+    abstract Object get(PropertyBag bag);
+  }
+
+  /**
+   * A compiled search filter.
+   */
+  private abstract static class Node {
+
+    abstract boolean matches(PropertyBag bag);
+  }
+
+  /**
+   * An And or an Or of compiled filters.
+   */
+  private static final class Junction extends Node {
+
+    private final Node[] nodes;
+
+    private final boolean or;
+
+    Junction(Node[] nodes, boolean or) {
+      this.nodes = nodes;
+      this.or = or;
+    }
+
+    @Override
+    boolean matches(PropertyBag bag) {
+      for (Node node : this.nodes) {
+        if (node.matches(bag) == this.or) {
+          return this.or;
+        }
+      }
+      return !this.or;
+    }
+  }
+
+  /**
+   * A condition on the value of a property, which holds for a multi-valued
+   * property if it holds for any value.
+   */
+  private abstract static class ValueNode extends Node {
+
+    final Accessor property;
+
+    ValueNode(Accessor property) {
+      this.property = property;
+    }
+
+    @Override
+    boolean matches(PropertyBag bag) {
+      Object value = this.property.get(bag);
+      if (value == null) {
+        return false;
+      }
+      if (!isMultiValued(value)) {
+        return this.matchesValue(constant(value));
+      }
+      for (Object element : values(value)) {
+        if (element != null && this.matchesValue(element)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    abstract boolean matchesValue(Object value);
+  }
+
+  private enum Operator {
+    EQUAL, NOT_EQUAL, GREATER, GREATER_OR_EQUAL, LESS, LESS_OR_EQUAL;
+
+    static Operator of(SearchFilter.RelationalFilter filter) throws ServiceValidationException {
+      if (filter instanceof SearchFilter.IsEqualTo) {
+        return EQUAL;
+      } else if (filter instanceof SearchFilter.IsNotEqualTo) {
+        return NOT_EQUAL;
+      } else if (filter instanceof SearchFilter.IsGreaterThan) {
+        return GREATER;
+      } else if (filter instanceof SearchFilter.IsGreaterThanOrEqualTo) {
+        return GREATER_OR_EQUAL;
+      } else if (filter instanceof SearchFilter.IsLessThan) {
+        return LESS;
+      } else if (filter instanceof SearchFilter.IsLessThanOrEqualTo) {
+        return LESS_OR_EQUAL;
+      }
+      throw new ServiceValidationException(String.format("%s can't be evaluated locally.",
+          filter.getClass().getSimpleName()));
+    }
+
+    boolean holds(Integer comparison) {
+      if (comparison == null) {
+        return false;
+      }
+      switch (this) {
+        case EQUAL:
+          return comparison == 0;
+        case GREATER:
+          return comparison > 0;
+        case GREATER_OR_EQUAL:
+          return comparison >= 0;
+        case LESS:
+          return comparison < 0;
+        case LESS_OR_EQUAL:
+          return comparison <= 0;
+        default:
+          return comparison != 0;
+      }
+    }
+  }
+
+  private static final class Comparison extends ValueNode {
+
+    private final Operator operator;
+
+    private final Object constant;
+
+    /**
+     * Whether the filter is IsNotEqualTo, which holds if no value is equal.
+     */
+    private final boolean negate;
+
+    Comparison(Accessor property, Operator operator, Object constant) {
+      super(property);
+      this.negate = operator == Operator.NOT_EQUAL;
+      this.operator = this.negate ? Operator.EQUAL : operator;
+      this.constant = constant;
+    }
+
+    @Override
+    boolean matches(PropertyBag bag) {
+      if (this.negate) {
+        return this.property.get(bag) != null && !super.matches(bag);
+      }
+      return super.matches(bag);
+    }
+
+    @Override
+    boolean matchesValue(Object value) {
+      return this.operator.holds(compare(value, this.constant));
+    }
+  }
+
+  private static final class PropertyComparison extends Node {
+
+    private final Accessor property;
+
+    private final Operator operator;
+
+    private final Accessor otherProperty;
+
+    PropertyComparison(Accessor property, Operator operator, Accessor otherProperty) {
+      this.property = property;
+      this.operator = operator;
+      this.otherProperty = otherProperty;
+    }
+
+    @Override
+    boolean matches(PropertyBag bag) {
+      Object value = this.property.get(bag);
+      Object otherValue = this.otherProperty.get(bag);
+      if (value == null || otherValue == null || isMultiValued(value) || isMultiValued(otherValue)) {
+        return false;
+      }
+      Integer comparison = compare(constant(value), constant(otherValue));
+      return this.operator == Operator.NOT_EQUAL ? comparison == null || comparison != 0
+          : this.operator.holds(comparison);
+    }
+  }
+
+  private static final class Substring extends ValueNode {
+
+    private final ContainmentMode containmentMode;
+
+    private final ComparisonMode comparisonMode;
+
+    private final String value;
+
+    Substring(Accessor property, SearchFilter.ContainsSubstring filter) throws ServiceValidationException {
+      super(property);
+      if (filter.getValue() == null) {
+        throw new ServiceValidationException("The ContainsSubstring filter has no value.");
+      }
+      this.containmentMode = filter.getContainmentMode() != null ? filter.getContainmentMode()
+          : ContainmentMode.FullString;
+      this.comparisonMode = filter.getComparisonMode() != null ? filter.getComparisonMode()
+          : ComparisonMode.Exact;
+      this.value = normalize(filter.getValue(), this.comparisonMode);
+    }
+
+    @Override
+    boolean matchesValue(Object value) {
+      if (!(value instanceof String)) {
+        return false;
+      }
+      String string = normalize((String) value, this.comparisonMode);
+      switch (this.containmentMode) {
+        case FullString:
+          return string.equals(this.value);
+        case Prefixed:
+          return string.startsWith(this.value);
+        case Substring:
+          return string.contains(this.value);
+        default:
+          boolean phrase = this.containmentMode == ContainmentMode.ExactPhrase;
+          for (int index = string.indexOf(this.value); index >= 0;
+               index = string.indexOf(this.value, index + 1)) {
+            if (!isWordCharacter(string, index - 1)
+                && (!phrase || !isWordCharacter(string, index + this.value.length()))) {
+              return true;
+            }
+          }
+          return false;
+      }
+    }
+  }
+}
@@ -0,0 +1,267 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.attribute.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Generates GeneratedAttributeRegistry at build time from the EwsEnum,
+ * RequiredServerVersion, ServiceObjectDefinition and Schema annotations, so
+ * that they need not be read by reflection at run time.
+ */
+@SupportedAnnotationTypes({
+    AttributeRegistryProcessor.ATTRIBUTE_PACKAGE + ".EwsEnum",
+    AttributeRegistryProcessor.ATTRIBUTE_PACKAGE + ".RequiredServerVersion",
+    AttributeRegistryProcessor.ATTRIBUTE_PACKAGE + ".ServiceObjectDefinition",
+    AttributeRegistryProcessor.ATTRIBUTE_PACKAGE + ".Schema"})
+public class AttributeRegistryProcessor extends AbstractProcessor {
+
+  static final String ATTRIBUTE_PACKAGE = "microsoft.exchange.webservices.data.attribute";
+
+  private static final String REGISTRY_NAME = "GeneratedAttributeRegistry";
+
+  private static final String PROPERTY_DEFINITION =
+      "microsoft.exchange.webservices.data.property.definition.PropertyDefinition";
+
+  private static final String EXCHANGE_VERSION =
+      "microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion";
+
+  private boolean generated;
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    if (this.generated || annotations.isEmpty()) {
+      return false;
+    }
+
+    // Sorted, so that the generated source is stable.
+    Map<String, Map<String, String>> enumSchemaNames = new TreeMap<String, Map<String, String>>();
+    Map<String, Map<String, String>> enumVersions = new TreeMap<String, Map<String, String>>();
+    Map<String, String> xmlElementNames = new TreeMap<String, String>();
+    Map<String, List<String>> schemaProperties = new TreeMap<String, List<String>>();
+
+    for (Element element : roundEnv.getElementsAnnotatedWith(this.getAnnotation("EwsEnum"))) {
+      String schemaName = (String) this.getValue(element, "EwsEnum", "schemaName");
+      if (element.getKind() == ElementKind.ENUM_CONSTANT && schemaName != null && !schemaName.isEmpty()) {
+        put(enumSchemaNames, this.getName(element.getEnclosingElement()), element.getSimpleName().toString(),
+            schemaName);
+      }
+    }
+
+    for (Element element : roundEnv.getElementsAnnotatedWith(this.getAnnotation("RequiredServerVersion"))) {
+      Object version = this.getValue(element, "RequiredServerVersion", "version");
+      if (element.getKind() == ElementKind.ENUM_CONSTANT && version instanceof VariableElement) {
+        put(enumVersions, this.getName(element.getEnclosingElement()), element.getSimpleName().toString(),
+            ((VariableElement) version).getSimpleName().toString());
+      }
+    }
+
+    for (Element element : roundEnv.getElementsAnnotatedWith(this.getAnnotation("ServiceObjectDefinition"))) {
+      String xmlElementName = (String) this.getValue(element, "ServiceObjectDefinition", "xmlElementName");
+      if (xmlElementName != null) {
+        xmlElementNames.put(this.getName(element), xmlElementName);
+      }
+    }
+
+    TypeMirror propertyDefinition = this.processingEnv.getElementUtils()
+        .getTypeElement(PROPERTY_DEFINITION).asType();
+    for (Element element : roundEnv.getElementsAnnotatedWith(this.getAnnotation("Schema"))) {
+      List<String> fields = new ArrayList<String>();
+      for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+        if (field.getModifiers().contains(Modifier.PUBLIC) && field.getModifiers().contains(Modifier.STATIC) &&
+            this.processingEnv.getTypeUtils().isAssignable(field.asType(), propertyDefinition)) {
+          fields.add(field.getSimpleName().toString());
+        }
+      }
+      schemaProperties.put(this.getName(element), fields);
+    }
+
+    try {
+      this.writeRegistry(enumSchemaNames, enumVersions, xmlElementNames, schemaProperties);
+    } catch (IOException e) {
+      this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+          "Could not write " + REGISTRY_NAME + ": " + e.getMessage());
+    }
+    this.generated = true;
+    return false;
+  }
+
+  private TypeElement getAnnotation(String simpleName) {
+    return this.processingEnv.getElementUtils().getTypeElement(ATTRIBUTE_PACKAGE + "." + simpleName);
+  }
+
+  private String getName(Element type) {
+    return ((TypeElement) type).getQualifiedName().toString();
+  }
+
+  private Object getValue(Element element, String annotation, String name) {
+    for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+      if (this.getName(mirror.getAnnotationType().asElement()).equals(ATTRIBUTE_PACKAGE + "." + annotation)) {
+        for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry :
+            mirror.getElementValues().entrySet()) {
+          if (entry.getKey().getSimpleName().contentEquals(name)) {
+            return entry.getValue().getValue();
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  private static void put(Map<String, Map<String, String>> maps, String type, String key, String value) {
+    Map<String, String> map = maps.get(type);
+    if (map == null) {
+      map = new TreeMap<String, String>();
+      maps.put(type, map);
+    }
+    map.put(key, value);
+  }
+
+  private static String quote(String value) {
+    return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+  }
+
+  private void writeRegistry(Map<String, Map<String, String>> enumSchemaNames,
+      Map<String, Map<String, String>> enumVersions, Map<String, String> xmlElementNames,
+      Map<String, List<String>> schemaProperties) throws IOException {
+    JavaFileObject file = this.processingEnv.getFiler()
+        .createSourceFile(ATTRIBUTE_PACKAGE + "." + REGISTRY_NAME);
+    Writer writer = file.openWriter();
+    try {
+      PrintWriter out = new PrintWriter(writer);
+      out.println("package " + ATTRIBUTE_PACKAGE + ";");
+      out.println();
+      out.println("import java.util.Collections;");
+      out.println("import java.util.HashMap;");
+      out.println("import java.util.LinkedHashMap;");
+      out.println("import java.util.Map;");
+      out.println();
+      out.println("/**");
+      out.println(" * Generated by " + AttributeRegistryProcessor.class.getSimpleName() + ", do not edit.");
+      out.println(" */");
+      out.println("public final class " + REGISTRY_NAME + " implements IAttributeRegistry {");
+      out.println();
+      out.println("  private final Map<Class<?>, Map<String, String>> enumSchemaNames =");
+      out.println("      new HashMap<Class<?>, Map<String, String>>();");
+      out.println();
+      out.println("  private final Map<Class<?>, Map<String, " + EXCHANGE_VERSION + ">> enumVersions =");
+      out.println("      new HashMap<Class<?>, Map<String, " + EXCHANGE_VERSION + ">>();");
+      out.println();
+      out.println("  private final Map<Class<?>, String> xmlElementNames = new HashMap<Class<?>, String>();");
+      out.println();
+      out.println("  public " + REGISTRY_NAME + "() {");
+      for (Map.Entry<String, Map<String, String>> type : enumSchemaNames.entrySet()) {
+        out.println("    {");
+        out.println("      Map<String, String> map = new HashMap<String, String>();");
+        for (Map.Entry<String, String> constant : type.getValue().entrySet()) {
+          out.println("      map.put(" + quote(constant.getKey()) + ", " + quote(constant.getValue()) + ");");
+        }
+        out.println("      enumSchemaNames.put(" + type.getKey() + ".class, Collections.unmodifiableMap(map));");
+        out.println("    }");
+      }
+      for (Map.Entry<String, Map<String, String>> type : enumVersions.entrySet()) {
+        out.println("    {");
+        out.println("      Map<String, " + EXCHANGE_VERSION + "> map = new HashMap<String, " + EXCHANGE_VERSION
+            + ">();");
+        for (Map.Entry<String, String> constant : type.getValue().entrySet()) {
+          out.println("      map.put(" + quote(constant.getKey()) + ", " + EXCHANGE_VERSION + "."
+              + constant.getValue() + ");");
+        }
+        out.println("      enumVersions.put(" + type.getKey() + ".class, Collections.unmodifiableMap(map));");
+        out.println("    }");
+      }
+      for (Map.Entry<String, String> type : xmlElementNames.entrySet()) {
+        out.println("    xmlElementNames.put(" + type.getKey() + ".class, " + quote(type.getValue()) + ");");
+      }
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public Map<String, String> getEnumSchemaNames(Class<?> enumType) {");
+      out.println("    Map<String, String> map = enumSchemaNames.get(enumType);");
+      out.println("    return map != null ? map : Collections.<String, String>emptyMap();");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public Map<String, " + EXCHANGE_VERSION + "> getEnumVersions(Class<?> enumType) {");
+      out.println("    Map<String, " + EXCHANGE_VERSION + "> map = enumVersions.get(enumType);");
+      out.println("    return map != null ? map : Collections.<String, " + EXCHANGE_VERSION + ">emptyMap();");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public String getXmlElementName(Class<?> serviceObjectType) {");
+      out.println("    return xmlElementNames.get(serviceObjectType);");
+      out.println("  }");
+      out.println();
+      out.println("  @Override");
+      out.println("  public Map<String, " + PROPERTY_DEFINITION + "> getSchemaProperties(Class<?> schemaType) {");
+      out.println("    Map<String, " + PROPERTY_DEFINITION + "> map = new LinkedHashMap<String, "
+          + PROPERTY_DEFINITION + ">();");
+      // The schema classes are only initialized when their properties are requested.
+      for (Map.Entry<String, List<String>> type : schemaProperties.entrySet()) {
+        out.println("    if (schemaType == " + type.getKey() + ".class) {");
+        for (String field : type.getValue()) {
+          out.println("      map.put(" + quote(field) + ", " + type.getKey() + "." + field + ");");
+        }
+        out.println("    }");
+      }
+      out.println("    return map;");
+      out.println("  }");
+      out.println();
+      out.println("}");
+      out.flush();
+    } finally {
+      writer.close();
+    }
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.attribute;
+
+import microsoft.exchange.webservices.data.core.enumeration.notification.EventType;
+import microsoft.exchange.webservices.data.core.enumeration.property.MailboxType;
+import microsoft.exchange.webservices.data.core.enumeration.property.WellKnownFolderName;
+import microsoft.exchange.webservices.data.core.service.item.Appointment;
+import microsoft.exchange.webservices.data.core.service.item.EmailMessage;
+import microsoft.exchange.webservices.data.core.service.schema.ItemSchema;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Testclass for methods of AttributeRegistries
+ */
+@RunWith(JUnit4.class)
+public class AttributeRegistriesTest {
+
+  private final IAttributeRegistry reflection = new ReflectionAttributeRegistry();
+
+  @Test
+  public void testGeneratedRegistryIsUsed() {
+    Assert.assertEquals(AttributeRegistries.GENERATED_REGISTRY, AttributeRegistries.get().getClass().getName());
+  }
+
+  @Test
+  public void testEnumSchemaNamesMatchReflection() {
+    Assert.assertEquals(reflection.getEnumSchemaNames(EventType.class),
+        AttributeRegistries.get().getEnumSchemaNames(EventType.class));
+    Assert.assertEquals(reflection.getEnumSchemaNames(MailboxType.class),
+        AttributeRegistries.get().getEnumSchemaNames(MailboxType.class));
+    Assert.assertEquals("NewMailEvent", AttributeRegistries.get().getEnumSchemaNames(EventType.class).get("NewMail"));
+  }
+
+  @Test
+  public void testEnumVersionsMatchReflection() {
+    Assert.assertEquals(reflection.getEnumVersions(WellKnownFolderName.class),
+        AttributeRegistries.get().getEnumVersions(WellKnownFolderName.class));
+    Assert.assertFalse(AttributeRegistries.get().getEnumVersions(WellKnownFolderName.class).isEmpty());
+  }
+
+  @Test
+  public void testXmlElementNamesMatchReflection() {
+    Assert.assertEquals(reflection.getXmlElementName(EmailMessage.class),
+        AttributeRegistries.get().getXmlElementName(EmailMessage.class));
+    Assert.assertEquals(reflection.getXmlElementName(Appointment.class),
+        AttributeRegistries.get().getXmlElementName(Appointment.class));
+    Assert.assertNull(AttributeRegistries.get().getXmlElementName(String.class));
+  }
+
+  @Test
+  public void testSchemaPropertiesMatchReflection() {
+    Assert.assertEquals(reflection.getSchemaProperties(ItemSchema.class),
+        AttributeRegistries.get().getSchemaProperties(ItemSchema.class));
+    Assert.assertSame(ItemSchema.Subject, AttributeRegistries.get().getSchemaProperties(ItemSchema.class).get("Subject"));
+  }
+
+}
@@ -0,0 +1,117 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.service.schema.ItemSchema;
+import microsoft.exchange.webservices.data.property.definition.IntPropertyDefinition;
+import microsoft.exchange.webservices.data.property.definition.PropertyDefinition;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+
+/**
+ * Testclass for methods of CompactPropertyMap and CompactPropertySet
+ */
+@RunWith(JUnit4.class)
+public class CompactPropertyMapTest {
+
+  private static final PropertyDefinition UNREGISTERED =
+      new IntPropertyDefinition("Unregistered", "item:Unregistered", ExchangeVersion.Exchange2007_SP1);
+
+  @Test
+  public void testMapStoresRegisteredAndUnregisteredProperties() {
+    CompactPropertyMap<Object> map = new CompactPropertyMap<Object>(ItemSchema.getInstance());
+    Assert.assertTrue(ItemSchema.getInstance().getPropertyOrdinal(ItemSchema.Subject) >= 0);
+    Assert.assertEquals(-1, ItemSchema.getInstance().getPropertyOrdinal(UNREGISTERED));
+
+    map.put(ItemSchema.Subject, "subject");
+    map.put(ItemSchema.Body, null);
+    map.put(UNREGISTERED, 1);
+
+    Assert.assertEquals(3, map.size());
+    Assert.assertEquals("subject", map.get(ItemSchema.Subject));
+    Assert.assertTrue(map.containsKey(ItemSchema.Body));
+    Assert.assertNull(map.get(ItemSchema.Body));
+    Assert.assertEquals(1, map.get(UNREGISTERED));
+    Assert.assertFalse(map.containsKey(ItemSchema.Importance));
+    Assert.assertEquals(new HashSet<PropertyDefinition>(
+        Arrays.asList(ItemSchema.Subject, ItemSchema.Body, UNREGISTERED)), map.keySet());
+
+    Iterator<Map.Entry<PropertyDefinition, Object>> it = map.entrySet().iterator();
+    while (it.hasNext()) {
+      if (it.next().getKey() != ItemSchema.Body) {
+        it.remove();
+      }
+    }
+    Assert.assertEquals(1, map.size());
+    Assert.assertTrue(map.containsKey(ItemSchema.Body));
+    Assert.assertFalse(map.containsKey(UNREGISTERED));
+  }
+
+  @Test
+  public void testSetTracksRegisteredAndUnregisteredProperties() {
+    CompactPropertySet set = new CompactPropertySet(ItemSchema.getInstance());
+
+    Assert.assertTrue(set.add(ItemSchema.Subject));
+    Assert.assertFalse(set.add(ItemSchema.Subject));
+    Assert.assertTrue(set.add(UNREGISTERED));
+    Assert.assertEquals(2, set.size());
+    Assert.assertTrue(set.contains(UNREGISTERED));
+
+    Assert.assertTrue(set.remove(ItemSchema.Subject));
+    Assert.assertFalse(set.contains(ItemSchema.Subject));
+    Assert.assertEquals(new HashSet<PropertyDefinition>(Arrays.asList(UNREGISTERED)), new HashSet<PropertyDefinition>(set));
+  }
+
+  @Test
+  public void testSetIteratesInInsertionOrder() {
+    ItemSchema schema = ItemSchema.getInstance();
+    Assert.assertTrue(schema.getPropertyOrdinal(ItemSchema.Subject) > schema.getPropertyOrdinal(ItemSchema.Importance));
+    CompactPropertySet set = new CompactPropertySet(schema);
+
+    set.add(ItemSchema.Subject);
+    set.add(UNREGISTERED);
+    set.add(ItemSchema.Importance);
+    set.add(ItemSchema.Body);
+    Assert.assertEquals(Arrays.asList(ItemSchema.Subject, UNREGISTERED, ItemSchema.Importance, ItemSchema.Body),
+        new ArrayList<PropertyDefinition>(set));
+
+    Iterator<PropertyDefinition> it = set.iterator();
+    it.next();
+    it.remove();
+    Assert.assertFalse(set.contains(ItemSchema.Subject));
+    Assert.assertTrue(set.add(ItemSchema.Subject));
+    Assert.assertEquals(Arrays.asList(UNREGISTERED, ItemSchema.Importance, ItemSchema.Body, ItemSchema.Subject),
+        new ArrayList<PropertyDefinition>(set));
+  }
+
+}
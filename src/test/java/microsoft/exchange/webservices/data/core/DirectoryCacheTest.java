@@ -0,0 +1,203 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.credential.WebCredentials;
+import microsoft.exchange.webservices.data.property.complex.EmailAddress;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Testclass for methods of DirectoryCache
+ */
+@RunWith(JUnit4.class)
+public class DirectoryCacheTest {
+
+  private final AtomicInteger lookups = new AtomicInteger();
+
+  private final ExchangeService service = new ExchangeService(ExchangeVersion.Exchange2010_SP2);
+
+  private DirectoryCache cache;
+
+  private final Callable<Integer> lookup = new Callable<Integer>() {
+    @Override
+    public Integer call() throws Exception {
+      return lookups.incrementAndGet();
+    }
+  };
+
+  @After
+  public void tearDown() {
+    if (cache != null) {
+      cache.close();
+    }
+  }
+
+  @Test
+  public void testResultsAreCachedPerKey() throws Exception {
+    cache = new DirectoryCache(100, 1, TimeUnit.MINUTES);
+
+    Assert.assertEquals(1, (int) cache.get(service, lookup, "ResolveNames", null, "jane"));
+    Assert.assertEquals(1, (int) cache.get(service, lookup, "ResolveNames", null, "jane"));
+    Assert.assertEquals(2, (int) cache.get(service, lookup, "ResolveNames", "room@example.com", "jane"));
+    Assert.assertEquals(2, cache.size());
+
+    cache.invalidateAll();
+    Assert.assertEquals(3, (int) cache.get(service, lookup, "ResolveNames", null, "jane"));
+  }
+
+  @Test
+  public void testResultsAreCachedPerEndpointAndCredentials() throws Exception {
+    cache = new DirectoryCache(100, 1, TimeUnit.MINUTES);
+    service.setUrl(new URI("https://one.example.com/EWS/Exchange.asmx"));
+    service.setCredentials(new WebCredentials("jane", "secret"));
+    ExchangeService other = new ExchangeService(ExchangeVersion.Exchange2010_SP2);
+    other.setUrl(new URI("https://two.example.com/EWS/Exchange.asmx"));
+    other.setCredentials(service.getCredentials());
+
+    Assert.assertEquals(1, (int) cache.get(service, lookup, "ResolveNames", null, "jane"));
+    Assert.assertEquals(2, (int) cache.get(other, lookup, "ResolveNames", null, "jane"));
+    other.setUrl(service.getUrl());
+    Assert.assertEquals(1, (int) cache.get(other, lookup, "ResolveNames", null, "jane"));
+    other.setCredentials(new WebCredentials("john", "secret"));
+    Assert.assertEquals(3, (int) cache.get(other, lookup, "ResolveNames", null, "jane"));
+  }
+
+  @Test
+  public void testEachCallerGetsACopy() throws Exception {
+    cache = new DirectoryCache(100, 1, TimeUnit.MINUTES);
+    service.setDirectoryCache(cache);
+    EmailAddress roomList = new EmailAddress("rooms@example.com");
+    cache.get(service, new Callable<Collection<EmailAddress>>() {
+      @Override
+      public Collection<EmailAddress> call() throws Exception {
+        return Collections.singletonList(new EmailAddress("Room 1", "room1@example.com"));
+      }
+    }, "GetRooms", service.getTraceMailbox(), roomList.getAddress(), roomList.getRoutingType());
+
+    Collection<EmailAddress> first = service.getRooms(roomList);
+    first.iterator().next().setName("Changed");
+    first.clear();
+    Collection<EmailAddress> second = service.getRooms(roomList);
+
+    Assert.assertEquals(1, second.size());
+    Assert.assertEquals("Room 1", second.iterator().next().getName());
+    Assert.assertNotSame(first, second);
+  }
+
+  @Test
+  public void testFailuresAreNotCached() throws Exception {
+    cache = new DirectoryCache(100, 1, TimeUnit.MINUTES);
+    Callable<Integer> failing = new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        throw new IllegalStateException("unavailable");
+      }
+    };
+
+    try {
+      cache.get(service, failing, "GetRoomLists", null);
+      Assert.fail();
+    } catch (IllegalStateException e) {
+      Assert.assertEquals("unavailable", e.getMessage());
+    }
+    Assert.assertEquals(1, (int) cache.get(service, lookup, "GetRoomLists", null));
+  }
+
+  @Test
+  public void testConcurrentLookupsAreCoalesced() throws Exception {
+    cache = new DirectoryCache(100, 1, TimeUnit.MINUTES);
+    final CountDownLatch release = new CountDownLatch(1);
+    final Callable<Integer> slowLookup = new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        release.await();
+        return lookups.incrementAndGet();
+      }
+    };
+    ExecutorService callers = Executors.newFixedThreadPool(5);
+    try {
+      List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+      for (int i = 0; i < 5; i++) {
+        results.add(callers.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            return cache.get(service, slowLookup, "ExpandGroup", null, "dl@example.com");
+          }
+        }));
+      }
+      Thread.sleep(100);
+      release.countDown();
+      for (Future<Integer> result : results) {
+        Assert.assertEquals(1, (int) result.get(5, TimeUnit.SECONDS));
+      }
+      Assert.assertEquals(1, lookups.get());
+    } finally {
+      callers.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testUsedEntriesAreRefreshedInBackground() throws Exception {
+    cache = new DirectoryCache(100, 10000, 50, TimeUnit.MILLISECONDS);
+    final CountDownLatch release = new CountDownLatch(1);
+    Callable<Integer> gatedLookup = new Callable<Integer>() {
+      @Override
+      public Integer call() throws Exception {
+        if (lookups.get() > 0) {
+          release.await();
+        }
+        return lookups.incrementAndGet();
+      }
+    };
+    Assert.assertEquals(1, (int) cache.get(service, gatedLookup, "GetRooms", null, "rooms@example.com"));
+    Thread.sleep(100);
+
+    // The cached result is returned while the refresh is in progress.
+    Assert.assertEquals(1, (int) cache.get(service, gatedLookup, "GetRooms", null, "rooms@example.com"));
+    release.countDown();
+    long deadline = System.currentTimeMillis() + 5000;
+    while (cache.get(service, gatedLookup, "GetRooms", null, "rooms@example.com") != 2) {
+      Assert.assertTrue(System.currentTimeMillis() < deadline);
+      Thread.sleep(10);
+    }
+  }
+}
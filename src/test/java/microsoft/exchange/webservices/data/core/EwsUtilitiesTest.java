@@ -214,4 +214,12 @@ public class EwsUtilitiesTest {
   public void testPrettyXml() throws Exception {
     EwsUtilities.prettyXml(HTML);
   }
+
+  @Test
+  public void testUnescapeXmlEntities() {
+    assertEquals("plain", EwsUtilities.unescapeXmlEntities("plain"));
+    assertEquals("<a b=\"c\">'&'</a>",
+        EwsUtilities.unescapeXmlEntities("&lt;a b=&quot;c&quot;&gt;&apos;&amp;&apos;&lt;/a&gt;"));
+    assertEquals("&lt; & &x;", EwsUtilities.unescapeXmlEntities("&amp;lt; & &x;"));
+  }
 }
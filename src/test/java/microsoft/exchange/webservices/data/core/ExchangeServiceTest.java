@@ -0,0 +1,264 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core;
+
+import com.google.common.io.ByteSource;
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.service.CreateAction;
+import microsoft.exchange.webservices.data.core.exception.service.remote.BatchExecutionException;
+import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceRequestException;
+import microsoft.exchange.webservices.data.core.request.HttpWebRequest;
+import microsoft.exchange.webservices.data.core.response.ServiceResponseCollection;
+import microsoft.exchange.webservices.data.core.response.UploadItemsResponse;
+import microsoft.exchange.webservices.data.credential.WebCredentials;
+import microsoft.exchange.webservices.data.misc.UploadItem;
+import microsoft.exchange.webservices.data.misc.id.CompactIdSet;
+import microsoft.exchange.webservices.data.property.complex.FolderId;
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+import microsoft.exchange.webservices.data.security.XmlNodeType;
+import org.apache.http.auth.NTCredentials;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+/**
+ * Testclass for methods of ExchangeService
+ */
+@RunWith(JUnit4.class)
+public class ExchangeServiceTest {
+
+  private HttpServer server;
+
+  private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<Integer>());
+
+  private final List<String> anchorMailboxes = Collections.synchronizedList(new ArrayList<String>());
+
+  private volatile String lastRequestBody;
+
+  private ExchangeService service;
+
+  @Before
+  public void setUp() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/EWS/Exchange.asmx", new HttpHandler() {
+      @Override
+      public void handle(HttpExchange exchange) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        String mailbox = exchange.getRequestHeaders().getFirst("X-AnchorMailbox");
+        if (mailbox != null) {
+          anchorMailboxes.add(mailbox);
+        }
+        String body = new String(ByteStreams.toByteArray(exchange.getRequestBody()), "UTF-8");
+        if (exchange.getRequestHeaders().getFirst("Authorization") == null) {
+          exchange.getResponseHeaders().add("WWW-Authenticate", "Basic realm=\"ews\"");
+          exchange.sendResponseHeaders(401, -1);
+        } else {
+          lastRequestBody = body;
+          exchange.sendResponseHeaders(200, -1);
+        }
+        exchange.close();
+      }
+    });
+    server.start();
+
+    service = new ExchangeService(ExchangeVersion.Exchange2010_SP2);
+    service.setUrl(URI.create("http://localhost:" + server.getAddress().getPort() + "/EWS/Exchange.asmx"));
+    service.setCredentials(new WebCredentials("user", "password"));
+  }
+
+  @After
+  public void tearDown() {
+    service.close();
+    server.stop(0);
+  }
+
+  @Test
+  public void testAuthenticationHandshakeIsDetected() throws Exception {
+    HttpWebRequest request = service.prepareHttpWebRequest(null);
+    request.setRequestMethod("GET");
+    request.prepareConnection();
+    Assert.assertFalse(request.isAuthenticationHandshake());
+    try {
+      Assert.assertEquals(200, request.executeRequest());
+      Assert.assertTrue(request.isAuthenticationHandshake());
+    } finally {
+      request.close();
+    }
+  }
+
+  @Test
+  public void testWarmUpOpensDistinctConnections() throws Exception {
+    try (RequestContext.Scope scope = RequestContext.forMailbox("user@contoso.com").attach()) {
+      Assert.assertEquals(3, service.warmUpConnections(3));
+    }
+    Assert.assertTrue(clientPorts.size() >= 3);
+    Assert.assertTrue(anchorMailboxes.size() >= 3);
+    Assert.assertEquals(Collections.singleton("user@contoso.com"), new HashSet<String>(anchorMailboxes));
+    Assert.assertEquals(new NTCredentials("user", "password", "", "").getUserPrincipal(),
+        service.httpContext.getUserToken());
+
+    // A later request is served by a warmed-up connection.
+    int connections = clientPorts.size();
+    HttpWebRequest request = service.prepareHttpWebRequest(null);
+    try {
+      Assert.assertEquals(200, request.executeRequest());
+    } finally {
+      request.close();
+    }
+    Assert.assertEquals(connections, clientPorts.size());
+  }
+
+  @Test
+  public void testBindToItemsByCompactIdWritesEncodedIds() throws Exception {
+    CompactIdSet itemIds = new CompactIdSet();
+    itemIds.add("AAMkAGI2TG93AAA=");
+    itemIds.add("AAMkAGI2TG94AAA=");
+
+    try {
+      service.bindToItemsByCompactId(itemIds, PropertySet.IdOnly);
+      Assert.fail("The test server does not return a response");
+    } catch (ServiceRequestException expected) {
+    }
+
+    Assert.assertTrue(lastRequestBody.contains("<t:ItemId Id=\"AAMkAGI2TG93AAA=\""));
+    Assert.assertTrue(lastRequestBody.contains("<t:ItemId Id=\"AAMkAGI2TG94AAA=\""));
+  }
+
+  @Test
+  public void testUploadItemsIsBatchedInOrder() throws Exception {
+    final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+    ExchangeService batching = new ExchangeService(ExchangeVersion.Exchange2010_SP2) {
+      @Override
+      public ServiceResponseCollection<UploadItemsResponse> uploadItems(Iterable<UploadItem> items)
+          throws Exception {
+        ServiceResponseCollection<UploadItemsResponse> responses =
+            new ServiceResponseCollection<UploadItemsResponse>();
+        int count = 0;
+        for (UploadItem item : items) {
+          responses.add(uploaded(this, item.getItemId().getUniqueId()));
+          count++;
+        }
+        batchSizes.add(count);
+        return responses;
+      }
+    };
+    List<UploadItem> items = new ArrayList<UploadItem>();
+    for (int i = 0; i < 7; i++) {
+      items.add(new UploadItem(new FolderId("AAMkFolder"), CreateAction.Update,
+          new ItemId(String.valueOf(i)), ByteSource.wrap(new byte[0])));
+    }
+
+    ServiceResponseCollection<UploadItemsResponse> responses = batching.uploadItems(items, 3, 2);
+
+    Assert.assertEquals(7, responses.getCount());
+    for (int i = 0; i < 7; i++) {
+      Assert.assertEquals(String.valueOf(i), responses.getResponseAtIndex(i).getItemId().getUniqueId());
+    }
+    Collections.sort(batchSizes);
+    Assert.assertEquals(Arrays.asList(1, 3, 3), batchSizes);
+  }
+
+  @Test
+  public void testFailedBatchKeepsResponsesOfOtherBatches() throws Exception {
+    final ServiceRequestException failure = new ServiceRequestException("The request failed.");
+    ExchangeService batching = new ExchangeService(ExchangeVersion.Exchange2010_SP2) {
+      @Override
+      public ServiceResponseCollection<UploadItemsResponse> uploadItems(Iterable<UploadItem> items)
+          throws Exception {
+        ServiceResponseCollection<UploadItemsResponse> responses =
+            new ServiceResponseCollection<UploadItemsResponse>();
+        for (UploadItem item : items) {
+          if (item.getItemId().getUniqueId().equals("4")) {
+            throw failure;
+          }
+          responses.add(uploaded(this, item.getItemId().getUniqueId()));
+        }
+        return responses;
+      }
+    };
+    List<UploadItem> items = new ArrayList<UploadItem>();
+    for (int i = 0; i < 7; i++) {
+      items.add(new UploadItem(new FolderId("AAMkFolder"), CreateAction.CreateNew,
+          new ItemId(String.valueOf(i)), ByteSource.wrap(new byte[0])));
+    }
+
+    try {
+      batching.uploadItems(items, 3, 1);
+      Assert.fail("The failed batch was not reported.");
+    } catch (BatchExecutionException e) {
+      Assert.assertSame(failure, e.getCause());
+      Assert.assertEquals(7, e.getResponses().size());
+      Assert.assertEquals(7, e.getErrors().size());
+      for (int i = 0; i < 7; i++) {
+        boolean failed = i >= 3 && i < 6;
+        UploadItemsResponse response = (UploadItemsResponse) e.getResponses().get(i);
+        if (failed) {
+          Assert.assertNull(response);
+          Assert.assertSame(failure, e.getErrors().get(i));
+        } else {
+          Assert.assertEquals(String.valueOf(i), response.getItemId().getUniqueId());
+          Assert.assertNull(e.getErrors().get(i));
+        }
+      }
+    }
+  }
+
+  private static UploadItemsResponse uploaded(ExchangeService service, String itemId) throws Exception {
+    String xml = "<m:UploadItemsResponseMessage ResponseClass=\"Success\""
+        + " xmlns:m=\"http://schemas.microsoft.com/exchange/services/2006/messages\">"
+        + "<m:ResponseCode>NoError</m:ResponseCode>"
+        + "<m:ItemId Id=\"" + itemId + "\" ChangeKey=\"CQAAAB\"/>"
+        + "</m:UploadItemsResponseMessage>";
+    EwsServiceXmlReader reader = new EwsServiceXmlReader(
+        new ByteArrayInputStream(xml.getBytes(Charset.forName("UTF-8"))), service);
+    reader.read(new XmlNodeType(XmlNodeType.START_DOCUMENT));
+    reader.readStartElement(XmlNamespace.Messages, XmlElementNames.UploadItemsResponseMessage);
+    UploadItemsResponse response = new UploadItemsResponse();
+    response.loadFromXml(reader, XmlElementNames.UploadItemsResponseMessage);
+    return response;
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.property.BasePropertySet;
+import microsoft.exchange.webservices.data.core.enumeration.property.BodyType;
+import microsoft.exchange.webservices.data.core.enumeration.property.MapiPropertyType;
+import microsoft.exchange.webservices.data.core.enumeration.service.ServiceObjectType;
+import microsoft.exchange.webservices.data.core.service.schema.ItemSchema;
+import microsoft.exchange.webservices.data.property.definition.ExtendedPropertyDefinition;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+
+/**
+ * Testclass for methods of PropertySet
+ */
+@RunWith(JUnit4.class)
+public class PropertySetTest {
+
+  private static PropertySet createPropertySet() throws Exception {
+    PropertySet propertySet = new PropertySet(BasePropertySet.IdOnly, ItemSchema.Subject);
+    propertySet.add(new ExtendedPropertyDefinition(0x1000, MapiPropertyType.String));
+    propertySet.setRequestedBodyType(BodyType.Text);
+    return propertySet;
+  }
+
+  private static String write(ExchangeService service, PropertySet propertySet) throws Exception {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    EwsServiceXmlWriter writer = new EwsServiceXmlWriter(service, stream);
+    writer.writeStartElement(XmlNamespace.Messages, XmlElementNames.GetItem);
+    propertySet.writeToXml(writer, ServiceObjectType.Item);
+    writer.writeEndElement();
+    writer.flush();
+    return stream.toString("UTF-8");
+  }
+
+  @Test
+  public void testFrozenPropertySetWritesSameXml() throws Exception {
+    ExchangeService service = new ExchangeService(ExchangeVersion.Exchange2010_SP2);
+    PropertySet frozen = createPropertySet().freeze();
+
+    String expected = write(service, createPropertySet());
+    Assert.assertEquals(expected, write(service, frozen));
+    Assert.assertEquals(expected, write(service, frozen));
+    Assert.assertTrue(expected.startsWith("<m:GetItem><m:ItemShape>"));
+  }
+
+  @Test
+  public void testFrozenPropertySetLookup() throws Exception {
+    PropertySet frozen = createPropertySet().freeze();
+
+    Assert.assertTrue(frozen.isFrozen());
+    Assert.assertTrue(frozen.contains(ItemSchema.Subject));
+    Assert.assertTrue(frozen.contains(new ExtendedPropertyDefinition(0x1000, MapiPropertyType.String)));
+    Assert.assertFalse(frozen.contains(ItemSchema.Body));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testFrozenPropertySetIsReadOnly() throws Exception {
+    createPropertySet().freeze().add(ItemSchema.Body);
+  }
+
+}
@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.ConnectingIdType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Testclass for methods of RequestContext
+ */
+@RunWith(JUnit4.class)
+public class RequestContextTest {
+
+  @Test
+  public void testWithHttpHeaderReturnsCopy() {
+    RequestContext context = RequestContext.EMPTY.withHttpHeader("X-Test", "1");
+    Assert.assertTrue(RequestContext.EMPTY.getHttpHeaders().isEmpty());
+    Assert.assertEquals("1", context.getHttpHeaders().get("X-Test"));
+  }
+
+  @Test
+  public void testForMailbox() {
+    RequestContext context = RequestContext.forMailbox("user@contoso.com");
+    Assert.assertEquals("user@contoso.com", context.getAnchorMailbox());
+    Assert.assertEquals(ConnectingIdType.SmtpAddress, context.getImpersonatedUserId().getIdType());
+    Assert.assertEquals("user@contoso.com", context.getImpersonatedUserId().getId());
+  }
+
+  @Test
+  public void testMergeHttpHeaders() {
+    Map<String, String> serviceHeaders = new HashMap<String, String>();
+    serviceHeaders.put("X-Service", "a");
+    serviceHeaders.put("X-AnchorMailbox", "other@contoso.com");
+
+    Assert.assertSame(serviceHeaders, RequestContext.EMPTY.mergeHttpHeaders(serviceHeaders));
+
+    Map<String, String> merged = RequestContext.EMPTY.withAnchorMailbox("user@contoso.com")
+        .withHttpHeader("X-Call", "b").mergeHttpHeaders(serviceHeaders);
+    Assert.assertEquals("a", merged.get("X-Service"));
+    Assert.assertEquals("b", merged.get("X-Call"));
+    Assert.assertEquals("user@contoso.com", merged.get("X-AnchorMailbox"));
+    Assert.assertEquals("other@contoso.com", serviceHeaders.get("X-AnchorMailbox"));
+  }
+
+  @Test
+  public void testAttachRestoresPreviousContext() {
+    RequestContext outer = RequestContext.forMailbox("outer@contoso.com");
+    RequestContext inner = RequestContext.forMailbox("inner@contoso.com");
+    ResponseMetadata metadata = new ResponseMetadata();
+
+    Assert.assertNull(RequestContext.current());
+    try (RequestContext.Scope outerScope = outer.attach()) {
+      try (RequestContext.Scope innerScope = inner.attach(metadata)) {
+        Assert.assertSame(inner, RequestContext.current());
+        Assert.assertSame(metadata, RequestContext.currentMetadata());
+      }
+      Assert.assertSame(outer, RequestContext.current());
+      Assert.assertNull(RequestContext.currentMetadata());
+    }
+    Assert.assertNull(RequestContext.current());
+  }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.request;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Testclass for methods of HedgedHttpWebRequest
+ */
+@RunWith(JUnit4.class)
+public class HedgedHttpWebRequestTest {
+
+  private HedgingPolicy policy;
+
+  @Before
+  public void setUp() {
+    policy = new HedgingPolicy();
+    policy.setInitialDelay(20, TimeUnit.MILLISECONDS, 100);
+    policy.setBudget(1.0, 1);
+  }
+
+  @After
+  public void tearDown() {
+    policy.close();
+  }
+
+  private static HttpWebRequest respondingAfter(final long millis, int responseCode) throws Exception {
+    HttpWebRequest request = Mockito.mock(HttpWebRequest.class);
+    Mockito.when(request.executeRequest()).thenAnswer(new Answer<Integer>() {
+      @Override
+      public Integer answer(InvocationOnMock invocation) throws Throwable {
+        Thread.sleep(millis);
+        return 200;
+      }
+    });
+    Mockito.when(request.getResponseCode()).thenReturn(responseCode);
+    return request;
+  }
+
+  private static Callable<HttpWebRequest> factoryOf(final HttpWebRequest hedge) {
+    return new Callable<HttpWebRequest>() {
+      @Override
+      public HttpWebRequest call() {
+        return hedge;
+      }
+    };
+  }
+
+  @Test
+  public void testFastRequestIsNotHedged() throws Exception {
+    HttpWebRequest primary = respondingAfter(0, 200);
+    HttpWebRequest hedge = respondingAfter(0, 201);
+
+    HedgedHttpWebRequest request = new HedgedHttpWebRequest(primary, factoryOf(hedge), policy, "GetItem");
+    Assert.assertEquals(200, request.executeRequest());
+    Assert.assertEquals(200, request.getResponseCode());
+    Assert.assertEquals(0, policy.getHedgeCount());
+    Mockito.verify(hedge, Mockito.never()).executeRequest();
+  }
+
+  @Test
+  public void testSlowRequestIsHedged() throws Exception {
+    HttpWebRequest primary = respondingAfter(2000, 200);
+    HttpWebRequest hedge = respondingAfter(0, 201);
+
+    HedgedHttpWebRequest request = new HedgedHttpWebRequest(primary, factoryOf(hedge), policy, "GetItem");
+    Assert.assertEquals(201, request.executeRequest());
+    Assert.assertEquals(201, request.getResponseCode());
+    Assert.assertEquals(1, policy.getHedgeCount());
+    Assert.assertEquals(1, policy.getHedgeWinCount());
+    Mockito.verify(primary).releaseConnection();
+  }
+
+  @Test
+  public void testBudgetLimitsHedges() throws Exception {
+    policy.setBudget(0.5, 1);
+
+    HttpWebRequest primary = respondingAfter(100, 200);
+    HttpWebRequest hedge = respondingAfter(0, 201);
+    HedgedHttpWebRequest request = new HedgedHttpWebRequest(primary, factoryOf(hedge), policy, "GetItem");
+    Assert.assertEquals(200, request.executeRequest());
+    Assert.assertEquals(0, policy.getHedgeCount());
+
+    primary = respondingAfter(100, 200);
+    request = new HedgedHttpWebRequest(primary, factoryOf(hedge), policy, "GetItem");
+    Assert.assertEquals(201, request.executeRequest());
+    Assert.assertEquals(1, policy.getHedgeCount());
+    Assert.assertEquals(2, policy.getRequestCount());
+  }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.request;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.credential.WebCredentials;
+import microsoft.exchange.webservices.data.misc.IAsyncResult;
+import microsoft.exchange.webservices.data.misc.management.RequestActivity;
+import microsoft.exchange.webservices.data.misc.metrics.IRequestMetricsListener;
+import microsoft.exchange.webservices.data.misc.metrics.RequestMetrics;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Testclass for methods of SimpleServiceRequestBase
+ */
+@RunWith(JUnit4.class)
+public class SimpleServiceRequestBaseTest {
+
+  private final List<RequestMetrics> completed = Collections.synchronizedList(new ArrayList<RequestMetrics>());
+
+  private ExchangeService service;
+
+  @Before
+  public void setUp() throws Exception {
+    service = new ExchangeService(ExchangeVersion.Exchange2010_SP2);
+    service.setUrl(URI.create("http://localhost/EWS/Exchange.asmx"));
+    service.setCredentials(new WebCredentials("user", "password"));
+    service.setRequestMetricsListener(new IRequestMetricsListener() {
+      @Override
+      public void requestCompleted(RequestMetrics metrics) {
+        completed.add(metrics);
+      }
+    });
+  }
+
+  private static class TestRequest extends SimpleServiceRequestBase<Object> {
+
+    TestRequest(ExchangeService service) throws Exception {
+      super(service);
+    }
+
+    @Override
+    public String getXmlElementName() {
+      return "TestOperation";
+    }
+
+    @Override
+    protected String getResponseXmlElementName() {
+      return "TestOperationResponse";
+    }
+
+    @Override
+    protected ExchangeVersion getMinimumRequiredServerVersion() {
+      return ExchangeVersion.Exchange2007_SP1;
+    }
+
+    @Override
+    protected Object parseResponse(EwsServiceXmlReader reader) throws Exception {
+      return null;
+    }
+
+    @Override
+    protected void writeElementsToXml(EwsServiceXmlWriter writer) throws Exception {
+    }
+  }
+
+  @Test
+  public void testFailedAsyncExecutionIsReported() throws Exception {
+    RequestActivity activity = RequestActivity.getInstance();
+    TestRequest request = new TestRequest(service);
+    request.buildEwsHttpWebRequest();
+    Assert.assertEquals(Integer.valueOf(1), activity.getInFlightRequests().get("TestOperation"));
+
+    IOException cause = new IOException("connection reset");
+    IAsyncResult asyncResult = Mockito.mock(IAsyncResult.class);
+    Mockito.when(asyncResult.get()).thenThrow(new ExecutionException(cause));
+
+    try {
+      request.endInternalExecute(asyncResult);
+      Assert.fail("Expected the asynchronous failure to be rethrown");
+    } catch (ExecutionException e) {
+      Assert.assertSame(cause, e.getCause());
+    }
+
+    Assert.assertEquals(1, completed.size());
+    RequestMetrics metrics = completed.get(0);
+    Assert.assertEquals("TestOperation", metrics.getOperationName());
+    Assert.assertTrue(metrics.isFailed());
+    Assert.assertTrue(metrics.getException() instanceof ExecutionException);
+    Assert.assertNull(activity.getInFlightRequests().get("TestOperation"));
+  }
+
+  @Test
+  public void testFailedAsyncExecutionEndsActivityWithoutListener() throws Exception {
+    service.setRequestMetricsListener(null);
+    RequestActivity activity = RequestActivity.getInstance();
+    int inFlight = activity.getInFlightCount();
+    TestRequest request = new TestRequest(service);
+    request.buildEwsHttpWebRequest();
+    Assert.assertEquals(inFlight + 1, activity.getInFlightCount());
+
+    IAsyncResult asyncResult = Mockito.mock(IAsyncResult.class);
+    Mockito.when(asyncResult.get()).thenThrow(new ExecutionException(new IOException("connection reset")));
+    try {
+      request.endInternalExecute(asyncResult);
+      Assert.fail("Expected the asynchronous failure to be rethrown");
+    } catch (ExecutionException expected) {
+    }
+
+    Assert.assertEquals(inFlight, activity.getInFlightCount());
+    Assert.assertTrue(completed.isEmpty());
+  }
+
+}
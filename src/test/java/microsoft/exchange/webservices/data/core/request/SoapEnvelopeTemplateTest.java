@@ -0,0 +1,138 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.request;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.ICustomXmlSerialization;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ConnectingIdType;
+import microsoft.exchange.webservices.data.core.enumeration.misc.DateTimePrecision;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.credential.ExchangeCredentials;
+import microsoft.exchange.webservices.data.credential.WebCredentials;
+import microsoft.exchange.webservices.data.misc.ImpersonatedUserId;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Collections;
+
+/**
+ * Testclass for methods of SoapEnvelopeTemplate
+ */
+@RunWith(JUnit4.class)
+public class SoapEnvelopeTemplateTest {
+
+  private ExchangeService service;
+
+  @Before
+  public void setUp() {
+    SoapEnvelopeTemplate.clear();
+    service = new ExchangeService(ExchangeVersion.Exchange2010_SP2);
+    service.setImpersonatedUserId(new ImpersonatedUserId(ConnectingIdType.SmtpAddress, "a@contoso.com"));
+    service.setDateTimePrecision(DateTimePrecision.Milliseconds);
+  }
+
+  private String write(String mailbox) throws Exception {
+    GetPasswordExpirationDateRequest request = new GetPasswordExpirationDateRequest(service);
+    request.setMailboxSmtpAddress(mailbox);
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    request.writeToXml(new EwsServiceXmlWriter(service, stream));
+    return stream.toString("UTF-8");
+  }
+
+  @Test
+  public void testCachedEnvelopeMatchesWrittenEnvelope() throws Exception {
+    String first = write("a@contoso.com");
+    String cached = write("a@contoso.com");
+
+    // A custom SOAP header disables the cache.
+    service.setOnSerializeCustomSoapHeaders(Collections.<ICustomXmlSerialization>singletonList(
+        new ICustomXmlSerialization() {
+          @Override
+          public void CustomXmlSerialization(XMLStreamWriter writer) {
+          }
+        }));
+    String written = write("a@contoso.com");
+
+    Assert.assertEquals(written, first);
+    Assert.assertEquals(written, cached);
+    Assert.assertTrue(cached.contains("<m:MailboxSmtpAddress>a@contoso.com</m:MailboxSmtpAddress></m:GetPasswordExpirationDate></soap:Body></soap:Envelope>"));
+  }
+
+  @Test
+  public void testSettingChangeSelectsAnotherEnvelope() throws Exception {
+    String first = write("a@contoso.com");
+    service.setImpersonatedUserId(new ImpersonatedUserId(ConnectingIdType.SmtpAddress, "b@contoso.com"));
+    String second = write("a@contoso.com");
+
+    Assert.assertTrue(first.contains(">a@contoso.com</t:SmtpAddress>"));
+    Assert.assertTrue(second.contains(">b@contoso.com</t:SmtpAddress>"));
+  }
+
+  /**
+   * Credentials that emit a SOAP header of their own without declaring it.
+   */
+  private static class TokenHeaderCredentials extends ExchangeCredentials {
+
+    private final String token;
+
+    TokenHeaderCredentials(String token) {
+      this.token = token;
+    }
+
+    @Override
+    public void serializeExtraSoapHeaders(XMLStreamWriter writer, String webMethodName)
+        throws XMLStreamException {
+      writer.writeStartElement("t", "Token", EwsUtilities.EwsTypesNamespace);
+      writer.writeCharacters(token);
+      writer.writeEndElement();
+    }
+  }
+
+  @Test
+  public void testCredentialHeadersAreNotShared() throws Exception {
+    Assert.assertFalse(new WebCredentials("user", "password").hasExtraSoapHeaders());
+    Assert.assertTrue(new TokenHeaderCredentials("secret").hasExtraSoapHeaders());
+
+    service.setCredentials(new TokenHeaderCredentials("alice-token"));
+    String first = write("a@contoso.com");
+    ExchangeService other = new ExchangeService(ExchangeVersion.Exchange2010_SP2);
+    other.setImpersonatedUserId(new ImpersonatedUserId(ConnectingIdType.SmtpAddress, "a@contoso.com"));
+    other.setDateTimePrecision(DateTimePrecision.Milliseconds);
+    service = other;
+    String second = write("a@contoso.com");
+
+    Assert.assertTrue(first.contains(">alice-token</t:Token>"));
+    Assert.assertFalse(second.contains("alice-token"));
+  }
+
+}
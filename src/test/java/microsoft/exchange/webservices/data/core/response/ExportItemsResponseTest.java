@@ -0,0 +1,107 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.response;
+
+import com.google.common.io.ByteSink;
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.service.ServiceResult;
+import microsoft.exchange.webservices.data.misc.IFunction;
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+import microsoft.exchange.webservices.data.security.XmlNodeType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Testclass for methods of ExportItemsResponse
+ */
+@RunWith(JUnit4.class)
+public class ExportItemsResponseTest {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String MESSAGE =
+      "<m:ExportItemsResponseMessage ResponseClass=\"Success\""
+      + " xmlns:m=\"http://schemas.microsoft.com/exchange/services/2006/messages\""
+      + " xmlns:t=\"http://schemas.microsoft.com/exchange/services/2006/types\">"
+      + "<m:ResponseCode>NoError</m:ResponseCode>"
+      + "<m:ItemId Id=\"AAMkAD\" ChangeKey=\"CQAAAB\"/>"
+      + "<m:Data>aXRlbSBkYXRh</m:Data>"
+      + "</m:ExportItemsResponseMessage>";
+
+  private final ExchangeService service = new ExchangeService(ExchangeVersion.Exchange2010_SP1);
+
+  private ExportItemsResponse parse(IFunction<ItemId, ByteSink> sinks) throws Exception {
+    EwsServiceXmlReader reader =
+        new EwsServiceXmlReader(new ByteArrayInputStream(MESSAGE.getBytes(UTF8)), service);
+    reader.read(new XmlNodeType(XmlNodeType.START_DOCUMENT));
+    reader.readStartElement(XmlNamespace.Messages, XmlElementNames.ExportItemsResponseMessage);
+    ExportItemsResponse response = new ExportItemsResponse(sinks);
+    response.loadFromXml(reader, XmlElementNames.ExportItemsResponseMessage);
+    return response;
+  }
+
+  @Test
+  public void testDataIsDecodedIntoTheSinkOfTheItem() throws Exception {
+    final Map<String, ByteArrayOutputStream> exported = new HashMap<String, ByteArrayOutputStream>();
+    ExportItemsResponse response = parse(new IFunction<ItemId, ByteSink>() {
+      @Override
+      public ByteSink func(final ItemId itemId) {
+        return new ByteSink() {
+          @Override
+          public OutputStream openStream() {
+            ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            exported.put(itemId.getUniqueId(), stream);
+            return stream;
+          }
+        };
+      }
+    });
+
+    Assert.assertEquals(ServiceResult.Success, response.getResult());
+    Assert.assertEquals("AAMkAD", response.getItemId().getUniqueId());
+    Assert.assertEquals("CQAAAB", response.getItemId().getChangeKey());
+    Assert.assertNull(response.getData());
+    Assert.assertEquals("item data", new String(exported.get("AAMkAD").toByteArray(), UTF8));
+  }
+
+  @Test
+  public void testDataIsKeptWithoutSink() throws Exception {
+    ExportItemsResponse response = parse(null);
+
+    Assert.assertEquals("item data", response.getData().asCharSource(UTF8).read());
+  }
+}
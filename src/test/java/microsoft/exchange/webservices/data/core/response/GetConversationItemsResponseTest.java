@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.core.response;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.PropertySet;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.enumeration.property.BasePropertySet;
+import microsoft.exchange.webservices.data.core.service.item.EmailMessage;
+import microsoft.exchange.webservices.data.property.complex.ConversationId;
+import microsoft.exchange.webservices.data.property.complex.ConversationNode;
+import microsoft.exchange.webservices.data.property.complex.ConversationRequest;
+import microsoft.exchange.webservices.data.security.XmlNodeType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Testclass for methods of GetConversationItemsResponse
+ */
+@RunWith(JUnit4.class)
+public class GetConversationItemsResponseTest {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String MESSAGE =
+      "<m:GetConversationItemsResponseMessage ResponseClass=\"Success\""
+      + " xmlns:m=\"http://schemas.microsoft.com/exchange/services/2006/messages\""
+      + " xmlns:t=\"http://schemas.microsoft.com/exchange/services/2006/types\">"
+      + "<m:ResponseCode>NoError</m:ResponseCode>"
+      + "<m:Conversation>"
+      + "<t:ConversationId Id=\"AAQkAD\"/>"
+      + "<t:SyncState>AAAAAQ==</t:SyncState>"
+      + "<t:ConversationNodes>"
+      + "<t:ConversationNode>"
+      + "<t:InternetMessageId>&lt;root@example.com&gt;</t:InternetMessageId>"
+      + "<t:Items><t:Message><t:ItemId Id=\"AAMkA1\" ChangeKey=\"CQ1\"/>"
+      + "<t:Subject>Plans</t:Subject></t:Message></t:Items>"
+      + "</t:ConversationNode>"
+      + "<t:ConversationNode>"
+      + "<t:InternetMessageId>&lt;reply@example.com&gt;</t:InternetMessageId>"
+      + "<t:ParentInternetMessageId>&lt;root@example.com&gt;</t:ParentInternetMessageId>"
+      + "<t:Items><t:Message><t:ItemId Id=\"AAMkA2\" ChangeKey=\"CQ2\"/>"
+      + "<t:Subject>RE: Plans</t:Subject></t:Message></t:Items>"
+      + "</t:ConversationNode>"
+      + "<t:ConversationNode>"
+      + "<t:InternetMessageId>&lt;deleted@example.com&gt;</t:InternetMessageId>"
+      + "<t:Items/>"
+      + "</t:ConversationNode>"
+      + "</t:ConversationNodes>"
+      + "</m:Conversation>"
+      + "</m:GetConversationItemsResponseMessage>";
+
+  private final ExchangeService service = new ExchangeService(ExchangeVersion.Exchange2013);
+
+  @Test
+  public void testConversationNodesAreRead() throws Exception {
+    EwsServiceXmlReader reader =
+        new EwsServiceXmlReader(new ByteArrayInputStream(MESSAGE.getBytes(UTF8)), service);
+    reader.read(new XmlNodeType(XmlNodeType.START_DOCUMENT));
+    reader.readStartElement(XmlNamespace.Messages, XmlElementNames.GetConversationItemsResponseMessage);
+    GetConversationItemsResponse response =
+        new GetConversationItemsResponse(new PropertySet(BasePropertySet.FirstClassProperties));
+    response.loadFromXml(reader, XmlElementNames.GetConversationItemsResponseMessage);
+
+    Assert.assertEquals("AAQkAD", response.getConversationId().getUniqueId());
+    Assert.assertEquals("AAAAAQ==", response.getSyncState());
+    Assert.assertEquals(3, response.getConversationNodes().size());
+
+    ConversationNode root = response.getConversationNodes().get(0);
+    Assert.assertEquals("<root@example.com>", root.getInternetMessageId());
+    Assert.assertNull(root.getParentInternetMessageId());
+    Assert.assertEquals(1, root.getItems().size());
+    Assert.assertTrue(root.getItems().get(0) instanceof EmailMessage);
+    Assert.assertEquals("Plans", root.getItems().get(0).getSubject());
+
+    ConversationNode reply = response.getConversationNodes().get(1);
+    Assert.assertEquals("<root@example.com>", reply.getParentInternetMessageId());
+    Assert.assertEquals("AAMkA2", reply.getItems().get(0).getId().getUniqueId());
+
+    Assert.assertTrue(response.getConversationNodes().get(2).getItems().isEmpty());
+  }
+
+  @Test
+  public void testConversationRequestIsWrittenWithSyncState() throws Exception {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    EwsServiceXmlWriter writer = new EwsServiceXmlWriter(service, stream);
+    new ConversationRequest(new ConversationId("AAQkAD"), "AAAAAQ==")
+        .writeToXml(writer, XmlNamespace.Types, XmlElementNames.Conversation);
+    writer.flush();
+
+    Assert.assertEquals("<t:Conversation><t:ConversationId Id=\"AAQkAD\"></t:ConversationId>"
+        + "<t:SyncState>AAAAAQ==</t:SyncState></t:Conversation>", new String(stream.toByteArray(), UTF8));
+  }
+}
@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.credential;
+
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
+import microsoft.exchange.webservices.data.core.request.HttpClientWebRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Testclass for methods of OAuthCredentials
+ */
+@RunWith(JUnit4.class)
+public class OAuthCredentialsTest {
+
+  private static class CountingSupplier implements IAccessTokenSupplier {
+    final AtomicInteger calls = new AtomicInteger();
+    final long lifetimeMillis;
+    final CountDownLatch release;
+
+    CountingSupplier(long lifetimeMillis, CountDownLatch release) {
+      this.lifetimeMillis = lifetimeMillis;
+      this.release = release;
+    }
+
+    @Override
+    public AccessToken getToken() throws Exception {
+      int call = calls.incrementAndGet();
+      release.await(5, TimeUnit.SECONDS);
+      return AccessToken.bearer("token" + call, lifetimeMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  @Test
+  public void testConcurrentRefreshesAreCoalesced() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    CountingSupplier supplier = new CountingSupplier(TimeUnit.HOURS.toMillis(1), release);
+    final OAuthCredentials credentials = new OAuthCredentials(supplier);
+    final List<String> tokens = Collections.synchronizedList(new ArrayList<String>());
+
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int i = 0; i < 8; i++) {
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          try {
+            tokens.add(credentials.getToken().getValue());
+          } catch (ServiceLocalException e) {
+            tokens.add(e.getMessage());
+          }
+        }
+      });
+      thread.start();
+      threads.add(thread);
+    }
+    Thread.sleep(100);
+    release.countDown();
+    for (Thread thread : threads) {
+      thread.join(5000);
+    }
+
+    Assert.assertEquals(1, supplier.calls.get());
+    Assert.assertEquals(Collections.nCopies(8, "token1"), tokens);
+  }
+
+  @Test
+  public void testTokenWithinMarginIsRefreshedInBackground() throws Exception {
+    final CountDownLatch refreshed = new CountDownLatch(1);
+    CountingSupplier supplier = new CountingSupplier(400, new CountDownLatch(0)) {
+      @Override
+      public AccessToken getToken() throws Exception {
+        AccessToken token = super.getToken();
+        if (calls.get() == 2) {
+          refreshed.countDown();
+        }
+        return token;
+      }
+    };
+    OAuthCredentials credentials = new OAuthCredentials(supplier, 2, TimeUnit.MINUTES);
+
+    Assert.assertEquals("token1", credentials.getToken().getValue());
+    credentials.getToken();
+    // The margin exceeds the lifetime: the token is refreshed at half of it.
+    Assert.assertTrue(refreshed.await(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testMarginLongerThanLifetimeDoesNotRefreshOnEveryUse() throws Exception {
+    CountingSupplier supplier = new CountingSupplier(TimeUnit.MINUTES.toMillis(1), new CountDownLatch(0));
+    OAuthCredentials credentials = new OAuthCredentials(supplier, 2, TimeUnit.MINUTES);
+
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals("token1", credentials.getToken().getValue());
+    }
+    Assert.assertEquals(1, supplier.calls.get());
+  }
+
+  @Test
+  public void testSlowSupplierDoesNotDelayOtherRefreshes() throws Exception {
+    final CountDownLatch slowEntered = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    final AtomicInteger slowCalls = new AtomicInteger();
+    OAuthCredentials slow = new OAuthCredentials(new IAccessTokenSupplier() {
+      @Override
+      public AccessToken getToken() throws Exception {
+        if (slowCalls.incrementAndGet() > 1) {
+          slowEntered.countDown();
+          release.await(5, TimeUnit.SECONDS);
+        }
+        return AccessToken.bearer("slow", 1, TimeUnit.SECONDS);
+      }
+    }, 2, TimeUnit.MINUTES);
+    final CountDownLatch refreshed = new CountDownLatch(1);
+    final AtomicInteger calls = new AtomicInteger();
+    OAuthCredentials credentials = new OAuthCredentials(new IAccessTokenSupplier() {
+      @Override
+      public AccessToken getToken() throws Exception {
+        if (calls.incrementAndGet() > 1) {
+          refreshed.countDown();
+        }
+        return AccessToken.bearer("token", 1, TimeUnit.SECONDS);
+      }
+    }, 2, TimeUnit.MINUTES);
+
+    try {
+      // The tokens are refreshed in the background after half a second,
+      // before they expire.
+      Assert.assertTrue(useUntil(slow, slowEntered, 5000));
+      Assert.assertTrue(useUntil(credentials, refreshed, 900));
+    } finally {
+      release.countDown();
+    }
+  }
+
+  @Test(expected = ServiceLocalException.class)
+  public void testSupplierFailureIsReported() throws Exception {
+    OAuthCredentials credentials = new OAuthCredentials(new IAccessTokenSupplier() {
+      @Override
+      public AccessToken getToken() throws Exception {
+        throw new IllegalStateException("unavailable");
+      }
+    });
+    credentials.preAuthenticate();
+  }
+
+  @Test
+  public void testPrepareWebRequestAddsAuthorizationHeader() throws Exception {
+    OAuthCredentials credentials = new OAuthCredentials(new CountingSupplier(60000, new CountDownLatch(0)));
+    Map<String, String> serviceHeaders = new HashMap<String, String>();
+    serviceHeaders.put("X-Test", "1");
+    HttpClientWebRequest request = new HttpClientWebRequest(null, HttpClientContext.create());
+    request.setHeaders(serviceHeaders);
+
+    credentials.preAuthenticate();
+    credentials.prepareWebRequest(request);
+
+    Assert.assertEquals("Bearer token1", request.getHeaders().get("Authorization"));
+    Assert.assertEquals("1", request.getHeaders().get("X-Test"));
+    Assert.assertFalse(serviceHeaders.containsKey("Authorization"));
+  }
+
+  /**
+   * Uses credentials until a latch is released.
+   */
+  private static boolean useUntil(OAuthCredentials credentials, CountDownLatch latch, long timeoutMillis)
+      throws Exception {
+    long end = System.currentTimeMillis() + timeoutMillis;
+    while (System.currentTimeMillis() < end) {
+      credentials.getToken();
+      if (latch.await(10, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc;
+
+import microsoft.exchange.webservices.data.core.exception.service.remote.DeadlineExceededException;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Testclass for methods of Deadline
+ */
+@RunWith(JUnit4.class)
+public class DeadlineTest {
+
+  @Test
+  public void testCapTimeout() {
+    Deadline deadline = Deadline.after(1, TimeUnit.HOURS);
+    Assert.assertEquals(100000, deadline.capTimeout(100000));
+    int capped = deadline.capTimeout(0);
+    Assert.assertTrue(capped > 3500000 && capped <= 3600000);
+
+    Assert.assertEquals(100000, Deadline.cancellable().capTimeout(100000));
+    Assert.assertEquals(1, Deadline.after(0, TimeUnit.SECONDS).capTimeout(100000));
+  }
+
+  @Test
+  public void testAttach() {
+    Deadline outer = Deadline.cancellable();
+    Deadline inner = Deadline.after(1, TimeUnit.MINUTES);
+    Assert.assertNull(Deadline.current());
+
+    Deadline.Scope outerScope = outer.attach();
+    Deadline.Scope innerScope = inner.attach();
+    Assert.assertSame(inner, Deadline.current());
+    innerScope.close();
+    Assert.assertSame(outer, Deadline.current());
+    outerScope.close();
+    Assert.assertNull(Deadline.current());
+  }
+
+  @Test
+  public void testCancel() throws Exception {
+    Deadline deadline = Deadline.cancellable();
+    final AtomicInteger runs = new AtomicInteger();
+    Runnable action = new Runnable() {
+      @Override
+      public void run() {
+        runs.incrementAndGet();
+      }
+    };
+    deadline.onDone(action);
+    deadline.onDone(action).remove();
+    deadline.throwIfDone();
+
+    deadline.cancel();
+    Assert.assertEquals(1, runs.get());
+    Assert.assertTrue(deadline.isCancelled());
+    Assert.assertEquals(0, deadline.getRemaining(TimeUnit.MILLISECONDS));
+
+    deadline.onDone(action);
+    Assert.assertEquals(2, runs.get());
+
+    try {
+      deadline.throwIfDone();
+      Assert.fail("Expected DeadlineExceededException");
+    } catch (DeadlineExceededException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testExpiry() throws Exception {
+    Deadline deadline = Deadline.after(20, TimeUnit.MILLISECONDS);
+    final CountDownLatch expired = new CountDownLatch(1);
+    deadline.onDone(new Runnable() {
+      @Override
+      public void run() {
+        expired.countDown();
+      }
+    });
+    Assert.assertTrue(expired.await(5, TimeUnit.SECONDS));
+    Assert.assertTrue(deadline.isExpired());
+    Assert.assertFalse(deadline.isCancelled());
+  }
+
+}
@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+
+package microsoft.exchange.webservices.data.misc;
+
+import com.google.common.io.ByteSource;
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.property.WellKnownFolderName;
+import microsoft.exchange.webservices.data.core.enumeration.service.CreateAction;
+import microsoft.exchange.webservices.data.property.complex.FolderId;
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Testclass for methods of UploadItem
+ */
+@RunWith(JUnit4.class)
+public class UploadItemTest {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final ExchangeService service = new ExchangeService(ExchangeVersion.Exchange2010_SP1);
+
+  @Test
+  public void testUploadItemIsWrittenWithItsData() throws Exception {
+    UploadItem item = new UploadItem(new FolderId("AAMkFolder"), CreateAction.UpdateOrCreate,
+        new ItemId("AAMkAD"), ByteSource.wrap("item data".getBytes(UTF8)));
+    item.setIsAssociated(false);
+
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    EwsServiceXmlWriter writer = new EwsServiceXmlWriter(service, stream);
+    item.writeToXml(writer);
+    writer.flush();
+    String xml = new String(stream.toByteArray(), UTF8);
+
+    Assert.assertTrue(xml, xml.contains("CreateAction=\"UpdateOrCreate\""));
+    Assert.assertTrue(xml, xml.contains("IsAssociated=\"false\""));
+    Assert.assertTrue(xml, xml.contains("<t:ParentFolderId Id=\"AAMkFolder\""));
+    Assert.assertTrue(xml, xml.contains("<t:ItemId Id=\"AAMkAD\""));
+    Assert.assertTrue(xml, xml.contains("<t:Data>aXRlbSBkYXRh</t:Data>"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUpdateRequiresAnItemId() throws Exception {
+    new UploadItem(new FolderId("AAMkFolder"), CreateAction.Update, null,
+        ByteSource.wrap(new byte[0]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testWellKnownParentFolderIsRejected() throws Exception {
+    new UploadItem(new FolderId(WellKnownFolderName.Inbox), ByteSource.wrap(new byte[0]));
+  }
+}
@@ -0,0 +1,314 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.availability;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.RequestContext;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.availability.AvailabilityData;
+import microsoft.exchange.webservices.data.core.enumeration.availability.FreeBusyViewType;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.exception.service.remote.DeadlineExceededException;
+import microsoft.exchange.webservices.data.core.response.AttendeeAvailability;
+import microsoft.exchange.webservices.data.core.response.ServiceResponseCollection;
+import microsoft.exchange.webservices.data.misc.Deadline;
+import microsoft.exchange.webservices.data.property.complex.availability.CalendarEvent;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * Testclass for methods of AvailabilityEngine
+ */
+@RunWith(JUnit4.class)
+public class AvailabilityEngineTest {
+
+  private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+  private static final long DAY = TimeUnit.DAYS.toMillis(1);
+
+  private static final long START = 1704067200000L; // 2024-01-01T00:00:00Z
+
+  /**
+   * The attendee count and day count of each request.
+   */
+  private final List<String> requests = Collections.synchronizedList(new ArrayList<String>());
+
+  /**
+   * The anchor mailbox of each request.
+   */
+  private final List<String> mailboxes = Collections.synchronizedList(new ArrayList<String>());
+
+  private volatile CountDownLatch entered;
+
+  private volatile CountDownLatch release;
+
+  private ExchangeService service;
+
+  private AvailabilityEngine engine;
+
+  @Before
+  public void setUp() throws Exception {
+    service = new ExchangeService(ExchangeVersion.Exchange2010_SP2) {
+      @Override
+      public GetUserAvailabilityResults getUserAvailability(Iterable<AttendeeInfo> attendees,
+          TimeWindow timeWindow, AvailabilityData requestedData, AvailabilityOptions options) throws Exception {
+        RequestContext context = RequestContext.current();
+        mailboxes.add(context != null ? context.getAnchorMailbox() : null);
+        if (entered != null) {
+          entered.countDown();
+          release.await();
+        }
+        long start = timeWindow.getStartTime().getTime();
+        long end = timeWindow.getEndTime().getTime();
+        GetUserAvailabilityResults results = new GetUserAvailabilityResults();
+        results.setAttendeesAvailability(new ServiceResponseCollection<AttendeeAvailability>());
+        int count = 0;
+        for (AttendeeInfo attendee : attendees) {
+          List<CalendarEvent> events = new ArrayList<CalendarEvent>();
+          // A three day event, then one hour every day.
+          if (start < START + 2 * DAY + 8 * HOUR && end > START + 20 * HOUR) {
+            events.add(event(START + 20 * HOUR, START + 2 * DAY + 8 * HOUR));
+          }
+          for (long day = start; day < end; day += DAY) {
+            events.add(event(day + 10 * HOUR, day + 11 * HOUR));
+          }
+          results.getAttendeesAvailability().add(
+              new AttendeeAvailability(options.getRequestedFreeBusyView(), events, null));
+          count++;
+        }
+        requests.add(count + "x" + (end - start) / DAY);
+        return results;
+      }
+    };
+    engine = new AvailabilityEngine(service, 4, 1, TimeUnit.MINUTES);
+  }
+
+  @After
+  public void tearDown() {
+    engine.close();
+  }
+
+  @Test
+  public void testRequestsAreChunked() throws Exception {
+    List<AttendeeInfo> attendees = attendees(250);
+
+    GetUserAvailabilityResults results = engine.getUserAvailability(attendees,
+        new TimeWindow(new Date(START), new Date(START + 60 * DAY)), FreeBusyViewType.FreeBusy);
+
+    Collections.sort(requests);
+    Assert.assertEquals(Arrays.asList("100x18", "100x18", "100x42", "100x42", "50x18", "50x42"),
+        requests);
+    Assert.assertEquals(250, results.getAttendeesAvailability().getCount());
+    for (AttendeeAvailability availability : results.getAttendeesAvailability()) {
+      List<CalendarEvent> events = new ArrayList<CalendarEvent>(availability.getCalendarEvents());
+      Assert.assertEquals(61, events.size());
+      Assert.assertEquals(START + 10 * HOUR, events.get(0).getStartTime().getTime());
+      Assert.assertEquals(START + 20 * HOUR, events.get(1).getStartTime().getTime());
+      Assert.assertEquals(START + DAY + 10 * HOUR, events.get(2).getStartTime().getTime());
+    }
+  }
+
+  @Test
+  public void testOverlappingWindowsAreCached() throws Exception {
+    List<AttendeeInfo> attendees = attendees(3);
+    engine.getUserAvailability(attendees, new TimeWindow(new Date(START), new Date(START + 2 * DAY)),
+        FreeBusyViewType.Detailed);
+
+    GetUserAvailabilityResults results = engine.getUserAvailability(attendees,
+        new TimeWindow(new Date(START + DAY + 12 * HOUR), new Date(START + 3 * DAY)), FreeBusyViewType.Detailed);
+
+    Assert.assertEquals(Arrays.asList("3x2", "3x1"), requests);
+    List<CalendarEvent> events = new ArrayList<CalendarEvent>(
+        results.getAttendeesAvailability().getResponseAtIndex(0).getCalendarEvents());
+    Assert.assertEquals(2, events.size());
+    Assert.assertEquals(START + 20 * HOUR, events.get(0).getStartTime().getTime());
+    Assert.assertEquals(START + 2 * DAY + 10 * HOUR, events.get(1).getStartTime().getTime());
+  }
+
+  @Test
+  public void testImpersonatedCallersDoNotShareDays() throws Exception {
+    List<AttendeeInfo> attendees = attendees(1);
+    try (RequestContext.Scope scope = RequestContext.forMailbox("alice@example.com").attach()) {
+      query(attendees, START).call();
+      query(attendees, START).call();
+    }
+    try (RequestContext.Scope scope = RequestContext.forMailbox("bob@example.com").attach()) {
+      query(attendees, START).call();
+    }
+    try (RequestContext.Scope scope = RequestContext.forMailbox("ALICE@example.com").attach()) {
+      query(attendees, START).call();
+    }
+
+    Assert.assertEquals(Arrays.asList("1x1", "1x1"), requests);
+    Assert.assertEquals(Arrays.asList("alice@example.com", "bob@example.com"), mailboxes);
+  }
+
+  @Test
+  public void testConcurrentQueriesAreCoalesced() throws Exception {
+    final List<AttendeeInfo> attendees = attendees(2);
+    entered = new CountDownLatch(1);
+    release = new CountDownLatch(1);
+    Callable<GetUserAvailabilityResults> query = new Callable<GetUserAvailabilityResults>() {
+      @Override
+      public GetUserAvailabilityResults call() throws Exception {
+        return engine.getUserAvailability(attendees, new TimeWindow(new Date(START), new Date(START + DAY)),
+            FreeBusyViewType.FreeBusy);
+      }
+    };
+    ExecutorService callers = Executors.newFixedThreadPool(2);
+    try {
+      Future<GetUserAvailabilityResults> first = callers.submit(query);
+      Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+      Future<GetUserAvailabilityResults> second = callers.submit(query);
+      Thread.sleep(100);
+      release.countDown();
+
+      Assert.assertEquals(2, first.get(5, TimeUnit.SECONDS).getAttendeesAvailability().getCount());
+      Assert.assertEquals(2, second.get(5, TimeUnit.SECONDS).getAttendeesAvailability().getCount());
+      Assert.assertEquals(1, requests.size());
+    } finally {
+      callers.shutdownNow();
+    }
+  }
+
+  @Test(timeout = 5000, expected = RejectedExecutionException.class)
+  public void testQueryFailsAfterClose() throws Exception {
+    engine.close();
+
+    engine.getUserAvailability(attendees(1), new TimeWindow(new Date(START), new Date(START + DAY)),
+        FreeBusyViewType.FreeBusy);
+  }
+
+  @Test
+  public void testQueuedQueryFailsWhenClosed() throws Exception {
+    engine.close();
+    engine = new AvailabilityEngine(service, 1, 1, TimeUnit.MINUTES);
+    entered = new CountDownLatch(1);
+    release = new CountDownLatch(1);
+    ExecutorService callers = Executors.newFixedThreadPool(2);
+    try {
+      Future<GetUserAvailabilityResults> first = callers.submit(query(attendees(1), START));
+      Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+      // Queued behind the first request, on the only thread of the engine.
+      Future<GetUserAvailabilityResults> second = callers.submit(query(attendees(1), START + DAY));
+      Thread.sleep(100);
+
+      engine.close();
+
+      try {
+        second.get(5, TimeUnit.SECONDS);
+        Assert.fail("The queued query did not fail.");
+      } catch (ExecutionException e) {
+        Assert.assertTrue(e.getCause() instanceof RejectedExecutionException);
+      }
+      try {
+        first.get(5, TimeUnit.SECONDS);
+        Assert.fail("The interrupted query did not fail.");
+      } catch (ExecutionException e) {
+        // Expected.
+      }
+    } finally {
+      release.countDown();
+      callers.shutdownNow();
+    }
+  }
+
+  @Test
+  public void testWaitForOtherCallerIsBoundedByDeadline() throws Exception {
+    List<AttendeeInfo> attendees = attendees(1);
+    entered = new CountDownLatch(1);
+    release = new CountDownLatch(1);
+    ExecutorService callers = Executors.newFixedThreadPool(1);
+    try {
+      Future<GetUserAvailabilityResults> first = callers.submit(query(attendees, START));
+      Assert.assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+      try (Deadline.Scope scope = Deadline.after(100, TimeUnit.MILLISECONDS).attach()) {
+        query(attendees, START).call();
+        Assert.fail("The wait was not bounded by the deadline.");
+      } catch (DeadlineExceededException e) {
+        // Expected.
+      }
+
+      release.countDown();
+      Assert.assertEquals(1, first.get(5, TimeUnit.SECONDS).getAttendeesAvailability().getCount());
+      Assert.assertEquals(1, requests.size());
+    } finally {
+      release.countDown();
+      callers.shutdownNow();
+    }
+  }
+
+  private Callable<GetUserAvailabilityResults> query(final List<AttendeeInfo> attendees, final long start) {
+    return new Callable<GetUserAvailabilityResults>() {
+      @Override
+      public GetUserAvailabilityResults call() throws Exception {
+        return engine.getUserAvailability(attendees, new TimeWindow(new Date(start), new Date(start + DAY)),
+            FreeBusyViewType.FreeBusy);
+      }
+    };
+  }
+
+  private static List<AttendeeInfo> attendees(int count) {
+    List<AttendeeInfo> attendees = new ArrayList<AttendeeInfo>();
+    for (int i = 0; i < count; i++) {
+      attendees.add(new AttendeeInfo("room" + i + "@example.com"));
+    }
+    return attendees;
+  }
+
+  private static CalendarEvent event(long start, long end) throws Exception {
+    CalendarEvent event = new CalendarEvent();
+    EwsServiceXmlReader reader = Mockito.mock(EwsServiceXmlReader.class);
+    doReturn(XmlElementNames.StartTime).when(reader).getLocalName();
+    doReturn(new Date(start)).when(reader).readElementValueAsUnbiasedDateTimeScopedToServiceTimeZone();
+    event.tryReadElementFromXml(reader);
+    doReturn(XmlElementNames.EndTime).when(reader).getLocalName();
+    doReturn(new Date(end)).when(reader).readElementValueAsUnbiasedDateTimeScopedToServiceTimeZone();
+    event.tryReadElementFromXml(reader);
+    return event;
+  }
+}
@@ -0,0 +1,178 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.fanout;
+
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.RequestContext;
+import org.apache.http.impl.cookie.BasicClientCookie;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Testclass for methods of MailboxFanOutExecutor
+ */
+@RunWith(JUnit4.class)
+public class MailboxFanOutExecutorTest {
+
+  private ExchangeService service;
+
+  private MailboxFanOutExecutor executor;
+
+  @Before
+  public void setUp() {
+    service = new ExchangeService();
+    executor = new MailboxFanOutExecutor(service, 4, 2);
+  }
+
+  @After
+  public void tearDown() {
+    executor.close();
+    service.close();
+  }
+
+  @Test
+  public void testExecuteUnderMailboxContext() throws InterruptedException {
+    MailboxResults<String> results = executor.execute(
+        Arrays.asList("a@contoso.com", "b@contoso.com", "fail@contoso.com"),
+        new IMailboxOperation<String>() {
+          @Override
+          public String execute(ExchangeService service, String mailbox) throws Exception {
+            if (mailbox.startsWith("fail")) {
+              throw new IllegalStateException(mailbox);
+            }
+            RequestContext context = RequestContext.current();
+            return context.getAnchorMailbox() + "|" + context.getImpersonatedUserId().getId();
+          }
+        });
+
+    Set<String> values = new HashSet<String>();
+    MailboxResult<String> result;
+    int failures = 0;
+    while ((result = results.take()) != null) {
+      if (result.isSuccess()) {
+        values.add(result.getValue());
+      } else {
+        failures++;
+        Assert.assertEquals("fail@contoso.com", result.getException().getMessage());
+      }
+    }
+    Assert.assertEquals(1, failures);
+    Assert.assertEquals(new HashSet<String>(Arrays.asList("a@contoso.com|a@contoso.com",
+        "b@contoso.com|b@contoso.com")), values);
+    Assert.assertFalse(results.hasMore());
+  }
+
+  @Test
+  public void testMailboxesFailAfterClose() throws InterruptedException {
+    executor.close();
+    MailboxResults<String> results = executor.execute(Arrays.asList("a@contoso.com", "b@contoso.com"),
+        new IMailboxOperation<String>() {
+          @Override
+          public String execute(ExchangeService service, String mailbox) {
+            return mailbox;
+          }
+        });
+
+    for (int i = 0; i < 2; i++) {
+      MailboxResult<String> result = results.poll(10, TimeUnit.SECONDS);
+      Assert.assertNotNull(result);
+      Assert.assertTrue(result.getException() instanceof RejectedExecutionException);
+    }
+    Assert.assertFalse(results.hasMore());
+  }
+
+  @Test
+  public void testParkedMailboxFailsWhenClosed() throws InterruptedException {
+    executor.close();
+    executor = new MailboxFanOutExecutor(service, 4, 1);
+    final List<String> mailboxes = Arrays.asList("a@contoso.com", "b@contoso.com");
+
+    // Learn that both mailboxes live on the same backend.
+    MailboxResults<String> learning = executor.execute(mailboxes, new IMailboxOperation<String>() {
+      @Override
+      public String execute(ExchangeService service, String mailbox) {
+        RequestContext.current().getCookieStore().addCookie(
+            new BasicClientCookie("X-BackEndCookie", mailbox + "=backend1"));
+        return mailbox;
+      }
+    });
+    while (learning.take() != null) {
+      // Drain the results.
+    }
+    Assert.assertEquals("backend1", executor.getBackend("b@contoso.com"));
+
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch release = new CountDownLatch(1);
+    MailboxResults<String> results = executor.execute(mailboxes, new IMailboxOperation<String>() {
+      @Override
+      public String execute(ExchangeService service, String mailbox) throws Exception {
+        started.countDown();
+        release.await(10, TimeUnit.SECONDS);
+        return mailbox;
+      }
+    });
+    Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+    // One mailbox holds the only slot of the backend; the other is parked.
+    Thread.sleep(100);
+    executor.close();
+    release.countDown();
+
+    int failures = 0;
+    for (int i = 0; i < 2; i++) {
+      MailboxResult<String> result = results.poll(10, TimeUnit.SECONDS);
+      Assert.assertNotNull(result);
+      if (!result.isSuccess()) {
+        failures++;
+        Assert.assertTrue(result.getException() instanceof RejectedExecutionException);
+      }
+    }
+    Assert.assertEquals(1, failures);
+  }
+
+  @Test
+  public void testAffinityCookiesAreKeptPerMailbox() {
+    MailboxAffinity first = new MailboxAffinity(service);
+    MailboxAffinity second = new MailboxAffinity(service);
+    first.addCookie(new BasicClientCookie("X-BackEndCookie", "a@contoso.com=backend1"));
+    first.addCookie(new BasicClientCookie("session", "shared"));
+
+    Assert.assertEquals(2, first.getCookies().size());
+    Assert.assertEquals(1, second.getCookies().size());
+    Assert.assertEquals("session", second.getCookies().get(0).getName());
+    Assert.assertEquals(1, service.getCookieStore().getCookies().size());
+  }
+
+}
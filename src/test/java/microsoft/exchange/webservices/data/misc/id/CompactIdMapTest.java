@@ -0,0 +1,119 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.id;
+
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Testclass for methods of CompactIdMap and CompactServiceId
+ */
+@RunWith(JUnit4.class)
+public class CompactIdMapTest {
+
+  private static final String ID = "AAMkADk0N2E4YTFkLTc4ZGMtNGIxOS05NzQ1LTI0MGY4YmE3YmJmMABGAAAAAAA=";
+
+  private static final String CHANGE_KEY = "CQAAABYAAAA=";
+
+  private static String randomId(Random random) {
+    byte[] bytes = new byte[70];
+    random.nextBytes(bytes);
+    return Base64.encodeBase64String(bytes);
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    ItemId itemId = new ItemId(ID);
+    itemId.setChangeKey(CHANGE_KEY);
+    CompactServiceId compact = CompactServiceId.valueOf(itemId);
+    Assert.assertEquals(ID, compact.getUniqueId());
+    Assert.assertEquals(CHANGE_KEY, compact.getChangeKey());
+    Assert.assertEquals(itemId, compact.toItemId());
+    Assert.assertEquals(CHANGE_KEY, compact.toItemId().getChangeKey());
+  }
+
+  @Test
+  public void testEqualityIgnoresChangeKey() {
+    CompactServiceId first = CompactServiceId.valueOf(ID, CHANGE_KEY);
+    CompactServiceId second = CompactServiceId.valueOf(ID, null);
+    Assert.assertEquals(first, second);
+    Assert.assertEquals(first.hashCode(), second.hashCode());
+    Assert.assertFalse(first.sameIdAndChangeKey(second));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testRejectsNonBase64Id() {
+    CompactServiceId.valueOf("not an id", null);
+  }
+
+  @Test
+  public void testMapMatchesHashMap() {
+    Random random = new Random(42);
+    CompactIdMap<Integer> map = new CompactIdMap<Integer>();
+    Map<String, Integer> expected = new HashMap<String, Integer>();
+    String[] ids = new String[2000];
+    for (int i = 0; i < ids.length; i++) {
+      ids[i] = randomId(random);
+    }
+    for (int i = 0; i < 20000; i++) {
+      String id = ids[random.nextInt(ids.length)];
+      CompactServiceId key = CompactServiceId.valueOf(id, null);
+      if (random.nextInt(3) == 0) {
+        Assert.assertEquals(expected.remove(id), map.remove(key));
+      } else {
+        Assert.assertEquals(expected.put(id, i), map.put(key, i));
+      }
+      Assert.assertEquals(expected.size(), map.size());
+    }
+    for (String id : ids) {
+      Assert.assertEquals(expected.get(id), map.get(CompactServiceId.valueOf(id, null)));
+    }
+    Set<String> iterated = new HashSet<String>();
+    for (CompactServiceId id : map) {
+      iterated.add(id.getUniqueId());
+    }
+    Assert.assertEquals(expected.keySet(), iterated);
+  }
+
+  @Test
+  public void testSet() {
+    CompactIdSet set = new CompactIdSet(1);
+    Assert.assertTrue(set.add(ID));
+    Assert.assertFalse(set.add(CompactServiceId.valueOf(ID, CHANGE_KEY)));
+    Assert.assertTrue(set.contains(CompactServiceId.valueOf(ID, null)));
+    Assert.assertTrue(set.remove(CompactServiceId.valueOf(ID, null)));
+    Assert.assertTrue(set.isEmpty());
+  }
+
+}
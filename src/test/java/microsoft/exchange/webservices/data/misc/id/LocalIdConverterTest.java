@@ -0,0 +1,149 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.id;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.XmlElementNames;
+import microsoft.exchange.webservices.data.core.enumeration.misc.IdFormat;
+import microsoft.exchange.webservices.data.core.response.ConvertIdResponse;
+import microsoft.exchange.webservices.data.security.XmlNodeType;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Testclass for methods of LocalIdConverter
+ */
+@RunWith(JUnit4.class)
+public class LocalIdConverterTest {
+
+  private static final String MAILBOX = "user@contoso.com";
+
+  private static final String EWS_ID = "AAMkAGE3NGEwNzMyLWJkZDMtNDZkNS05N2NjLWE2YzFlODJmYzg2MwBGAAAAAADgx5FxhkVNQYFdPkR+"
+      + "t8UWBwBuBfMvUm1wRpfS5BVUVl9TAAAAAAEMAABuBfMvUm1wRpfS5BVUVl9TAAABHB1nAAA=";
+
+  private static final String HEX_ENTRY_ID = "00000000E0C7917186454D41815D3E447EB7C51607006E05F32F526D704697D2E4"
+      + "1554565F5300000000010C00006E05F32F526D704697D2E41554565F530000011C1D670000";
+
+  @Test
+  public void testEwsIdToHexEntryIdAndBack() {
+    LocalIdConverter converter = new LocalIdConverter();
+    converter.learn(new AlternateId(IdFormat.EwsId, EWS_ID, MAILBOX));
+
+    AlternateId hex = converter.convert(new AlternateId(IdFormat.EwsId, EWS_ID, MAILBOX), IdFormat.HexEntryId);
+    Assert.assertEquals(HEX_ENTRY_ID, hex.getUniqueId());
+    Assert.assertEquals(MAILBOX, hex.getMailbox());
+    Assert.assertEquals("a74a0732-bdd3-46d5-97cc-a6c1e82fc863", converter.getMailboxGuid("USER@contoso.com", false));
+
+    AlternateId ewsId = converter.convert(hex, IdFormat.EwsId);
+    Assert.assertEquals(EWS_ID, ewsId.getUniqueId());
+  }
+
+  @Test
+  public void testMailboxGuidIsNotLearnedFromIdsToConvert() {
+    LocalIdConverter converter = new LocalIdConverter();
+
+    AlternateId hex = converter.convert(new AlternateId(IdFormat.EwsId, EWS_ID, "other@contoso.com"),
+        IdFormat.HexEntryId);
+    Assert.assertEquals(HEX_ENTRY_ID, hex.getUniqueId());
+    Assert.assertNull(converter.getMailboxGuid("other@contoso.com", false));
+    Assert.assertNull(converter.convert(hex, IdFormat.EwsId));
+  }
+
+  @Test
+  public void testLocalConversionsMatchTheServer() throws Exception {
+    ConvertIdResponse toHex = readResponse(IdFormat.HexEntryId, HEX_ENTRY_ID);
+    ConvertIdResponse toEwsId = readResponse(IdFormat.EwsId, EWS_ID);
+    LocalIdConverter converter = new LocalIdConverter();
+    converter.learn(toHex.getConvertedId());
+    Assert.assertNull(converter.getMailboxGuid(MAILBOX, false));
+    converter.learn(toEwsId.getConvertedId());
+
+    AlternateId hex = converter.convert(toEwsId.getConvertedId(), IdFormat.HexEntryId);
+    AlternateId ewsId = converter.convert(toHex.getConvertedId(), IdFormat.EwsId);
+    Assert.assertEquals(((AlternateId) toHex.getConvertedId()).getUniqueId(), hex.getUniqueId());
+    Assert.assertEquals(((AlternateId) toEwsId.getConvertedId()).getUniqueId(), ewsId.getUniqueId());
+    Assert.assertEquals(MAILBOX, ewsId.getMailbox());
+  }
+
+  @Test
+  public void testEntryIdToHexEntryId() {
+    LocalIdConverter converter = new LocalIdConverter();
+
+    AlternateId entryId = converter.convert(new AlternateId(IdFormat.HexEntryId, HEX_ENTRY_ID, MAILBOX),
+        IdFormat.EntryId);
+    AlternateId hex = converter.convert(entryId, IdFormat.HexEntryId);
+    Assert.assertEquals(HEX_ENTRY_ID, hex.getUniqueId());
+  }
+
+  @Test
+  public void testEwsIdNeedsMailboxGuid() {
+    LocalIdConverter converter = new LocalIdConverter();
+    AlternateId hex = new AlternateId(IdFormat.HexEntryId, HEX_ENTRY_ID, MAILBOX);
+
+    Assert.assertNull(converter.convert(hex, IdFormat.EwsId));
+
+    converter.setMailboxGuid(MAILBOX, false, "A74A0732-BDD3-46D5-97CC-A6C1E82FC863");
+    Assert.assertEquals(EWS_ID, converter.convert(hex, IdFormat.EwsId).getUniqueId());
+    Assert.assertNull(converter.convert(new AlternateId(IdFormat.HexEntryId, HEX_ENTRY_ID, MAILBOX, true),
+        IdFormat.EwsId));
+  }
+
+  @Test
+  public void testServerOnlyFormats() {
+    LocalIdConverter converter = new LocalIdConverter();
+    AlternateId ewsId = new AlternateId(IdFormat.EwsId, EWS_ID, MAILBOX);
+
+    Assert.assertNull(converter.convert(ewsId, IdFormat.OwaId));
+    Assert.assertNull(converter.convert(ewsId, IdFormat.StoreId));
+    Assert.assertNull(converter.convert(ewsId, IdFormat.EwsLegacyId));
+    Assert.assertNull(converter.convert(new AlternateId(IdFormat.EwsId, "not an id", MAILBOX), IdFormat.EntryId));
+  }
+
+  /**
+   * Reads a ConvertId response message as the server returns it.
+   */
+  private static ConvertIdResponse readResponse(IdFormat format, String id) throws Exception {
+    String xml = "<m:ConvertIdResponseMessage ResponseClass=\"Success\""
+        + " xmlns:m=\"" + EwsUtilities.EwsMessagesNamespace + "\""
+        + " xmlns:t=\"" + EwsUtilities.EwsTypesNamespace + "\""
+        + " xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\">"
+        + "<m:ResponseCode>NoError</m:ResponseCode>"
+        + "<m:AlternateId xsi:type=\"t:AlternateIdType\" Format=\"" + format + "\" Id=\"" + id + "\""
+        + " Mailbox=\"" + MAILBOX + "\"/>"
+        + "</m:ConvertIdResponseMessage>";
+    EwsServiceXmlReader reader = new EwsServiceXmlReader(
+        new ByteArrayInputStream(xml.getBytes(Charset.forName("UTF-8"))), new ExchangeService());
+    reader.read(new XmlNodeType(XmlNodeType.START_DOCUMENT));
+    ConvertIdResponse response = new ConvertIdResponse();
+    response.loadFromXml(reader, XmlElementNames.ConvertIdResponseMessage);
+    return response;
+  }
+}
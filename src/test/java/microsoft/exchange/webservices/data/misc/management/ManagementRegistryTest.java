@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.management;
+
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Testclass for methods of ManagementRegistry
+ */
+@RunWith(JUnit4.class)
+public class ManagementRegistryTest {
+
+  @Test
+  public void testConnectionPool() throws Exception {
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    ManagementRegistry registry = new ManagementRegistry(server);
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    try {
+      ObjectName name = registry.registerConnectionPool("default", connectionManager);
+
+      Assert.assertEquals(0, server.getAttribute(name, "Leased"));
+      Assert.assertEquals(0, ((CompositeData[]) server.getAttribute(name, "Routes")).length);
+
+      server.setAttribute(name, new Attribute("MaxTotal", 7));
+      Assert.assertEquals(7, connectionManager.getMaxTotal());
+      server.invoke(name, "recycleIdleConnections", new Object[0], new String[0]);
+
+      registry.unregisterAll();
+      Assert.assertFalse(server.isRegistered(name));
+    } finally {
+      connectionManager.close();
+    }
+  }
+
+  @Test
+  public void testRequestActivity() throws Exception {
+    MBeanServer server = MBeanServerFactory.newMBeanServer();
+    ManagementRegistry registry = new ManagementRegistry(server);
+    ObjectName name = registry.registerRequestActivity();
+    ObjectName streamingName = registry.registerStreamingConnections();
+
+    RequestActivity activity = RequestActivity.getInstance();
+    int inFlight = activity.getInFlightCount();
+    activity.requestStarted("TestOperation");
+    Assert.assertEquals(inFlight + 1, server.getAttribute(name, "InFlightCount"));
+    Assert.assertEquals(Integer.valueOf(1), activity.getInFlightRequests().get("TestOperation"));
+    activity.requestEnded("TestOperation");
+    Assert.assertEquals(inFlight, server.getAttribute(name, "InFlightCount"));
+    Assert.assertNull(activity.getInFlightRequests().get("TestOperation"));
+
+    Assert.assertEquals(0, server.getAttribute(streamingName, "OpenConnectionCount"));
+    registry.unregisterAll();
+  }
+
+}
@@ -0,0 +1,94 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+/**
+ * Testclass for methods of Histogram
+ */
+@RunWith(JUnit4.class)
+public class HistogramTest {
+
+  @Test
+  public void testEmptyHistogram() {
+    Histogram histogram = new Histogram(1000);
+    Assert.assertEquals(0, histogram.getTotalCount());
+    Assert.assertEquals(0, histogram.getMinValue());
+    Assert.assertEquals(0, histogram.getMaxValue());
+    Assert.assertEquals(0, histogram.getValueAtPercentile(99), 0);
+  }
+
+  @Test
+  public void testSmallValuesAreExact() {
+    Histogram histogram = new Histogram(1000);
+    for (int i = 1; i <= 100; i++) {
+      histogram.recordValue(i);
+    }
+    Assert.assertEquals(100, histogram.getTotalCount());
+    Assert.assertEquals(1, histogram.getMinValue());
+    Assert.assertEquals(100, histogram.getMaxValue());
+    Assert.assertEquals(50.5, histogram.getMean(), 0.0001);
+    Assert.assertEquals(50, histogram.getValueAtPercentile(50));
+    Assert.assertEquals(99, histogram.getValueAtPercentile(99));
+    Assert.assertEquals(100, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testLargeValuesWithinPrecision() {
+    Histogram histogram = new Histogram(1L << 40);
+    long[] values = {1000, 123456, 98765432, 5000000000L};
+    for (long value : values) {
+      Histogram single = new Histogram(1L << 40);
+      single.recordValue(value);
+      single.recordValue(value + 1);
+      long estimate = single.getValueAtPercentile(50);
+      Assert.assertTrue(Math.abs(estimate - value) <= value / 64);
+      histogram.recordValue(value);
+    }
+    Assert.assertEquals(values.length, histogram.getTotalCount());
+    Assert.assertEquals(5000000000L, histogram.getValueAtPercentile(100));
+  }
+
+  @Test
+  public void testValuesAreClamped() {
+    Histogram histogram = new Histogram(1000);
+    histogram.recordValue(-5);
+    histogram.recordValue(1000000);
+    Assert.assertEquals(0, histogram.getMinValue());
+    Assert.assertEquals(1000, histogram.getMaxValue());
+  }
+
+  @Test
+  public void testReset() {
+    Histogram histogram = new Histogram(1000);
+    histogram.recordValue(42);
+    histogram.reset();
+    Assert.assertEquals(0, histogram.getTotalCount());
+    Assert.assertEquals(0, histogram.getValueAtPercentile(50));
+  }
+}
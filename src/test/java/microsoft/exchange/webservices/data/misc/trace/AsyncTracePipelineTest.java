@@ -0,0 +1,145 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.trace;
+
+import microsoft.exchange.webservices.data.core.enumeration.misc.TraceFlags;
+import microsoft.exchange.webservices.data.misc.ITraceListener;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Testclass for methods of AsyncTracePipeline
+ */
+@RunWith(JUnit4.class)
+public class AsyncTracePipelineTest {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private final List<String> messages = Collections.synchronizedList(new ArrayList<String>());
+
+  private final CountDownLatch entered = new CountDownLatch(1);
+
+  private final CountDownLatch released = new CountDownLatch(1);
+
+  private AsyncTracePipeline pipeline;
+
+  private final ITraceListener collecting = new ITraceListener() {
+    @Override
+    public void trace(String traceType, String traceMessage) {
+      messages.add(traceMessage);
+    }
+  };
+
+  private final ITraceListener blocking = new ITraceListener() {
+    @Override
+    public void trace(String traceType, String traceMessage) {
+      entered.countDown();
+      try {
+        released.await(10, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      messages.add(traceMessage);
+    }
+  };
+
+  @After
+  public void tearDown() {
+    released.countDown();
+    if (pipeline != null) {
+      pipeline.close();
+    }
+  }
+
+  @Test
+  public void testEntriesAreDeliveredOnFlush() throws Exception {
+    pipeline = new AsyncTracePipeline(collecting);
+    pipeline.traceMessage(TraceFlags.EwsRequestHttpHeaders, "first");
+    pipeline.traceMessage(TraceFlags.EwsResponseHttpHeaders, "second");
+
+    Assert.assertTrue(pipeline.flush(10, TimeUnit.SECONDS));
+    Assert.assertEquals(2, messages.size());
+    Assert.assertTrue(messages.get(0).contains("first"));
+    Assert.assertTrue(messages.get(1).contains("second"));
+    Assert.assertEquals(0, pipeline.getDroppedCount());
+  }
+
+  @Test
+  public void testEntriesAreDroppedWhenBufferIsFull() throws Exception {
+    pipeline = new AsyncTracePipeline(blocking, 1, AsyncTracePipeline.DEFAULT_MAX_BODY_BYTES, false);
+    pipeline.traceMessage(TraceFlags.EwsRequest, "delivering");
+    Assert.assertTrue(entered.await(10, TimeUnit.SECONDS));
+
+    // The formatter thread is stuck in the listener: one entry fits in the buffer, the next is dropped.
+    pipeline.traceMessage(TraceFlags.EwsRequest, "queued");
+    pipeline.traceMessage(TraceFlags.EwsRequest, "dropped");
+    Assert.assertEquals(1, pipeline.getDroppedCount());
+    Assert.assertFalse(pipeline.flush(10, TimeUnit.MILLISECONDS));
+
+    released.countDown();
+    Assert.assertTrue(pipeline.flush(10, TimeUnit.SECONDS));
+    Assert.assertEquals(2, messages.size());
+    Assert.assertTrue(messages.get(1).contains("queued"));
+  }
+
+  @Test
+  public void testBodiesAreTruncated() throws Exception {
+    pipeline = new AsyncTracePipeline(collecting, 16, 10, true);
+    ByteArrayOutputStream body = new ByteArrayOutputStream();
+    body.write("<Envelope>0123456789</Envelope>".getBytes(UTF8));
+
+    pipeline.traceXml(TraceFlags.EwsRequest, body);
+    pipeline.traceXml(TraceFlags.EwsResponse, body.toByteArray(), body.size(), body.size() + 5);
+
+    Assert.assertTrue(pipeline.flush(10, TimeUnit.SECONDS));
+    Assert.assertEquals(2, messages.size());
+    Assert.assertTrue(messages.get(0).contains("<Envelope>"));
+    Assert.assertFalse(messages.get(0).contains("0123"));
+    Assert.assertTrue(messages.get(0).contains("[21 more bytes truncated]"));
+    Assert.assertTrue(messages.get(1).contains("[26 more bytes truncated]"));
+  }
+
+  @Test
+  public void testEntriesAreDroppedAfterClose() throws Exception {
+    pipeline = new AsyncTracePipeline(collecting);
+    pipeline.traceMessage(TraceFlags.EwsRequest, "delivered");
+    pipeline.close();
+    pipeline.traceMessage(TraceFlags.EwsRequest, "dropped");
+
+    Assert.assertEquals(1, messages.size());
+    Assert.assertEquals(1, pipeline.getDroppedCount());
+  }
+
+}
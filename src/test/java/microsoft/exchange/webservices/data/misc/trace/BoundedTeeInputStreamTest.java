@@ -0,0 +1,105 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.trace;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+
+/**
+ * Testclass for methods of BoundedTeeInputStream
+ */
+@RunWith(JUnit4.class)
+public class BoundedTeeInputStreamTest {
+
+  private static byte[] bytes(int count) {
+    byte[] bytes = new byte[count];
+    for (int i = 0; i < count; i++) {
+      bytes[i] = (byte) i;
+    }
+    return bytes;
+  }
+
+  @Test
+  public void testCaptureIsBounded() throws Exception {
+    byte[] content = bytes(1000);
+    BoundedTeeInputStream stream = new BoundedTeeInputStream(new ByteArrayInputStream(content), 300);
+
+    byte[] chunk = new byte[128];
+    while (stream.read(chunk, 0, chunk.length) != -1) {
+      // Drain the stream.
+    }
+
+    Assert.assertEquals(300, stream.getCapturedLength());
+    Assert.assertEquals(1000, stream.getTotalBytes());
+    Assert.assertArrayEquals(Arrays.copyOf(content, 300), Arrays.copyOf(stream.getBuffer(), 300));
+  }
+
+  @Test
+  public void testSingleByteReadsAreCaptured() throws Exception {
+    byte[] content = bytes(10);
+    BoundedTeeInputStream stream = new BoundedTeeInputStream(new ByteArrayInputStream(content), 4);
+
+    for (int i = 0; i < content.length; i++) {
+      Assert.assertEquals(content[i], (byte) stream.read());
+    }
+    Assert.assertEquals(-1, stream.read());
+
+    Assert.assertEquals(4, stream.getCapturedLength());
+    Assert.assertEquals(10, stream.getTotalBytes());
+    Assert.assertArrayEquals(Arrays.copyOf(content, 4), Arrays.copyOf(stream.getBuffer(), 4));
+  }
+
+  @Test
+  public void testSkippedBytesAreCountedButNotCaptured() throws Exception {
+    BoundedTeeInputStream stream = new BoundedTeeInputStream(new ByteArrayInputStream(bytes(10)), 10);
+
+    Assert.assertEquals(6, stream.skip(6));
+    Assert.assertEquals(6, stream.read());
+
+    Assert.assertEquals(1, stream.getCapturedLength());
+    Assert.assertEquals(7, stream.getTotalBytes());
+  }
+
+  @Test
+  public void testZeroLimitCapturesNothing() throws Exception {
+    BoundedTeeInputStream stream = new BoundedTeeInputStream(new ByteArrayInputStream(bytes(10)), 0);
+
+    Assert.assertEquals(0, stream.read());
+    Assert.assertEquals(9, stream.read(new byte[16], 0, 16));
+
+    Assert.assertEquals(0, stream.getCapturedLength());
+    Assert.assertEquals(10, stream.getTotalBytes());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testNegativeLimitIsRejected() {
+    new BoundedTeeInputStream(new ByteArrayInputStream(new byte[0]), -1);
+  }
+
+}
@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.misc.trace;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+
+/**
+ * Testclass for methods of TraceFilters
+ */
+@RunWith(JUnit4.class)
+public class TraceFiltersTest {
+
+  @Test
+  public void testAll() {
+    Assert.assertTrue(TraceFilters.all().isTraced("GetItem", null));
+  }
+
+  @Test
+  public void testMailboxesAreComparedCaseInsensitively() {
+    ITraceFilter filter = TraceFilters.mailboxes(Arrays.asList("Alice@Contoso.com"));
+
+    Assert.assertTrue(filter.isTraced("GetItem", "alice@contoso.com"));
+    Assert.assertTrue(filter.isTraced("FindItem", "ALICE@CONTOSO.COM"));
+    Assert.assertFalse(filter.isTraced("GetItem", "bob@contoso.com"));
+    Assert.assertFalse(filter.isTraced("GetItem", null));
+  }
+
+  @Test
+  public void testOperations() {
+    ITraceFilter filter = TraceFilters.operations("GetItem", "SyncFolderItems");
+
+    Assert.assertTrue(filter.isTraced("GetItem", null));
+    Assert.assertTrue(filter.isTraced("SyncFolderItems", "alice@contoso.com"));
+    Assert.assertFalse(filter.isTraced("FindItem", null));
+  }
+
+  @Test
+  public void testSampledBounds() {
+    ITraceFilter none = TraceFilters.sampled(0);
+    ITraceFilter every = TraceFilters.sampled(1);
+    for (int i = 0; i < 100; i++) {
+      Assert.assertFalse(none.isTraced("GetItem", null));
+      Assert.assertTrue(every.isTraced("GetItem", null));
+    }
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testSampledRejectsInvalidRate() {
+    TraceFilters.sampled(1.5);
+  }
+
+  @Test
+  public void testAllOf() {
+    ITraceFilter filter = TraceFilters.allOf(
+        TraceFilters.operations("GetItem"),
+        TraceFilters.mailboxes(Arrays.asList("alice@contoso.com")));
+
+    Assert.assertTrue(filter.isTraced("GetItem", "alice@contoso.com"));
+    Assert.assertFalse(filter.isTraced("GetItem", "bob@contoso.com"));
+    Assert.assertFalse(filter.isTraced("FindItem", "alice@contoso.com"));
+  }
+
+}
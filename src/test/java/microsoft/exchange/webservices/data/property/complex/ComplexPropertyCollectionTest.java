@@ -29,6 +29,7 @@ import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 
 @RunWith(JUnit4.class)
@@ -54,10 +55,71 @@ public class ComplexPropertyCollectionTest {
   }
 
 
+  @Test
+  public void testAddAndRemoveKeepChangeLog() {
+    final ComplexPropertyCollection<ComplexProperty> collection = createFakeComplexPropertyCollection();
+    final ComplexProperty first = createFakeComplexProperty();
+    final ComplexProperty second = createFakeComplexProperty();
+
+    collection.internalAdd(first);
+    collection.internalAdd(second);
+    collection.internalAdd(first);
+    Assert.assertEquals(2, collection.getCount());
+    Assert.assertEquals(1, collection.indexOf(second));
+
+    collection.clearChangeLog();
+    collection.complexPropertyChanged(second);
+    Assert.assertTrue(collection.internalRemove(first));
+    Assert.assertFalse(collection.contains(first));
+    Assert.assertEquals(-1, collection.indexOf(first));
+    Assert.assertEquals(1, collection.getRemovedItems().size());
+
+    collection.internalAdd(first);
+    Assert.assertTrue(collection.getRemovedItems().isEmpty());
+    Assert.assertTrue(collection.getAddedItems().contains(first));
+    Assert.assertTrue(collection.getModifiedItems().contains(second));
+  }
+
+  /**
+   * Adding and changing items used to scan the item lists on every call, and
+   * compared each new item with all items before it.
+   */
+  @Test
+  public void testBulkAddDoesNotCompareItems() {
+    final ComplexPropertyCollection<ComplexProperty> collection = createFakeComplexPropertyCollection();
+    final int count = 2000;
+    final AtomicInteger comparisons = new AtomicInteger();
+    final ComplexProperty[] properties = new ComplexProperty[count];
+    for (int i = 0; i < count; i++) {
+      properties[i] = createCountingComplexProperty(comparisons);
+      collection.internalAdd(properties[i]);
+    }
+    for (int i = count - 1; i >= 0; i--) {
+      Assert.assertTrue(collection.contains(properties[i]));
+      collection.complexPropertyChanged(properties[i]);
+    }
+    Assert.assertEquals(count, collection.getCount());
+    Assert.assertEquals(count, collection.getAddedItems().size());
+    Assert.assertTrue(collection.getModifiedItems().isEmpty());
+    Assert.assertTrue("compared " + comparisons.get() + " times", comparisons.get() <= count);
+  }
+
   private ComplexProperty createFakeComplexProperty() {
     return new ComplexProperty() {};
   }
 
+  private ComplexProperty createCountingComplexProperty(final AtomicInteger comparisons) {
+    return new ComplexProperty() {
+      @Override public boolean equals(final Object other) {
+        comparisons.incrementAndGet();
+        return this == other;
+      }
+      @Override public int hashCode() {
+        return System.identityHashCode(this);
+      }
+    };
+  }
+
   private ComplexPropertyCollection<ComplexProperty> createFakeComplexPropertyCollection() {
     return new ComplexPropertyCollection<ComplexProperty>() {
       @Override protected ComplexProperty createComplexProperty(final String xmlElementName) {
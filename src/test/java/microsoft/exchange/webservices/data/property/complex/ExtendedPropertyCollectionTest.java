@@ -74,4 +74,23 @@ public class ExtendedPropertyCollectionTest {
       Assert.assertTrue(epc.tryGetValue(cls, propertyDefinition, propertyValueOut));
       Assert.assertTrue(propertyValueOut.getParam().equals(testValue));
     }
+
+    @Test
+    public void removeExtendedProperty() throws Exception {
+      ExtendedPropertyCollection epc = new ExtendedPropertyCollection();
+      ExtendedPropertyDefinition first = new ExtendedPropertyDefinition(123, MapiPropertyType.Integer);
+      ExtendedPropertyDefinition second = new ExtendedPropertyDefinition(124, MapiPropertyType.Integer);
+      epc.setExtendedProperty(first, 1);
+      epc.setExtendedProperty(second, 2);
+      epc.setExtendedProperty(first, 3);
+      Assert.assertEquals(2, epc.getCount());
+
+      Assert.assertTrue(epc.removeExtendedProperty(new ExtendedPropertyDefinition(123, MapiPropertyType.Integer)));
+      Assert.assertFalse(epc.removeExtendedProperty(first));
+
+      OutParam<Integer> propertyValueOut = new OutParam<Integer>();
+      Assert.assertFalse(epc.tryGetValue(Integer.class, first, propertyValueOut));
+      Assert.assertTrue(epc.tryGetValue(Integer.class, second, propertyValueOut));
+      Assert.assertEquals(Integer.valueOf(2), propertyValueOut.getParam());
+    }
 }
@@ -0,0 +1,270 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.property.complex.recurrence.pattern;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.enumeration.property.time.DayOfTheWeek;
+import microsoft.exchange.webservices.data.core.enumeration.property.time.DayOfTheWeekIndex;
+import microsoft.exchange.webservices.data.core.enumeration.property.time.Month;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceValidationException;
+import microsoft.exchange.webservices.data.property.complex.ComplexProperty;
+import microsoft.exchange.webservices.data.property.complex.DeletedOccurrenceInfoCollection;
+import microsoft.exchange.webservices.data.property.complex.OccurrenceInfoCollection;
+import microsoft.exchange.webservices.data.security.XmlNodeType;
+import microsoft.exchange.webservices.data.util.DateTimeUtils;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Testclass for methods of Recurrence#expand. Expected values are the
+ * occurrences a CalendarView returns for the same series and range.
+ */
+@RunWith(JUnit4.class)
+public class RecurrenceExpansionTest {
+
+  private static final TimeZone NEW_YORK = TimeZone.getTimeZone("America/New_York");
+
+  private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+  private static final TimeZone AUCKLAND = TimeZone.getTimeZone("Pacific/Auckland");
+
+  private static final TimeZone BAKER_ISLAND = TimeZone.getTimeZone("Etc/GMT+12");
+
+  @Test
+  public void testWeeklyKeepsWallClockAcrossDaylightSaving() throws Exception {
+    Recurrence recurrence = new Recurrence.WeeklyPattern(date("2024-03-04"), 1,
+        DayOfTheWeek.Monday, DayOfTheWeek.Wednesday, DayOfTheWeek.Friday);
+
+    OccurrenceIterator occurrences = recurrence.expand(time("2024-03-04T14:00:00Z"),
+        time("2024-03-04T14:30:00Z"), NEW_YORK, time("2024-03-06T00:00:00Z"), time("2024-03-13T00:00:00Z"));
+
+    Assert.assertEquals(Arrays.asList(
+        "2024-03-06T14:00:00Z/2024-03-06T14:30:00Z",
+        "2024-03-08T14:00:00Z/2024-03-08T14:30:00Z",
+        "2024-03-11T13:00:00Z/2024-03-11T13:30:00Z"), windows(occurrences));
+  }
+
+  @Test
+  public void testNumberedWeeklyCountsSkippedWeeks() throws Exception {
+    Recurrence recurrence = new Recurrence.WeeklyPattern(date("2024-01-03"), 1,
+        DayOfTheWeek.Tuesday, DayOfTheWeek.Thursday);
+    recurrence.setNumberOfOccurrences(5);
+
+    OccurrenceIterator occurrences = recurrence.expand(time("2024-01-04T10:00:00Z"),
+        time("2024-01-04T11:00:00Z"), UTC, time("2024-01-15T00:00:00Z"), time("2024-03-01T00:00:00Z"));
+
+    Assert.assertEquals(Arrays.asList(
+        "2024-01-16T10:00:00Z/2024-01-16T11:00:00Z",
+        "2024-01-18T10:00:00Z/2024-01-18T11:00:00Z"), windows(occurrences));
+  }
+
+  @Test
+  public void testDailySkipsToRange() throws Exception {
+    Recurrence recurrence = new Recurrence.DailyPattern(date("2015-01-01"), 1);
+
+    OccurrenceIterator occurrences = recurrence.expand(time("2015-01-01T08:00:00Z"),
+        time("2015-01-01T09:00:00Z"), UTC, time("2024-01-01T00:00:00Z"), time("2024-01-03T00:00:00Z"));
+
+    Assert.assertEquals(Arrays.asList(
+        "2024-01-01T08:00:00Z/2024-01-01T09:00:00Z",
+        "2024-01-02T08:00:00Z/2024-01-02T09:00:00Z"), windows(occurrences));
+
+    recurrence.setNumberOfOccurrences(10);
+    occurrences = recurrence.expand(time("2015-01-01T08:00:00Z"), time("2015-01-01T09:00:00Z"), UTC,
+        time("2015-01-09T00:00:00Z"), time("2015-02-01T00:00:00Z"));
+
+    Assert.assertEquals(Arrays.asList(
+        "2015-01-09T08:00:00Z/2015-01-09T09:00:00Z",
+        "2015-01-10T08:00:00Z/2015-01-10T09:00:00Z"), windows(occurrences));
+  }
+
+  @Test
+  public void testMonthlyUsesLastDayOfShorterMonths() throws Exception {
+    Recurrence recurrence = new Recurrence.MonthlyPattern(date("2024-01-31"), 1, 31);
+    recurrence.setNumberOfOccurrences(4);
+
+    OccurrenceIterator occurrences = recurrence.expand(time("2024-01-31T10:00:00Z"),
+        time("2024-01-31T11:00:00Z"), UTC, time("2024-01-01T00:00:00Z"), time("2025-01-01T00:00:00Z"));
+
+    Assert.assertEquals(Arrays.asList(
+        "2024-01-31T10:00:00Z/2024-01-31T11:00:00Z",
+        "2024-02-29T10:00:00Z/2024-02-29T11:00:00Z",
+        "2024-03-31T10:00:00Z/2024-03-31T11:00:00Z",
+        "2024-04-30T10:00:00Z/2024-04-30T11:00:00Z"), windows(occurrences));
+  }
+
+  @Test
+  public void testRelativeMonthlyLastFriday() throws Exception {
+    Recurrence recurrence = new Recurrence.RelativeMonthlyPattern(date("2024-01-01"), 2,
+        DayOfTheWeek.Friday, DayOfTheWeekIndex.Last);
+    recurrence.setEndDate(date("2024-07-31"));
+
+    OccurrenceIterator occurrences = recurrence.expand(time("2024-01-26T17:00:00Z"),
+        time("2024-01-26T18:00:00Z"), NEW_YORK, time("2024-03-01T00:00:00Z"), time("2025-01-01T00:00:00Z"));
+
+    Assert.assertEquals(Arrays.asList(
+        "2024-03-29T16:00:00Z/2024-03-29T17:00:00Z",
+        "2024-05-31T16:00:00Z/2024-05-31T17:00:00Z",
+        "2024-07-26T16:00:00Z/2024-07-26T17:00:00Z"), windows(occurrences));
+  }
+
+  @Test
+  public void testYearlyOnLeapDay() throws Exception {
+    Recurrence recurrence = new Recurrence.YearlyPattern(date("2024-02-29"), Month.February, 29);
+    Recurrence relative = new Recurrence.RelativeYearlyPattern(date("2024-01-01"), Month.November,
+        DayOfTheWeek.Thursday, DayOfTheWeekIndex.Fourth);
+
+    Assert.assertEquals(Arrays.asList(
+        "2024-02-29T00:00:00Z/2024-03-01T00:00:00Z",
+        "2025-02-28T00:00:00Z/2025-03-01T00:00:00Z"),
+        windows(recurrence.expand(time("2024-02-29T00:00:00Z"), time("2024-03-01T00:00:00Z"), UTC,
+            time("2024-01-01T00:00:00Z"), time("2026-01-01T00:00:00Z"))));
+    Assert.assertEquals(Arrays.asList(
+        "2024-11-28T00:00:00Z/2024-11-29T00:00:00Z",
+        "2025-11-27T00:00:00Z/2025-11-28T00:00:00Z"),
+        windows(relative.expand(time("2024-11-28T00:00:00Z"), time("2024-11-29T00:00:00Z"), UTC,
+            time("2024-01-01T00:00:00Z"), time("2026-01-01T00:00:00Z"))));
+  }
+
+  @Test
+  public void testStartDateFarEastOfUtc() throws Exception {
+    Recurrence recurrence = new Recurrence.DailyPattern(date("2024-01-10+13:00"), 1);
+    recurrence.setEndDate(date("2024-01-12+13:00"));
+
+    OccurrenceIterator occurrences = recurrence.expand(time("2024-01-09T20:00:00Z"),
+        time("2024-01-09T21:00:00Z"), AUCKLAND, time("2024-01-01T00:00:00Z"), time("2024-02-01T00:00:00Z"));
+
+    Assert.assertEquals(Arrays.asList(
+        "2024-01-09T20:00:00Z/2024-01-09T21:00:00Z",
+        "2024-01-10T20:00:00Z/2024-01-10T21:00:00Z",
+        "2024-01-11T20:00:00Z/2024-01-11T21:00:00Z"), windows(occurrences));
+  }
+
+  @Test
+  public void testStartDateFarWestOfUtc() throws Exception {
+    Recurrence recurrence = new Recurrence.DailyPattern(date("2024-01-10-12:00"), 1);
+    recurrence.setNumberOfOccurrences(2);
+
+    OccurrenceIterator occurrences = recurrence.expand(time("2024-01-10T21:00:00Z"),
+        time("2024-01-10T22:00:00Z"), BAKER_ISLAND, time("2024-01-01T00:00:00Z"), time("2024-02-01T00:00:00Z"));
+
+    Assert.assertEquals(Arrays.asList(
+        "2024-01-10T21:00:00Z/2024-01-10T22:00:00Z",
+        "2024-01-11T21:00:00Z/2024-01-11T22:00:00Z"), windows(occurrences));
+  }
+
+  @Test
+  public void testExceptionsAreApplied() throws Exception {
+    Recurrence recurrence = new Recurrence.DailyPattern(date("2024-01-01"), 1);
+    recurrence.setEndDate(date("2024-01-05"));
+
+    OccurrenceInfoCollection modified = load(new OccurrenceInfoCollection(), "ModifiedOccurrences",
+        occurrence("2024-01-03T09:00:00Z", "2024-01-01T12:00:00Z", "2024-01-01T13:00:00Z")
+            + occurrence("2024-01-04T09:00:00Z", "2024-01-06T10:00:00Z", "2024-01-06T11:00:00Z"));
+    DeletedOccurrenceInfoCollection deleted = load(new DeletedOccurrenceInfoCollection(), "DeletedOccurrences",
+        deletedOccurrence("2024-01-02T09:00:00Z"));
+
+    OccurrenceIterator occurrences = recurrence.expand(time("2024-01-01T09:00:00Z"),
+        time("2024-01-01T09:30:00Z"), UTC, time("2024-01-01T00:00:00Z"), time("2024-01-10T00:00:00Z"),
+        modified, deleted);
+
+    List<String> windows = new ArrayList<String>();
+    List<Boolean> exceptions = new ArrayList<Boolean>();
+    while (occurrences.next()) {
+      windows.add(window(occurrences));
+      exceptions.add(occurrences.isModified());
+    }
+    Assert.assertEquals(Arrays.asList(
+        "2024-01-01T09:00:00Z/2024-01-01T09:30:00Z",
+        "2024-01-01T12:00:00Z/2024-01-01T13:00:00Z",
+        "2024-01-05T09:00:00Z/2024-01-05T09:30:00Z",
+        "2024-01-06T10:00:00Z/2024-01-06T11:00:00Z"), windows);
+    Assert.assertEquals(Arrays.asList(false, true, false, true), exceptions);
+  }
+
+  @Test(expected = ServiceValidationException.class)
+  public void testRegenerationPatternIsRejected() throws Exception {
+    new Recurrence.DailyRegenerationPattern(date("2024-01-01"), 1).expand(time("2024-01-01T09:00:00Z"),
+        time("2024-01-01T10:00:00Z"), UTC, time("2024-01-01T00:00:00Z"), time("2024-02-01T00:00:00Z"));
+  }
+
+  private static Date date(String value) {
+    return DateTimeUtils.convertDateStringToDate(value);
+  }
+
+  private static Date time(String value) {
+    return DateTimeUtils.convertDateTimeStringToDate(value);
+  }
+
+  private static String format(long millis) {
+    SimpleDateFormat format = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss'Z'");
+    format.setTimeZone(UTC);
+    return format.format(new Date(millis));
+  }
+
+  private static String window(OccurrenceIterator occurrences) {
+    return format(occurrences.getStartMillis()) + "/" + format(occurrences.getEndMillis());
+  }
+
+  private static List<String> windows(OccurrenceIterator occurrences) {
+    List<String> windows = new ArrayList<String>();
+    while (occurrences.next()) {
+      windows.add(window(occurrences));
+    }
+    return windows;
+  }
+
+  private static String occurrence(String originalStart, String start, String end) {
+    return "<t:Occurrence><t:Start>" + start + "</t:Start><t:End>" + end + "</t:End>"
+        + "<t:OriginalStart>" + originalStart + "</t:OriginalStart></t:Occurrence>";
+  }
+
+  private static String deletedOccurrence(String originalStart) {
+    return "<t:DeletedOccurrence><t:Start>" + originalStart + "</t:Start></t:DeletedOccurrence>";
+  }
+
+  private static <T extends ComplexProperty> T load(T property, String element, String content) throws Exception {
+    String xml = "<t:" + element + " xmlns:t=\"" + EwsUtilities.EwsTypesNamespace + "\">" + content
+        + "</t:" + element + ">";
+    EwsServiceXmlReader reader = new EwsServiceXmlReader(
+        new ByteArrayInputStream(xml.getBytes(Charset.forName("UTF-8"))), new ExchangeService());
+    reader.read(new XmlNodeType(XmlNodeType.START_DOCUMENT));
+    reader.read();
+    property.loadFromXml(reader, element);
+    return property;
+  }
+}
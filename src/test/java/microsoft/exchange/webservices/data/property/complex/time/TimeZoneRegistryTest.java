@@ -0,0 +1,209 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.property.complex.time;
+
+import microsoft.exchange.webservices.data.core.EwsServiceXmlReader;
+import microsoft.exchange.webservices.data.core.EwsServiceXmlWriter;
+import microsoft.exchange.webservices.data.core.EwsUtilities;
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.misc.XmlNamespace;
+import microsoft.exchange.webservices.data.core.service.item.Appointment;
+import microsoft.exchange.webservices.data.property.complex.ComplexProperty;
+import microsoft.exchange.webservices.data.security.XmlNodeType;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Testclass for methods of TimeZoneRegistry
+ */
+@RunWith(JUnit4.class)
+public class TimeZoneRegistryTest {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static final String EASTERN = "<t:TimeZoneDefinition xmlns:t=\"" + EwsUtilities.EwsTypesNamespace + "\""
+      + " Name=\"(UTC-05:00) Eastern Time (US &amp; Canada)\" Id=\"Eastern Standard Time\">"
+      + "<t:Periods>"
+      + "<t:Period Bias=\"PT5H\" Name=\"Standard\" Id=\"Std\"/>"
+      + "<t:Period Bias=\"PT4H\" Name=\"Daylight\" Id=\"Dlt\"/>"
+      + "</t:Periods>"
+      + "<t:TransitionsGroups><t:TransitionsGroup Id=\"0\">"
+      + "<t:RecurringDayTransition><t:To Kind=\"Period\">Dlt</t:To><t:TimeOffset>PT2H</t:TimeOffset>"
+      + "<t:Month>3</t:Month><t:DayOfWeek>Sunday</t:DayOfWeek><t:Occurrence>2</t:Occurrence>"
+      + "</t:RecurringDayTransition>"
+      + "<t:RecurringDayTransition><t:To Kind=\"Period\">Std</t:To><t:TimeOffset>PT2H</t:TimeOffset>"
+      + "<t:Month>11</t:Month><t:DayOfWeek>Sunday</t:DayOfWeek><t:Occurrence>1</t:Occurrence>"
+      + "</t:RecurringDayTransition>"
+      + "</t:TransitionsGroup></t:TransitionsGroups>"
+      + "<t:Transitions><t:Transition><t:To Kind=\"Group\">0</t:To></t:Transition></t:Transitions>"
+      + "</t:TimeZoneDefinition>";
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private ExchangeService service;
+
+  @Before
+  public void setUp() {
+    service = new ExchangeService(ExchangeVersion.Exchange2010_SP2) {
+      @Override
+      public Collection<TimeZoneDefinition> getServerTimeZones() throws Exception {
+        calls.incrementAndGet();
+        return Collections.singletonList(parse(this, EASTERN));
+      }
+    };
+  }
+
+  private static TimeZoneDefinition parse(ExchangeService service, String xml) throws Exception {
+    EwsServiceXmlReader reader = new EwsServiceXmlReader(new ByteArrayInputStream(xml.getBytes(UTF8)), service);
+    reader.read(new XmlNodeType(XmlNodeType.START_DOCUMENT));
+    reader.read();
+    TimeZoneDefinition timeZone = new TimeZoneDefinition();
+    timeZone.loadFromXml(reader);
+    return timeZone;
+  }
+
+  private String write(TimeZoneDefinition timeZone) throws Exception {
+    ByteArrayOutputStream stream = new ByteArrayOutputStream();
+    EwsServiceXmlWriter writer = new EwsServiceXmlWriter(service, stream);
+    writer.writeStartElement(XmlNamespace.Types, "Appointment");
+    timeZone.writeToXml(writer, "StartTimeZone");
+    writer.writeEndElement();
+    writer.flush();
+    return new String(stream.toByteArray(), UTF8);
+  }
+
+  @Test
+  public void testDefinitionsAreLoadedOnce() throws Exception {
+    TimeZoneRegistry registry = new TimeZoneRegistry();
+
+    TimeZoneDefinition eastern = registry.getTimeZoneDefinition(service, "Eastern Standard Time");
+    Assert.assertTrue(eastern.isFrozen());
+    Assert.assertSame(eastern, registry.getTimeZoneDefinition(service, TimeZone.getTimeZone("America/New_York")));
+    Assert.assertNull(registry.getTimeZoneDefinition(service, "Mars Standard Time"));
+    Assert.assertEquals(1, calls.get());
+
+    registry.invalidateAll();
+    registry.getTimeZoneDefinitions(service);
+    Assert.assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testDefinitionsAreLoadedPerServer() throws Exception {
+    TimeZoneRegistry registry = new TimeZoneRegistry();
+    service.setUrl(new URI("https://mail.contoso.com/EWS/Exchange.asmx"));
+    TimeZoneDefinition contoso = registry.getTimeZoneDefinition(service, "Eastern Standard Time");
+    service.setUrl(new URI("https://mail.fabrikam.com/EWS/Exchange.asmx"));
+    TimeZoneDefinition fabrikam = registry.getTimeZoneDefinition(service, "Eastern Standard Time");
+
+    Assert.assertNotSame(contoso, fabrikam);
+    Assert.assertEquals(2, calls.get());
+  }
+
+  @Test
+  public void testOneDefinitionCanBeAssignedToManyAppointments() throws Exception {
+    TimeZoneDefinition eastern = new TimeZoneRegistry().getTimeZoneDefinition(service, "Eastern Standard Time");
+    List<Appointment> appointments = new ArrayList<Appointment>();
+    for (int i = 0; i < 100; i++) {
+      Appointment appointment = new Appointment(service);
+      appointment.setStartTimeZone(eastern);
+      appointment.setEndTimeZone(eastern);
+      appointments.add(appointment);
+    }
+
+    Field onChangeList = ComplexProperty.class.getDeclaredField("onChangeList");
+    onChangeList.setAccessible(true);
+    Assert.assertTrue(((List<?>) onChangeList.get(eastern)).isEmpty());
+    for (Appointment appointment : appointments) {
+      Assert.assertSame(eastern, appointment.getStartTimeZone());
+      Assert.assertSame(eastern, appointment.getEndTimeZone());
+    }
+  }
+
+  @Test
+  public void testFrozenDefinitionsCannotBeChanged() throws Exception {
+    TimeZoneDefinition eastern = parse(service, EASTERN).freeze();
+    try {
+      eastern.setId("Pacific Standard Time");
+      Assert.fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      eastern.getPeriods().clear();
+      Assert.fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    try {
+      eastern.getTransitionGroups().get("0").getTransitions().clear();
+      Assert.fail();
+    } catch (UnsupportedOperationException expected) {
+    }
+    Assert.assertEquals("Eastern Standard Time", eastern.getId());
+  }
+
+  @Test
+  public void testFrozenDefinitionsWriteTheSameXml() throws Exception {
+    String expected = write(parse(service, EASTERN));
+    TimeZoneDefinition eastern = parse(service, EASTERN).freeze();
+
+    Assert.assertEquals(expected, write(eastern));
+    Assert.assertEquals(expected, write(eastern));
+    Assert.assertTrue(expected.contains("<t:StartTimeZone Name=\"(UTC-05:00) Eastern Time (US &amp; Canada)\""));
+  }
+
+  @Test
+  public void testSnapshots() throws Exception {
+    TimeZoneRegistry registry = new TimeZoneRegistry();
+    registry.setSnapshotDirectory(folder.getRoot());
+    String expected = write(registry.getTimeZoneDefinition(service, "Eastern Standard Time"));
+
+    TimeZoneRegistry restarted = new TimeZoneRegistry();
+    restarted.setSnapshotDirectory(folder.getRoot());
+    TimeZoneDefinition eastern = restarted.getTimeZoneDefinition(service, "Eastern Standard Time");
+
+    Assert.assertEquals(1, calls.get());
+    Assert.assertEquals(2, eastern.getPeriods().size());
+    Assert.assertEquals(expected, write(eastern));
+  }
+}
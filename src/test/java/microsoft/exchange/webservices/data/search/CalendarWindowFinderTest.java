@@ -0,0 +1,142 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.search;
+
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.property.WellKnownFolderName;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceLocalException;
+import microsoft.exchange.webservices.data.core.service.item.Appointment;
+import microsoft.exchange.webservices.data.property.complex.FolderId;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Testclass for methods of CalendarWindowFinder
+ */
+@RunWith(JUnit4.class)
+public class CalendarWindowFinderTest {
+
+  private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+  private static final long START = 1704067200000L; // 2024-01-01T00:00:00Z
+
+  private final List<Appointment> calendar = new ArrayList<Appointment>();
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private ExchangeService service;
+
+  private CalendarWindowFinder finder;
+
+  @Before
+  public void setUp() throws Exception {
+    service = new ExchangeService(ExchangeVersion.Exchange2010_SP2) {
+      @Override
+      public FindItemsResults<Appointment> findAppointments(FolderId parentFolderId, CalendarView calendarView)
+          throws Exception {
+        calls.incrementAndGet();
+        FindItemsResults<Appointment> results = new FindItemsResults<Appointment>();
+        for (Appointment appointment : calendar) {
+          if (appointment.getStart().before(calendarView.getEndDate())
+              && appointment.getEnd().after(calendarView.getStartDate())) {
+            if (results.getItems().size() == calendarView.getMaxItemsReturned()) {
+              results.setMoreAvailable(true);
+              break;
+            }
+            results.getItems().add(appointment);
+          }
+        }
+        return results;
+      }
+    };
+    finder = new CalendarWindowFinder(service, 4);
+  }
+
+  @After
+  public void tearDown() {
+    finder.close();
+  }
+
+  @Test
+  public void testWindowsAreSplitAndMerged() throws Exception {
+    // One appointment of 90 minutes per hour, so that each one spans a
+    // window boundary, plus one that starts before the range.
+    addAppointment(START - HOUR / 2, START + HOUR / 2);
+    for (int i = 0; i < 240; i++) {
+      addAppointment(START + i * HOUR, START + i * HOUR + 3 * HOUR / 2);
+    }
+    finder.setInitialWindow(5, TimeUnit.DAYS);
+    finder.setMaxItemsPerWindow(50);
+
+    FindItemsResults<Appointment> results = finder.findAppointments(new FolderId(WellKnownFolderName.Calendar),
+        new CalendarView(new Date(START), new Date(START + 240 * HOUR)));
+
+    Assert.assertEquals(calendar, results.getItems());
+    Assert.assertEquals(241, results.getTotalCount());
+    Assert.assertFalse(results.isMoreAvailable());
+    Assert.assertTrue(calls.get() > 2);
+  }
+
+  @Test
+  public void testMaxItemsReturnedOfView() throws Exception {
+    for (int i = 0; i < 10; i++) {
+      addAppointment(START + i * HOUR, START + i * HOUR + HOUR);
+    }
+
+    FindItemsResults<Appointment> results = finder.findAppointments(new FolderId(WellKnownFolderName.Calendar),
+        new CalendarView(new Date(START), new Date(START + 10 * HOUR), 3));
+
+    Assert.assertEquals(calendar.subList(0, 3), results.getItems());
+    Assert.assertTrue(results.isMoreAvailable());
+  }
+
+  @Test(expected = ServiceLocalException.class)
+  public void testFullMinimumWindowFails() throws Exception {
+    for (int i = 0; i < 3; i++) {
+      addAppointment(START, START + HOUR);
+    }
+    finder.setMaxItemsPerWindow(2);
+
+    finder.findAppointments(new FolderId(WellKnownFolderName.Calendar),
+        new CalendarView(new Date(START), new Date(START + HOUR)));
+  }
+
+  private void addAppointment(long start, long end) throws Exception {
+    Appointment appointment = new Appointment(service);
+    appointment.setStart(new Date(start));
+    appointment.setEnd(new Date(end));
+    calendar.add(appointment);
+  }
+}
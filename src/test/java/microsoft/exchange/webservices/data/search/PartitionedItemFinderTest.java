@@ -0,0 +1,168 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.search;
+
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.misc.error.ServiceError;
+import microsoft.exchange.webservices.data.core.enumeration.property.WellKnownFolderName;
+import microsoft.exchange.webservices.data.core.enumeration.search.LogicalOperator;
+import microsoft.exchange.webservices.data.core.enumeration.service.ServiceResult;
+import microsoft.exchange.webservices.data.core.exception.service.remote.ServiceResponseException;
+import microsoft.exchange.webservices.data.core.response.ServiceResponse;
+import microsoft.exchange.webservices.data.core.service.item.Item;
+import microsoft.exchange.webservices.data.core.service.schema.EmailMessageSchema;
+import microsoft.exchange.webservices.data.core.service.schema.ItemSchema;
+import microsoft.exchange.webservices.data.property.complex.FolderId;
+import microsoft.exchange.webservices.data.property.complex.ItemId;
+import microsoft.exchange.webservices.data.search.filter.SearchFilter;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Testclass for methods of PartitionedItemFinder
+ */
+@RunWith(JUnit4.class)
+public class PartitionedItemFinderTest {
+
+  private static final FolderId INBOX = new FolderId(WellKnownFolderName.Inbox);
+
+  /**
+   * The messages of the folder, by InternetMessageId.
+   */
+  private final Map<String, Item> messages = new LinkedHashMap<String, Item>();
+
+  private final AtomicInteger calls = new AtomicInteger();
+
+  private PartitionedItemFinder finder;
+
+  @Before
+  public void setUp() throws Exception {
+    for (int i = 0; i < 300; i++) {
+      Item item = Mockito.mock(Item.class);
+      Mockito.when(item.getId()).thenReturn(new ItemId("item" + i));
+      messages.put("<" + i + "@example.com>", item);
+    }
+    ExchangeService service = new ExchangeService(ExchangeVersion.Exchange2010_SP2) {
+      @Override
+      public FindItemsResults<Item> findItems(FolderId parentFolderId, SearchFilter searchFilter, ItemView view)
+          throws Exception {
+        calls.incrementAndGet();
+        Set<Object> values = new HashSet<Object>();
+        collectValues(searchFilter, values);
+        if (values.size() > 40) {
+          throw new ServiceResponseException(
+              new ServiceResponse(ServiceResult.Error, ServiceError.ErrorRestrictionTooComplex) {
+              });
+        }
+        List<Item> matches = new ArrayList<Item>();
+        for (Map.Entry<String, Item> message : messages.entrySet()) {
+          if (values.contains(message.getKey())) {
+            matches.add(message.getValue());
+          }
+        }
+        FindItemsResults<Item> results = new FindItemsResults<Item>();
+        int end = Math.min(matches.size(), view.getOffset() + view.getPageSize());
+        results.getItems().addAll(matches.subList(view.getOffset(), end));
+        results.setMoreAvailable(end < matches.size());
+        results.setNextPageOffset(end < matches.size() ? end : null);
+        return results;
+      }
+    };
+    finder = new PartitionedItemFinder(service, 4);
+  }
+
+  @After
+  public void tearDown() {
+    finder.close();
+  }
+
+  private static void collectValues(SearchFilter searchFilter, Set<Object> values) {
+    if (searchFilter instanceof SearchFilter.IsEqualTo) {
+      values.add(((SearchFilter.IsEqualTo) searchFilter).getValue());
+    } else if (searchFilter instanceof SearchFilter.SearchFilterCollection) {
+      for (SearchFilter child : (SearchFilter.SearchFilterCollection) searchFilter) {
+        collectValues(child, values);
+      }
+    }
+  }
+
+  @Test
+  public void testLargeOrIsPartitionedAndPaged() throws Exception {
+    finder.setMaxConditionsPerFilter(30);
+    finder.setPageSize(7);
+    List<Object> ids = new ArrayList<Object>();
+    for (int i = 0; i < 250; i++) {
+      ids.add("<" + i + "@example.com>");
+    }
+    ids.add("<unknown@example.com>");
+    ids.add("<3@example.com>");
+
+    FindItemsResults<Item> results = finder.findItemsWithAnyValue(INBOX, EmailMessageSchema.InternetMessageId,
+        ids, null);
+
+    Assert.assertEquals(250, results.getTotalCount());
+    Assert.assertEquals(new ArrayList<Item>(messages.values()).subList(0, 250), results.getItems());
+    Assert.assertTrue(calls.get() > 9);
+  }
+
+  @Test
+  public void testRejectedPartitionsAreSplit() throws Exception {
+    finder.setMaxConditionsPerFilter(100);
+    List<SearchFilter> alternatives = new ArrayList<SearchFilter>();
+    for (int i = 0; i < 100; i++) {
+      alternatives.add(new SearchFilter.IsEqualTo(EmailMessageSchema.InternetMessageId, "<" + i + "@example.com>"));
+    }
+    SearchFilter searchFilter = new SearchFilter.SearchFilterCollection(LogicalOperator.And,
+        new SearchFilter.IsEqualTo(ItemSchema.IsDraft, false),
+        new SearchFilter.SearchFilterCollection(LogicalOperator.Or, alternatives));
+
+    FindItemsResults<Item> results = finder.findItems(INBOX, searchFilter, null);
+
+    Assert.assertEquals(new ArrayList<Item>(messages.values()).subList(0, 100), results.getItems());
+  }
+
+  @Test(expected = ServiceResponseException.class)
+  public void testRejectedSingleConditionFails() throws Exception {
+    List<SearchFilter> conditions = new ArrayList<SearchFilter>();
+    for (int i = 0; i < 50; i++) {
+      conditions.add(new SearchFilter.IsEqualTo(EmailMessageSchema.InternetMessageId, "<" + i + "@example.com>"));
+    }
+
+    finder.findItems(INBOX, new SearchFilter.SearchFilterCollection(LogicalOperator.And, conditions), null);
+  }
+}
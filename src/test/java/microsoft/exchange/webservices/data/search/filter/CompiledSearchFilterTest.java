@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ * Copyright (c) 2012 Microsoft Corporation
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+
+package microsoft.exchange.webservices.data.search.filter;
+
+import microsoft.exchange.webservices.data.core.ExchangeService;
+import microsoft.exchange.webservices.data.core.enumeration.misc.ExchangeVersion;
+import microsoft.exchange.webservices.data.core.enumeration.property.Importance;
+import microsoft.exchange.webservices.data.core.enumeration.property.MapiPropertyType;
+import microsoft.exchange.webservices.data.core.enumeration.search.ComparisonMode;
+import microsoft.exchange.webservices.data.core.enumeration.search.ContainmentMode;
+import microsoft.exchange.webservices.data.core.enumeration.search.LogicalOperator;
+import microsoft.exchange.webservices.data.core.exception.service.local.ServiceValidationException;
+import microsoft.exchange.webservices.data.core.service.item.EmailMessage;
+import microsoft.exchange.webservices.data.core.service.schema.ContactSchema;
+import microsoft.exchange.webservices.data.core.service.schema.EmailMessageSchema;
+import microsoft.exchange.webservices.data.core.service.schema.ItemSchema;
+import microsoft.exchange.webservices.data.property.complex.StringList;
+import microsoft.exchange.webservices.data.property.definition.ExtendedPropertyDefinition;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Testclass for methods of CompiledSearchFilter
+ */
+@RunWith(JUnit4.class)
+public class CompiledSearchFilterTest {
+
+  private static final ExtendedPropertyDefinition SPAM_SCORE =
+      new ExtendedPropertyDefinition(0x4076, MapiPropertyType.Integer);
+
+  private EmailMessage message;
+
+  @Before
+  public void setUp() throws Exception {
+    message = new EmailMessage(new ExchangeService(ExchangeVersion.Exchange2010_SP2));
+    message.setSubject("Quarterly Résumé review");
+    message.setImportance(Importance.High);
+    message.setCategories(new StringList(Arrays.asList("Red", "Finance")));
+    message.setExtendedProperty(SPAM_SCORE, 3);
+    message.getPropertyBag().getProperties().put(ItemSchema.DateTimeReceived, new Date(1000L));
+    message.getPropertyBag().getProperties().put(ItemSchema.Size, 2048);
+  }
+
+  private boolean matches(SearchFilter searchFilter) throws Exception {
+    return CompiledSearchFilter.compile(searchFilter).apply(message);
+  }
+
+  @Test
+  public void testRelationalFilters() throws Exception {
+    Assert.assertTrue(matches(new SearchFilter.IsEqualTo(ItemSchema.Subject, "QUARTERLY RÉSUMÉ REVIEW")));
+    Assert.assertTrue(matches(new SearchFilter.IsEqualTo(ItemSchema.Importance, Importance.High)));
+    Assert.assertTrue(matches(new SearchFilter.IsGreaterThan(ItemSchema.Importance, Importance.Normal)));
+    Assert.assertTrue(matches(new SearchFilter.IsGreaterThanOrEqualTo(ItemSchema.Size, 2048L)));
+    Assert.assertFalse(matches(new SearchFilter.IsLessThan(ItemSchema.Size, 2048)));
+    Assert.assertTrue(matches(new SearchFilter.IsLessThan(ItemSchema.DateTimeReceived, new Date(2000L))));
+    Assert.assertTrue(matches(new SearchFilter.IsEqualTo(SPAM_SCORE, 3)));
+    Assert.assertTrue(matches(new SearchFilter.IsNotEqualTo(SPAM_SCORE, 4)));
+  }
+
+  @Test
+  public void testMissingProperties() throws Exception {
+    Assert.assertFalse(matches(new SearchFilter.IsNotEqualTo(EmailMessageSchema.IsRead, true)));
+    Assert.assertFalse(matches(new SearchFilter.Exists(EmailMessageSchema.IsRead)));
+    Assert.assertTrue(matches(new SearchFilter.Not(new SearchFilter.IsEqualTo(EmailMessageSchema.IsRead, true))));
+    Assert.assertTrue(matches(new SearchFilter.Exists(SPAM_SCORE)));
+  }
+
+  @Test
+  public void testMultiValuedProperties() throws Exception {
+    Assert.assertTrue(matches(new SearchFilter.IsEqualTo(ItemSchema.Categories, "finance")));
+    Assert.assertFalse(matches(new SearchFilter.IsNotEqualTo(ItemSchema.Categories, "Red")));
+    Assert.assertTrue(matches(new SearchFilter.IsNotEqualTo(ItemSchema.Categories, "Blue")));
+    Assert.assertTrue(matches(new SearchFilter.ContainsSubstring(ItemSchema.Categories, "fin",
+        ContainmentMode.Prefixed, ComparisonMode.IgnoreCase)));
+  }
+
+  @Test
+  public void testContainsSubstring() throws Exception {
+    Assert.assertTrue(matches(new SearchFilter.ContainsSubstring(ItemSchema.Subject, "resume",
+        ContainmentMode.Substring, ComparisonMode.IgnoreCaseAndNonSpacingCharacters)));
+    Assert.assertFalse(matches(new SearchFilter.ContainsSubstring(ItemSchema.Subject, "resume")));
+    Assert.assertTrue(matches(new SearchFilter.ContainsSubstring(ItemSchema.Subject, "rev",
+        ContainmentMode.PrefixOnWords, ComparisonMode.Exact)));
+    Assert.assertFalse(matches(new SearchFilter.ContainsSubstring(ItemSchema.Subject, "rev",
+        ContainmentMode.ExactPhrase, ComparisonMode.Exact)));
+    Assert.assertTrue(matches(new SearchFilter.ContainsSubstring(ItemSchema.Subject, "résumé review",
+        ContainmentMode.ExactPhrase, ComparisonMode.IgnoreCase)));
+    Assert.assertFalse(matches(new SearchFilter.ContainsSubstring(ItemSchema.Subject, "Quarterly",
+        ContainmentMode.FullString, ComparisonMode.Exact)));
+  }
+
+  @Test
+  public void testCollectionsAndBitmasks() throws Exception {
+    SearchFilter searchFilter = new SearchFilter.SearchFilterCollection(LogicalOperator.And,
+        new SearchFilter.ExcludesBitmask(ItemSchema.Size, 1),
+        new SearchFilter.SearchFilterCollection(LogicalOperator.Or,
+            new SearchFilter.IsEqualTo(ItemSchema.Importance, Importance.Low),
+            new SearchFilter.IsGreaterThan(SPAM_SCORE, 2)));
+    Assert.assertTrue(matches(searchFilter));
+    Assert.assertFalse(matches(new SearchFilter.ExcludesBitmask(ItemSchema.Size, 2048)));
+    Assert.assertTrue(CompiledSearchFilter.compile(null).apply(message));
+  }
+
+  @Test(expected = ServiceValidationException.class)
+  public void testIndexedPropertiesAreRejected() throws Exception {
+    CompiledSearchFilter.compile(new SearchFilter.IsEqualTo(ContactSchema.EmailAddress1, "jane@example.com"));
+  }
+}